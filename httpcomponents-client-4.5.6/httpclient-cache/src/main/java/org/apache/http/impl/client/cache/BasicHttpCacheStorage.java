@@ -27,6 +27,8 @@
 package org.apache.http.impl.client.cache;
 
 import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
@@ -48,10 +50,12 @@ import org.apache.http.client.cache.HttpCacheUpdateCallback;
 public class BasicHttpCacheStorage implements HttpCacheStorage {
 
     private final CacheMap entries;
+    private final Lock lock;
 
     public BasicHttpCacheStorage(final CacheConfig config) {
         super();
         this.entries = new CacheMap(config.getMaxCacheEntries());
+        this.lock = new ReentrantLock();
     }
 
     /**
@@ -63,8 +67,13 @@ public class BasicHttpCacheStorage implements HttpCacheStorage {
      *            HttpCacheEntry to place in the cache
      */
     @Override
-    public synchronized void putEntry(final String url, final HttpCacheEntry entry) throws IOException {
-        entries.put(url, entry);
+    public void putEntry(final String url, final HttpCacheEntry entry) throws IOException {
+        lock.lock();
+        try {
+            entries.put(url, entry);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -75,8 +84,13 @@ public class BasicHttpCacheStorage implements HttpCacheStorage {
      * @return HttpCacheEntry if one exists, or null for cache miss
      */
     @Override
-    public synchronized HttpCacheEntry getEntry(final String url) throws IOException {
-        return entries.get(url);
+    public HttpCacheEntry getEntry(final String url) throws IOException {
+        lock.lock();
+        try {
+            return entries.get(url);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -86,16 +100,26 @@ public class BasicHttpCacheStorage implements HttpCacheStorage {
      *            Url that is the cache key
      */
     @Override
-    public synchronized void removeEntry(final String url) throws IOException {
-        entries.remove(url);
+    public void removeEntry(final String url) throws IOException {
+        lock.lock();
+        try {
+            entries.remove(url);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
-    public synchronized void updateEntry(
+    public void updateEntry(
             final String url,
             final HttpCacheUpdateCallback callback) throws IOException {
-        final HttpCacheEntry existingEntry = entries.get(url);
-        entries.put(url, callback.update(existingEntry));
+        lock.lock();
+        try {
+            final HttpCacheEntry existingEntry = entries.get(url);
+            entries.put(url, callback.update(existingEntry));
+        } finally {
+            lock.unlock();
+        }
     }
 
 }
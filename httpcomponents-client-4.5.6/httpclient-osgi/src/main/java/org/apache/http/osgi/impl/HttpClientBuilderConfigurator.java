@@ -42,6 +42,10 @@ final class HttpClientBuilderConfigurator {
         routePlanner = new OSGiHttpRoutePlanner(proxyConfigurations);
     }
 
+    void proxyConfigurationsChanged() {
+        routePlanner.configurationChanged();
+    }
+
     <T extends HttpClientBuilder> T configure(final T clientBuilder) {
         clientBuilder
                 .setDefaultCredentialsProvider(credentialsProvider)
@@ -76,6 +76,8 @@ public final class HttpProxyConfigurationActivator implements BundleActivator, M
 
     private final List<ProxyConfiguration> proxyConfigurations = new CopyOnWriteArrayList<ProxyConfiguration>();
 
+    private final HttpClientBuilderConfigurator builderConfigurator = new HttpClientBuilderConfigurator(proxyConfigurations);
+
     private final HttpClientTracker httpClientTracker = new HttpClientTracker();
 
     /**
@@ -93,14 +95,12 @@ public final class HttpProxyConfigurationActivator implements BundleActivator, M
 
         configurator = context.registerService(ManagedServiceFactory.class.getName(), this, props);
 
-        final HttpClientBuilderConfigurator configurator = new HttpClientBuilderConfigurator(proxyConfigurations);
-
         props.clear();
         props.put(Constants.SERVICE_PID, BUILDER_FACTORY_SERVICE_PID);
         props.put(Constants.SERVICE_VENDOR, context.getBundle().getHeaders().get(Constants.BUNDLE_VENDOR));
         props.put(Constants.SERVICE_DESCRIPTION, BUILDER_FACTORY_SERVICE_NAME);
         clientFactory = context.registerService(HttpClientBuilderFactory.class.getName(),
-                                                new OSGiHttpClientBuilderFactory(configurator, httpClientTracker),
+                                                new OSGiHttpClientBuilderFactory(builderConfigurator, httpClientTracker),
                                                 props);
 
         props.clear();
@@ -108,7 +108,7 @@ public final class HttpProxyConfigurationActivator implements BundleActivator, M
         props.put(Constants.SERVICE_VENDOR, context.getBundle().getHeaders().get(Constants.BUNDLE_VENDOR));
         props.put(Constants.SERVICE_DESCRIPTION, CACHEABLE_BUILDER_FACTORY_SERVICE_NAME);
         cachingClientFactory = context.registerService(CachingHttpClientBuilderFactory.class.getName(),
-                                                       new OSGiCachingHttpClientBuilderFactory(configurator, httpClientTracker),
+                                                       new OSGiCachingHttpClientBuilderFactory(builderConfigurator, httpClientTracker),
                                                        props);
     }
 
@@ -172,6 +172,7 @@ public final class HttpProxyConfigurationActivator implements BundleActivator, M
         final
         Dictionary<String, Object> properties = config;
         proxyConfiguration.update(properties);
+        builderConfigurator.proxyConfigurationsChanged();
     }
 
     /**
@@ -184,6 +185,7 @@ public final class HttpProxyConfigurationActivator implements BundleActivator, M
             final ServiceReference ref = registration.getReference();
             final ProxyConfiguration config = (ProxyConfiguration) context.getService(ref);
             proxyConfigurations.remove(config);
+            builderConfigurator.proxyConfigurationsChanged();
             context.ungetService(ref);
             registration.unregister();
         }
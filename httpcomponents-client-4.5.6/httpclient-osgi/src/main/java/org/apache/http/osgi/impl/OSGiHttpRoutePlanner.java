@@ -26,8 +26,12 @@
  */
 package org.apache.http.osgi.impl;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,9 +59,22 @@ final class OSGiHttpRoutePlanner extends DefaultRoutePlanner {
 
     private final List<ProxyConfiguration> proxyConfigurations;
 
+    private final AtomicLong version;
+
+    private volatile ProxyDecisions proxyDecisions;
+
     public OSGiHttpRoutePlanner(final List<ProxyConfiguration> proxyConfigurations) {
         super(null);
         this.proxyConfigurations = proxyConfigurations;
+        this.version = new AtomicLong();
+    }
+
+    /**
+     * Signals that the proxy configurations have been added, removed or
+     * updated. Proxy decisions are re-evaluated on the next request.
+     */
+    void configurationChanged() {
+        this.version.incrementAndGet();
     }
 
     /**
@@ -65,21 +82,13 @@ final class OSGiHttpRoutePlanner extends DefaultRoutePlanner {
      */
     @Override
     protected HttpHost determineProxy(final HttpHost target, final HttpRequest request, final HttpContext context) throws HttpException {
-        HttpHost proxyHost = null;
-        for (final ProxyConfiguration proxyConfiguration : proxyConfigurations) {
-            if (proxyConfiguration.isEnabled()) {
-                for (final String exception : proxyConfiguration.getProxyExceptions()) {
-                    if (createMatcher(exception).matches(target.getHostName())) {
-                        return null;
-                    }
-                }
-                if (null == proxyHost) {
-                    proxyHost = new HttpHost(proxyConfiguration.getHostname(), proxyConfiguration.getPort());
-                }
-            }
+        ProxyDecisions decisions = this.proxyDecisions;
+        final long current = this.version.get();
+        if (decisions == null || decisions.version != current) {
+            decisions = new ProxyDecisions(proxyConfigurations, current);
+            this.proxyDecisions = decisions;
         }
-
-        return proxyHost;
+        return decisions.determineProxy(target.getHostName());
     }
 
     private static HostMatcher createMatcher(final String name) {
@@ -95,6 +104,68 @@ final class OSGiHttpRoutePlanner extends DefaultRoutePlanner {
         return new HostNameMatcher(name);
     }
 
+    /**
+     * Enabled proxy configurations with pre-compiled proxy exceptions and
+     * a cache of the decisions made per host name, valid for a single
+     * configuration version.
+     */
+    private static class ProxyDecisions {
+
+        private static final int MAX_DECISIONS = 1024;
+
+        private static final HttpHost NO_PROXY = new HttpHost("no-proxy");
+
+        private final long version;
+
+        private final HostMatcher[] matchers;
+
+        private final HttpHost proxyHost;
+
+        private final ConcurrentMap<String, HttpHost> decisions;
+
+        ProxyDecisions(final List<ProxyConfiguration> proxyConfigurations, final long version) {
+            final List<HostMatcher> matcherList = new ArrayList<HostMatcher>();
+            HttpHost proxy = null;
+            for (final ProxyConfiguration proxyConfiguration : proxyConfigurations) {
+                if (proxyConfiguration.isEnabled()) {
+                    final String[] exceptions = proxyConfiguration.getProxyExceptions();
+                    if (exceptions != null) {
+                        for (final String exception : exceptions) {
+                            matcherList.add(createMatcher(exception));
+                        }
+                    }
+                    if (null == proxy) {
+                        proxy = new HttpHost(proxyConfiguration.getHostname(), proxyConfiguration.getPort());
+                    }
+                }
+            }
+            this.version = version;
+            this.matchers = matcherList.toArray(new HostMatcher[matcherList.size()]);
+            this.proxyHost = proxy;
+            this.decisions = new ConcurrentHashMap<String, HttpHost>();
+        }
+
+        HttpHost determineProxy(final String hostName) {
+            final HttpHost cached = decisions.get(hostName);
+            if (cached != null) {
+                return cached != NO_PROXY ? cached : null;
+            }
+            HttpHost proxy = proxyHost;
+            for (final HostMatcher matcher : matchers) {
+                if (matcher.matches(hostName)) {
+                    proxy = null;
+                    break;
+                }
+            }
+            if (decisions.size() >= MAX_DECISIONS) {
+                decisions.clear();
+            }
+            decisions.put(hostName, proxy != null ? proxy : NO_PROXY);
+            return proxy;
+        }
+
+    }
+
     private static interface HostMatcher {
 
         boolean matches(String host);
@@ -28,12 +28,15 @@ package org.apache.http.osgi.impl;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 
 import org.apache.http.HttpHost;
 import org.apache.http.osgi.services.ProxyConfiguration;
@@ -103,8 +106,51 @@ public class TestOSGiHttpRoutePlanner  {
         assertNotNull(proxy);
     }
 
+    @Test
+    public void testConfigurationChange() throws Exception {
+        final List<ProxyConfiguration> proxyConfigurations = new ArrayList<ProxyConfiguration>();
+        final OSGiHttpRoutePlanner planner = new OSGiHttpRoutePlanner(proxyConfigurations);
+
+        assertNull(planner.determineProxy(new HttpHost("there", 9090), null, null));
+
+        final ProxyConfiguration pc = proxy("proxy1", 8080, "localhost");
+        proxyConfigurations.add(pc);
+        // decisions are kept until a configuration change is signalled
+        assertNull(planner.determineProxy(new HttpHost("there", 9090), null, null));
+        planner.configurationChanged();
+        HttpHost proxy = planner.determineProxy(new HttpHost("there", 9090), null, null);
+        assertNotNull(proxy);
+        assertEquals("proxy1", proxy.getHostName());
+
+        update(pc, "proxy3", 8080, "localhost");
+        planner.configurationChanged();
+        proxy = planner.determineProxy(new HttpHost("there", 9090), null, null);
+        assertNotNull(proxy);
+        assertEquals("proxy3", proxy.getHostName());
+
+        update(pc, "proxy3", 8080, "localhost", "there");
+        planner.configurationChanged();
+        assertNull(planner.determineProxy(new HttpHost("there", 9090), null, null));
+
+        proxyConfigurations.add(0, pc2);
+        planner.configurationChanged();
+        proxy = planner.determineProxy(new HttpHost("elsewhere", 9090), null, null);
+        assertNotNull(proxy);
+        assertEquals("proxy2", proxy.getHostName());
+
+        proxyConfigurations.clear();
+        planner.configurationChanged();
+        assertNull(planner.determineProxy(new HttpHost("elsewhere", 9090), null, null));
+    }
+
     private ProxyConfiguration proxy(final String host, final int port, final String... exceptions) {
         final OSGiProxyConfiguration proxyConfiguration = new OSGiProxyConfiguration();
+        update(proxyConfiguration, host, port, exceptions);
+        return proxyConfiguration;
+    }
+
+    private void update(final ProxyConfiguration proxyConfiguration,
+                        final String host, final int port, final String... exceptions) {
         final Hashtable<String, Object> config = new Hashtable<String, Object>();
         config.put("proxy.enabled", true);
         config.put("proxy.host", host);
@@ -112,8 +158,7 @@ public class TestOSGiHttpRoutePlanner  {
         config.put("proxy.user", "");
         config.put("proxy.password", "");
         config.put("proxy.exceptions", exceptions);
-        proxyConfiguration.update(config);
-        return proxyConfiguration;
+        ((OSGiProxyConfiguration) proxyConfiguration).update(config);
     }
 
 }
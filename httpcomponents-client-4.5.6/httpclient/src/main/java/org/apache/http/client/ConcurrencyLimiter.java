@@ -0,0 +1,65 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.routing.HttpRoute;
+
+/**
+ * Represents a controller that limits the number of concurrent requests
+ * per route, typically adjusting the limit based on the observed
+ * round-trip times.
+ * <p>
+ * Implementations of this interface must be thread-safe.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Acquires a permit to execute a request over the given route, waiting
+     * up to the given time for a permit to become available.
+     *
+     * @return {@code true} if a permit was acquired, {@code false} if
+     * the waiting time elapsed
+     */
+    boolean acquire(HttpRoute route, long timeout, TimeUnit tunit) throws InterruptedException;
+
+    /**
+     * Releases a permit previously acquired for the given route.
+     *
+     * @param route the route.
+     * @param rtt the round-trip time of the request in nanoseconds, or
+     * a negative value if the request did not complete.
+     * @param dropped {@code true} if the request failed in a way that
+     * indicates overload of the opposite endpoint, such as a timeout.
+     */
+    void release(HttpRoute route, long rtt, boolean dropped);
+
+}
@@ -0,0 +1,119 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.client;
+
+/**
+ * Events emitted by the request execution chain to
+ * {@link ExecutionEventListener}s. Events that start a phase of request
+ * execution are always followed by a corresponding completion event unless
+ * the execution fails.
+ *
+ * @since 4.5.7
+ */
+public enum ExecutionEvent {
+
+    /**
+     * Request execution has started. Emitted once per request before
+     * any redirects or retries.
+     */
+    REQUEST_STARTED,
+
+    /**
+     * A connection is about to be leased from the connection manager.
+     */
+    CONNECTION_LEASE_STARTED,
+
+    /**
+     * A connection has been leased from the connection manager.
+     */
+    CONNECTION_LEASED,
+
+    /**
+     * A connection to the target or the first proxy is about to be opened.
+     * For secure routes that are not tunnelled this includes the TLS handshake.
+     */
+    CONNECT_STARTED,
+
+    /**
+     * A connection to the target or the first proxy has been opened.
+     */
+    CONNECTED,
+
+    /**
+     * A TLS session is about to be layered over a tunnelled connection.
+     */
+    TLS_UPGRADE_STARTED,
+
+    /**
+     * A TLS session has been layered over a tunnelled connection.
+     */
+    TLS_UPGRADED,
+
+    /**
+     * The request head is about to be written to the connection.
+     */
+    REQUEST_WRITE_STARTED,
+
+    /**
+     * The request head and the enclosed entity, if any, have been written
+     * and flushed to the connection.
+     */
+    REQUEST_WRITTEN,
+
+    /**
+     * The final response head has been received.
+     */
+    RESPONSE_HEADERS_RECEIVED,
+
+    /**
+     * The response body has been fully consumed or discarded and
+     * the underlying connection has been released.
+     */
+    RESPONSE_BODY_COMPLETED,
+
+    /**
+     * The request is about to be retried.
+     */
+    REQUEST_RETRIED,
+
+    /**
+     * The request is about to be redirected.
+     */
+    REQUEST_REDIRECTED,
+
+    /**
+     * Request execution has completed and the final response head is about
+     * to be returned to the caller. The response body may still be streamed.
+     */
+    REQUEST_COMPLETED,
+
+    /**
+     * Request execution has failed with an exception.
+     */
+    REQUEST_FAILED
+
+}
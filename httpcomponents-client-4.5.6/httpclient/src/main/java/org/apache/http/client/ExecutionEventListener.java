@@ -0,0 +1,59 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.client;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Receives timestamped notifications about the progress of request
+ * execution, such as connection lease, connect, request write and
+ * response receipt.
+ * <p>
+ * Listeners are invoked synchronously on the thread that executes
+ * the request, or in case of {@link ExecutionEvent#RESPONSE_BODY_COMPLETED}
+ * on the thread that consumes the response body. Implementations must
+ * be thread-safe and should return quickly.
+ * </p>
+ *
+ * @see org.apache.http.client.protocol.HttpClientContext#EXECUTION_LISTENER
+ *
+ * @since 4.5.7
+ */
+public interface ExecutionEventListener {
+
+    /**
+     * Notifies of an execution event.
+     *
+     * @param event the execution event.
+     * @param route the route the event relates to.
+     * @param context the actual execution context.
+     * @param timestamp the time of the event as given by {@link System#nanoTime()}.
+     */
+    void onEvent(ExecutionEvent event, HttpRoute route, HttpContext context, long timestamp);
+
+}
@@ -0,0 +1,57 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.client;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Strategy interface that determines how long to wait before
+ * re-executing a failed request.
+ * <p>
+ * Implementations of this interface must be thread-safe.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+public interface RetryBackoffStrategy {
+
+    /**
+     * Determines the interval before the next execution of the request.
+     *
+     * @param response the response that caused the retry, or {@code null}
+     * if the request failed with an I/O error
+     * @param executionCount the number of times the request has been
+     * unsuccessfully executed
+     * @param context the context for the request execution
+     *
+     * @return the interval in milliseconds, {@code 0} to retry immediately
+     * or a negative value if the request should not be retried
+     */
+    long getRetryInterval(HttpResponse response, int executionCount, HttpContext context);
+
+}
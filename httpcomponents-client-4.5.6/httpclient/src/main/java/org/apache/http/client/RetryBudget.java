@@ -0,0 +1,54 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.client;
+
+/**
+ * Limits the number of request re-executions to a fraction of
+ * the successfully executed requests, so that retries do not amplify
+ * the load on a failing server.
+ * <p>
+ * Implementations of this interface must be thread-safe.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+public interface RetryBudget {
+
+    /**
+     * Called when a request has been executed successfully.
+     */
+    void deposit();
+
+    /**
+     * Called before a request is re-executed.
+     *
+     * @return {@code true} if the request may be re-executed,
+     * {@code false} if the budget is exhausted
+     */
+    boolean tryWithdraw();
+
+}
@@ -60,12 +60,13 @@ public class RequestConfig implements Cloneable {
     private final int connectTimeout;
     private final int socketTimeout;
     private final boolean contentCompressionEnabled;
+    private final int executionTimeout;
 
     /**
      * Intended for CDI compatibility
     */
     protected RequestConfig() {
-        this(false, null, null, false, null, false, false, false, 0, false, null, null, 0, 0, 0, true);
+        this(false, null, null, false, null, false, false, false, 0, false, null, null, 0, 0, 0, true, 0);
     }
 
     RequestConfig(
@@ -84,7 +85,8 @@ public class RequestConfig implements Cloneable {
             final int connectionRequestTimeout,
             final int connectTimeout,
             final int socketTimeout,
-            final boolean contentCompressionEnabled) {
+            final boolean contentCompressionEnabled,
+            final int executionTimeout) {
         super();
         this.expectContinueEnabled = expectContinueEnabled;
         this.proxy = proxy;
@@ -102,6 +104,7 @@ public class RequestConfig implements Cloneable {
         this.connectTimeout = connectTimeout;
         this.socketTimeout = socketTimeout;
         this.contentCompressionEnabled = contentCompressionEnabled;
+        this.executionTimeout = executionTimeout;
     }
 
     /**
@@ -332,6 +335,32 @@ public class RequestConfig implements Cloneable {
         return contentCompressionEnabled;
     }
 
+    /**
+     * Returns the overall time budget in milliseconds for executing a request,
+     * including connection leasing, connecting, all retries and redirects.
+     * Connection request, connect and socket timeouts of individual attempts
+     * are reduced to the time remaining, and execution fails with
+     * {@link org.apache.http.impl.execchain.DeadlineExceededException}
+     * once the budget is used up.
+     * <p>
+     * Please note that the socket timeout is reduced only once per attempt,
+     * before the request is sent, and applies to each read separately.
+     * Reading the response body after the response has been returned
+     * is therefore not bounded by this timeout.
+     * </p>
+     * <p>
+     * A timeout value of zero or less is interpreted as no overall limit.
+     * </p>
+     * <p>
+     * Default: {@code -1}
+     * </p>
+     *
+     * @since 4.5.7
+     */
+    public int getExecutionTimeout() {
+        return executionTimeout;
+    }
+
     @Override
     protected RequestConfig clone() throws CloneNotSupportedException {
         return (RequestConfig) super.clone();
@@ -356,6 +385,7 @@ public class RequestConfig implements Cloneable {
         builder.append(", connectTimeout=").append(connectTimeout);
         builder.append(", socketTimeout=").append(socketTimeout);
         builder.append(", contentCompressionEnabled=").append(contentCompressionEnabled);
+        builder.append(", executionTimeout=").append(executionTimeout);
         builder.append("]");
         return builder.toString();
     }
@@ -383,7 +413,8 @@ public class RequestConfig implements Cloneable {
             .setConnectTimeout(config.getConnectTimeout())
             .setSocketTimeout(config.getSocketTimeout())
             .setDecompressionEnabled(config.isDecompressionEnabled())
-            .setContentCompressionEnabled(config.isContentCompressionEnabled());
+            .setContentCompressionEnabled(config.isContentCompressionEnabled())
+            .setExecutionTimeout(config.getExecutionTimeout());
     }
 
     public static class Builder {
@@ -404,6 +435,7 @@ public class RequestConfig implements Cloneable {
         private int connectTimeout;
         private int socketTimeout;
         private boolean contentCompressionEnabled;
+        private int executionTimeout;
 
         Builder() {
             super();
@@ -416,6 +448,7 @@ public class RequestConfig implements Cloneable {
             this.connectTimeout = -1;
             this.socketTimeout = -1;
             this.contentCompressionEnabled = true;
+            this.executionTimeout = -1;
         }
 
         public Builder setExpectContinueEnabled(final boolean expectContinueEnabled) {
@@ -513,6 +546,14 @@ public class RequestConfig implements Cloneable {
             return this;
         }
 
+        /**
+         * @since 4.5.7
+         */
+        public Builder setExecutionTimeout(final int executionTimeout) {
+            this.executionTimeout = executionTimeout;
+            return this;
+        }
+
         public RequestConfig build() {
             return new RequestConfig(
                     expectContinueEnabled,
@@ -530,7 +571,8 @@ public class RequestConfig implements Cloneable {
                     connectionRequestTimeout,
                     connectTimeout,
                     socketTimeout,
-                    contentCompressionEnabled);
+                    contentCompressionEnabled,
+                    executionTimeout);
         }
 
     }
@@ -35,6 +35,7 @@ import org.apache.http.auth.AuthState;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.ExecutionEventListener;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.Lookup;
 import org.apache.http.conn.routing.HttpRoute;
@@ -133,6 +134,23 @@ public class HttpClientContext extends HttpCoreContext {
      */
     public static final String REQUEST_CONFIG = "http.request-config";
 
+    /**
+     * Attribute name of a {@link org.apache.http.client.ExecutionEventListener}
+     * object that receives notifications about the progress of request execution.
+     *
+     * @since 4.5.7
+     */
+    public static final String EXECUTION_LISTENER = "http.execution-listener";
+
+    /**
+     * Attribute name of a {@link Long} object that represents the point in time
+     * (as returned by {@link System#nanoTime()}) by which request
+     * execution, including all retries and redirects, must complete.
+     *
+     * @since 4.5.7
+     */
+    public static final String DEADLINE = "http.request-deadline";
+
     public static HttpClientContext adapt(final HttpContext context) {
         if (context instanceof HttpClientContext) {
             return (HttpClientContext) context;
@@ -244,4 +262,42 @@ public class HttpClientContext extends HttpCoreContext {
         setAttribute(REQUEST_CONFIG, config);
     }
 
+    /**
+     * @since 4.5.7
+     */
+    public ExecutionEventListener getExecutionListener() {
+        return getAttribute(EXECUTION_LISTENER, ExecutionEventListener.class);
+    }
+
+    /**
+     * @since 4.5.7
+     */
+    public void setExecutionListener(final ExecutionEventListener listener) {
+        setAttribute(EXECUTION_LISTENER, listener);
+    }
+
+    /**
+     * Returns the execution deadline as a {@link System#nanoTime()} value,
+     * or {@code null} if no deadline has been set.
+     *
+     * @since 4.5.7
+     */
+    public Long getDeadline() {
+        return getAttribute(DEADLINE, Long.class);
+    }
+
+    /**
+     * Sets the execution deadline as a {@link System#nanoTime()} value.
+     * A value of {@code null} removes the deadline.
+     *
+     * @since 4.5.7
+     */
+    public void setDeadline(final Long deadline) {
+        if (deadline != null) {
+            setAttribute(DEADLINE, deadline);
+        } else {
+            removeAttribute(DEADLINE);
+        }
+    }
+
 }
@@ -69,6 +69,9 @@ public final class HttpRoute implements RouteInfo, Cloneable {
     /** Whether the route is (supposed to be) secure. */
     private final boolean secure;
 
+    /** Cached hash code, computed on first use. */
+    private int hash;
+
     private HttpRoute(final HttpHost target, final InetAddress local, final List<HttpHost> proxies,
                      final boolean secure, final TunnelType tunnelled, final LayerType layered) {
         Args.notNull(target, "Target host");
@@ -292,6 +295,7 @@ public final class HttpRoute implements RouteInfo, Cloneable {
             final HttpRoute that = (HttpRoute) obj;
             return
                 // Do the cheapest tests first
+                (this.hashCode() == that.hashCode()) &&
                 (this.secure    == that.secure) &&
                 (this.tunnelled == that.tunnelled) &&
                 (this.layered   == that.layered) &&
@@ -311,18 +315,22 @@ public final class HttpRoute implements RouteInfo, Cloneable {
      */
     @Override
     public final int hashCode() {
-        int hash = LangUtils.HASH_SEED;
-        hash = LangUtils.hashCode(hash, this.targetHost);
-        hash = LangUtils.hashCode(hash, this.localAddress);
-        if (this.proxyChain != null) {
-            for (final HttpHost element : this.proxyChain) {
-                hash = LangUtils.hashCode(hash, element);
+        int h = this.hash;
+        if (h == 0) {
+            h = LangUtils.HASH_SEED;
+            h = LangUtils.hashCode(h, this.targetHost);
+            h = LangUtils.hashCode(h, this.localAddress);
+            if (this.proxyChain != null) {
+                for (final HttpHost element : this.proxyChain) {
+                    h = LangUtils.hashCode(h, element);
+                }
             }
+            h = LangUtils.hashCode(h, this.secure);
+            h = LangUtils.hashCode(h, this.tunnelled);
+            h = LangUtils.hashCode(h, this.layered);
+            this.hash = h;
         }
-        hash = LangUtils.hashCode(hash, this.secure);
-        hash = LangUtils.hashCode(hash, this.tunnelled);
-        hash = LangUtils.hashCode(hash, this.layered);
-        return hash;
+        return h;
     }
 
     /**
@@ -35,9 +35,14 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.naming.InvalidNameException;
 import javax.naming.NamingException;
@@ -82,9 +87,28 @@ public final class DefaultHostnameVerifier implements HostnameVerifier {
     private final Log log = LogFactory.getLog(getClass());
 
     private final PublicSuffixMatcher publicSuffixMatcher;
+    private final NameCache nameCache;
 
-    public DefaultHostnameVerifier(final PublicSuffixMatcher publicSuffixMatcher) {
+    /**
+     * Creates a verifier that caches the names extracted from certificates,
+     * along with the host names that have been successfully verified against
+     * them, so that repeated connections to hosts presenting the same
+     * certificate skip parsing and matching. Certificates are looked up by
+     * their encoded form, as compared by {@link X509Certificate#equals(Object)}.
+     *
+     * @param publicSuffixMatcher public suffix matcher, may be {@code null}.
+     * @param maxCacheEntries maximum number of cached certificates;
+     *   {@code 0} disables caching.
+     *
+     * @since 4.5.7
+     */
+    public DefaultHostnameVerifier(final PublicSuffixMatcher publicSuffixMatcher, final int maxCacheEntries) {
         this.publicSuffixMatcher = publicSuffixMatcher;
+        this.nameCache = maxCacheEntries > 0 ? new NameCache(maxCacheEntries) : null;
+    }
+
+    public DefaultHostnameVerifier(final PublicSuffixMatcher publicSuffixMatcher) {
+        this(publicSuffixMatcher, 0);
     }
 
     public DefaultHostnameVerifier() {
@@ -108,19 +132,27 @@ public final class DefaultHostnameVerifier implements HostnameVerifier {
 
     public void verify(
             final String host, final X509Certificate cert) throws SSLException {
-        final HostNameType hostType = determineHostFormat(host);
-        final List<SubjectName> subjectAlts = getSubjectAltNames(cert);
+        final CertificateNames names = this.nameCache != null ? this.nameCache.get(cert) : null;
+        if (names == null) {
+            verify(host, cert, getSubjectAltNames(cert));
+            return;
+        }
+        final String normalizedHost = host.toLowerCase(Locale.ROOT);
+        if (names.isVerified(normalizedHost)) {
+            return;
+        }
+        if (!names.subjectAlts.isEmpty()) {
+            verify(host, names.subjectAlts);
+        } else {
+            matchCN(host, names.getCN(host), this.publicSuffixMatcher);
+        }
+        names.setVerified(normalizedHost);
+    }
+
+    private void verify(
+            final String host, final X509Certificate cert, final List<SubjectName> subjectAlts) throws SSLException {
         if (subjectAlts != null && !subjectAlts.isEmpty()) {
-            switch (hostType) {
-                case IPv4:
-                    matchIPAddress(host, subjectAlts);
-                    break;
-                case IPv6:
-                    matchIPv6Address(host, subjectAlts);
-                    break;
-                default:
-                    matchDNSName(host, subjectAlts, this.publicSuffixMatcher);
-            }
+            verify(host, subjectAlts);
         } else {
             // CN matching has been deprecated by rfc2818 and can be used
             // as fallback only when no subjectAlts are available
@@ -134,6 +166,20 @@ public final class DefaultHostnameVerifier implements HostnameVerifier {
         }
     }
 
+    private void verify(final String host, final List<SubjectName> subjectAlts) throws SSLException {
+        final HostNameType hostType = determineHostFormat(host);
+        switch (hostType) {
+            case IPv4:
+                matchIPAddress(host, subjectAlts);
+                break;
+            case IPv6:
+                matchIPv6Address(host, subjectAlts);
+                break;
+            default:
+                matchDNSName(host, subjectAlts, this.publicSuffixMatcher);
+        }
+    }
+
     static void matchIPAddress(final String host, final List<SubjectName> subjectAlts) throws SSLException {
         for (int i = 0; i < subjectAlts.size(); i++) {
             final SubjectName subjectAlt = subjectAlts.get(i);
@@ -281,6 +327,10 @@ public final class DefaultHostnameVerifier implements HostnameVerifier {
         }
     }
 
+    int getCacheSize() {
+        return this.nameCache != null ? this.nameCache.size() : 0;
+    }
+
     static HostNameType determineHostFormat(final String host) {
         if (InetAddressUtils.isIPv4Address(host)) {
             return HostNameType.IPv4;
@@ -335,4 +385,97 @@ public final class DefaultHostnameVerifier implements HostnameVerifier {
             return hostname;
         }
     }
+
+    /**
+     * Names extracted from a certificate along with the host names
+     * successfully verified against them.
+     */
+    static class CertificateNames {
+
+        private static final int MAX_VERIFIED_HOSTS = 32;
+
+        final List<SubjectName> subjectAlts;
+        private final String cn;
+        private final String cnError;
+        private final Set<String> verifiedHosts;
+
+        CertificateNames(final X509Certificate cert) {
+            this.subjectAlts = Collections.unmodifiableList(getSubjectAltNames(cert));
+            String cn = null;
+            String cnError = null;
+            if (this.subjectAlts.isEmpty()) {
+                try {
+                    cn = extractCN(cert.getSubjectX500Principal().getName(X500Principal.RFC2253));
+                } catch (final SSLException ex) {
+                    cnError = ex.getMessage();
+                }
+            }
+            this.cn = cn;
+            this.cnError = cnError;
+            this.verifiedHosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        }
+
+        String getCN(final String host) throws SSLException {
+            if (this.cnError != null) {
+                throw new SSLException(this.cnError);
+            }
+            if (this.cn == null) {
+                throw new SSLException("Certificate subject for <" + host + "> doesn't contain " +
+                        "a common name and does not have alternative names");
+            }
+            return this.cn;
+        }
+
+        boolean isVerified(final String host) {
+            return this.verifiedHosts.contains(host);
+        }
+
+        void setVerified(final String host) {
+            if (this.verifiedHosts.size() < MAX_VERIFIED_HOSTS) {
+                this.verifiedHosts.add(host);
+            }
+        }
+
+    }
+
+    /**
+     * Bounded cache of certificate names keyed by certificate.
+     */
+    static class NameCache {
+
+        private final int maxEntries;
+        private final Map<X509Certificate, CertificateNames> map;
+
+        NameCache(final int maxEntries) {
+            this.maxEntries = maxEntries;
+            this.map = new LinkedHashMap<X509Certificate, CertificateNames>(16, 0.75f, true);
+        }
+
+        CertificateNames get(final X509Certificate cert) {
+            CertificateNames names;
+            synchronized (this.map) {
+                names = this.map.get(cert);
+            }
+            if (names == null) {
+                names = new CertificateNames(cert);
+                synchronized (this.map) {
+                    this.map.put(cert, names);
+                    if (this.map.size() > this.maxEntries) {
+                        final Iterator<X509Certificate> it = this.map.keySet().iterator();
+                        it.next();
+                        it.remove();
+                    }
+                }
+            }
+            return names;
+        }
+
+        int size() {
+            synchronized (this.map) {
+                return this.map.size();
+            }
+        }
+
+    }
+
 }
@@ -201,6 +201,7 @@ public class SSLConnectionSocketFactory implements LayeredConnectionSocketFactor
     private final HostnameVerifier hostnameVerifier;
     private final String[] supportedProtocols;
     private final String[] supportedCipherSuites;
+    private final SSLSessionCache sslSessionCache;
 
     public SSLConnectionSocketFactory(final SSLContext sslContext) {
         this(sslContext, getDefaultHostnameVerifier());
@@ -293,10 +294,51 @@ public class SSLConnectionSocketFactory implements LayeredConnectionSocketFactor
             final String[] supportedProtocols,
             final String[] supportedCipherSuites,
             final HostnameVerifier hostnameVerifier) {
+        this(socketfactory, supportedProtocols, supportedCipherSuites, hostnameVerifier, null);
+    }
+
+    /**
+     * @param sslSessionCache tracker of TLS sessions per route. May be {@code null}.
+     *   The client session cache of the SSL context is not modified; use
+     *   {@link SSLSessionCache#configure(javax.net.ssl.SSLSessionContext)} to size it.
+     *
+     * @since 4.5.7
+     */
+    public SSLConnectionSocketFactory(
+            final SSLContext sslContext,
+            final String[] supportedProtocols,
+            final String[] supportedCipherSuites,
+            final HostnameVerifier hostnameVerifier,
+            final SSLSessionCache sslSessionCache) {
+        this(Args.notNull(sslContext, "SSL context").getSocketFactory(),
+                supportedProtocols, supportedCipherSuites, hostnameVerifier, sslSessionCache);
+    }
+
+    /**
+     * @param sslSessionCache tracker of TLS sessions per route. May be {@code null}.
+     *
+     * @since 4.5.7
+     */
+    public SSLConnectionSocketFactory(
+            final javax.net.ssl.SSLSocketFactory socketfactory,
+            final String[] supportedProtocols,
+            final String[] supportedCipherSuites,
+            final HostnameVerifier hostnameVerifier,
+            final SSLSessionCache sslSessionCache) {
         this.socketfactory = Args.notNull(socketfactory, "SSL socket factory");
         this.supportedProtocols = supportedProtocols;
         this.supportedCipherSuites = supportedCipherSuites;
         this.hostnameVerifier = hostnameVerifier != null ? hostnameVerifier : getDefaultHostnameVerifier();
+        this.sslSessionCache = sslSessionCache;
+    }
+
+    /**
+     * Returns the tracker of TLS sessions of this factory, or {@code null}.
+     *
+     * @since 4.5.7
+     */
+    public SSLSessionCache getSSLSessionCache() {
+        return this.sslSessionCache;
     }
 
     /**
@@ -347,9 +389,7 @@ public class SSLConnectionSocketFactory implements LayeredConnectionSocketFactor
         // Setup SSL layering if necessary
         if (sock instanceof SSLSocket) {
             final SSLSocket sslsock = (SSLSocket) sock;
-            this.log.debug("Starting handshake");
-            sslsock.startHandshake();
-            verifyHostname(sslsock, host.getHostName());
+            handshake(sslsock, host.getHostName(), remoteAddress.getPort(), context);
             return sock;
         } else {
             return createLayeredSocket(sock, host.getHostName(), remoteAddress.getPort(), context);
@@ -392,12 +432,33 @@ public class SSLConnectionSocketFactory implements LayeredConnectionSocketFactor
         }
 
         prepareSocket(sslsock);
-        this.log.debug("Starting handshake");
-        sslsock.startHandshake();
-        verifyHostname(sslsock, target);
+        handshake(sslsock, target, port, context);
         return sslsock;
     }
 
+    private void handshake(
+            final SSLSocket sslsock,
+            final String target,
+            final int port,
+            final HttpContext context) throws IOException {
+        this.log.debug("Starting handshake");
+        if (this.sslSessionCache == null) {
+            sslsock.startHandshake();
+            verifyHostname(sslsock, target);
+            return;
+        }
+        final Object key = SSLSessionCache.getKey(context, target, port);
+        final long start = System.currentTimeMillis();
+        try {
+            sslsock.startHandshake();
+            verifyHostname(sslsock, target);
+        } catch (final IOException ex) {
+            this.sslSessionCache.handshakeFailed(key);
+            throw ex;
+        }
+        this.sslSessionCache.handshakeCompleted(key, sslsock.getSession(), start);
+    }
+
     private void verifyHostname(final SSLSocket sslsock, final String hostname) throws IOException {
         try {
             SSLSession session = sslsock.getSession();
@@ -0,0 +1,257 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.conn.ssl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+
+/**
+ * Keeps track of TLS sessions established by {@link SSLConnectionSocketFactory}
+ * per {@link HttpRoute} and estimates the number of full versus abbreviated
+ * (resumed) handshakes.
+ * <p>
+ * Session resumption itself is performed by JSSE, which reuses sessions
+ * cached by the client session context of the {@link javax.net.ssl.SSLContext}
+ * for the same peer host and port. This class exposes the most recent session
+ * of each route and allows sessions of a route to be invalidated, forcing
+ * a full handshake on the next connect. Sessions of routes whose handshake
+ * or hostname verification fails are invalidated automatically.
+ * The JSSE session cache is left untouched unless {@link #configure(SSLSessionContext)}
+ * is called explicitly.
+ * </p>
+ * <p>
+ * JSSE does not report whether a handshake resumed a session. A handshake
+ * is counted as abbreviated if the negotiated session was created before
+ * the handshake started or has the same identifier as the previous session
+ * of the route. This is reliable up to TLS 1.2; with TLS 1.3 resumed sessions
+ * may carry a new identifier and creation time and may therefore be counted
+ * as full handshakes.
+ * </p>
+ * <p>
+ * Whether session tickets (RFC 5077) are used is controlled by the JSSE
+ * provider, for instance by the {@code jdk.tls.client.enableSessionTicketExtension}
+ * system property of recent JDKs.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class SSLSessionCache {
+
+    private final int maxEntries;
+    private final int sessionTimeout;
+    private final Map<Object, SSLSession> sessions;
+    private final AtomicLong fullHandshakes;
+    private final AtomicLong abbreviatedHandshakes;
+    private final AtomicLong failedHandshakes;
+
+    /**
+     * @param maxEntries maximum number of routes tracked by this cache and
+     *   number of sessions applied to the JSSE client session cache by
+     *   {@link #configure(SSLSessionContext)}.
+     * @param sessionTimeout timeout of cached sessions in seconds applied
+     *   by {@link #configure(SSLSessionContext)}; {@code 0} keeps the
+     *   default timeout of the JSSE provider.
+     */
+    public SSLSessionCache(final int maxEntries, final int sessionTimeout) {
+        super();
+        this.maxEntries = Args.positive(maxEntries, "Max entries");
+        this.sessionTimeout = Args.notNegative(sessionTimeout, "Session timeout");
+        this.sessions = new LinkedHashMap<Object, SSLSession>(16, 0.75f, true);
+        this.fullHandshakes = new AtomicLong();
+        this.abbreviatedHandshakes = new AtomicLong();
+        this.failedHandshakes = new AtomicLong();
+    }
+
+    public SSLSessionCache() {
+        this(1000, 0);
+    }
+
+    /**
+     * Applies the cache size and session timeout to the given JSSE
+     * client session context. Please note that the session context belongs
+     * to the {@link javax.net.ssl.SSLContext} and that the changes affect
+     * all users of that context.
+     */
+    public void configure(final SSLSessionContext sessionContext) {
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(this.maxEntries);
+            if (this.sessionTimeout > 0) {
+                sessionContext.setSessionTimeout(this.sessionTimeout);
+            }
+        }
+    }
+
+    static Object getKey(final HttpContext context, final String target, final int port) {
+        final Object route = context != null ? context.getAttribute(HttpClientContext.HTTP_ROUTE) : null;
+        if (route instanceof HttpRoute) {
+            return route;
+        }
+        return target + ":" + port;
+    }
+
+    /**
+     * Records a completed handshake.
+     *
+     * @param key route key.
+     * @param session the negotiated session.
+     * @param handshakeStart time the handshake was started at in milliseconds
+     *   since the epoch.
+     */
+    void handshakeCompleted(final Object key, final SSLSession session, final long handshakeStart) {
+        if (session == null) {
+            return;
+        }
+        final SSLSession previous;
+        synchronized (this.sessions) {
+            previous = this.sessions.put(key, session);
+            if (this.sessions.size() > this.maxEntries) {
+                final Iterator<SSLSession> it = this.sessions.values().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+        // A resumed session was created by an earlier handshake
+        final boolean resumed = session.getCreationTime() < handshakeStart
+                || (previous != null && Arrays.equals(previous.getId(), session.getId()));
+        if (resumed) {
+            this.abbreviatedHandshakes.incrementAndGet();
+        } else {
+            this.fullHandshakes.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a failed handshake, invalidating the session of the route.
+     */
+    void handshakeFailed(final Object key) {
+        this.failedHandshakes.incrementAndGet();
+        final SSLSession previous;
+        synchronized (this.sessions) {
+            previous = this.sessions.remove(key);
+        }
+        if (previous != null) {
+            previous.invalidate();
+        }
+    }
+
+    /**
+     * Returns the most recent session established for the given route,
+     * or {@code null}.
+     */
+    public SSLSession getSession(final HttpRoute route) {
+        synchronized (this.sessions) {
+            return this.sessions.get(route);
+        }
+    }
+
+    /**
+     * Invalidates the most recent session of the given route so that the
+     * next connection to the route performs a full handshake.
+     */
+    public void invalidate(final HttpRoute route) {
+        final SSLSession session;
+        synchronized (this.sessions) {
+            session = this.sessions.remove(route);
+        }
+        if (session != null) {
+            session.invalidate();
+        }
+    }
+
+    /**
+     * Invalidates all sessions tracked by this cache.
+     */
+    public void invalidateAll() {
+        final SSLSession[] all;
+        synchronized (this.sessions) {
+            all = this.sessions.values().toArray(new SSLSession[this.sessions.size()]);
+            this.sessions.clear();
+        }
+        for (final SSLSession session : all) {
+            session.invalidate();
+        }
+    }
+
+    /**
+     * Returns the number of routes tracked by this cache.
+     */
+    public int size() {
+        synchronized (this.sessions) {
+            return this.sessions.size();
+        }
+    }
+
+    /**
+     * Returns the number of handshakes estimated to have established a new
+     * session.
+     */
+    public long getFullHandshakeCount() {
+        return this.fullHandshakes.get();
+    }
+
+    /**
+     * Returns the number of handshakes estimated to have resumed a cached
+     * session. See the class documentation for the limitations of the estimate.
+     */
+    public long getAbbreviatedHandshakeCount() {
+        return this.abbreviatedHandshakes.get();
+    }
+
+    /**
+     * Returns the number of handshakes or hostname verifications that failed.
+     */
+    public long getFailedHandshakeCount() {
+        return this.failedHandshakes.get();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[routes: ").append(size());
+        buffer.append("; full handshakes: ").append(getFullHandshakeCount());
+        buffer.append("; abbreviated handshakes: ").append(getAbbreviatedHandshakeCount());
+        buffer.append("; failed handshakes: ").append(getFailedHandshakeCount());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+}
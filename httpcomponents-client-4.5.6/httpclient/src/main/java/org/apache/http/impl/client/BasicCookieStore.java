@@ -74,11 +74,12 @@ public class BasicCookieStore implements CookieStore, Serializable {
     @Override
     public void addCookie(final Cookie cookie) {
         if (cookie != null) {
+            final boolean expired = cookie.isExpired(new Date());
             lock.writeLock().lock();
             try {
                 // first remove any old cookie that is equivalent
                 cookies.remove(cookie);
-                if (!cookie.isExpired(new Date())) {
+                if (!expired) {
                     cookies.add(cookie);
                 }
             } finally {
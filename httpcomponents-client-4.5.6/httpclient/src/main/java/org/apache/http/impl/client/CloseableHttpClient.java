@@ -30,6 +30,8 @@ package org.apache.http.impl.client;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -44,6 +46,7 @@ import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.Args;
 import org.apache.http.util.EntityUtils;
@@ -240,4 +243,76 @@ public abstract class CloseableHttpClient implements HttpClient, Closeable {
         }
     }
 
+    /**
+     * Executes a batch of idempotent requests against the given target
+     * and returns the responses in the order of the requests.
+     * <p>
+     * Implementations may send the requests back-to-back over a single
+     * persistent connection (HTTP/1.1 pipelining), re-sending unanswered
+     * requests if the connection gets closed prematurely. Response content
+     * is always buffered in memory, so the returned responses do not hold
+     * on to any connection. Redirects and authentication challenges are
+     * not handled for pipelined requests. Clients that apply execution
+     * policies beyond the default ones, such as circuit breakers,
+     * concurrency limits or hedging, execute the requests one after
+     * another instead.
+     * </p>
+     * <p>
+     * This default implementation executes the requests one after another.
+     * </p>
+     *
+     * @param target    the target host for the requests.
+     * @param requests  the requests, all of which must use an idempotent
+     *                  method and must not enclose an entity.
+     * @param context   the context to use for the execution, or
+     *                  {@code null} to use the default context
+     * @return  the responses in the order of the requests.
+     * @throws IOException in case of a problem or the connection was aborted
+     * @throws ClientProtocolException in case of an http protocol error
+     *
+     * @since 4.5.7
+     */
+    public List<CloseableHttpResponse> executePipelined(
+            final HttpHost target,
+            final List<? extends HttpRequest> requests,
+            final HttpContext context) throws IOException, ClientProtocolException {
+        Args.notEmpty(requests, "HTTP requests");
+        final List<CloseableHttpResponse> responses = new ArrayList<CloseableHttpResponse>(requests.size());
+        boolean success = false;
+        try {
+            for (final HttpRequest request : requests) {
+                final CloseableHttpResponse response = execute(target, request, context);
+                responses.add(response);
+                final HttpEntity entity = response.getEntity();
+                if (entity != null) {
+                    response.setEntity(new BufferedHttpEntity(entity));
+                }
+                // Content fully read; connection no longer needed
+                response.close();
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (final CloseableHttpResponse response : responses) {
+                    response.close();
+                }
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Executes a batch of idempotent requests against the given target
+     * using the default context.
+     *
+     * @see #executePipelined(HttpHost, List, HttpContext)
+     *
+     * @since 4.5.7
+     */
+    public List<CloseableHttpResponse> executePipelined(
+            final HttpHost target,
+            final List<? extends HttpRequest> requests) throws IOException, ClientProtocolException {
+        return executePipelined(target, requests, null);
+    }
+
 }
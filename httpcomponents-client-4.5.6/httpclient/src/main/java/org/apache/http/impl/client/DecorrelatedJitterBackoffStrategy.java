@@ -0,0 +1,140 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.RetryBackoffStrategy;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+
+/**
+ * {@link RetryBackoffStrategy} implementation that uses exponential backoff
+ * with decorrelated jitter: each interval is chosen randomly between
+ * the base interval and three times the previous interval, limited to
+ * the maximum interval.
+ * <p>
+ * If the response carries a {@code Retry-After} header the interval it
+ * specifies is used instead. Should that interval exceed the maximum
+ * interval, the request is not retried.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class DecorrelatedJitterBackoffStrategy implements RetryBackoffStrategy {
+
+    /**
+     * Context attribute holding the last retry interval of the request
+     * being executed.
+     */
+    public static final String LAST_INTERVAL = "http.retry.last-interval";
+
+    private final long baseInterval;
+    private final long maxInterval;
+    private final Random random;
+
+    /**
+     * @param baseInterval the minimum interval in milliseconds
+     * @param maxInterval the maximum interval in milliseconds
+     */
+    public DecorrelatedJitterBackoffStrategy(final long baseInterval, final long maxInterval) {
+        super();
+        Args.positive(baseInterval, "Base interval");
+        Args.check(maxInterval >= baseInterval, "Max interval may not be less than base interval");
+        this.baseInterval = baseInterval;
+        this.maxInterval = maxInterval;
+        this.random = new Random();
+    }
+
+    public DecorrelatedJitterBackoffStrategy() {
+        this(100, 30000);
+    }
+
+    @Override
+    public long getRetryInterval(final HttpResponse response, final int executionCount, final HttpContext context) {
+        if (response != null) {
+            final Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+            if (header != null) {
+                final long retryAfter = parseRetryAfter(header.getValue());
+                if (retryAfter >= 0) {
+                    return retryAfter <= this.maxInterval ? retryAfter : -1;
+                }
+            }
+        }
+        long previous = this.baseInterval;
+        if (executionCount > 1 && context != null) {
+            final Object value = context.getAttribute(LAST_INTERVAL);
+            if (value instanceof Long) {
+                previous = Math.max(((Long) value).longValue(), this.baseInterval);
+            }
+        }
+        final long upper = Math.min(this.maxInterval, previous * 3);
+        final long interval;
+        synchronized (this.random) {
+            interval = this.baseInterval + (long) (this.random.nextDouble() * (upper - this.baseInterval));
+        }
+        if (context != null) {
+            context.setAttribute(LAST_INTERVAL, Long.valueOf(interval));
+        }
+        return interval;
+    }
+
+    /**
+     * Parses the value of a {@code Retry-After} header, which is either
+     * a number of seconds or an HTTP date.
+     *
+     * @return the interval in milliseconds or {@code -1} if the value is invalid
+     */
+    static long parseRetryAfter(final String value) {
+        if (value == null) {
+            return -1;
+        }
+        final String s = value.trim();
+        try {
+            final long seconds = Long.parseLong(s);
+            if (seconds < 0) {
+                return -1;
+            }
+            return seconds < Long.MAX_VALUE / 1000 ? seconds * 1000 : Long.MAX_VALUE;
+        } catch (final NumberFormatException ignore) {
+        }
+        final Date date = DateUtils.parseDate(s);
+        if (date == null) {
+            return -1;
+        }
+        return Math.max(0, date.getTime() - System.currentTimeMillis());
+    }
+
+}
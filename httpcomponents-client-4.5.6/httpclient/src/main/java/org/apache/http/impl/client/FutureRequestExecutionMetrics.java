@@ -26,10 +26,25 @@
  */
 package org.apache.http.impl.client;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.http.HttpHost;
+import org.apache.http.util.Args;
+
 /**
  * Collection of different counters used to gather metrics for {@link FutureRequestExecutionService}.
+ * <p>
+ * Besides the counters, time spent waiting in the executor queue and time spent executing
+ * are recorded in {@link LatencyHistogram}s, both in total and per target host and response
+ * status class. Histograms are updated without locking and can be read, or copied with
+ * {@link #snapshot()}, while requests are being executed.
+ * </p>
  */
 public final class FutureRequestExecutionMetrics {
 
@@ -39,8 +54,29 @@ public final class FutureRequestExecutionMetrics {
     private final DurationCounter failedConnections = new DurationCounter();
     private final DurationCounter requests = new DurationCounter();
     private final DurationCounter tasks = new DurationCounter();
+    private final LatencyHistogram queueWait;
+    private final LatencyHistogram execution;
+    private final ConcurrentMap<TargetStatus, LatencyHistogram> targetHistograms;
 
     FutureRequestExecutionMetrics() {
+        this.queueWait = new LatencyHistogram();
+        this.execution = new LatencyHistogram();
+        this.targetHistograms = new ConcurrentHashMap<TargetStatus, LatencyHistogram>();
+    }
+
+    private FutureRequestExecutionMetrics(final FutureRequestExecutionMetrics metrics) {
+        this.activeConnections.set(metrics.activeConnections.get());
+        this.scheduledConnections.set(metrics.scheduledConnections.get());
+        this.successfulConnections.copyFrom(metrics.successfulConnections);
+        this.failedConnections.copyFrom(metrics.failedConnections);
+        this.requests.copyFrom(metrics.requests);
+        this.tasks.copyFrom(metrics.tasks);
+        this.queueWait = metrics.queueWait.copy();
+        this.execution = metrics.execution.copy();
+        this.targetHistograms = new ConcurrentHashMap<TargetStatus, LatencyHistogram>();
+        for (final Map.Entry<TargetStatus, LatencyHistogram> entry: metrics.targetHistograms.entrySet()) {
+            this.targetHistograms.put(entry.getKey(), entry.getValue().copy());
+        }
     }
 
     AtomicLong getActiveConnections() {
@@ -67,6 +103,24 @@ public final class FutureRequestExecutionMetrics {
         return tasks;
     }
 
+    void recordExecution(
+            final HttpHost target, final int statusCode, final long queueNanos, final long execNanos) {
+        this.queueWait.record(queueNanos);
+        this.execution.record(execNanos);
+        if (target != null) {
+            final TargetStatus key = new TargetStatus(target, statusCode / 100);
+            LatencyHistogram histogram = this.targetHistograms.get(key);
+            if (histogram == null) {
+                final LatencyHistogram newHistogram = new LatencyHistogram();
+                histogram = this.targetHistograms.putIfAbsent(key, newHistogram);
+                if (histogram == null) {
+                    histogram = newHistogram;
+                }
+            }
+            histogram.record(execNanos);
+        }
+    }
+
     public long getActiveConnectionCount() {
         return activeConnections.get();
     }
@@ -107,6 +161,63 @@ public final class FutureRequestExecutionMetrics {
         return tasks.averageDuration();
     }
 
+    /**
+     * Returns the distribution of time tasks spent waiting for an executor thread.
+     *
+     * @since 4.5.7
+     */
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    /**
+     * Returns the distribution of time spent executing requests.
+     *
+     * @since 4.5.7
+     */
+    public LatencyHistogram getExecutionHistogram() {
+        return execution;
+    }
+
+    /**
+     * Returns the target hosts requests have been executed against.
+     *
+     * @since 4.5.7
+     */
+    public Set<HttpHost> getTargets() {
+        final Set<HttpHost> targets = new HashSet<HttpHost>();
+        for (final TargetStatus key: targetHistograms.keySet()) {
+            targets.add(key.target);
+        }
+        return Collections.unmodifiableSet(targets);
+    }
+
+    /**
+     * Returns the distribution of execution times of requests to the given target
+     * that ended with a response of the given status class.
+     *
+     * @param target the target host.
+     * @param statusClass the status class, {@code 1} to {@code 5} for {@code 1xx} to
+     *   {@code 5xx} responses, or {@code 0} for requests that failed without a response.
+     * @return the histogram, or {@code null} if no such request has been executed.
+     *
+     * @since 4.5.7
+     */
+    public LatencyHistogram getExecutionHistogram(final HttpHost target, final int statusClass) {
+        Args.notNull(target, "Target host");
+        return targetHistograms.get(new TargetStatus(target, statusClass));
+    }
+
+    /**
+     * Returns a copy of these metrics that no longer changes as requests are executed.
+     * The copy is taken without blocking request execution.
+     *
+     * @since 4.5.7
+     */
+    public FutureRequestExecutionMetrics snapshot() {
+        return new FutureRequestExecutionMetrics(this);
+    }
+
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
@@ -116,6 +227,8 @@ public final class FutureRequestExecutionMetrics {
                 .append(", failedConnections=").append(failedConnections)
                 .append(", requests=").append(requests)
                 .append(", tasks=").append(tasks)
+                .append(", queueWait=").append(queueWait)
+                .append(", execution=").append(execution)
                 .append("]");
         return builder.toString();
     }
@@ -133,6 +246,11 @@ public final class FutureRequestExecutionMetrics {
             cumulativeDuration.addAndGet(System.currentTimeMillis() - startTime);
         }
 
+        void copyFrom(final DurationCounter counter) {
+            count.set(counter.count.get());
+            cumulativeDuration.set(counter.cumulativeDuration.get());
+        }
+
         public long count() {
             return count.get();
         }
@@ -153,4 +271,33 @@ public final class FutureRequestExecutionMetrics {
 
     }
 
-}
\ No newline at end of file
+    static final class TargetStatus {
+
+        private final HttpHost target;
+        private final int statusClass;
+
+        TargetStatus(final HttpHost target, final int statusClass) {
+            this.target = target;
+            this.statusClass = statusClass;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof TargetStatus) {
+                final TargetStatus that = (TargetStatus) obj;
+                return this.statusClass == that.statusClass && this.target.equals(that.target);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.target.hashCode() * 31 + this.statusClass;
+        }
+
+    }
+
+}
@@ -31,6 +31,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.ProxySelector;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -50,11 +51,15 @@ import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.auth.AuthSchemeProvider;
 import org.apache.http.client.AuthenticationStrategy;
 import org.apache.http.client.BackoffManager;
+import org.apache.http.client.ConcurrencyLimiter;
 import org.apache.http.client.ConnectionBackoffStrategy;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.ExecutionEventListener;
 import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.RedirectStrategy;
+import org.apache.http.client.RetryBackoffStrategy;
+import org.apache.http.client.RetryBudget;
 import org.apache.http.client.ServiceUnavailableRetryStrategy;
 import org.apache.http.client.UserTokenHandler;
 import org.apache.http.client.config.AuthSchemes;
@@ -95,11 +100,18 @@ import org.apache.http.impl.auth.SPNegoSchemeFactory;
 import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
 import org.apache.http.impl.conn.DefaultRoutePlanner;
 import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.IdleConnectionValidator;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
 import org.apache.http.impl.execchain.BackoffStrategyExec;
+import org.apache.http.impl.execchain.CircuitBreakerExec;
+import org.apache.http.impl.execchain.CircuitBreakerRegistry;
+import org.apache.http.impl.execchain.CoalescingExec;
 import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.impl.execchain.ConcurrencyLimitExec;
+import org.apache.http.impl.execchain.HedgedExec;
 import org.apache.http.impl.execchain.MainClientExec;
+import org.apache.http.impl.execchain.PipelinedExec;
 import org.apache.http.impl.execchain.ProtocolExec;
 import org.apache.http.impl.execchain.RedirectExec;
 import org.apache.http.impl.execchain.RetryExec;
@@ -177,11 +189,16 @@ public class HttpClientBuilder {
     private LinkedList<HttpResponseInterceptor> responseLast;
 
     private HttpRequestRetryHandler retryHandler;
+    private RetryBackoffStrategy retryBackoffStrategy;
+    private RetryBudget retryBudget;
     private HttpRoutePlanner routePlanner;
     private RedirectStrategy redirectStrategy;
     private ConnectionBackoffStrategy connectionBackoffStrategy;
     private BackoffManager backoffManager;
     private ServiceUnavailableRetryStrategy serviceUnavailStrategy;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private ExecutionEventListener executionListener;
     private Lookup<AuthSchemeProvider> authSchemeRegistry;
     private Lookup<CookieSpecProvider> cookieSpecRegistry;
     private Map<String, InputStreamFactory> contentDecoderMap;
@@ -195,8 +212,17 @@ public class HttpClientBuilder {
     private RequestConfig defaultRequestConfig;
     private boolean evictExpiredConnections;
     private boolean evictIdleConnections;
+    private boolean validateIdleConnections;
     private long maxIdleTime;
     private TimeUnit maxIdleTimeUnit;
+    private boolean hedgeRequests;
+    private long hedgeDelay;
+    private TimeUnit hedgeDelayTimeUnit;
+    private double hedgeLatencyPercentile;
+    private int maxHedgePercent;
+    private boolean coalesceRequests;
+    private int maxCoalescedBodySize;
+    private Collection<String> coalescingKeyHeaders;
 
     private boolean systemProperties;
     private boolean redirectHandlingDisabled;
@@ -615,6 +641,11 @@ public class HttpClientBuilder {
     /**
      * Assigns {@link DnsResolver} instance.
      * <p>
+     * Use {@link org.apache.http.impl.conn.CachingDnsResolver} to avoid
+     * a host name lookup on every connect. Resolvers implementing
+     * {@link Closeable} are closed together with the connection manager
+     * created by this builder.
+     * <p>
      * Please note this value can be overridden by the {@link #setConnectionManager(HttpClientConnectionManager)} method.
      */
     public final HttpClientBuilder setDnsResolver(final DnsResolver dnsResolver) {
@@ -652,6 +683,34 @@ public class HttpClientBuilder {
         return this;
     }
 
+    /**
+     * Assigns {@link RetryBackoffStrategy} instance used to determine the interval
+     * before re-executing requests that failed with an I/O error or were
+     * rejected by the {@link ServiceUnavailableRetryStrategy}.
+     *
+     * @see DecorrelatedJitterBackoffStrategy
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder setRetryBackoffStrategy(final RetryBackoffStrategy retryBackoffStrategy) {
+        this.retryBackoffStrategy = retryBackoffStrategy;
+        return this;
+    }
+
+    /**
+     * Assigns {@link RetryBudget} instance that limits request re-executions
+     * to a fraction of the successfully executed requests. The budget is shared
+     * by all threads executing requests with the built client.
+     *
+     * @see TokenBucketRetryBudget
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder setRetryBudget(final RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+        return this;
+    }
+
     /**
      * Assigns {@link HttpRoutePlanner} instance.
      */
@@ -706,6 +765,47 @@ public class HttpClientBuilder {
         return this;
     }
 
+    /**
+     * Assigns {@link CircuitBreakerRegistry} instance. Requests to routes whose
+     * circuit breaker is open fail immediately with
+     * {@link org.apache.http.impl.execchain.CircuitBreakerOpenException}.
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder setCircuitBreakerRegistry(
+            final CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        return this;
+    }
+
+    /**
+     * Assigns {@link ConcurrencyLimiter} instance that limits the number of
+     * concurrent requests per route. Requests wait for a permit for up to
+     * the connection request timeout.
+     *
+     * @see VegasConcurrencyLimiter
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder setConcurrencyLimiter(final ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    /**
+     * Assigns default {@link ExecutionEventListener} instance which will be
+     * notified of the progress of request execution if not explicitly set
+     * in the client execution context.
+     *
+     * @see RouteLatencyRecorder
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder setExecutionListener(final ExecutionEventListener executionListener) {
+        this.executionListener = executionListener;
+        return this;
+    }
+
     /**
      * Assigns default {@link CookieStore} instance which will be used for
      * request execution if not explicitly set in the client execution context.
@@ -864,6 +964,94 @@ public class HttpClientBuilder {
         return this;
     }
 
+    /**
+     * Makes this instance of HttpClient check idle connections kept alive in the
+     * connection pool for staleness using a background thread, so that
+     * connections do not need to be checked when leased by request execution
+     * threads.
+     * <p>
+     * One MUST explicitly close HttpClient with {@link CloseableHttpClient#close()} in order
+     * to stop and release the background thread.
+     * <p>
+     * Please note this method has no effect if the instance of HttpClient is configuted to
+     * use a shared connection manager or a connection manager other than
+     * {@link PoolingHttpClientConnectionManager}.
+     * <p>
+     * Please note this method may not be used when the instance of HttpClient is created
+     * inside an EJB container.
+     *
+     * @see #setConnectionManagerShared(boolean)
+     * @see PoolingHttpClientConnectionManager#validateIdleConnections()
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder validateIdleConnections() {
+        this.validateIdleConnections = true;
+        return this;
+    }
+
+    /**
+     * Makes this instance of HttpClient hedge idempotent requests: if no response
+     * has been received within the hedge delay, the request is sent once more
+     * over a different connection and the response that arrives first is used.
+     * The other attempt is aborted.
+     * <p>
+     * If {@code latencyPercentile} is greater than zero, the hedge delay is
+     * the given percentile of the recently observed request latencies, and
+     * {@code hedgeDelay} is only used until enough samples have been collected.
+     * <p>
+     * Please note that each hedged request takes up one more connection from
+     * the connection pool. Hedged requests are executed by a small pool of
+     * worker threads that is shut down when the client is closed.
+     *
+     * @param hedgeDelay the delay after which a hedged request is sent.
+     * @param hedgeDelayTimeUnit time unit for the above parameter.
+     * @param latencyPercentile percentile of the observed latencies to use as the
+     *   hedge delay, or {@code 0} to always use {@code hedgeDelay}.
+     * @param maxHedgePercent maximum percentage of requests that may be hedged.
+     *
+     * @see HedgedExec
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder hedgeRequests(
+            final long hedgeDelay,
+            final TimeUnit hedgeDelayTimeUnit,
+            final double latencyPercentile,
+            final int maxHedgePercent) {
+        this.hedgeRequests = true;
+        this.hedgeDelay = hedgeDelay;
+        this.hedgeDelayTimeUnit = hedgeDelayTimeUnit;
+        this.hedgeLatencyPercentile = latencyPercentile;
+        this.maxHedgePercent = maxHedgePercent;
+        return this;
+    }
+
+    /**
+     * Makes this instance of HttpClient coalesce identical concurrent {@code GET}
+     * and {@code HEAD} requests: only one of them is sent to the server, and the
+     * others receive a copy of its response. Requests are identical if they have
+     * the same method, target, request URI and values of the key headers.
+     * <p>
+     * Response content is buffered in memory in order to be shared, but only
+     * if identical requests are waiting for it. Responses with content larger
+     * than {@code maxBodySize} are not shared.
+     *
+     * @param maxBodySize the maximum size of response content that can be shared.
+     * @param keyHeaders the names of the headers whose values are part of the request
+     *   key. If none are given, {@link CoalescingExec#DEFAULT_KEY_HEADERS} are used.
+     *
+     * @see CoalescingExec
+     *
+     * @since 4.5.7
+     */
+    public final HttpClientBuilder coalesceRequests(final int maxBodySize, final String... keyHeaders) {
+        this.coalesceRequests = true;
+        this.maxCoalescedBodySize = maxBodySize;
+        this.coalescingKeyHeaders = keyHeaders != null && keyHeaders.length > 0 ? Arrays.asList(keyHeaders) : null;
+        return this;
+    }
+
     /**
      * Produces an instance of {@link ClientExecChain} to be used as a main exec.
      * <p>
@@ -1058,7 +1246,20 @@ public class HttpClientBuilder {
                 proxyAuthStrategyCopy,
                 userTokenHandlerCopy);
 
+        final ClientExecChain mainExec = execChain;
         execChain = decorateMainExec(execChain);
+        // Pipelined execution bypasses the chain and is only used if no policy executors are applied
+        boolean pipeliningSupported = execChain == mainExec;
+
+        // Optionally, add concurrency limit executor
+        if (this.concurrencyLimiter != null) {
+            execChain = new ConcurrencyLimitExec(execChain, this.concurrencyLimiter);
+        }
+
+        // Optionally, add request coalescing executor
+        if (coalesceRequests) {
+            execChain = new CoalescingExec(execChain, maxCoalescedBodySize, coalescingKeyHeaders);
+        }
 
         HttpProcessor httpprocessorCopy = this.httpprocessor;
         if (httpprocessorCopy == null) {
@@ -1123,16 +1324,41 @@ public class HttpClientBuilder {
             httpprocessorCopy = b.build();
         }
         execChain = new ProtocolExec(execChain, httpprocessorCopy);
-
+        final ClientExecChain protocolExec = execChain;
         execChain = decorateProtocolExec(execChain);
+        pipeliningSupported &= execChain == protocolExec;
 
         // Add request retry executor, if not disabled
+        HttpRequestRetryHandler retryHandlerCopy = null;
         if (!automaticRetriesDisabled) {
-            HttpRequestRetryHandler retryHandlerCopy = this.retryHandler;
+            retryHandlerCopy = this.retryHandler;
             if (retryHandlerCopy == null) {
                 retryHandlerCopy = DefaultHttpRequestRetryHandler.INSTANCE;
             }
-            execChain = new RetryExec(execChain, retryHandlerCopy);
+            execChain = new RetryExec(execChain, retryHandlerCopy, this.retryBackoffStrategy, this.retryBudget);
+        }
+        pipeliningSupported &= this.concurrencyLimiter == null
+                && this.retryBackoffStrategy == null
+                && this.retryBudget == null
+                && !hedgeRequests
+                && this.circuitBreakerRegistry == null
+                && this.serviceUnavailStrategy == null
+                && (this.backoffManager == null || this.connectionBackoffStrategy == null);
+        final PipelinedExec pipelinedExec = pipeliningSupported ? new PipelinedExec(
+                connManagerCopy, reuseStrategyCopy, keepAliveStrategyCopy, httpprocessorCopy,
+                retryHandlerCopy) : null;
+
+        // Optionally, add request hedging executor
+        HedgedExec hedgedExec = null;
+        if (hedgeRequests) {
+            hedgedExec = new HedgedExec(execChain, hedgeDelay, hedgeDelayTimeUnit,
+                    hedgeLatencyPercentile, maxHedgePercent, null);
+            execChain = hedgedExec;
+        }
+
+        // Optionally, add circuit breaker executor
+        if (this.circuitBreakerRegistry != null) {
+            execChain = new CircuitBreakerExec(execChain, this.circuitBreakerRegistry);
         }
 
         HttpRoutePlanner routePlannerCopy = this.routePlanner;
@@ -1154,7 +1380,8 @@ public class HttpClientBuilder {
         // Optionally, add service unavailable retry executor
         final ServiceUnavailableRetryStrategy serviceUnavailStrategyCopy = this.serviceUnavailStrategy;
         if (serviceUnavailStrategyCopy != null) {
-            execChain = new ServiceUnavailableRetryExec(execChain, serviceUnavailStrategyCopy);
+            execChain = new ServiceUnavailableRetryExec(execChain, serviceUnavailStrategyCopy,
+                    this.retryBackoffStrategy, this.retryBudget);
         }
 
         // Add redirect executor, if not disabled
@@ -1201,10 +1428,19 @@ public class HttpClientBuilder {
         }
 
         List<Closeable> closeablesCopy = closeables != null ? new ArrayList<Closeable>(closeables) : null;
+        if (hedgedExec != null) {
+            if (closeablesCopy == null) {
+                closeablesCopy = new ArrayList<Closeable>(1);
+            }
+            closeablesCopy.add(hedgedExec);
+        }
         if (!this.connManagerShared) {
             if (closeablesCopy == null) {
                 closeablesCopy = new ArrayList<Closeable>(1);
             }
+            if (this.connManager == null && this.dnsResolver instanceof Closeable) {
+                closeablesCopy.add((Closeable) this.dnsResolver);
+            }
             final HttpClientConnectionManager cm = connManagerCopy;
 
             if (evictExpiredConnections || evictIdleConnections) {
@@ -1226,6 +1462,24 @@ public class HttpClientBuilder {
                 });
                 connectionEvictor.start();
             }
+            if (validateIdleConnections && cm instanceof PoolingHttpClientConnectionManager) {
+                final IdleConnectionValidator connectionValidator = new IdleConnectionValidator(
+                        (PoolingHttpClientConnectionManager) cm);
+                closeablesCopy.add(new Closeable() {
+
+                    @Override
+                    public void close() throws IOException {
+                        connectionValidator.shutdown();
+                        try {
+                            connectionValidator.awaitTermination(1L, TimeUnit.SECONDS);
+                        } catch (final InterruptedException interrupted) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+
+                });
+                connectionValidator.start();
+            }
             closeablesCopy.add(new Closeable() {
 
                 @Override
@@ -1245,7 +1499,9 @@ public class HttpClientBuilder {
                 defaultCookieStore,
                 defaultCredentialsProvider,
                 defaultRequestConfig != null ? defaultRequestConfig : RequestConfig.DEFAULT,
-                closeablesCopy);
+                closeablesCopy,
+                pipelinedExec,
+                executionListener);
     }
 
 }
@@ -26,12 +26,16 @@
  */
 package org.apache.http.impl.client;
 
+import java.io.IOException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.protocol.HttpContext;
 
@@ -44,6 +48,8 @@ class HttpRequestTaskCallable<V> implements Callable<V> {
     private final long scheduled = System.currentTimeMillis();
     private long started = -1;
     private long ended = -1;
+    private final long scheduledNanos = System.nanoTime();
+    private int statusCode;
 
     private final HttpContext context;
     private final ResponseHandler<V> responseHandler;
@@ -84,10 +90,21 @@ class HttpRequestTaskCallable<V> implements Callable<V> {
             try {
                 metrics.getActiveConnections().incrementAndGet();
                 started = System.currentTimeMillis();
+                final long startedNanos = System.nanoTime();
                 try {
                     metrics.getScheduledConnections().decrementAndGet();
-                    final V result = httpclient.execute(request, responseHandler, context);
+                    final V result = httpclient.execute(request, new ResponseHandler<V>() {
+
+                        @Override
+                        public V handleResponse(
+                                final HttpResponse response) throws ClientProtocolException, IOException {
+                            statusCode = response.getStatusLine().getStatusCode();
+                            return responseHandler.handleResponse(response);
+                        }
+
+                    }, context);
                     ended = System.currentTimeMillis();
+                    recordExecution(startedNanos);
                     metrics.getSuccessfulConnections().increment(started);
                     if (callback != null) {
                         callback.completed(result);
@@ -96,6 +113,7 @@ class HttpRequestTaskCallable<V> implements Callable<V> {
                 } catch (final Exception e) {
                     metrics.getFailedConnections().increment(started);
                     ended = System.currentTimeMillis();
+                    recordExecution(startedNanos);
                     if (callback != null) {
                         callback.failed(e);
                     }
@@ -111,6 +129,12 @@ class HttpRequestTaskCallable<V> implements Callable<V> {
         }
     }
 
+    private void recordExecution(final long startedNanos) {
+        final long endedNanos = System.nanoTime();
+        metrics.recordExecution(URIUtils.extractHost(request.getURI()), statusCode,
+                startedNanos - scheduledNanos, endedNanos - startedNanos);
+    }
+
     public void cancel() {
         cancelled.set(true);
         if (callback != null) {
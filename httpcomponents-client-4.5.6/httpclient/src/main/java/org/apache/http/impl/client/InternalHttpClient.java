@@ -29,6 +29,7 @@ package org.apache.http.impl.client;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -44,6 +45,8 @@ import org.apache.http.auth.AuthState;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.Configurable;
@@ -62,6 +65,7 @@ import org.apache.http.conn.routing.HttpRoutePlanner;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.cookie.CookieSpecProvider;
 import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.impl.execchain.PipelinedExec;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpParamsNames;
 import org.apache.http.protocol.BasicHttpContext;
@@ -88,6 +92,8 @@ class InternalHttpClient extends CloseableHttpClient implements Configurable {
     private final CredentialsProvider credentialsProvider;
     private final RequestConfig defaultConfig;
     private final List<Closeable> closeables;
+    private final PipelinedExec pipelinedExec;
+    private final ExecutionEventListener executionListener;
 
     public InternalHttpClient(
             final ClientExecChain execChain,
@@ -98,7 +104,9 @@ class InternalHttpClient extends CloseableHttpClient implements Configurable {
             final CookieStore cookieStore,
             final CredentialsProvider credentialsProvider,
             final RequestConfig defaultConfig,
-            final List<Closeable> closeables) {
+            final List<Closeable> closeables,
+            final PipelinedExec pipelinedExec,
+            final ExecutionEventListener executionListener) {
         super();
         Args.notNull(execChain, "HTTP client exec chain");
         Args.notNull(connManager, "HTTP connection manager");
@@ -112,6 +120,37 @@ class InternalHttpClient extends CloseableHttpClient implements Configurable {
         this.credentialsProvider = credentialsProvider;
         this.defaultConfig = defaultConfig;
         this.closeables = closeables;
+        this.pipelinedExec = pipelinedExec;
+        this.executionListener = executionListener;
+    }
+
+    public InternalHttpClient(
+            final ClientExecChain execChain,
+            final HttpClientConnectionManager connManager,
+            final HttpRoutePlanner routePlanner,
+            final Lookup<CookieSpecProvider> cookieSpecRegistry,
+            final Lookup<AuthSchemeProvider> authSchemeRegistry,
+            final CookieStore cookieStore,
+            final CredentialsProvider credentialsProvider,
+            final RequestConfig defaultConfig,
+            final List<Closeable> closeables,
+            final PipelinedExec pipelinedExec) {
+        this(execChain, connManager, routePlanner, cookieSpecRegistry, authSchemeRegistry,
+                cookieStore, credentialsProvider, defaultConfig, closeables, pipelinedExec, null);
+    }
+
+    public InternalHttpClient(
+            final ClientExecChain execChain,
+            final HttpClientConnectionManager connManager,
+            final HttpRoutePlanner routePlanner,
+            final Lookup<CookieSpecProvider> cookieSpecRegistry,
+            final Lookup<AuthSchemeProvider> authSchemeRegistry,
+            final CookieStore cookieStore,
+            final CredentialsProvider credentialsProvider,
+            final RequestConfig defaultConfig,
+            final List<Closeable> closeables) {
+        this(execChain, connManager, routePlanner, cookieSpecRegistry, authSchemeRegistry,
+                cookieStore, credentialsProvider, defaultConfig, closeables, null, null);
     }
 
     private HttpRoute determineRoute(
@@ -147,6 +186,9 @@ class InternalHttpClient extends CloseableHttpClient implements Configurable {
         if (context.getAttribute(HttpClientContext.REQUEST_CONFIG) == null) {
             context.setAttribute(HttpClientContext.REQUEST_CONFIG, this.defaultConfig);
         }
+        if (this.executionListener != null && context.getAttribute(HttpClientContext.EXECUTION_LISTENER) == null) {
+            context.setAttribute(HttpClientContext.EXECUTION_LISTENER, this.executionListener);
+        }
     }
 
     @Override
@@ -181,8 +223,73 @@ class InternalHttpClient extends CloseableHttpClient implements Configurable {
                 localcontext.setRequestConfig(config);
             }
             setupContext(localcontext);
-            final HttpRoute route = determineRoute(target, wrapper, localcontext);
-            return this.execChain.execute(route, wrapper, localcontext, execAware);
+            final int executionTimeout = localcontext.getRequestConfig().getExecutionTimeout();
+            final boolean deadlineSet = executionTimeout > 0 && localcontext.getDeadline() == null;
+            if (deadlineSet) {
+                localcontext.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(executionTimeout));
+            }
+            try {
+                final HttpRoute route = determineRoute(target, wrapper, localcontext);
+                final ExecutionEventListener listener = localcontext.getExecutionListener();
+                if (listener == null) {
+                    return this.execChain.execute(route, wrapper, localcontext, execAware);
+                }
+                listener.onEvent(ExecutionEvent.REQUEST_STARTED, route, localcontext, System.nanoTime());
+                boolean completed = false;
+                try {
+                    final CloseableHttpResponse response = this.execChain.execute(route, wrapper, localcontext, execAware);
+                    completed = true;
+                    listener.onEvent(ExecutionEvent.REQUEST_COMPLETED, route, localcontext, System.nanoTime());
+                    return response;
+                } finally {
+                    if (!completed) {
+                        listener.onEvent(ExecutionEvent.REQUEST_FAILED, route, localcontext, System.nanoTime());
+                    }
+                }
+            } finally {
+                if (deadlineSet) {
+                    // Do not let the deadline leak into subsequent requests sharing the context
+                    localcontext.setDeadline(null);
+                }
+            }
+        } catch (final HttpException httpException) {
+            throw new ClientProtocolException(httpException);
+        }
+    }
+
+    @Override
+    public List<CloseableHttpResponse> executePipelined(
+            final HttpHost target,
+            final List<? extends HttpRequest> requests,
+            final HttpContext context) throws IOException, ClientProtocolException {
+        Args.notEmpty(requests, "HTTP requests");
+        if (this.pipelinedExec == null) {
+            return super.executePipelined(target, requests, context);
+        }
+        try {
+            final HttpClientContext localcontext = HttpClientContext.adapt(
+                    context != null ? context : new BasicHttpContext());
+            // Request configs are applied per request by the pipelined executor
+            setupContext(localcontext);
+            final List<HttpRequestWrapper> wrappers = new ArrayList<HttpRequestWrapper>(requests.size());
+            HttpRoute route = null;
+            for (final HttpRequest request : requests) {
+                Args.notNull(request, "HTTP request");
+                Args.check(PipelinedExec.isPipelinable(request),
+                        "Request cannot be pipelined: " + request.getRequestLine());
+                final HttpRequestWrapper wrapper = HttpRequestWrapper.wrap(request, target);
+                final HttpRoute requestRoute = determineRoute(target, wrapper, localcontext);
+                if (route == null) {
+                    route = requestRoute;
+                } else {
+                    Args.check(route.equals(requestRoute), "Pipelined requests must share the same route");
+                }
+                wrappers.add(wrapper);
+            }
+            if (route.isTunnelled()) {
+                return super.executePipelined(target, requests, context);
+            }
+            return this.pipelinedExec.execute(route, wrappers, localcontext);
         } catch (final HttpException httpException) {
             throw new ClientProtocolException(httpException);
         }
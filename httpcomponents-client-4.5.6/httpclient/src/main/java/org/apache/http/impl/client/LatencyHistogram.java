@@ -0,0 +1,200 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.util.Args;
+
+/**
+ * Latency histogram with logarithmic buckets of bounded relative error
+ * in the spirit of HdrHistogram. Each power of two range is split into
+ * 128 linear sub-buckets, so latencies below 256 ns are tracked exactly
+ * and larger ones with a relative error of less than 1%. Recording never
+ * allocates.
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF << 1;
+    // values up to 2^45 ns (~9.7 hours) are tracked, larger ones are clamped
+    private static final int MAX_SHIFT = 45 - SUB_BUCKET_BITS;
+    static final int BUCKETS = SUB_BUCKET_COUNT + MAX_SHIFT * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        super();
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    static int bucketOf(final long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return nanos > 0 ? (int) nanos : 0;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        final int mantissa = (int) (nanos >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (mantissa - SUB_BUCKET_HALF);
+    }
+
+    /**
+     * Returns the largest latency counted by the given bucket.
+     */
+    static long highestEquivalentValue(final int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        final int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        final long mantissa = (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(final long nanos) {
+        final long value = nanos > 0 ? nanos : 0;
+        this.buckets.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.total.addAndGet(value);
+        for (;;) {
+            final long current = this.max.get();
+            if (value <= current || this.max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the mean latency in nanoseconds, or zero if nothing has been recorded.
+     */
+    public long getMean() {
+        final long n = this.count.get();
+        return n > 0 ? this.total.get() / n : 0;
+    }
+
+    /**
+     * Returns the maximum latency in nanoseconds.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns an upper bound of the given latency percentile in nanoseconds,
+     * or zero if nothing has been recorded.
+     *
+     * @param percentile the percentile in the range (0, 100].
+     */
+    public long getPercentile(final double percentile) {
+        Args.check(percentile > 0 && percentile <= 100, "Percentile must be in the range (0, 100]");
+        // Counts are read twice rather than copied, so that percentiles
+        // can be computed without allocating
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += this.buckets.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        final long maxValue = getMax();
+        final long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += this.buckets.get(i);
+            if (cumulative >= rank) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        // Reset while being read
+        return maxValue;
+    }
+
+    /**
+     * Returns a copy of this histogram. The copy is taken without blocking
+     * concurrent recording, so it is not an atomic view of the histogram.
+     */
+    public LatencyHistogram copy() {
+        final LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            copy.buckets.set(i, this.buckets.get(i));
+        }
+        copy.count.set(this.count.get());
+        copy.total.set(this.total.get());
+        copy.max.set(this.max.get());
+        return copy;
+    }
+
+    /**
+     * Clears all recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets.set(i, 0);
+        }
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        buf.append("[count: ").append(getCount());
+        buf.append(", mean: ").append(getMean() / 1000).append("us");
+        buf.append(", p50: ").append(getCount() > 0 ? getPercentile(50) / 1000 : 0).append("us");
+        buf.append(", p99: ").append(getCount() > 0 ? getPercentile(99) / 1000 : 0).append("us");
+        buf.append(", max: ").append(getMax() / 1000).append("us]");
+        return buf.toString();
+    }
+
+}
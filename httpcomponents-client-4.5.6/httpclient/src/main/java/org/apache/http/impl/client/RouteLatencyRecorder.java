@@ -0,0 +1,209 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+
+/**
+ * {@link ExecutionEventListener} that aggregates the duration of individual
+ * phases of request execution into per route {@link LatencyHistogram}s.
+ * <p>
+ * Timestamps of the events of a request are kept in the execution context
+ * between notifications.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class RouteLatencyRecorder implements ExecutionEventListener {
+
+    /**
+     * Phases of request execution.
+     */
+    public enum Phase {
+
+        /** From a connection lease request until a connection is leased. */
+        LEASE,
+        /** Opening a connection, including the TLS handshake for direct secure routes. */
+        CONNECT,
+        /** Layering TLS over a tunnelled connection. */
+        TLS_UPGRADE,
+        /** Writing the request head and entity. */
+        REQUEST_WRITE,
+        /** From the request being written until the final response head is received. */
+        TIME_TO_FIRST_BYTE,
+        /** From the response head being received until the response body is consumed. */
+        RESPONSE_BODY,
+        /** From the start of execution until the final response head is returned. */
+        TOTAL
+
+    }
+
+    /**
+     * Context attribute holding the event timestamps of the current request.
+     * The timestamps are updated in place; executors that run attempts of
+     * a request concurrently need to give each attempt a copy.
+     *
+     * @since 4.5.7
+     */
+    public static final String EVENT_TIMESTAMPS = "http.route-latency-recorder.timestamps";
+
+    private static final int EVENT_COUNT = ExecutionEvent.values().length;
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final ConcurrentMap<HttpRoute, LatencyHistogram[]> histograms;
+
+    public RouteLatencyRecorder() {
+        super();
+        this.histograms = new ConcurrentHashMap<HttpRoute, LatencyHistogram[]>();
+    }
+
+    @Override
+    public void onEvent(
+            final ExecutionEvent event,
+            final HttpRoute route,
+            final HttpContext context,
+            final long timestamp) {
+        long[] timestamps = (long[]) context.getAttribute(EVENT_TIMESTAMPS);
+        if (timestamps == null || event == ExecutionEvent.REQUEST_STARTED) {
+            timestamps = new long[EVENT_COUNT];
+            Arrays.fill(timestamps, NONE);
+            context.setAttribute(EVENT_TIMESTAMPS, timestamps);
+        }
+        timestamps[event.ordinal()] = timestamp;
+        switch (event) {
+            case CONNECTION_LEASED:
+                record(route, Phase.LEASE, timestamps, ExecutionEvent.CONNECTION_LEASE_STARTED, timestamp);
+                break;
+            case CONNECTED:
+                record(route, Phase.CONNECT, timestamps, ExecutionEvent.CONNECT_STARTED, timestamp);
+                break;
+            case TLS_UPGRADED:
+                record(route, Phase.TLS_UPGRADE, timestamps, ExecutionEvent.TLS_UPGRADE_STARTED, timestamp);
+                break;
+            case REQUEST_WRITTEN:
+                record(route, Phase.REQUEST_WRITE, timestamps, ExecutionEvent.REQUEST_WRITE_STARTED, timestamp);
+                break;
+            case RESPONSE_HEADERS_RECEIVED:
+                record(route, Phase.TIME_TO_FIRST_BYTE, timestamps, ExecutionEvent.REQUEST_WRITTEN, timestamp);
+                break;
+            case RESPONSE_BODY_COMPLETED:
+                record(route, Phase.RESPONSE_BODY, timestamps, ExecutionEvent.RESPONSE_HEADERS_RECEIVED, timestamp);
+                break;
+            case REQUEST_COMPLETED:
+                record(route, Phase.TOTAL, timestamps, ExecutionEvent.REQUEST_STARTED, timestamp);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void record(
+            final HttpRoute route,
+            final Phase phase,
+            final long[] timestamps,
+            final ExecutionEvent start,
+            final long timestamp) {
+        final long started = timestamps[start.ordinal()];
+        if (started == NONE) {
+            return;
+        }
+        // Each start event is paired with one completion event only
+        timestamps[start.ordinal()] = NONE;
+        getHistograms(route)[phase.ordinal()].record(timestamp - started);
+    }
+
+    private LatencyHistogram[] getHistograms(final HttpRoute route) {
+        LatencyHistogram[] routeHistograms = this.histograms.get(route);
+        if (routeHistograms == null) {
+            final LatencyHistogram[] newHistograms = new LatencyHistogram[Phase.values().length];
+            for (int i = 0; i < newHistograms.length; i++) {
+                newHistograms[i] = new LatencyHistogram();
+            }
+            routeHistograms = this.histograms.putIfAbsent(route, newHistograms);
+            if (routeHistograms == null) {
+                routeHistograms = newHistograms;
+            }
+        }
+        return routeHistograms;
+    }
+
+    /**
+     * Returns the routes for which latencies have been recorded.
+     */
+    public Set<HttpRoute> getRoutes() {
+        return Collections.unmodifiableSet(this.histograms.keySet());
+    }
+
+    /**
+     * Returns the latency histogram of the given phase for the given route,
+     * or {@code null} if no latencies have been recorded for the route.
+     */
+    public LatencyHistogram getHistogram(final HttpRoute route, final Phase phase) {
+        Args.notNull(route, "Route");
+        Args.notNull(phase, "Phase");
+        final LatencyHistogram[] routeHistograms = this.histograms.get(route);
+        return routeHistograms != null ? routeHistograms[phase.ordinal()] : null;
+    }
+
+    /**
+     * Discards all recorded latencies.
+     */
+    public void reset() {
+        this.histograms.clear();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        for (final HttpRoute route : this.histograms.keySet()) {
+            buf.append(route).append(':');
+            for (final Phase phase : Phase.values()) {
+                final LatencyHistogram histogram = getHistogram(route, phase);
+                if (histogram != null && histogram.getCount() > 0) {
+                    buf.append(' ').append(phase).append(histogram);
+                }
+            }
+            buf.append('\n');
+        }
+        return buf.toString();
+    }
+
+}
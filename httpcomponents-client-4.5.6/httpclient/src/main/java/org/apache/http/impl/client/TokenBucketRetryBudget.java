@@ -0,0 +1,107 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.RetryBudget;
+import org.apache.http.util.Args;
+
+/**
+ * {@link RetryBudget} implementation based on a token bucket. Each
+ * successful request deposits a fraction of a token; each retry withdraws
+ * a whole token. The bucket starts full and holds at most the given number
+ * of tokens, which allows for short bursts of retries.
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class TokenBucketRetryBudget implements RetryBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    /**
+     * @param retryRatio maximum number of retries per successful request,
+     * for instance {@code 0.1} for one retry per ten successful requests
+     * @param maxRetries maximum number of retries that can be accumulated
+     */
+    public TokenBucketRetryBudget(final double retryRatio, final int maxRetries) {
+        super();
+        Args.check(retryRatio > 0 && retryRatio <= 1, "Retry ratio must be in the range (0, 1]");
+        Args.positive(maxRetries, "Max retries");
+        this.deposit = Math.max(1, Math.round(retryRatio * TOKEN));
+        this.capacity = maxRetries * TOKEN;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    public TokenBucketRetryBudget() {
+        this(0.1, 10);
+    }
+
+    @Override
+    public void deposit() {
+        for (;;) {
+            final long current = this.balance.get();
+            final long next = Math.min(current + this.deposit, this.capacity);
+            if (current == next || this.balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean tryWithdraw() {
+        for (;;) {
+            final long current = this.balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (this.balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of retries currently available.
+     */
+    public int getAvailableRetries() {
+        return (int) (this.balance.get() / TOKEN);
+    }
+
+    @Override
+    public String toString() {
+        return "[available retries: " + getAvailableRetries() + "]";
+    }
+
+}
@@ -0,0 +1,319 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.ConcurrencyLimiter;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.util.Args;
+
+/**
+ * <p>The {@code VegasConcurrencyLimiter} adapts the number of concurrent
+ * requests permitted per route to the latency of the opposite endpoint,
+ * in the manner of the TCP Vegas congestion control algorithm.</p>
+ *
+ * <p>Round-trip times are collected in windows of a fixed number of
+ * samples. At the end of each window the configured percentile of the
+ * window is compared with the lowest round-trip time observed, which
+ * approximates the latency of the endpoint when it is not loaded.
+ * The ratio between the two estimates the number of requests queued up
+ * at the endpoint: if few requests are queued the limit is raised, if
+ * many are queued it is lowered. Dropped requests cause the limit to be
+ * cut by ten percent. The no-load latency is re-sampled periodically so
+ * that the limiter can follow changes of the endpoint.</p>
+ *
+ * <p>Permits are handed out using atomic operations; callers only
+ * synchronize on the route when they have to wait for a permit.</p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class VegasConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final double percentile;
+    private final int probeInterval;
+    private final ConcurrentMap<HttpRoute, RouteLimit> limits;
+
+    /**
+     * @param initialLimit the initial number of concurrent requests per route.
+     * @param minLimit the minimum number of concurrent requests per route.
+     * @param maxLimit the maximum number of concurrent requests per route.
+     * @param windowSize the number of round-trip time samples per window.
+     * @param percentile the percentile of the window used as round-trip time.
+     * @param probeInterval the number of windows after which the no-load
+     *   round-trip time is re-sampled.
+     */
+    public VegasConcurrencyLimiter(
+            final int initialLimit,
+            final int minLimit,
+            final int maxLimit,
+            final int windowSize,
+            final double percentile,
+            final int probeInterval) {
+        super();
+        Args.positive(minLimit, "Min limit");
+        Args.check(maxLimit >= minLimit, "Max limit may not be less than min limit");
+        Args.check(initialLimit >= minLimit && initialLimit <= maxLimit,
+                "Initial limit must be between min limit and max limit");
+        Args.positive(windowSize, "Window size");
+        Args.check(percentile > 0 && percentile <= 100, "Percentile must be in the range (0, 100]");
+        Args.positive(probeInterval, "Probe interval");
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.percentile = percentile;
+        this.probeInterval = probeInterval;
+        this.limits = new ConcurrentHashMap<HttpRoute, RouteLimit>();
+    }
+
+    public VegasConcurrencyLimiter() {
+        this(20, 1, 1000, 50, 50, 100);
+    }
+
+    private RouteLimit getRouteLimit(final HttpRoute route) {
+        RouteLimit limit = this.limits.get(route);
+        if (limit == null) {
+            final RouteLimit newLimit = new RouteLimit(route);
+            limit = this.limits.putIfAbsent(route, newLimit);
+            if (limit == null) {
+                limit = newLimit;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Returns the current concurrency limit of the given route.
+     */
+    public int getLimit(final HttpRoute route) {
+        final RouteLimit limit = this.limits.get(route);
+        return limit != null ? limit.limit.get() : this.initialLimit;
+    }
+
+    /**
+     * Returns the number of requests currently in flight over the given route.
+     */
+    public int getInFlight(final HttpRoute route) {
+        final RouteLimit limit = this.limits.get(route);
+        return limit != null ? limit.inFlight.get() : 0;
+    }
+
+    @Override
+    public boolean acquire(
+            final HttpRoute route, final long timeout, final TimeUnit tunit) throws InterruptedException {
+        Args.notNull(route, "HTTP route");
+        Args.notNull(tunit, "Time unit");
+        final RouteLimit limit = getRouteLimit(route);
+        if (limit.tryAcquire()) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + tunit.toNanos(timeout);
+        limit.waiters.incrementAndGet();
+        try {
+            limit.lock.lock();
+            try {
+                for (;;) {
+                    if (limit.tryAcquire()) {
+                        return true;
+                    }
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    limit.available.awaitNanos(remaining);
+                }
+            } finally {
+                limit.lock.unlock();
+            }
+        } finally {
+            limit.waiters.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void release(final HttpRoute route, final long rtt, final boolean dropped) {
+        Args.notNull(route, "HTTP route");
+        final RouteLimit limit = this.limits.get(route);
+        if (limit == null) {
+            return;
+        }
+        limit.inFlight.decrementAndGet();
+        if (rtt >= 0 || dropped) {
+            limit.sample(rtt, dropped);
+        }
+        limit.signal();
+    }
+
+    class RouteLimit {
+
+        private final HttpRoute route;
+        private final AtomicInteger limit;
+        private final AtomicInteger inFlight;
+        private final AtomicInteger waiters;
+        private final AtomicLongArray samples;
+        private final AtomicInteger sampleCount;
+        private final AtomicInteger maxInFlight;
+        private final AtomicBoolean dropped;
+        private final AtomicLong noLoadRtt;
+        private final Lock lock;
+        private final Condition available;
+        private int windows;
+
+        RouteLimit(final HttpRoute route) {
+            this.route = route;
+            this.limit = new AtomicInteger(initialLimit);
+            this.inFlight = new AtomicInteger(0);
+            this.waiters = new AtomicInteger(0);
+            this.samples = new AtomicLongArray(windowSize);
+            this.sampleCount = new AtomicInteger(0);
+            this.maxInFlight = new AtomicInteger(0);
+            this.dropped = new AtomicBoolean(false);
+            this.noLoadRtt = new AtomicLong(Long.MAX_VALUE);
+            this.lock = new ReentrantLock();
+            this.available = this.lock.newCondition();
+        }
+
+        boolean tryAcquire() {
+            for (;;) {
+                final int current = this.inFlight.get();
+                if (current >= this.limit.get()) {
+                    return false;
+                }
+                if (this.inFlight.compareAndSet(current, current + 1)) {
+                    for (;;) {
+                        final int max = this.maxInFlight.get();
+                        if (max > current || this.maxInFlight.compareAndSet(max, current + 1)) {
+                            break;
+                        }
+                    }
+                    return true;
+                }
+            }
+        }
+
+        void signal() {
+            if (this.waiters.get() > 0) {
+                this.lock.lock();
+                try {
+                    this.available.signalAll();
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+
+        void sample(final long rtt, final boolean drop) {
+            if (drop) {
+                this.dropped.set(true);
+            }
+            final int n = this.sampleCount.getAndIncrement();
+            if (n >= windowSize) {
+                // Window is being evaluated by another thread
+                return;
+            }
+            this.samples.set(n, drop ? -1 : rtt);
+            if (n == windowSize - 1) {
+                update();
+            }
+        }
+
+        private void update() {
+            long[] window = new long[windowSize];
+            int count = 0;
+            for (int i = 0; i < windowSize; i++) {
+                final long rtt = this.samples.get(i);
+                if (rtt >= 0) {
+                    window[count++] = rtt;
+                }
+            }
+            final boolean drop = this.dropped.getAndSet(false);
+            final int utilization = this.maxInFlight.getAndSet(this.inFlight.get());
+            final int current = this.limit.get();
+            int next = current;
+            if (drop) {
+                next = (int) (current * 0.9);
+            } else if (count > 0) {
+                window = Arrays.copyOf(window, count);
+                Arrays.sort(window);
+                final int index = (int) Math.ceil(percentile / 100 * count) - 1;
+                final long rtt = window[Math.max(0, Math.min(index, count - 1))];
+                if (++this.windows >= probeInterval) {
+                    this.windows = 0;
+                    this.noLoadRtt.set(window[0]);
+                } else if (window[0] < this.noLoadRtt.get()) {
+                    this.noLoadRtt.set(window[0]);
+                }
+                final long noLoad = this.noLoadRtt.get();
+                final int queue = rtt > 0 ? (int) Math.ceil(current * (1 - (double) noLoad / rtt)) : 0;
+                final int step = Math.max(1, (int) Math.log10(current));
+                final int alpha = 3 * step;
+                final int beta = 6 * step;
+                if (queue < alpha) {
+                    // Only grow the limit if it is actually being used
+                    if (utilization * 2 >= current) {
+                        next = current + step;
+                    }
+                } else if (queue > beta) {
+                    next = current - step;
+                }
+            }
+            next = Math.max(minLimit, Math.min(maxLimit, next));
+            if (next != current) {
+                this.limit.set(next);
+                if (log.isDebugEnabled()) {
+                    log.debug("Concurrency limit of " + this.route + " changed from " + current + " to " + next);
+                }
+            }
+            this.sampleCount.set(0);
+            signal();
+        }
+
+    }
+
+}
@@ -0,0 +1,342 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.conn;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.util.Args;
+
+/**
+ * Tracks the outcome of connection attempts per remote address in order
+ * to prefer healthy addresses of hosts that resolve to several addresses.
+ * <p>
+ * Addresses with recent connect failures are tried after addresses
+ * without. An address that fails a number of consecutive connection
+ * attempts is ejected, that is, it is not tried at all for the ejection
+ * time, which doubles with every further ejection up to the maximum
+ * ejection time. Once the ejection time is over, a single failure
+ * ejects the address again, while a successful connect restores it.
+ * Ejected addresses are still tried if no other address of a host is
+ * left.
+ * </p>
+ * <p>
+ * Health is tracked per IP address, so hosts sharing addresses share
+ * their health. A moving average of connect times is kept for every
+ * address as well.
+ * </p>
+ *
+ * @see DefaultHttpClientConnectionOperator
+ * @see PoolingHttpClientConnectionManager#closeConnections(InetAddress)
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class AddressHealthTracker {
+
+    /**
+     * Listener notified of ejected addresses.
+     */
+    public interface Listener {
+
+        void ejected(InetAddress address);
+
+    }
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final int MAX_ENTRIES = 4096;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final long maxEjectionNanos;
+    private final ConcurrentMap<InetAddress, State> states;
+    private final List<Listener> listeners;
+
+    /**
+     * @param failureThreshold number of consecutive failures after which
+     *   an address is ejected.
+     * @param ejectionTime time an address is ejected for the first time.
+     * @param maxEjectionTime maximum time an address is ejected.
+     * @param tunit time unit of {@code ejectionTime} and {@code maxEjectionTime}.
+     */
+    public AddressHealthTracker(
+            final int failureThreshold,
+            final long ejectionTime,
+            final long maxEjectionTime,
+            final TimeUnit tunit) {
+        super();
+        this.failureThreshold = Args.positive(failureThreshold, "Failure threshold");
+        Args.notNull(tunit, "Time unit");
+        this.ejectionNanos = tunit.toNanos(Args.positive(ejectionTime, "Ejection time"));
+        this.maxEjectionNanos = Math.max(this.ejectionNanos, tunit.toNanos(maxEjectionTime));
+        this.states = new ConcurrentHashMap<InetAddress, State>();
+        this.listeners = new CopyOnWriteArrayList<Listener>();
+    }
+
+    /**
+     * Creates a tracker ejecting addresses after 3 consecutive failures
+     * for 30 seconds up to 5 minutes.
+     */
+    public AddressHealthTracker() {
+        this(3, 30, 300, TimeUnit.SECONDS);
+    }
+
+    public void addListener(final Listener listener) {
+        Args.notNull(listener, "Listener");
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(final Listener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Records a successful connection attempt.
+     *
+     * @param address the remote address.
+     * @param connectTime time taken to connect.
+     * @param tunit time unit of {@code connectTime}.
+     */
+    public void connectSucceeded(final InetAddress address, final long connectTime, final TimeUnit tunit) {
+        Args.notNull(address, "Address");
+        final State state = getState(address);
+        synchronized (state) {
+            state.failures = 0;
+            state.ejections = 0;
+            state.ejectedUntil = 0;
+            final double nanos = tunit != null ? tunit.toNanos(connectTime) : connectTime;
+            state.connectTimeEwma = state.connectTimeEwma < 0 ? nanos :
+                state.connectTimeEwma + EWMA_WEIGHT * (nanos - state.connectTimeEwma);
+        }
+    }
+
+    /**
+     * Records a failed connection attempt, possibly ejecting the address.
+     *
+     * @param address the remote address.
+     */
+    public void connectFailed(final InetAddress address) {
+        Args.notNull(address, "Address");
+        final State state = getState(address);
+        final long now = System.nanoTime();
+        final boolean ejected;
+        final long ejectionTime;
+        synchronized (state) {
+            state.failures++;
+            if (state.failures >= this.failureThreshold && !state.isEjected(now)) {
+                final int shift = Math.min(state.ejections, 30);
+                ejectionTime = Math.min(this.ejectionNanos << shift, this.maxEjectionNanos);
+                state.ejections++;
+                state.ejectedUntil = now + ejectionTime;
+                ejected = true;
+            } else {
+                ejectionTime = 0;
+                ejected = false;
+            }
+        }
+        if (ejected) {
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("Address " + address.getHostAddress() + " ejected for " +
+                        TimeUnit.NANOSECONDS.toMillis(ejectionTime) + " ms");
+            }
+            for (final Listener listener : this.listeners) {
+                listener.ejected(address);
+            }
+        }
+    }
+
+    /**
+     * Determines whether the given address is currently ejected.
+     */
+    public boolean isEjected(final InetAddress address) {
+        final State state = address != null ? this.states.get(address) : null;
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return state.isEjected(System.nanoTime());
+        }
+    }
+
+    /**
+     * Returns the number of consecutive failed connection attempts to
+     * the given address.
+     */
+    public int getFailureCount(final InetAddress address) {
+        final State state = address != null ? this.states.get(address) : null;
+        if (state == null) {
+            return 0;
+        }
+        synchronized (state) {
+            return state.failures;
+        }
+    }
+
+    /**
+     * Returns the moving average of connect times to the given address
+     * in milliseconds, or {@code -1} if no connection has been established.
+     */
+    public double getConnectTimeAverage(final InetAddress address) {
+        final State state = address != null ? this.states.get(address) : null;
+        if (state == null) {
+            return -1;
+        }
+        synchronized (state) {
+            return state.connectTimeEwma >= 0 ? state.connectTimeEwma / 1000000 : -1;
+        }
+    }
+
+    /**
+     * Orders the addresses of a host for connection attempts. Addresses
+     * without recent failures keep their original order and come first,
+     * followed by the other addresses with the fewest failures first.
+     * Ejected addresses are omitted unless all addresses are ejected.
+     */
+    public InetAddress[] order(final InetAddress[] addresses) {
+        if (addresses == null || addresses.length == 0 || this.states.isEmpty()) {
+            return addresses;
+        }
+        final long now = System.nanoTime();
+        final List<InetAddress> healthy = new ArrayList<InetAddress>(addresses.length);
+        final List<Candidate> degraded = new ArrayList<Candidate>();
+        final List<Candidate> ejected = new ArrayList<Candidate>();
+        for (final InetAddress address : addresses) {
+            final State state = this.states.get(address);
+            if (state == null) {
+                healthy.add(address);
+                continue;
+            }
+            synchronized (state) {
+                if (state.isEjected(now)) {
+                    ejected.add(new Candidate(address, state.ejectedUntil - now));
+                } else if (state.failures > 0) {
+                    degraded.add(new Candidate(address, state.failures));
+                } else {
+                    healthy.add(address);
+                }
+            }
+        }
+        if (degraded.isEmpty() && ejected.isEmpty()) {
+            return addresses;
+        }
+        if (healthy.isEmpty() && degraded.isEmpty()) {
+            // Fail open: try the address to be restored first
+            Collections.sort(ejected, Candidate.COMPARATOR);
+            return toArray(healthy, ejected);
+        }
+        Collections.sort(degraded, Candidate.COMPARATOR);
+        return toArray(healthy, degraded);
+    }
+
+    private static InetAddress[] toArray(final List<InetAddress> first, final List<Candidate> second) {
+        final InetAddress[] result = new InetAddress[first.size() + second.size()];
+        int n = 0;
+        for (final InetAddress address : first) {
+            result[n++] = address;
+        }
+        for (final Candidate candidate : second) {
+            result[n++] = candidate.address;
+        }
+        return result;
+    }
+
+    private State getState(final InetAddress address) {
+        State state = this.states.get(address);
+        if (state == null) {
+            if (this.states.size() >= MAX_ENTRIES) {
+                purgeHealthy();
+            }
+            state = new State();
+            final State existing = this.states.putIfAbsent(address, state);
+            if (existing != null) {
+                state = existing;
+            }
+        }
+        return state;
+    }
+
+    private void purgeHealthy() {
+        for (final Iterator<State> it = this.states.values().iterator(); it.hasNext(); ) {
+            final State state = it.next();
+            synchronized (state) {
+                if (state.failures == 0) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    static class State {
+
+        int failures;
+        int ejections;
+        long ejectedUntil;
+        double connectTimeEwma = -1;
+
+        boolean isEjected(final long now) {
+            return this.ejectedUntil != 0 && this.ejectedUntil - now > 0;
+        }
+
+    }
+
+    static class Candidate {
+
+        static final Comparator<Candidate> COMPARATOR = new Comparator<Candidate>() {
+
+            @Override
+            public int compare(final Candidate c1, final Candidate c2) {
+                return c1.rank < c2.rank ? -1 : (c1.rank == c2.rank ? 0 : 1);
+            }
+
+        };
+
+        final InetAddress address;
+        final long rank;
+
+        Candidate(final InetAddress address, final long rank) {
+            this.address = address;
+            this.rank = rank;
+        }
+
+    }
+
+}
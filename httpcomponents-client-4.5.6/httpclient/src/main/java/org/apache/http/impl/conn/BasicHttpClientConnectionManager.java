@@ -33,6 +33,8 @@ import java.net.InetSocketAddress;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -97,6 +99,7 @@ public class BasicHttpClientConnectionManager implements HttpClientConnectionMan
     private ConnectionConfig connConfig;
 
     private final AtomicBoolean isShutdown;
+    private final Lock lock;
 
     private static Registry<ConnectionSocketFactory> getDefaultRegistry() {
         return RegistryBuilder.<ConnectionSocketFactory>create()
@@ -129,6 +132,7 @@ public class BasicHttpClientConnectionManager implements HttpClientConnectionMan
         this.socketConfig = SocketConfig.DEFAULT;
         this.connConfig = ConnectionConfig.DEFAULT;
         this.isShutdown = new AtomicBoolean(false);
+        this.lock = new ReentrantLock();
     }
 
     public BasicHttpClientConnectionManager(
@@ -159,6 +163,13 @@ public class BasicHttpClientConnectionManager implements HttpClientConnectionMan
     public void close() {
         if (this.isShutdown.compareAndSet(false, true)) {
             closeConnection();
+            if (this.connectionOperator instanceof Closeable) {
+                try {
+                    ((Closeable) this.connectionOperator).close();
+                } catch (final IOException ex) {
+                    this.log.debug("I/O exception closing connection operator", ex);
+                }
+            }
         }
     }
 
@@ -170,20 +181,40 @@ public class BasicHttpClientConnectionManager implements HttpClientConnectionMan
         return state;
     }
 
-    public synchronized SocketConfig getSocketConfig() {
-        return socketConfig;
+    public SocketConfig getSocketConfig() {
+        this.lock.lock();
+        try {
+            return socketConfig;
+        } finally {
+            this.lock.unlock();
+        }
     }
 
-    public synchronized void setSocketConfig(final SocketConfig socketConfig) {
-        this.socketConfig = socketConfig != null ? socketConfig : SocketConfig.DEFAULT;
+    public void setSocketConfig(final SocketConfig socketConfig) {
+        this.lock.lock();
+        try {
+            this.socketConfig = socketConfig != null ? socketConfig : SocketConfig.DEFAULT;
+        } finally {
+            this.lock.unlock();
+        }
     }
 
-    public synchronized ConnectionConfig getConnectionConfig() {
-        return connConfig;
+    public ConnectionConfig getConnectionConfig() {
+        this.lock.lock();
+        try {
+            return connConfig;
+        } finally {
+            this.lock.unlock();
+        }
     }
 
-    public synchronized void setConnectionConfig(final ConnectionConfig connConfig) {
-        this.connConfig = connConfig != null ? connConfig : ConnectionConfig.DEFAULT;
+    public void setConnectionConfig(final ConnectionConfig connConfig) {
+        this.lock.lock();
+        try {
+            this.connConfig = connConfig != null ? connConfig : ConnectionConfig.DEFAULT;
+        } finally {
+            this.lock.unlock();
+        }
     }
 
     @Override
@@ -208,17 +239,22 @@ public class BasicHttpClientConnectionManager implements HttpClientConnectionMan
         };
     }
 
-    private synchronized void closeConnection() {
-        if (this.conn != null) {
-            this.log.debug("Closing connection");
-            try {
-                this.conn.close();
-            } catch (final IOException iox) {
-                if (this.log.isDebugEnabled()) {
-                    this.log.debug("I/O exception closing connection", iox);
+    private void closeConnection() {
+        this.lock.lock();
+        try {
+            if (this.conn != null) {
+                this.log.debug("Closing connection");
+                try {
+                    this.conn.close();
+                } catch (final IOException iox) {
+                    if (this.log.isDebugEnabled()) {
+                        this.log.debug("I/O exception closing connection", iox);
+                    }
                 }
+                this.conn = null;
             }
-            this.conn = null;
+        } finally {
+            this.lock.unlock();
         }
     }
 
@@ -231,66 +267,76 @@ public class BasicHttpClientConnectionManager implements HttpClientConnectionMan
         }
     }
 
-    synchronized HttpClientConnection getConnection(final HttpRoute route, final Object state) {
-        Asserts.check(!this.isShutdown.get(), "Connection manager has been shut down");
-        if (this.log.isDebugEnabled()) {
-            this.log.debug("Get connection for route " + route);
-        }
-        Asserts.check(!this.leased, "Connection is still allocated");
-        if (!LangUtils.equals(this.route, route) || !LangUtils.equals(this.state, state)) {
-            closeConnection();
-        }
-        this.route = route;
-        this.state = state;
-        checkExpiry();
-        if (this.conn == null) {
-            this.conn = this.connFactory.create(route, this.connConfig);
+    HttpClientConnection getConnection(final HttpRoute route, final Object state) {
+        this.lock.lock();
+        try {
+            Asserts.check(!this.isShutdown.get(), "Connection manager has been shut down");
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("Get connection for route " + route);
+            }
+            Asserts.check(!this.leased, "Connection is still allocated");
+            if (!LangUtils.equals(this.route, route) || !LangUtils.equals(this.state, state)) {
+                closeConnection();
+            }
+            this.route = route;
+            this.state = state;
+            checkExpiry();
+            if (this.conn == null) {
+                this.conn = this.connFactory.create(route, this.connConfig);
+            }
+            this.conn.setSocketTimeout(this.socketConfig.getSoTimeout());
+            this.leased = true;
+            return this.conn;
+        } finally {
+            this.lock.unlock();
         }
-        this.conn.setSocketTimeout(this.socketConfig.getSoTimeout());
-        this.leased = true;
-        return this.conn;
     }
 
     @Override
-    public synchronized void releaseConnection(
+    public void releaseConnection(
             final HttpClientConnection conn,
             final Object state,
             final long keepalive, final TimeUnit tunit) {
-        Args.notNull(conn, "Connection");
-        Asserts.check(conn == this.conn, "Connection not obtained from this manager");
-        if (this.log.isDebugEnabled()) {
-            this.log.debug("Releasing connection " + conn);
-        }
-        if (this.isShutdown.get()) {
-            return;
-        }
+        this.lock.lock();
         try {
-            this.updated = System.currentTimeMillis();
-            if (!this.conn.isOpen()) {
-                this.conn = null;
-                this.route = null;
-                this.conn = null;
-                this.expiry = Long.MAX_VALUE;
-            } else {
-                this.state = state;
-                this.conn.setSocketTimeout(0);
-                if (this.log.isDebugEnabled()) {
-                    final String s;
+            Args.notNull(conn, "Connection");
+            Asserts.check(conn == this.conn, "Connection not obtained from this manager");
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("Releasing connection " + conn);
+            }
+            if (this.isShutdown.get()) {
+                return;
+            }
+            try {
+                this.updated = System.currentTimeMillis();
+                if (!this.conn.isOpen()) {
+                    this.conn = null;
+                    this.route = null;
+                    this.conn = null;
+                    this.expiry = Long.MAX_VALUE;
+                } else {
+                    this.state = state;
+                    this.conn.setSocketTimeout(0);
+                    if (this.log.isDebugEnabled()) {
+                        final String s;
+                        if (keepalive > 0) {
+                            s = "for " + keepalive + " " + tunit;
+                        } else {
+                            s = "indefinitely";
+                        }
+                        this.log.debug("Connection can be kept alive " + s);
+                    }
                     if (keepalive > 0) {
-                        s = "for " + keepalive + " " + tunit;
+                        this.expiry = this.updated + tunit.toMillis(keepalive);
                     } else {
-                        s = "indefinitely";
+                        this.expiry = Long.MAX_VALUE;
                     }
-                    this.log.debug("Connection can be kept alive " + s);
-                }
-                if (keepalive > 0) {
-                    this.expiry = this.updated + tunit.toMillis(keepalive);
-                } else {
-                    this.expiry = Long.MAX_VALUE;
                 }
+            } finally {
+                this.leased = false;
             }
         } finally {
-            this.leased = false;
+            this.lock.unlock();
         }
     }
 
@@ -333,30 +379,40 @@ public class BasicHttpClientConnectionManager implements HttpClientConnectionMan
     }
 
     @Override
-    public synchronized void closeExpiredConnections() {
-        if (this.isShutdown.get()) {
-            return;
-        }
-        if (!this.leased) {
-            checkExpiry();
+    public void closeExpiredConnections() {
+        this.lock.lock();
+        try {
+            if (this.isShutdown.get()) {
+                return;
+            }
+            if (!this.leased) {
+                checkExpiry();
+            }
+        } finally {
+            this.lock.unlock();
         }
     }
 
     @Override
-    public synchronized void closeIdleConnections(final long idletime, final TimeUnit tunit) {
-        Args.notNull(tunit, "Time unit");
-        if (this.isShutdown.get()) {
-            return;
-        }
-        if (!this.leased) {
-            long time = tunit.toMillis(idletime);
-            if (time < 0) {
-                time = 0;
+    public void closeIdleConnections(final long idletime, final TimeUnit tunit) {
+        this.lock.lock();
+        try {
+            Args.notNull(tunit, "Time unit");
+            if (this.isShutdown.get()) {
+                return;
             }
-            final long deadline = System.currentTimeMillis() - time;
-            if (this.updated <= deadline) {
-                closeConnection();
+            if (!this.leased) {
+                long time = tunit.toMillis(idletime);
+                if (time < 0) {
+                    time = 0;
+                }
+                final long deadline = System.currentTimeMillis() - time;
+                if (this.updated <= deadline) {
+                    closeConnection();
+                }
             }
+        } finally {
+            this.lock.unlock();
         }
     }
 
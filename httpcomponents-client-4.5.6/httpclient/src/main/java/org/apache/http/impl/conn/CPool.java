@@ -26,8 +26,11 @@
  */
 package org.apache.http.impl.conn;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -37,6 +40,7 @@ import org.apache.http.conn.ManagedHttpClientConnection;
 import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.pool.AbstractConnPool;
 import org.apache.http.pool.ConnFactory;
+import org.apache.http.pool.PoolEntry;
 import org.apache.http.pool.PoolEntryCallback;
 
 /**
@@ -68,7 +72,102 @@ class CPool extends AbstractConnPool<HttpRoute, ManagedHttpClientConnection, CPo
 
     @Override
     protected boolean validate(final CPoolEntry entry) {
-        return !entry.getConnection().isStale();
+        final Lock lock = entry.getValidationLock();
+        lock.lock();
+        try {
+            // Skip the check if the connection has recently been probed
+            // by a background validator
+            if (entry.getValidated() + getValidateAfterInactivity() > System.currentTimeMillis()) {
+                return !entry.isClosed();
+            }
+            return !entry.getConnection().isStale();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void onReuse(final CPoolEntry entry) {
+        entry.setLeased(true);
+    }
+
+    @Override
+    protected void onLease(final CPoolEntry entry) {
+        // Wait for a staleness check that may still be in progress
+        final Lock lock = entry.getValidationLock();
+        lock.lock();
+        try {
+            entry.setLeased(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void onRelease(final CPoolEntry entry) {
+        entry.setLeased(false);
+    }
+
+    /**
+     * Probes available connections that have been neither used nor checked
+     * for at least half of the {@link #getValidateAfterInactivity()} period
+     * and closes those found to be stale. Connections are probed outside
+     * the pool lock; those leased in the meantime are skipped.
+     *
+     * @return number of stale connections closed.
+     */
+    int validateIdle() {
+        final int validateAfterInactivity = getValidateAfterInactivity();
+        if (validateAfterInactivity <= 0) {
+            return 0;
+        }
+        final long threshold = System.currentTimeMillis() - validateAfterInactivity / 2;
+        final List<CPoolEntry> candidates = new ArrayList<CPoolEntry>();
+        enumAvailable(new PoolEntryCallback<HttpRoute, ManagedHttpClientConnection>() {
+
+            @Override
+            public void process(final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry) {
+                final CPoolEntry poolEntry = (CPoolEntry) entry;
+                if (Math.max(poolEntry.getUpdated(), poolEntry.getValidated()) <= threshold) {
+                    candidates.add(poolEntry);
+                }
+            }
+
+        });
+        int stale = 0;
+        for (final CPoolEntry entry : candidates) {
+            final Lock lock = entry.getValidationLock();
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (entry.isLeased() || entry.isClosed()) {
+                    continue;
+                }
+                if (entry.getConnection().isStale()) {
+                    if (this.log.isDebugEnabled()) {
+                        this.log.debug("Connection " + entry + " is stale");
+                    }
+                    entry.close();
+                    stale++;
+                } else {
+                    entry.markValidated(System.currentTimeMillis());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (stale > 0) {
+            // Evict closed connections from the pool
+            enumAvailable(new PoolEntryCallback<HttpRoute, ManagedHttpClientConnection>() {
+
+                @Override
+                public void process(final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry) {
+                }
+
+            });
+        }
+        return stale;
     }
 
     @Override
@@ -29,6 +29,8 @@ package org.apache.http.impl.conn;
 import java.io.IOException;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.http.HttpClientConnection;
@@ -45,7 +47,10 @@ import org.apache.http.pool.PoolEntry;
 class CPoolEntry extends PoolEntry<HttpRoute, ManagedHttpClientConnection> {
 
     private final Log log;
+    private final Lock validationLock;
     private volatile boolean routeComplete;
+    private volatile boolean leased;
+    private volatile long validated;
 
     public CPoolEntry(
             final Log log,
@@ -55,6 +60,7 @@ class CPoolEntry extends PoolEntry<HttpRoute, ManagedHttpClientConnection> {
             final long timeToLive, final TimeUnit tunit) {
         super(id, route, conn, timeToLive, tunit);
         this.log = log;
+        this.validationLock = new ReentrantLock();
     }
 
     public void markRouteComplete() {
@@ -65,6 +71,33 @@ class CPoolEntry extends PoolEntry<HttpRoute, ManagedHttpClientConnection> {
         return this.routeComplete;
     }
 
+    /**
+     * Lock guarding the connection while it is being probed for staleness.
+     */
+    Lock getValidationLock() {
+        return this.validationLock;
+    }
+
+    boolean isLeased() {
+        return this.leased;
+    }
+
+    void setLeased(final boolean leased) {
+        this.leased = leased;
+    }
+
+    /**
+     * Returns the time of the last successful staleness check
+     * or {@code 0} if the connection has never been checked.
+     */
+    long getValidated() {
+        return this.validated;
+    }
+
+    void markValidated(final long now) {
+        this.validated = now;
+    }
+
     public void closeConnection() throws IOException {
         final HttpClientConnection conn = getConnection();
         conn.close();
@@ -0,0 +1,436 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.conn;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.util.Args;
+
+/**
+ * {@link DnsResolver} that caches the results of another resolver.
+ * <p>
+ * Successful lookups are cached for the configured time to live.
+ * Once it has elapsed the cached addresses continue to be returned for
+ * the configured stale period while a fresh lookup is executed in the
+ * background. Lookups that fail with {@link UnknownHostException} are
+ * cached for the negative time to live. Concurrent lookups of the same
+ * host name that miss the cache share a single lookup of the underlying
+ * resolver. The number of cached host names is bounded; the least
+ * recently used entries are evicted first.
+ * </p>
+ * <p>
+ * {@link InetAddress} does not expose the TTL of DNS records, so the
+ * same time to live applies to all host names.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE_CONDITIONAL)
+public class CachingDnsResolver implements DnsResolver, Closeable {
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final DnsResolver dnsResolver;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final long negativeTtlNanos;
+    private final int maxEntries;
+    private final Executor refreshExecutor;
+    private final ThreadPoolExecutor ownExecutor;
+    private final ConcurrentMap<String, Entry> cache;
+    private final ConcurrentMap<String, FutureTask<InetAddress[]>> inFlight;
+
+    private final AtomicLong hitCount;
+    private final AtomicLong staleHitCount;
+    private final AtomicLong negativeHitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong refreshCount;
+    private final AtomicLong failureCount;
+    private final AtomicLong lookupCount;
+    private final AtomicLong lookupNanos;
+
+    /**
+     * @param dnsResolver resolver used to look up host names. If {@code null}
+     *   {@link SystemDefaultDnsResolver#INSTANCE} is used.
+     * @param ttl time to live of successful lookups.
+     * @param stalePeriod period after expiry during which a cached lookup is
+     *   still returned while it is refreshed in the background; {@code 0}
+     *   disables background refresh.
+     * @param negativeTtl time to live of failed lookups; {@code 0} disables
+     *   negative caching.
+     * @param tunit time unit of {@code ttl}, {@code stalePeriod} and {@code negativeTtl}.
+     * @param maxEntries maximum number of cached host names.
+     * @param refreshExecutor executor of background refreshes. If {@code null}
+     *   a single daemon thread is created on demand, which terminates when idle
+     *   and is stopped by {@link #close()}.
+     */
+    public CachingDnsResolver(
+            final DnsResolver dnsResolver,
+            final long ttl,
+            final long stalePeriod,
+            final long negativeTtl,
+            final TimeUnit tunit,
+            final int maxEntries,
+            final Executor refreshExecutor) {
+        super();
+        Args.notNegative(ttl, "Time to live");
+        Args.notNegative(stalePeriod, "Stale period");
+        Args.notNegative(negativeTtl, "Negative time to live");
+        Args.notNull(tunit, "Time unit");
+        Args.positive(maxEntries, "Max entries");
+        this.dnsResolver = dnsResolver != null ? dnsResolver : SystemDefaultDnsResolver.INSTANCE;
+        this.ttlNanos = tunit.toNanos(ttl);
+        this.staleNanos = tunit.toNanos(stalePeriod);
+        this.negativeTtlNanos = tunit.toNanos(negativeTtl);
+        this.maxEntries = maxEntries;
+        if (refreshExecutor != null) {
+            this.refreshExecutor = refreshExecutor;
+            this.ownExecutor = null;
+        } else {
+            this.ownExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory());
+            this.ownExecutor.allowCoreThreadTimeOut(true);
+            this.refreshExecutor = this.ownExecutor;
+        }
+        this.cache = new ConcurrentHashMap<String, Entry>();
+        this.inFlight = new ConcurrentHashMap<String, FutureTask<InetAddress[]>>();
+        this.hitCount = new AtomicLong();
+        this.staleHitCount = new AtomicLong();
+        this.negativeHitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.refreshCount = new AtomicLong();
+        this.failureCount = new AtomicLong();
+        this.lookupCount = new AtomicLong();
+        this.lookupNanos = new AtomicLong();
+    }
+
+    /**
+     * Creates a resolver caching successful lookups for 60 seconds, serving
+     * them for another 30 seconds while refreshing, caching failed lookups
+     * for 5 seconds and holding at most 1024 host names.
+     */
+    public CachingDnsResolver(final DnsResolver dnsResolver) {
+        this(dnsResolver, 60, 30, 5, TimeUnit.SECONDS, 1024, null);
+    }
+
+    public CachingDnsResolver() {
+        this(null);
+    }
+
+    @Override
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        Args.notNull(host, "Host name");
+        final String key = host.toLowerCase(Locale.ROOT);
+        final long now = System.nanoTime();
+        final Entry entry = this.cache.get(key);
+        if (entry != null) {
+            entry.lastAccess = now;
+            final long age = now - entry.created;
+            if (entry.addresses == null) {
+                if (age < this.negativeTtlNanos) {
+                    this.negativeHitCount.incrementAndGet();
+                    throw new UnknownHostException(entry.message);
+                }
+            } else if (age < this.ttlNanos) {
+                this.hitCount.incrementAndGet();
+                return entry.addresses.clone();
+            } else if (age < this.ttlNanos + this.staleNanos) {
+                this.staleHitCount.incrementAndGet();
+                refreshAsync(key, host, entry);
+                return entry.addresses.clone();
+            }
+        }
+        return lookupOnce(key, host).clone();
+    }
+
+    /**
+     * Looks up the host name on the calling thread, unless another thread
+     * is already looking it up, in which case its result is awaited.
+     */
+    private InetAddress[] lookupOnce(final String key, final String host) throws UnknownHostException {
+        final FutureTask<InetAddress[]> task = new FutureTask<InetAddress[]>(new Callable<InetAddress[]>() {
+
+            @Override
+            public InetAddress[] call() throws UnknownHostException {
+                return lookup(key, host, false);
+            }
+
+        });
+        final FutureTask<InetAddress[]> pending = this.inFlight.putIfAbsent(key, task);
+        if (pending == null) {
+            this.missCount.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                this.inFlight.remove(key, task);
+            }
+        }
+        final FutureTask<InetAddress[]> future = pending != null ? pending : task;
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            final UnknownHostException unknownHost = new UnknownHostException(
+                    "Interrupted while resolving " + host);
+            unknownHost.initCause(ex);
+            throw unknownHost;
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof UnknownHostException) {
+                throw (UnknownHostException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private InetAddress[] lookup(
+            final String key, final String host, final boolean refresh) throws UnknownHostException {
+        final long start = System.nanoTime();
+        try {
+            final InetAddress[] addresses = this.dnsResolver.resolve(host);
+            if (addresses == null || addresses.length == 0) {
+                throw new UnknownHostException(host + " cannot be resolved");
+            }
+            put(key, new Entry(addresses.clone(), null, System.nanoTime()));
+            return addresses;
+        } catch (final UnknownHostException ex) {
+            this.failureCount.incrementAndGet();
+            // Failed refreshes keep the stale addresses until the stale period is over
+            if (refresh) {
+                throw ex;
+            }
+            if (this.negativeTtlNanos > 0) {
+                put(key, new Entry(null, ex.getMessage(), System.nanoTime()));
+            } else {
+                remove(key);
+            }
+            throw ex;
+        } finally {
+            this.lookupCount.incrementAndGet();
+            this.lookupNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void refreshAsync(final String key, final String host, final Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.refreshExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    refreshCount.incrementAndGet();
+                    try {
+                        lookup(key, host, true);
+                    } catch (final UnknownHostException ex) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Refresh of " + host + " failed: " + ex.getMessage());
+                        }
+                        entry.refreshing.set(false);
+                    } catch (final RuntimeException ex) {
+                        log.debug("Refresh of " + host + " failed", ex);
+                        entry.refreshing.set(false);
+                    }
+                }
+
+            });
+        } catch (final RejectedExecutionException ex) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void put(final String key, final Entry entry) {
+        this.cache.put(key, entry);
+        while (this.cache.size() > this.maxEntries) {
+            // Evictions only happen on misses, so a scan is cheap compared to the lookup
+            Map.Entry<String, Entry> eldest = null;
+            for (final Map.Entry<String, Entry> candidate : this.cache.entrySet()) {
+                if (candidate.getValue() != entry
+                        && (eldest == null || candidate.getValue().lastAccess - eldest.getValue().lastAccess < 0)) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            this.cache.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void remove(final String key) {
+        this.cache.remove(key);
+    }
+
+    /**
+     * Removes all cached lookups.
+     */
+    public void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * Returns the number of cached host names, including failed lookups.
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Returns the number of lookups served from fresh cache entries.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups served from expired cache entries
+     * while they were being refreshed.
+     */
+    public long getStaleHitCount() {
+        return this.staleHitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups failed from cached failures.
+     */
+    public long getNegativeHitCount() {
+        return this.negativeHitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups delegated to the underlying resolver
+     * on the calling thread.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Returns the number of background refreshes.
+     */
+    public long getRefreshCount() {
+        return this.refreshCount.get();
+    }
+
+    /**
+     * Returns the number of lookups of the underlying resolver that failed.
+     */
+    public long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    /**
+     * Returns the mean time spent in the underlying resolver in milliseconds,
+     * including background refreshes.
+     */
+    public double getMeanLookupTime() {
+        final long count = this.lookupCount.get();
+        return count > 0 ? (double) this.lookupNanos.get() / count / 1000000 : 0;
+    }
+
+    /**
+     * Stops the background refresh thread if it was created by this resolver.
+     */
+    @Override
+    public void close() {
+        if (this.ownExecutor != null) {
+            this.ownExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[entries: ").append(size());
+        buffer.append("; hits: ").append(getHitCount());
+        buffer.append("; stale hits: ").append(getStaleHitCount());
+        buffer.append("; negative hits: ").append(getNegativeHitCount());
+        buffer.append("; misses: ").append(getMissCount());
+        buffer.append("; refreshes: ").append(getRefreshCount());
+        buffer.append("; failures: ").append(getFailureCount());
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    static class Entry {
+
+        final InetAddress[] addresses;
+        final String message;
+        final long created;
+        final AtomicBoolean refreshing;
+        volatile long lastAccess;
+
+        Entry(final InetAddress[] addresses, final String message, final long created) {
+            this.addresses = addresses;
+            this.message = message;
+            this.created = created;
+            this.refreshing = new AtomicBoolean(false);
+            this.lastAccess = created;
+        }
+
+    }
+
+    static class DefaultThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "DNS refresh");
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
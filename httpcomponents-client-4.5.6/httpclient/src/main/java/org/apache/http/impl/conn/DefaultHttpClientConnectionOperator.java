@@ -33,6 +33,7 @@ import java.net.InetSocketAddress;
 import java.net.NoRouteToHostException;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -71,11 +72,20 @@ public class DefaultHttpClientConnectionOperator implements HttpClientConnection
     private final Lookup<ConnectionSocketFactory> socketFactoryRegistry;
     private final SchemePortResolver schemePortResolver;
     private final DnsResolver dnsResolver;
+    private final AddressHealthTracker addressHealthTracker;
 
+    /**
+     * @param addressHealthTracker tracker of connect failures used to order
+     *   the addresses of hosts, or {@code null} to try addresses in the order
+     *   returned by the DNS resolver.
+     *
+     * @since 4.5.7
+     */
     public DefaultHttpClientConnectionOperator(
             final Lookup<ConnectionSocketFactory> socketFactoryRegistry,
             final SchemePortResolver schemePortResolver,
-            final DnsResolver dnsResolver) {
+            final DnsResolver dnsResolver,
+            final AddressHealthTracker addressHealthTracker) {
         super();
         Args.notNull(socketFactoryRegistry, "Socket factory registry");
         this.socketFactoryRegistry = socketFactoryRegistry;
@@ -83,10 +93,25 @@ public class DefaultHttpClientConnectionOperator implements HttpClientConnection
             DefaultSchemePortResolver.INSTANCE;
         this.dnsResolver = dnsResolver != null ? dnsResolver :
             SystemDefaultDnsResolver.INSTANCE;
+        this.addressHealthTracker = addressHealthTracker;
+    }
+
+    public DefaultHttpClientConnectionOperator(
+            final Lookup<ConnectionSocketFactory> socketFactoryRegistry,
+            final SchemePortResolver schemePortResolver,
+            final DnsResolver dnsResolver) {
+        this(socketFactoryRegistry, schemePortResolver, dnsResolver, null);
+    }
+
+    /**
+     * @since 4.5.7
+     */
+    public AddressHealthTracker getAddressHealthTracker() {
+        return this.addressHealthTracker;
     }
 
     @SuppressWarnings("unchecked")
-    private Lookup<ConnectionSocketFactory> getSocketFactoryRegistry(final HttpContext context) {
+    Lookup<ConnectionSocketFactory> getSocketFactoryRegistry(final HttpContext context) {
         Lookup<ConnectionSocketFactory> reg = (Lookup<ConnectionSocketFactory>) context.getAttribute(
                 SOCKET_FACTORY_REGISTRY);
         if (reg == null) {
@@ -110,47 +135,37 @@ public class DefaultHttpClientConnectionOperator implements HttpClientConnection
                     " protocol is not supported");
         }
         final InetAddress[] addresses = host.getAddress() != null ?
-                new InetAddress[] { host.getAddress() } : this.dnsResolver.resolve(host.getHostName());
+                new InetAddress[] { host.getAddress() } : orderAddresses(this.dnsResolver.resolve(host.getHostName()));
         final int port = this.schemePortResolver.resolve(host);
         for (int i = 0; i < addresses.length; i++) {
             final InetAddress address = addresses[i];
             final boolean last = i == addresses.length - 1;
 
             Socket sock = sf.createSocket(context);
-            sock.setSoTimeout(socketConfig.getSoTimeout());
-            sock.setReuseAddress(socketConfig.isSoReuseAddress());
-            sock.setTcpNoDelay(socketConfig.isTcpNoDelay());
-            sock.setKeepAlive(socketConfig.isSoKeepAlive());
-            if (socketConfig.getRcvBufSize() > 0) {
-                sock.setReceiveBufferSize(socketConfig.getRcvBufSize());
-            }
-            if (socketConfig.getSndBufSize() > 0) {
-                sock.setSendBufferSize(socketConfig.getSndBufSize());
-            }
-
-            final int linger = socketConfig.getSoLinger();
-            if (linger >= 0) {
-                sock.setSoLinger(true, linger);
-            }
+            configureSocket(sock, socketConfig);
             conn.bind(sock);
 
             final InetSocketAddress remoteAddress = new InetSocketAddress(address, port);
             if (this.log.isDebugEnabled()) {
                 this.log.debug("Connecting to " + remoteAddress);
             }
+            final long start = System.nanoTime();
             try {
                 sock = sf.connectSocket(
                         connectTimeout, sock, host, remoteAddress, localAddress, context);
+                connectSucceeded(address, System.nanoTime() - start);
                 conn.bind(sock);
                 if (this.log.isDebugEnabled()) {
                     this.log.debug("Connection established " + conn);
                 }
                 return;
             } catch (final SocketTimeoutException ex) {
+                connectFailed(address);
                 if (last) {
                     throw new ConnectTimeoutException(ex, host, addresses);
                 }
             } catch (final ConnectException ex) {
+                connectFailed(address);
                 if (last) {
                     final String msg = ex.getMessage();
                     if ("Connection timed out".equals(msg)) {
@@ -160,6 +175,7 @@ public class DefaultHttpClientConnectionOperator implements HttpClientConnection
                     }
                 }
             } catch (final NoRouteToHostException ex) {
+                connectFailed(address);
                 if (last) {
                     throw ex;
                 }
@@ -171,6 +187,40 @@ public class DefaultHttpClientConnectionOperator implements HttpClientConnection
         }
     }
 
+    InetAddress[] orderAddresses(final InetAddress[] addresses) {
+        return this.addressHealthTracker != null ? this.addressHealthTracker.order(addresses) : addresses;
+    }
+
+    void connectSucceeded(final InetAddress address, final long nanos) {
+        if (this.addressHealthTracker != null) {
+            this.addressHealthTracker.connectSucceeded(address, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void connectFailed(final InetAddress address) {
+        if (this.addressHealthTracker != null) {
+            this.addressHealthTracker.connectFailed(address);
+        }
+    }
+
+    static void configureSocket(final Socket sock, final SocketConfig socketConfig) throws IOException {
+        sock.setSoTimeout(socketConfig.getSoTimeout());
+        sock.setReuseAddress(socketConfig.isSoReuseAddress());
+        sock.setTcpNoDelay(socketConfig.isTcpNoDelay());
+        sock.setKeepAlive(socketConfig.isSoKeepAlive());
+        if (socketConfig.getRcvBufSize() > 0) {
+            sock.setReceiveBufferSize(socketConfig.getRcvBufSize());
+        }
+        if (socketConfig.getSndBufSize() > 0) {
+            sock.setSendBufferSize(socketConfig.getSndBufSize());
+        }
+
+        final int linger = socketConfig.getSoLinger();
+        if (linger >= 0) {
+            sock.setSoLinger(true, linger);
+        }
+    }
+
     @Override
     public void upgrade(
             final ManagedHttpClientConnection conn,
@@ -40,6 +40,7 @@ import javax.net.ssl.SSLSocket;
 
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.Cancellable;
 import org.apache.http.config.MessageConstraints;
 import org.apache.http.conn.ManagedHttpClientConnection;
 import org.apache.http.entity.ContentLengthStrategy;
@@ -59,6 +60,7 @@ public class DefaultManagedHttpClientConnection extends DefaultBHttpClientConnec
     private final Map<String, Object> attributes;
 
     private volatile boolean shutdown;
+    private volatile Cancellable pendingConnect;
 
     public DefaultManagedHttpClientConnection(
             final String id,
@@ -92,9 +94,24 @@ public class DefaultManagedHttpClientConnection extends DefaultBHttpClientConnec
     @Override
     public void shutdown() throws IOException {
         this.shutdown = true;
+        final Cancellable cancellable = this.pendingConnect;
+        if (cancellable != null) {
+            cancellable.cancel();
+        }
         super.shutdown();
     }
 
+    /**
+     * Registers a connect operation in progress that gets cancelled if this
+     * connection is shut down before a socket has been bound to it.
+     *
+     * @return {@code false} if this connection has already been shut down.
+     */
+    boolean setPendingConnect(final Cancellable cancellable) {
+        this.pendingConnect = cancellable;
+        return !this.shutdown;
+    }
+
     @Override
     public Object getAttribute(final String id) {
         return this.attributes.get(id);
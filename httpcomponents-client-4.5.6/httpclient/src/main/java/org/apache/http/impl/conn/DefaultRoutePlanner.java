@@ -28,6 +28,9 @@
 package org.apache.http.impl.conn;
 
 import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
@@ -43,22 +46,33 @@ import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.routing.HttpRoutePlanner;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.Args;
+import org.apache.http.util.LangUtils;
 
 /**
  * Default implementation of an {@link HttpRoutePlanner}. It will not make use of
  * any Java system properties, nor of system or browser proxy settings.
+ * <p>
+ * Routes are interned: requests with the same target host, local address
+ * and proxy are given the same {@link HttpRoute} instance, which makes
+ * route comparison by the connection pool an identity check. At most
+ * 1024 routes are interned; the least recently used ones are evicted first.
+ * </p>
  *
  * @since 4.3
  */
 @Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
 public class DefaultRoutePlanner implements HttpRoutePlanner {
 
+    static final int MAX_INTERNED_ROUTES = 1024;
+
     private final SchemePortResolver schemePortResolver;
+    private final ConcurrentMap<RouteKey, InternedRoute> routes;
 
     public DefaultRoutePlanner(final SchemePortResolver schemePortResolver) {
         super();
         this.schemePortResolver = schemePortResolver != null ? schemePortResolver :
             DefaultSchemePortResolver.INSTANCE;
+        this.routes = new ConcurrentHashMap<RouteKey, InternedRoute>();
     }
 
     @Override
@@ -78,6 +92,12 @@ public class DefaultRoutePlanner implements HttpRoutePlanner {
             proxy = determineProxy(host, request, context);
         }
 
+        final RouteKey key = new RouteKey(host, local, proxy);
+        final InternedRoute interned = this.routes.get(key);
+        if (interned != null) {
+            interned.lastUsed = System.nanoTime();
+            return interned.route;
+        }
         final HttpHost target;
         if (host.getPort() <= 0) {
             try {
@@ -92,10 +112,39 @@ public class DefaultRoutePlanner implements HttpRoutePlanner {
             target = host;
         }
         final boolean secure = target.getSchemeName().equalsIgnoreCase("https");
+        final HttpRoute route;
         if (proxy == null) {
-            return new HttpRoute(target, local, secure);
+            route = new HttpRoute(target, local, secure);
         } else {
-            return new HttpRoute(target, local, proxy, secure);
+            route = new HttpRoute(target, local, proxy, secure);
+        }
+        final InternedRoute existing = this.routes.putIfAbsent(key, new InternedRoute(route));
+        if (existing != null) {
+            return existing.route;
+        }
+        if (this.routes.size() > MAX_INTERNED_ROUTES) {
+            evict(key);
+        }
+        return route;
+    }
+
+    /**
+     * Evicts the least recently used routes other than the given one.
+     * Only called when a new route is interned, so a scan is affordable.
+     */
+    private void evict(final RouteKey retained) {
+        while (this.routes.size() > MAX_INTERNED_ROUTES) {
+            Map.Entry<RouteKey, InternedRoute> eldest = null;
+            for (final Map.Entry<RouteKey, InternedRoute> candidate : this.routes.entrySet()) {
+                if (!candidate.getKey().equals(retained)
+                        && (eldest == null || candidate.getValue().lastUsed - eldest.getValue().lastUsed < 0)) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            this.routes.remove(eldest.getKey(), eldest.getValue());
         }
     }
 
@@ -111,4 +160,59 @@ public class DefaultRoutePlanner implements HttpRoutePlanner {
         return null;
     }
 
+    static final class InternedRoute {
+
+        final HttpRoute route;
+        volatile long lastUsed;
+
+        InternedRoute(final HttpRoute route) {
+            this.route = route;
+            this.lastUsed = System.nanoTime();
+        }
+
+    }
+
+    /**
+     * Route planner inputs.
+     */
+    static final class RouteKey {
+
+        private final HttpHost host;
+        private final InetAddress local;
+        private final HttpHost proxy;
+        private final int hash;
+
+        RouteKey(final HttpHost host, final InetAddress local, final HttpHost proxy) {
+            this.host = host;
+            this.local = local;
+            this.proxy = proxy;
+            int h = LangUtils.HASH_SEED;
+            h = LangUtils.hashCode(h, host);
+            h = LangUtils.hashCode(h, local);
+            h = LangUtils.hashCode(h, proxy);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof RouteKey) {
+                final RouteKey that = (RouteKey) obj;
+                return this.hash == that.hash &&
+                        this.host.equals(that.host) &&
+                        LangUtils.equals(this.local, that.local) &&
+                        LangUtils.equals(this.proxy, that.proxy);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+    }
+
 }
@@ -0,0 +1,631 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.conn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.config.Lookup;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpHostConnectException;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.SchemePortResolver;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+
+/**
+ * {@link org.apache.http.conn.HttpClientConnectionOperator} that connects
+ * to hosts with multiple addresses using the Happy Eyeballs algorithm
+ * described in RFC 8305.
+ * <p>
+ * Resolved addresses are interleaved by address family, starting with
+ * the family of the first address. Instead of waiting for a connection
+ * attempt to time out, another attempt to the next address is started
+ * once the stagger delay elapses, or immediately if an attempt fails.
+ * The first connection established is used; all other attempts are
+ * aborted and their sockets closed.
+ * </p>
+ * <p>
+ * The first connection attempt runs on the calling thread; only the
+ * staggered attempts to further addresses are handed off to the given
+ * executor. If the executor rejects an attempt, the remaining addresses
+ * are tried one after another on the calling thread. If no executor is
+ * given, a pool of at most {@link #DEFAULT_MAX_THREADS} threads that does
+ * not queue attempts is created, which is shut down by {@link #close()}.
+ * Connection managers close the operator when they are shut down.
+ * </p>
+ * <p>
+ * Shutting down a {@link DefaultManagedHttpClientConnection}, for instance
+ * when the request is aborted, cancels all pending connection attempts.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
+public class HappyEyeballsConnectionOperator extends DefaultHttpClientConnectionOperator implements Closeable {
+
+    /**
+     * Default delay between the start of two connection attempts
+     * as recommended by RFC 8305.
+     */
+    public static final int DEFAULT_STAGGER_DELAY = 250;
+
+    /**
+     * Maximum number of threads of the executor created if none is given.
+     */
+    public static final int DEFAULT_MAX_THREADS = 16;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final SchemePortResolver schemePortResolver;
+    private final DnsResolver dnsResolver;
+    private final int staggerDelay;
+    private final Executor executor;
+    private final ThreadPoolExecutor defaultExecutor;
+
+    /**
+     * @param staggerDelay delay in milliseconds after which another connection
+     *   attempt is started while the previous attempts are still pending.
+     * @param executor executor of connection attempts. If {@code null}
+     *   a bounded pool of daemon threads is created.
+     * @param addressHealthTracker tracker of connect failures used to order
+     *   addresses before they are interleaved, or {@code null}.
+     */
+    public HappyEyeballsConnectionOperator(
+            final Lookup<ConnectionSocketFactory> socketFactoryRegistry,
+            final SchemePortResolver schemePortResolver,
+            final DnsResolver dnsResolver,
+            final int staggerDelay,
+            final Executor executor,
+            final AddressHealthTracker addressHealthTracker) {
+        super(socketFactoryRegistry, schemePortResolver, dnsResolver, addressHealthTracker);
+        this.schemePortResolver = schemePortResolver != null ? schemePortResolver :
+            DefaultSchemePortResolver.INSTANCE;
+        this.dnsResolver = dnsResolver != null ? dnsResolver :
+            SystemDefaultDnsResolver.INSTANCE;
+        this.staggerDelay = Args.positive(staggerDelay, "Stagger delay");
+        if (executor != null) {
+            this.executor = executor;
+            this.defaultExecutor = null;
+        } else {
+            this.defaultExecutor = new ThreadPoolExecutor(
+                    0, DEFAULT_MAX_THREADS, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new DefaultThreadFactory());
+            this.executor = this.defaultExecutor;
+        }
+    }
+
+    public HappyEyeballsConnectionOperator(
+            final Lookup<ConnectionSocketFactory> socketFactoryRegistry,
+            final SchemePortResolver schemePortResolver,
+            final DnsResolver dnsResolver,
+            final int staggerDelay,
+            final Executor executor) {
+        this(socketFactoryRegistry, schemePortResolver, dnsResolver, staggerDelay, executor, null);
+    }
+
+    public HappyEyeballsConnectionOperator(
+            final Lookup<ConnectionSocketFactory> socketFactoryRegistry,
+            final SchemePortResolver schemePortResolver,
+            final DnsResolver dnsResolver) {
+        this(socketFactoryRegistry, schemePortResolver, dnsResolver, DEFAULT_STAGGER_DELAY, null, null);
+    }
+
+    /**
+     * Orders addresses for connection attempts, alternating between
+     * address families starting with the family of the first address.
+     */
+    static InetAddress[] interleave(final InetAddress[] addresses) {
+        if (addresses.length < 2) {
+            return addresses;
+        }
+        final boolean ipv6First = addresses[0] instanceof Inet6Address;
+        final List<InetAddress> first = new ArrayList<InetAddress>(addresses.length);
+        final List<InetAddress> second = new ArrayList<InetAddress>(addresses.length);
+        for (final InetAddress address : addresses) {
+            if ((address instanceof Inet6Address) == ipv6First) {
+                first.add(address);
+            } else {
+                second.add(address);
+            }
+        }
+        final InetAddress[] result = new InetAddress[addresses.length];
+        int n = 0;
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) {
+                result[n++] = first.get(i);
+            }
+            if (i < second.size()) {
+                result[n++] = second.get(i);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void connect(
+            final ManagedHttpClientConnection conn,
+            final HttpHost host,
+            final InetSocketAddress localAddress,
+            final int connectTimeout,
+            final SocketConfig socketConfig,
+            final HttpContext context) throws IOException {
+        if (host.getAddress() != null) {
+            super.connect(conn, host, localAddress, connectTimeout, socketConfig, context);
+            return;
+        }
+        final Lookup<ConnectionSocketFactory> registry = getSocketFactoryRegistry(context);
+        final ConnectionSocketFactory sf = registry.lookup(host.getSchemeName());
+        if (sf == null) {
+            throw new UnsupportedSchemeException(host.getSchemeName() +
+                    " protocol is not supported");
+        }
+        final InetAddress[] addresses = this.dnsResolver.resolve(host.getHostName());
+        final int port = this.schemePortResolver.resolve(host);
+        final InetAddress[] ordered = interleave(orderAddresses(addresses));
+
+        final Race race = new Race(
+                this, sf, host, ordered, port, localAddress, connectTimeout, socketConfig, context);
+        final DefaultManagedHttpClientConnection shutdownAware = conn instanceof DefaultManagedHttpClientConnection ?
+                (DefaultManagedHttpClientConnection) conn : null;
+        if (shutdownAware != null && !shutdownAware.setPendingConnect(race)) {
+            throw new InterruptedIOException("Connection already shutdown");
+        }
+        Attempt winner = null;
+        try {
+            Attempt attempt = race.nextAttempt();
+            if (ordered.length > 1) {
+                scheduleFallback(race);
+            }
+            while (attempt != null) {
+                // Run the first attempt, and any attempt the executor could
+                // not take on, on the calling thread
+                attempt.run();
+                race.awaitCompletion();
+                if (race.isCancelled()) {
+                    throw new InterruptedIOException("Connect to " + host + " aborted");
+                }
+                winner = race.getWinner();
+                attempt = winner == null ? race.nextAttempt() : null;
+            }
+            if (winner != null) {
+                conn.bind(winner.socket);
+                if (this.log.isDebugEnabled()) {
+                    this.log.debug("Connection established " + conn);
+                }
+                return;
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Connect to " + host + " interrupted");
+        } finally {
+            if (shutdownAware != null) {
+                shutdownAware.setPendingConnect(null);
+            }
+            race.finish();
+            for (final Attempt attempt : race.attempts) {
+                if (attempt != winner || conn.getSocket() != winner.socket) {
+                    attempt.abort();
+                }
+            }
+        }
+        final IOException lastException = race.getLastException();
+        if (lastException instanceof SocketTimeoutException) {
+            throw new ConnectTimeoutException(lastException, host, addresses);
+        } else if (lastException instanceof ConnectException) {
+            final String msg = lastException.getMessage();
+            if ("Connection timed out".equals(msg)) {
+                throw new ConnectTimeoutException(lastException, host, addresses);
+            }
+            throw new HttpHostConnectException(lastException, host, addresses);
+        } else if (lastException != null) {
+            throw lastException;
+        }
+        throw new UnknownHostException(host.getHostName() + " cannot be resolved");
+    }
+
+    /**
+     * Hands the next staggered connection attempt off to the executor.
+     * If the executor rejects it, the remaining addresses are tried
+     * one after another on the calling thread.
+     */
+    void scheduleFallback(final Race race) {
+        try {
+            this.executor.execute(new Fallback(race, this.staggerDelay));
+        } catch (final RejectedExecutionException ex) {
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("Connection attempt executor saturated; connecting sequentially");
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.defaultExecutor != null) {
+            this.defaultExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Connection attempts of a single connect operation.
+     */
+    static class Race implements Cancellable {
+
+        private final HappyEyeballsConnectionOperator operator;
+        private final ConnectionSocketFactory sf;
+        private final HttpHost host;
+        private final InetAddress[] addresses;
+        private final int port;
+        private final InetSocketAddress localAddress;
+        private final int connectTimeout;
+        private final SocketConfig socketConfig;
+        private final HttpContext context;
+
+        final List<Attempt> attempts = new CopyOnWriteArrayList<Attempt>();
+
+        private final ReentrantLock lock;
+        private final Condition changed;
+
+        private int failed;
+        private Attempt winner;
+        private IOException lastException;
+        private boolean finished;
+        private volatile boolean cancelled;
+
+        Race(
+                final HappyEyeballsConnectionOperator operator,
+                final ConnectionSocketFactory sf,
+                final HttpHost host,
+                final InetAddress[] addresses,
+                final int port,
+                final InetSocketAddress localAddress,
+                final int connectTimeout,
+                final SocketConfig socketConfig,
+                final HttpContext context) {
+            this.operator = operator;
+            this.sf = sf;
+            this.host = host;
+            this.addresses = addresses;
+            this.port = port;
+            this.localAddress = localAddress;
+            this.connectTimeout = connectTimeout;
+            this.socketConfig = socketConfig;
+            this.context = context;
+            this.lock = new ReentrantLock();
+            this.changed = this.lock.newCondition();
+        }
+
+        /**
+         * Creates an attempt to connect to the next address, or returns
+         * {@code null} if all addresses have been tried or the race is over.
+         */
+        Attempt nextAttempt() {
+            this.lock.lock();
+            try {
+                if (this.finished || this.cancelled || this.winner != null
+                        || this.attempts.size() >= this.addresses.length) {
+                    return null;
+                }
+                final InetSocketAddress remoteAddress = new InetSocketAddress(
+                        this.addresses[this.attempts.size()], this.port);
+                final Attempt attempt = new Attempt(this, remoteAddress);
+                this.attempts.add(attempt);
+                return attempt;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        boolean hasMoreAddresses() {
+            return this.attempts.size() < this.addresses.length;
+        }
+
+        void attemptCompleted(final Attempt attempt) {
+            boolean won = false;
+            this.lock.lock();
+            try {
+                if (attempt.exception != null) {
+                    this.failed++;
+                    this.lastException = attempt.exception;
+                } else if (this.winner == null && !this.finished && !this.cancelled) {
+                    this.winner = attempt;
+                    won = true;
+                }
+                this.changed.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+            if (attempt.exception == null) {
+                if (won) {
+                    for (final Attempt other : this.attempts) {
+                        if (other != attempt) {
+                            other.abort();
+                        }
+                    }
+                } else {
+                    attempt.abort();
+                }
+            }
+        }
+
+        /**
+         * Waits until an attempt has succeeded, all attempts started so far
+         * have failed, or the race has been cancelled.
+         */
+        void awaitCompletion() throws InterruptedException {
+            this.lock.lock();
+            try {
+                while (this.winner == null && !this.cancelled && this.failed < this.attempts.size()) {
+                    this.changed.await();
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until the stagger delay elapses or an attempt fails.
+         *
+         * @return {@code false} if the race is over.
+         */
+        boolean awaitStagger(final int failedBefore, final long delay) throws InterruptedException {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(delay);
+            this.lock.lock();
+            try {
+                while (this.winner == null && !this.finished && !this.cancelled
+                        && this.failed == failedBefore && nanos > 0) {
+                    nanos = this.changed.awaitNanos(nanos);
+                }
+                return this.winner == null && !this.finished && !this.cancelled;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        int getFailed() {
+            this.lock.lock();
+            try {
+                return this.failed;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        Attempt getWinner() {
+            this.lock.lock();
+            try {
+                return this.winner;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        IOException getLastException() {
+            this.lock.lock();
+            try {
+                return this.lastException;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        /**
+         * Stops pending fallbacks from starting further attempts.
+         */
+        void finish() {
+            this.lock.lock();
+            try {
+                this.finished = true;
+                this.changed.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            this.lock.lock();
+            try {
+                this.cancelled = true;
+                this.changed.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+            for (final Attempt attempt : this.attempts) {
+                attempt.abort();
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Starts a connection attempt on an executor thread once the stagger
+     * delay has elapsed or an earlier attempt has failed, handing the
+     * following attempt off to another fallback first.
+     */
+    static class Fallback implements Runnable {
+
+        private final Race race;
+        private final int staggerDelay;
+        private final int failedBefore;
+
+        Fallback(final Race race, final int staggerDelay) {
+            this.race = race;
+            this.staggerDelay = staggerDelay;
+            this.failedBefore = race.getFailed();
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!this.race.awaitStagger(this.failedBefore, this.staggerDelay)) {
+                    return;
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            final Attempt attempt = this.race.nextAttempt();
+            if (attempt == null) {
+                return;
+            }
+            if (this.race.hasMoreAddresses()) {
+                this.race.operator.scheduleFallback(this.race);
+            }
+            attempt.run();
+        }
+
+    }
+
+    static class Attempt implements Runnable {
+
+        private final Race race;
+        private final InetSocketAddress remoteAddress;
+
+        private volatile Socket socket;
+        private volatile IOException exception;
+        private volatile boolean aborted;
+
+        Attempt(final Race race, final InetSocketAddress remoteAddress) {
+            this.race = race;
+            this.remoteAddress = remoteAddress;
+        }
+
+        @Override
+        public void run() {
+            final Race r = this.race;
+            if (r.operator.log.isDebugEnabled()) {
+                r.operator.log.debug("Connecting to " + this.remoteAddress);
+            }
+            try {
+                final Socket sock = r.sf.createSocket(r.context);
+                configureSocket(sock, r.socketConfig);
+                this.socket = sock;
+                if (this.aborted) {
+                    closeQuietly(sock);
+                    throw new InterruptedIOException("Connection attempt aborted");
+                }
+                final long start = System.nanoTime();
+                try {
+                    this.socket = r.sf.connectSocket(
+                            r.connectTimeout, sock, r.host, this.remoteAddress, r.localAddress, r.context);
+                } catch (final SocketTimeoutException ex) {
+                    connectFailed();
+                    throw ex;
+                } catch (final ConnectException ex) {
+                    connectFailed();
+                    throw ex;
+                } catch (final NoRouteToHostException ex) {
+                    connectFailed();
+                    throw ex;
+                }
+                r.operator.connectSucceeded(this.remoteAddress.getAddress(), System.nanoTime() - start);
+                if (this.aborted) {
+                    closeQuietly(this.socket);
+                }
+            } catch (final IOException ex) {
+                this.exception = ex;
+                closeQuietly(this.socket);
+            } catch (final RuntimeException ex) {
+                this.exception = new IOException(ex);
+                closeQuietly(this.socket);
+            } finally {
+                r.attemptCompleted(this);
+            }
+        }
+
+        private void connectFailed() {
+            // Attempts aborted in favour of another address tell nothing about its health
+            if (!this.aborted) {
+                this.race.operator.connectFailed(this.remoteAddress.getAddress());
+            }
+        }
+
+        void abort() {
+            this.aborted = true;
+            closeQuietly(this.socket);
+        }
+
+        private static void closeQuietly(final Socket socket) {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException ignore) {
+                }
+            }
+        }
+
+    }
+
+    static class DefaultThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "Connection attempt");
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
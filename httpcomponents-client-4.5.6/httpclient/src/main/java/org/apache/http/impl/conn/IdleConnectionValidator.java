@@ -0,0 +1,131 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.conn;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.util.Args;
+
+/**
+ * This class maintains a background thread that periodically checks idle
+ * persistent connections kept alive in the connection pool for staleness
+ * ahead of their lease, so that request execution threads do not have to.
+ * <p>
+ * Unless an explicit interval is given the connections are checked four
+ * times per {@link PoolingHttpClientConnectionManager#getValidateAfterInactivity()
+ * validate after inactivity} period.
+ * </p>
+ *
+ * @see PoolingHttpClientConnectionManager#validateIdleConnections()
+ *
+ * @since 4.5.7
+ */
+public final class IdleConnectionValidator {
+
+    private static final long MIN_SLEEP_TIME_MS = 100;
+    private static final long DISABLED_SLEEP_TIME_MS = 1000;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final ThreadFactory threadFactory;
+    private final Thread thread;
+    private final long sleepTimeMs;
+
+    private volatile Exception exception;
+
+    public IdleConnectionValidator(
+            final PoolingHttpClientConnectionManager connectionManager,
+            final ThreadFactory threadFactory,
+            final long sleepTime, final TimeUnit sleepTimeUnit) {
+        this.connectionManager = Args.notNull(connectionManager, "Connection manager");
+        this.threadFactory = threadFactory != null ? threadFactory : new DefaultThreadFactory();
+        this.sleepTimeMs = sleepTimeUnit != null ? sleepTimeUnit.toMillis(sleepTime) : sleepTime;
+        this.thread = this.threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        Thread.sleep(getSleepTime());
+                        connectionManager.validateIdleConnections();
+                    }
+                } catch (final Exception ex) {
+                    exception = ex;
+                }
+
+            }
+        });
+    }
+
+    public IdleConnectionValidator(
+            final PoolingHttpClientConnectionManager connectionManager,
+            final long sleepTime, final TimeUnit sleepTimeUnit) {
+        this(connectionManager, null, sleepTime, sleepTimeUnit);
+    }
+
+    public IdleConnectionValidator(final PoolingHttpClientConnectionManager connectionManager) {
+        this(connectionManager, null, 0, TimeUnit.MILLISECONDS);
+    }
+
+    long getSleepTime() {
+        if (this.sleepTimeMs > 0) {
+            return this.sleepTimeMs;
+        }
+        final int validateAfterInactivity = this.connectionManager.getValidateAfterInactivity();
+        if (validateAfterInactivity <= 0) {
+            return DISABLED_SLEEP_TIME_MS;
+        }
+        return Math.max(validateAfterInactivity / 4, MIN_SLEEP_TIME_MS);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void shutdown() {
+        thread.interrupt();
+    }
+
+    public boolean isRunning() {
+        return thread.isAlive();
+    }
+
+    public void awaitTermination(final long time, final TimeUnit tunit) throws InterruptedException {
+        thread.join((tunit != null ? tunit : TimeUnit.MILLISECONDS).toMillis(time));
+    }
+
+    static class DefaultThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "Connection validator");
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
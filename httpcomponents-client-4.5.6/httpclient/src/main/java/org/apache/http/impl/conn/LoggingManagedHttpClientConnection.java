@@ -48,12 +48,14 @@ class LoggingManagedHttpClientConnection extends DefaultManagedHttpClientConnect
     private final Log log;
     private final Log headerlog;
     private final Wire wire;
+    private final WireCapture wireCapture;
 
     public LoggingManagedHttpClientConnection(
             final String id,
             final Log log,
             final Log headerlog,
             final Log wirelog,
+            final WireCapture wireCapture,
             final int buffersize,
             final int fragmentSizeHint,
             final CharsetDecoder chardecoder,
@@ -68,7 +70,8 @@ class LoggingManagedHttpClientConnection extends DefaultManagedHttpClientConnect
                 requestWriterFactory, responseParserFactory);
         this.log = log;
         this.headerlog = headerlog;
-        this.wire = new Wire(wirelog, id);
+        this.wire = new Wire(wirelog, id, wireCapture);
+        this.wireCapture = wireCapture;
     }
 
     @Override
@@ -80,6 +83,9 @@ class LoggingManagedHttpClientConnection extends DefaultManagedHttpClientConnect
             }
             super.close();
         }
+        if (this.wireCapture != null) {
+            this.wireCapture.close();
+        }
     }
 
     @Override
@@ -96,6 +102,9 @@ class LoggingManagedHttpClientConnection extends DefaultManagedHttpClientConnect
             this.log.debug(getId() + ": Shutdown connection");
         }
         super.shutdown();
+        if (this.wireCapture != null) {
+            this.wireCapture.close();
+        }
     }
 
     @Override
@@ -70,15 +70,20 @@ public class ManagedHttpClientConnectionFactory
     private final HttpMessageParserFactory<HttpResponse> responseParserFactory;
     private final ContentLengthStrategy incomingContentStrategy;
     private final ContentLengthStrategy outgoingContentStrategy;
+    private final WireCaptureFactory wireCaptureFactory;
 
     /**
-     * @since 4.4
+     * @param wireCaptureFactory factory of captures of the raw data sent and
+     *   received over connections, may be {@code null}.
+     *
+     * @since 4.5.7
      */
     public ManagedHttpClientConnectionFactory(
             final HttpMessageWriterFactory<HttpRequest> requestWriterFactory,
             final HttpMessageParserFactory<HttpResponse> responseParserFactory,
             final ContentLengthStrategy incomingContentStrategy,
-            final ContentLengthStrategy outgoingContentStrategy) {
+            final ContentLengthStrategy outgoingContentStrategy,
+            final WireCaptureFactory wireCaptureFactory) {
         super();
         this.requestWriterFactory = requestWriterFactory != null ? requestWriterFactory :
                 DefaultHttpRequestWriterFactory.INSTANCE;
@@ -88,6 +93,18 @@ public class ManagedHttpClientConnectionFactory
                 LaxContentLengthStrategy.INSTANCE;
         this.outgoingContentStrategy = outgoingContentStrategy != null ? outgoingContentStrategy :
                 StrictContentLengthStrategy.INSTANCE;
+        this.wireCaptureFactory = wireCaptureFactory;
+    }
+
+    /**
+     * @since 4.4
+     */
+    public ManagedHttpClientConnectionFactory(
+            final HttpMessageWriterFactory<HttpRequest> requestWriterFactory,
+            final HttpMessageParserFactory<HttpResponse> responseParserFactory,
+            final ContentLengthStrategy incomingContentStrategy,
+            final ContentLengthStrategy outgoingContentStrategy) {
+        this(requestWriterFactory, responseParserFactory, incomingContentStrategy, outgoingContentStrategy, null);
     }
 
     public ManagedHttpClientConnectionFactory(
@@ -124,11 +141,14 @@ public class ManagedHttpClientConnectionFactory
             charencoder.onUnmappableCharacter(unmappableInputAction);
         }
         final String id = "http-outgoing-" + Long.toString(COUNTER.getAndIncrement());
+        final WireCapture wireCapture = this.wireCaptureFactory != null ?
+                this.wireCaptureFactory.create(id, route) : null;
         return new LoggingManagedHttpClientConnection(
                 id,
                 log,
                 headerlog,
                 wirelog,
+                wireCapture,
                 cconfig.getBufferSize(),
                 cconfig.getFragmentSizeHint(),
                 chardecoder,
@@ -28,6 +28,9 @@ package org.apache.http.impl.conn;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -43,6 +46,7 @@ import org.apache.http.HttpClientConnection;
 import org.apache.http.HttpHost;
 import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.ConnectionConfig;
 import org.apache.http.config.Lookup;
 import org.apache.http.config.Registry;
@@ -62,6 +66,7 @@ import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.pool.ConnFactory;
 import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolEntry;
 import org.apache.http.pool.PoolEntryCallback;
 import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HttpContext;
@@ -109,6 +114,8 @@ public class PoolingHttpClientConnectionManager
     private final CPool pool;
     private final HttpClientConnectionOperator connectionOperator;
     private final AtomicBoolean isShutDown;
+    private final AddressHealthTracker addressHealthTracker;
+    private final AddressHealthTracker.Listener ejectionListener;
 
     private static Registry<ConnectionSocketFactory> getDefaultRegistry() {
         return RegistryBuilder.<ConnectionSocketFactory>create()
@@ -168,6 +175,10 @@ public class PoolingHttpClientConnectionManager
     }
 
     /**
+     * If the connection operator is a {@link DefaultHttpClientConnectionOperator}
+     * with an {@link AddressHealthTracker}, idle connections to addresses that
+     * get ejected are closed and leased ones are not kept alive.
+     *
      * @since 4.4
      */
     public PoolingHttpClientConnectionManager(
@@ -181,6 +192,21 @@ public class PoolingHttpClientConnectionManager
         this.pool.setValidateAfterInactivity(2000);
         this.connectionOperator = Args.notNull(httpClientConnectionOperator, "HttpClientConnectionOperator");
         this.isShutDown = new AtomicBoolean(false);
+        this.addressHealthTracker = httpClientConnectionOperator instanceof DefaultHttpClientConnectionOperator ?
+                ((DefaultHttpClientConnectionOperator) httpClientConnectionOperator).getAddressHealthTracker() : null;
+        if (this.addressHealthTracker != null) {
+            this.ejectionListener = new AddressHealthTracker.Listener() {
+
+                @Override
+                public void ejected(final InetAddress address) {
+                    closeConnections(address);
+                }
+
+            };
+            this.addressHealthTracker.addListener(this.ejectionListener);
+        } else {
+            this.ejectionListener = null;
+        }
     }
 
     /**
@@ -197,6 +223,8 @@ public class PoolingHttpClientConnectionManager
         this.connectionOperator = new DefaultHttpClientConnectionOperator(
                 socketFactoryRegistry, schemePortResolver, dnsResolver);
         this.isShutDown = new AtomicBoolean(false);
+        this.addressHealthTracker = null;
+        this.ejectionListener = null;
     }
 
     @Override
@@ -320,33 +348,39 @@ public class PoolingHttpClientConnectionManager
             final Object state,
             final long keepalive, final TimeUnit tunit) {
         Args.notNull(managedConn, "Managed connection");
-        synchronized (managedConn) {
-            final CPoolEntry entry = CPoolProxy.detach(managedConn);
-            if (entry == null) {
-                return;
-            }
-            final ManagedHttpClientConnection conn = entry.getConnection();
-            try {
-                if (conn.isOpen()) {
-                    final TimeUnit effectiveUnit = tunit != null ? tunit : TimeUnit.MILLISECONDS;
-                    entry.setState(state);
-                    entry.updateExpiry(keepalive, effectiveUnit);
-                    if (this.log.isDebugEnabled()) {
-                        final String s;
-                        if (keepalive > 0) {
-                            s = "for " + (double) effectiveUnit.toMillis(keepalive) / 1000 + " seconds";
-                        } else {
-                            s = "indefinitely";
-                        }
-                        this.log.debug("Connection " + format(entry) + " can be kept alive " + s);
-                    }
-                    conn.setSocketTimeout(0);
+        // Detaching is atomic, so the entry is released by one thread only
+        final CPoolEntry entry = CPoolProxy.detach(managedConn);
+        if (entry == null) {
+            return;
+        }
+        final ManagedHttpClientConnection conn = entry.getConnection();
+        try {
+            if (conn.isOpen() && this.addressHealthTracker != null
+                    && this.addressHealthTracker.isEjected(conn.getRemoteAddress())) {
+                if (this.log.isDebugEnabled()) {
+                    this.log.debug("Connection " + format(entry) + " to ejected address closed");
                 }
-            } finally {
-                this.pool.release(entry, conn.isOpen() && entry.isRouteComplete());
+                entry.close();
+            }
+            if (conn.isOpen()) {
+                final TimeUnit effectiveUnit = tunit != null ? tunit : TimeUnit.MILLISECONDS;
+                entry.setState(state);
+                entry.updateExpiry(keepalive, effectiveUnit);
                 if (this.log.isDebugEnabled()) {
-                    this.log.debug("Connection released: " + format(entry) + formatStats(entry.getRoute()));
+                    final String s;
+                    if (keepalive > 0) {
+                        s = "for " + (double) effectiveUnit.toMillis(keepalive) / 1000 + " seconds";
+                    } else {
+                        s = "indefinitely";
+                    }
+                    this.log.debug("Connection " + format(entry) + " can be kept alive " + s);
                 }
+                conn.setSocketTimeout(0);
+            }
+        } finally {
+            this.pool.release(entry, conn.isOpen() && entry.isRouteComplete());
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("Connection released: " + format(entry) + formatStats(entry.getRoute()));
             }
         }
     }
@@ -359,11 +393,7 @@ public class PoolingHttpClientConnectionManager
             final HttpContext context) throws IOException {
         Args.notNull(managedConn, "Managed Connection");
         Args.notNull(route, "HTTP route");
-        final ManagedHttpClientConnection conn;
-        synchronized (managedConn) {
-            final CPoolEntry entry = CPoolProxy.getPoolEntry(managedConn);
-            conn = entry.getConnection();
-        }
+        final ManagedHttpClientConnection conn = CPoolProxy.getPoolEntry(managedConn).getConnection();
         final HttpHost host;
         if (route.getProxyHost() != null) {
             host = route.getProxyHost();
@@ -381,11 +411,7 @@ public class PoolingHttpClientConnectionManager
             final HttpContext context) throws IOException {
         Args.notNull(managedConn, "Managed Connection");
         Args.notNull(route, "HTTP route");
-        final ManagedHttpClientConnection conn;
-        synchronized (managedConn) {
-            final CPoolEntry entry = CPoolProxy.getPoolEntry(managedConn);
-            conn = entry.getConnection();
-        }
+        final ManagedHttpClientConnection conn = CPoolProxy.getPoolEntry(managedConn).getConnection();
         this.connectionOperator.upgrade(conn, route.getTargetHost(), context);
     }
 
@@ -396,21 +422,29 @@ public class PoolingHttpClientConnectionManager
             final HttpContext context) throws IOException {
         Args.notNull(managedConn, "Managed Connection");
         Args.notNull(route, "HTTP route");
-        synchronized (managedConn) {
-            final CPoolEntry entry = CPoolProxy.getPoolEntry(managedConn);
-            entry.markRouteComplete();
-        }
+        final CPoolEntry entry = CPoolProxy.getPoolEntry(managedConn);
+        entry.markRouteComplete();
     }
 
     @Override
     public void shutdown() {
         if (this.isShutDown.compareAndSet(false, true)) {
             this.log.debug("Connection manager is shutting down");
+            if (this.addressHealthTracker != null) {
+                this.addressHealthTracker.removeListener(this.ejectionListener);
+            }
             try {
                 this.pool.shutdown();
             } catch (final IOException ex) {
                 this.log.debug("I/O exception shutting down connection manager", ex);
             }
+            if (this.connectionOperator instanceof Closeable) {
+                try {
+                    ((Closeable) this.connectionOperator).close();
+                } catch (final IOException ex) {
+                    this.log.debug("I/O exception closing connection operator", ex);
+                }
+            }
             this.log.debug("Connection manager shut down");
         }
     }
@@ -429,6 +463,110 @@ public class PoolingHttpClientConnectionManager
         this.pool.closeExpired();
     }
 
+    /**
+     * Checks available connections that have been idle for at least half of
+     * the {@link #getValidateAfterInactivity() validate after inactivity}
+     * period for staleness and closes those found stale. Connections found
+     * alive are not checked again when leased until the period elapses,
+     * so calling this method periodically from a background thread removes
+     * the cost of the staleness check from the connection lease.
+     * This method has no effect if inactive connection validation is
+     * disabled.
+     *
+     * @return number of stale connections closed.
+     *
+     * @see IdleConnectionValidator
+     *
+     * @since 4.5.7
+     */
+    public int validateIdleConnections() {
+        this.log.debug("Validating idle connections");
+        return this.pool.validateIdle();
+    }
+
+    /**
+     * Opens up to the given number of connections to the route ahead of their
+     * use and returns them to the pool. For routes to {@code https} targets
+     * this includes the TLS handshake, which allows subsequent connections of
+     * the route to resume the TLS session. Tunnelled routes are not supported.
+     *
+     * @param route the route to warm up.
+     * @param connections number of connections to open, limited by the
+     *   maximum number of connections per route.
+     * @param connectTimeout connect timeout and connection request timeout
+     *   in milliseconds.
+     * @param keepAlive period of time the opened connections may be kept
+     *   idle in the pool.
+     * @param tunit time unit of the keep-alive period.
+     * @param context the execution context, may be {@code null}.
+     * @return number of connections opened.
+     *
+     * @since 4.5.7
+     */
+    public int warmUp(
+            final HttpRoute route,
+            final int connections,
+            final int connectTimeout,
+            final long keepAlive,
+            final TimeUnit tunit,
+            final HttpContext context) throws IOException, InterruptedException {
+        Args.notNull(route, "HTTP route");
+        Args.positive(keepAlive, "Keep-alive");
+        Args.notNull(tunit, "Time unit");
+        Args.check(!route.isTunnelled(), "Tunnelled routes cannot be warmed up");
+        final HttpContext localContext = context != null ? context : HttpClientContext.create();
+        localContext.setAttribute(HttpClientContext.HTTP_ROUTE, route);
+        final int count = Math.min(connections, getMaxPerRoute(route));
+        final List<HttpClientConnection> leased = new ArrayList<HttpClientConnection>(count);
+        int opened = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                final HttpClientConnection conn;
+                try {
+                    conn = requestConnection(route, null).get(connectTimeout, TimeUnit.MILLISECONDS);
+                } catch (final ExecutionException ex) {
+                    throw new IOException("Connection request failed", ex.getCause());
+                }
+                leased.add(conn);
+                if (!conn.isOpen()) {
+                    connect(conn, route, connectTimeout, localContext);
+                    routeComplete(conn, route, localContext);
+                    opened++;
+                }
+            }
+        } finally {
+            for (final HttpClientConnection conn : leased) {
+                releaseConnection(conn, null, keepAlive, tunit);
+            }
+        }
+        if (this.log.isDebugEnabled()) {
+            this.log.debug("Opened " + opened + " connections for route " + route);
+        }
+        return opened;
+    }
+
+    /**
+     * Closes idle connections to the given remote address.
+     *
+     * @since 4.5.7
+     */
+    public void closeConnections(final InetAddress address) {
+        Args.notNull(address, "Address");
+        if (this.log.isDebugEnabled()) {
+            this.log.debug("Closing connections to " + address.getHostAddress());
+        }
+        this.pool.enumAvailable(new PoolEntryCallback<HttpRoute, ManagedHttpClientConnection>() {
+
+            @Override
+            public void process(final PoolEntry<HttpRoute, ManagedHttpClientConnection> entry) {
+                if (address.equals(entry.getConnection().getRemoteAddress())) {
+                    entry.close();
+                }
+            }
+
+        });
+    }
+
     protected void enumAvailable(final PoolEntryCallback<HttpRoute, ManagedHttpClientConnection> callback) {
         this.pool.enumAvailable(callback);
     }
@@ -0,0 +1,347 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.conn;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Consts;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.util.Args;
+
+/**
+ * {@link WireCaptureFactory} that captures the data of one in every
+ * {@code sampleRate} connections. Captures keep the most recent data
+ * sent and received over the connection up to the given number of bytes
+ * and write them to a file in the given directory when the connection
+ * is closed. Only the given number of the most recent capture files are
+ * retained, including those written to the directory by earlier runs.
+ * <p>
+ * Capture files are written by a background thread. Their names consist
+ * of a prefix unique to this factory instance and the connection id.
+ * Captures closed while too many others are waiting to be written are
+ * dropped.
+ * </p>
+ * <p>
+ * Each capture file starts with a line of the form
+ * {@code # <connection id> <route>} followed by one record per chunk of
+ * data. A record consists of a line with the direction ({@code <<} for
+ * received or {@code >>} for sent data) and the length of the chunk,
+ * the raw bytes of the chunk and a line terminator. If older data had
+ * to be discarded a {@code # discarded <n> bytes} line precedes the records.
+ * </p>
+ * <p>
+ * Connections that are not sampled incur no capture overhead.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class SamplingWireCaptureFactory implements WireCaptureFactory, Closeable {
+
+    /**
+     * Maximum number of captures waiting to be written.
+     */
+    public static final int MAX_PENDING_WRITES = 64;
+
+    private static final String SUFFIX = ".wire";
+
+    private static final byte[] CRLF = new byte[] {'\r', '\n'};
+
+    private static final Random RANDOM = new Random();
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final File directory;
+    private final int sampleRate;
+    private final int maxBytes;
+    private final int maxFiles;
+    private final AtomicLong count;
+    private final LinkedList<File> files;
+    private final String prefix;
+    private final ThreadPoolExecutor writer;
+
+    /**
+     * @param directory the directory to write capture files to.
+     * @param sampleRate one in how many connections is captured.
+     * @param maxBytes maximum number of bytes captured per connection.
+     * @param maxFiles maximum number of capture files retained.
+     */
+    public SamplingWireCaptureFactory(
+            final File directory,
+            final int sampleRate,
+            final int maxBytes,
+            final int maxFiles) {
+        super();
+        this.directory = Args.notNull(directory, "Directory");
+        this.sampleRate = Args.positive(sampleRate, "Sample rate");
+        this.maxBytes = Args.positive(maxBytes, "Max bytes");
+        this.maxFiles = Args.positive(maxFiles, "Max files");
+        this.count = new AtomicLong();
+        this.files = new LinkedList<File>();
+        this.prefix = String.format(Locale.ROOT, "%x-%04x-", System.currentTimeMillis(), RANDOM.nextInt(0x10000));
+        this.writer = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING_WRITES), new DefaultThreadFactory());
+        this.writer.allowCoreThreadTimeOut(true);
+        this.writer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                loadExisting();
+            }
+
+        });
+    }
+
+    @Override
+    public WireCapture create(final String id, final HttpRoute route) {
+        if (this.count.getAndIncrement() % this.sampleRate != 0) {
+            return null;
+        }
+        return new RingBufferCapture(id, route);
+    }
+
+    File getFile(final String id) {
+        return new File(this.directory, this.prefix + id + SUFFIX);
+    }
+
+    /**
+     * Accounts for capture files left in the directory by earlier runs.
+     */
+    private void loadExisting() {
+        final File[] existing = this.directory.listFiles(new FileFilter() {
+
+            @Override
+            public boolean accept(final File file) {
+                return file.isFile() && file.getName().endsWith(SUFFIX);
+            }
+
+        });
+        if (existing == null) {
+            return;
+        }
+        Arrays.sort(existing, new Comparator<File>() {
+
+            @Override
+            public int compare(final File f1, final File f2) {
+                final long t1 = f1.lastModified();
+                final long t2 = f2.lastModified();
+                return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+
+        });
+        synchronized (this.files) {
+            for (final File file : existing) {
+                this.files.addLast(file);
+            }
+            evict();
+        }
+    }
+
+    private void evict() {
+        while (this.files.size() > this.maxFiles) {
+            final File oldest = this.files.removeFirst();
+            if (!oldest.delete() && this.log.isDebugEnabled()) {
+                this.log.debug("Unable to delete wire capture " + oldest);
+            }
+        }
+    }
+
+    void submit(final String id, final HttpRoute route, final LinkedList<Chunk> chunks, final long discarded) {
+        try {
+            this.writer.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    write(id, route, chunks, discarded);
+                }
+
+            });
+        } catch (final RejectedExecutionException ex) {
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("Wire capture " + id + " dropped");
+            }
+        }
+    }
+
+    void write(final String id, final HttpRoute route, final LinkedList<Chunk> chunks, final long discarded) {
+        final File file = getFile(id);
+        try {
+            final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                out.write(("# " + id + " " + route).getBytes(Consts.ASCII));
+                out.write(CRLF);
+                if (discarded > 0) {
+                    out.write(("# discarded " + discarded + " bytes").getBytes(Consts.ASCII));
+                    out.write(CRLF);
+                }
+                for (final Chunk chunk : chunks) {
+                    out.write(((chunk.input ? "<< " : ">> ") + chunk.data.length).getBytes(Consts.ASCII));
+                    out.write(CRLF);
+                    out.write(chunk.data);
+                    out.write(CRLF);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (final IOException ex) {
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("I/O error writing wire capture " + file, ex);
+            }
+            return;
+        }
+        synchronized (this.files) {
+            this.files.remove(file);
+            this.files.addLast(file);
+            evict();
+        }
+    }
+
+    /**
+     * Stops the background writer once the pending captures have been written.
+     * Captures closed afterwards are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.shutdown();
+        try {
+            this.writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[directory: " + this.directory + ", sample rate: 1/" + this.sampleRate +
+                ", max bytes: " + this.maxBytes + ", max files: " + this.maxFiles + "]";
+    }
+
+    static class Chunk {
+
+        final boolean input;
+        final byte[] data;
+
+        Chunk(final boolean input, final byte[] data) {
+            this.input = input;
+            this.data = data;
+        }
+
+    }
+
+    class RingBufferCapture implements WireCapture {
+
+        private final String id;
+        private final HttpRoute route;
+        private final LinkedList<Chunk> chunks;
+        private long size;
+        private long discarded;
+        private boolean closed;
+
+        RingBufferCapture(final String id, final HttpRoute route) {
+            this.id = id;
+            this.route = route;
+            this.chunks = new LinkedList<Chunk>();
+        }
+
+        private synchronized void capture(final boolean input, final byte[] b, final int off, final int len) {
+            if (this.closed || len <= 0) {
+                return;
+            }
+            final int n = Math.min(len, maxBytes);
+            final byte[] data = new byte[n];
+            System.arraycopy(b, off + len - n, data, 0, n);
+            this.discarded += len - n;
+            while (!this.chunks.isEmpty() && this.size + n > maxBytes) {
+                final Chunk oldest = this.chunks.removeFirst();
+                this.size -= oldest.data.length;
+                this.discarded += oldest.data.length;
+            }
+            this.chunks.addLast(new Chunk(input, data));
+            this.size += n;
+        }
+
+        @Override
+        public void input(final byte[] b, final int off, final int len) {
+            capture(true, b, off, len);
+        }
+
+        @Override
+        public void output(final byte[] b, final int off, final int len) {
+            capture(false, b, off, len);
+        }
+
+        @Override
+        public void close() {
+            final LinkedList<Chunk> captured;
+            final long discardedBytes;
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                captured = new LinkedList<Chunk>(this.chunks);
+                discardedBytes = this.discarded;
+                this.chunks.clear();
+            }
+            submit(this.id, this.route, captured, discardedBytes);
+        }
+
+    }
+
+    static class DefaultThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "Wire capture writer");
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
@@ -33,6 +33,9 @@ import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
@@ -41,28 +44,66 @@ import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
 import org.apache.http.conn.SchemePortResolver;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
 
 /**
  * {@link org.apache.http.conn.routing.HttpRoutePlanner} implementation
  * based on {@link ProxySelector}. By default, this class will pick up
  * the proxy settings of the JVM, either from system properties
  * or from the browser running the application.
+ * <p>
+ * The proxy selected for a target host is cached for a limited period of
+ * time ({@link #DEFAULT_DECISION_TTL} milliseconds by default), so that the
+ * proxy selector is not consulted for every request. Cached decisions are
+ * discarded if the system default proxy selector is replaced.
+ * </p>
  *
  * @since 4.3
  */
 @Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
 public class SystemDefaultRoutePlanner extends DefaultRoutePlanner {
 
+    /**
+     * Default period of time in milliseconds proxy decisions are cached for.
+     *
+     * @since 4.5.7
+     */
+    public static final long DEFAULT_DECISION_TTL = 10000;
+
+    private static final int MAX_DECISIONS = 1024;
+
     private final ProxySelector proxySelector;
+    private final long decisionTtl;
+    private final ConcurrentMap<HttpHost, ProxyDecision> decisions;
 
     /**
      * @param proxySelector the proxy selector, or {@code null} for the system default
+     * @param decisionTtl period of time proxy decisions are cached for;
+     *   {@code 0} disables caching.
+     * @param tunit time unit of {@code decisionTtl}.
+     *
+     * @since 4.5.7
      */
     public SystemDefaultRoutePlanner(
             final SchemePortResolver schemePortResolver,
-            final ProxySelector proxySelector) {
+            final ProxySelector proxySelector,
+            final long decisionTtl,
+            final TimeUnit tunit) {
         super(schemePortResolver);
+        Args.notNegative(decisionTtl, "Decision TTL");
+        Args.notNull(tunit, "Time unit");
         this.proxySelector = proxySelector;
+        this.decisionTtl = tunit.toMillis(decisionTtl);
+        this.decisions = new ConcurrentHashMap<HttpHost, ProxyDecision>();
+    }
+
+    /**
+     * @param proxySelector the proxy selector, or {@code null} for the system default
+     */
+    public SystemDefaultRoutePlanner(
+            final SchemePortResolver schemePortResolver,
+            final ProxySelector proxySelector) {
+        this(schemePortResolver, proxySelector, DEFAULT_DECISION_TTL, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -77,12 +118,6 @@ public class SystemDefaultRoutePlanner extends DefaultRoutePlanner {
             final HttpHost    target,
             final HttpRequest request,
             final HttpContext context) throws HttpException {
-        final URI targetURI;
-        try {
-            targetURI = new URI(target.toURI());
-        } catch (final URISyntaxException ex) {
-            throw new HttpException("Cannot convert host to URI: " + target, ex);
-        }
         ProxySelector proxySelectorInstance = this.proxySelector;
         if (proxySelectorInstance == null) {
             proxySelectorInstance = ProxySelector.getDefault();
@@ -91,6 +126,40 @@ public class SystemDefaultRoutePlanner extends DefaultRoutePlanner {
             //The proxy selector can be "unset", so we must be able to deal with a null selector
             return null;
         }
+        if (this.decisionTtl <= 0) {
+            return selectProxy(proxySelectorInstance, target);
+        }
+        final long now = System.currentTimeMillis();
+        final ProxyDecision decision = this.decisions.get(target);
+        if (decision != null && decision.isValid(proxySelectorInstance, now)) {
+            return decision.proxy;
+        }
+        final HttpHost proxy = selectProxy(proxySelectorInstance, target);
+        if (this.decisions.size() >= MAX_DECISIONS) {
+            this.decisions.clear();
+        }
+        this.decisions.put(target, new ProxyDecision(proxySelectorInstance, proxy, now + this.decisionTtl));
+        return proxy;
+    }
+
+    /**
+     * Discards cached proxy decisions.
+     *
+     * @since 4.5.7
+     */
+    public void clearCache() {
+        this.decisions.clear();
+    }
+
+    private HttpHost selectProxy(
+            final ProxySelector proxySelectorInstance,
+            final HttpHost target) throws HttpException {
+        final URI targetURI;
+        try {
+            targetURI = new URI(target.toURI());
+        } catch (final URISyntaxException ex) {
+            throw new HttpException("Cannot convert host to URI: " + target, ex);
+        }
         final List<Proxy> proxies = proxySelectorInstance.select(targetURI);
         final Proxy p = chooseProxy(proxies);
         HttpHost result = null;
@@ -144,4 +213,22 @@ public class SystemDefaultRoutePlanner extends DefaultRoutePlanner {
         return result;
     }
 
+    static class ProxyDecision {
+
+        private final ProxySelector proxySelector;
+        private final HttpHost proxy;
+        private final long expiry;
+
+        ProxyDecision(final ProxySelector proxySelector, final HttpHost proxy, final long expiry) {
+            this.proxySelector = proxySelector;
+            this.proxy = proxy;
+            this.expiry = expiry;
+        }
+
+        boolean isValid(final ProxySelector currentProxySelector, final long now) {
+            return this.proxySelector == currentProxySelector && this.expiry > now;
+        }
+
+    }
+
 }
@@ -26,7 +26,6 @@
  */
 package org.apache.http.impl.conn;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -46,13 +45,27 @@ public class Wire {
 
     private final Log log;
     private final String id;
+    private final WireCapture capture;
 
     /**
-     * @since 4.3
+     * Creates a wire that, in addition to logging, passes the raw data
+     * to the given capture.
+     *
+     * @param capture the capture of the raw data, may be {@code null}.
+     *
+     * @since 4.5.7
      */
-    public Wire(final Log log, final String id) {
+    public Wire(final Log log, final String id, final WireCapture capture) {
         this.log = log;
         this.id = id;
+        this.capture = capture;
+    }
+
+    /**
+     * @since 4.3
+     */
+    public Wire(final Log log, final String id) {
+        this(log, id, null);
     }
 
     public Wire(final Log log) {
@@ -88,9 +101,32 @@ public class Wire {
         }
     }
 
+    private void wire(final String header, final byte[] b, final int off, final int len) {
+        final StringBuilder buffer = new StringBuilder();
+        for (int i = off; i < off + len; i++) {
+            final int ch = b[i] & 0xff;
+            if (ch == 13) {
+                buffer.append("[\\r]");
+            } else if (ch == 10) {
+                buffer.append("[\\n]\"");
+                log.debug(id + " " + header + "\"" + buffer.toString());
+                buffer.setLength(0);
+            } else if ((ch < 32) || (ch > 127)) {
+                buffer.append("[0x");
+                buffer.append(Integer.toHexString(ch));
+                buffer.append("]");
+            } else {
+                buffer.append((char) ch);
+            }
+        }
+        if (buffer.length() > 0) {
+            log.debug(id + " " + header + "\"" + buffer.toString() + "\"");
+        }
+    }
+
 
     public boolean enabled() {
-        return log.isDebugEnabled();
+        return log.isDebugEnabled() || capture != null;
     }
 
     public void output(final InputStream outstream)
@@ -108,25 +144,35 @@ public class Wire {
     public void output(final byte[] b, final int off, final int len)
       throws IOException {
         Args.notNull(b, "Output");
-        wire(">> ", new ByteArrayInputStream(b, off, len));
+        if (capture != null) {
+            capture.output(b, off, len);
+        }
+        if (log.isDebugEnabled()) {
+            wire(">> ", b, off, len);
+        }
     }
 
     public void input(final byte[] b, final int off, final int len)
       throws IOException {
         Args.notNull(b, "Input");
-        wire("<< ", new ByteArrayInputStream(b, off, len));
+        if (capture != null) {
+            capture.input(b, off, len);
+        }
+        if (log.isDebugEnabled()) {
+            wire("<< ", b, off, len);
+        }
     }
 
     public void output(final byte[] b)
       throws IOException {
         Args.notNull(b, "Output");
-        wire(">> ", new ByteArrayInputStream(b));
+        output(b, 0, b.length);
     }
 
     public void input(final byte[] b)
       throws IOException {
         Args.notNull(b, "Input");
-        wire("<< ", new ByteArrayInputStream(b));
+        input(b, 0, b.length);
     }
 
     public void output(final int b)
@@ -139,15 +185,29 @@ public class Wire {
         input(new byte[] {(byte) b});
     }
 
+    /**
+     * Logs an event on the output side such as an I/O error.
+     * Events are not passed to the capture.
+     */
     public void output(final String s)
       throws IOException {
         Args.notNull(s, "Output");
-        output(s.getBytes());
+        if (log.isDebugEnabled()) {
+            final byte[] b = s.getBytes();
+            wire(">> ", b, 0, b.length);
+        }
     }
 
+    /**
+     * Logs an event on the input side such as an I/O error or end of stream.
+     * Events are not passed to the capture.
+     */
     public void input(final String s)
       throws IOException {
         Args.notNull(s, "Input");
-        input(s.getBytes());
+        if (log.isDebugEnabled()) {
+            final byte[] b = s.getBytes();
+            wire("<< ", b, 0, b.length);
+        }
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.conn;
+
+/**
+ * Receives a copy of the raw data sent and received over a connection.
+ * <p>
+ * Implementations must not throw exceptions or block for extended periods
+ * of time as they are invoked from the connection's I/O operations.
+ * </p>
+ *
+ * @see WireCaptureFactory
+ *
+ * @since 4.5.7
+ */
+public interface WireCapture {
+
+    /**
+     * Captures data received from the opposite endpoint.
+     */
+    void input(byte[] b, int off, int len);
+
+    /**
+     * Captures data sent to the opposite endpoint.
+     */
+    void output(byte[] b, int off, int len);
+
+    /**
+     * Signals that the connection has been closed.
+     */
+    void close();
+
+}
@@ -0,0 +1,255 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.util.Args;
+
+/**
+ * Immutable class encapsulating circuit breaker configuration items.
+ *
+ * @see CircuitBreakerRegistry
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE)
+public class CircuitBreakerConfig {
+
+    public static final CircuitBreakerConfig DEFAULT = new Builder().build();
+
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallDuration;
+    private final int slidingWindowSize;
+    private final int minimumNumberOfCalls;
+    private final long waitDurationInOpenState;
+    private final int permittedCallsInHalfOpenState;
+
+    CircuitBreakerConfig(
+            final int failureRateThreshold,
+            final int slowCallRateThreshold,
+            final long slowCallDuration,
+            final int slidingWindowSize,
+            final int minimumNumberOfCalls,
+            final long waitDurationInOpenState,
+            final int permittedCallsInHalfOpenState) {
+        super();
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+        this.waitDurationInOpenState = waitDurationInOpenState;
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    }
+
+    /**
+     * Percentage of failed calls within the sliding window at or above
+     * which the circuit opens.
+     * <p>
+     * Default: {@code 50}
+     * </p>
+     */
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Percentage of slow calls within the sliding window at or above
+     * which the circuit opens.
+     * <p>
+     * Default: {@code 100}
+     * </p>
+     */
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * Duration in milliseconds above which a call is considered slow.
+     * <p>
+     * Default: {@code 60000} (60 seconds)
+     * </p>
+     */
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * Number of most recent calls per route the failure and slow call
+     * rates are calculated from.
+     * <p>
+     * Default: {@code 100}
+     * </p>
+     */
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    /**
+     * Minimum number of calls in the sliding window before the failure
+     * and slow call rates are evaluated.
+     * <p>
+     * Default: {@code 20}
+     * </p>
+     */
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    /**
+     * Duration in milliseconds the circuit stays open before probe calls
+     * are permitted.
+     * <p>
+     * Default: {@code 30000} (30 seconds)
+     * </p>
+     */
+    public long getWaitDurationInOpenState() {
+        return waitDurationInOpenState;
+    }
+
+    /**
+     * Number of probe calls permitted while the circuit is half-open.
+     * <p>
+     * Default: {@code 5}
+     * </p>
+     */
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        builder.append("failureRateThreshold=").append(failureRateThreshold);
+        builder.append(", slowCallRateThreshold=").append(slowCallRateThreshold);
+        builder.append(", slowCallDuration=").append(slowCallDuration);
+        builder.append(", slidingWindowSize=").append(slidingWindowSize);
+        builder.append(", minimumNumberOfCalls=").append(minimumNumberOfCalls);
+        builder.append(", waitDurationInOpenState=").append(waitDurationInOpenState);
+        builder.append(", permittedCallsInHalfOpenState=").append(permittedCallsInHalfOpenState);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    public static CircuitBreakerConfig.Builder custom() {
+        return new Builder();
+    }
+
+    public static CircuitBreakerConfig.Builder copy(final CircuitBreakerConfig config) {
+        Args.notNull(config, "Circuit breaker config");
+        return new Builder()
+            .setFailureRateThreshold(config.getFailureRateThreshold())
+            .setSlowCallRateThreshold(config.getSlowCallRateThreshold())
+            .setSlowCallDuration(config.getSlowCallDuration())
+            .setSlidingWindowSize(config.getSlidingWindowSize())
+            .setMinimumNumberOfCalls(config.getMinimumNumberOfCalls())
+            .setWaitDurationInOpenState(config.getWaitDurationInOpenState())
+            .setPermittedCallsInHalfOpenState(config.getPermittedCallsInHalfOpenState());
+    }
+
+    public static class Builder {
+
+        private int failureRateThreshold;
+        private int slowCallRateThreshold;
+        private long slowCallDuration;
+        private int slidingWindowSize;
+        private int minimumNumberOfCalls;
+        private long waitDurationInOpenState;
+        private int permittedCallsInHalfOpenState;
+
+        Builder() {
+            super();
+            this.failureRateThreshold = 50;
+            this.slowCallRateThreshold = 100;
+            this.slowCallDuration = 60000;
+            this.slidingWindowSize = 100;
+            this.minimumNumberOfCalls = 20;
+            this.waitDurationInOpenState = 30000;
+            this.permittedCallsInHalfOpenState = 5;
+        }
+
+        public Builder setFailureRateThreshold(final int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        public Builder setSlowCallRateThreshold(final int slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        public Builder setSlowCallDuration(final long slowCallDuration) {
+            this.slowCallDuration = slowCallDuration;
+            return this;
+        }
+
+        public Builder setSlidingWindowSize(final int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+            return this;
+        }
+
+        public Builder setMinimumNumberOfCalls(final int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+            return this;
+        }
+
+        public Builder setWaitDurationInOpenState(final long waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+            return this;
+        }
+
+        public Builder setPermittedCallsInHalfOpenState(final int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+            return this;
+        }
+
+        public CircuitBreakerConfig build() {
+            Args.check(failureRateThreshold > 0 && failureRateThreshold <= 100,
+                    "Failure rate threshold must be in the range (0, 100]");
+            Args.check(slowCallRateThreshold > 0 && slowCallRateThreshold <= 100,
+                    "Slow call rate threshold must be in the range (0, 100]");
+            Args.positive(slowCallDuration, "Slow call duration");
+            Args.positive(slidingWindowSize, "Sliding window size");
+            Args.positive(minimumNumberOfCalls, "Minimum number of calls");
+            Args.notNegative(waitDurationInOpenState, "Wait duration in open state");
+            Args.positive(permittedCallsInHalfOpenState, "Permitted calls in half-open state");
+            return new CircuitBreakerConfig(
+                    failureRateThreshold,
+                    slowCallRateThreshold,
+                    slowCallDuration,
+                    slidingWindowSize,
+                    Math.min(minimumNumberOfCalls, slidingWindowSize),
+                    waitDurationInOpenState,
+                    permittedCallsInHalfOpenState);
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.IOException;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.util.Args;
+
+/**
+ * Request executor in the request execution chain that is responsible
+ * for failing fast on routes whose circuit breaker is open.
+ * <p>
+ * Calls that throw an exception or produce a server error (5xx) response
+ * are recorded as failed. Calls whose response head takes longer than
+ * the configured slow call duration to arrive are recorded as slow.
+ * Calls to a route whose circuit is open are rejected with
+ * {@link CircuitBreakerOpenException}.
+ * </p>
+ *
+ * @see CircuitBreakerRegistry
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
+public class CircuitBreakerExec implements ClientExecChain {
+
+    private final ClientExecChain requestExecutor;
+    private final CircuitBreakerRegistry registry;
+
+    public CircuitBreakerExec(
+            final ClientExecChain requestExecutor,
+            final CircuitBreakerRegistry registry) {
+        super();
+        Args.notNull(requestExecutor, "HTTP client request executor");
+        Args.notNull(registry, "Circuit breaker registry");
+        this.requestExecutor = requestExecutor;
+        this.registry = registry;
+    }
+
+    /**
+     * Determines whether the response is to be recorded as a failure.
+     */
+    protected boolean isFailure(final HttpResponse response) {
+        return response.getStatusLine().getStatusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(
+            final HttpRoute route,
+            final HttpRequestWrapper request,
+            final HttpClientContext context,
+            final HttpExecutionAware execAware) throws IOException, HttpException {
+        Args.notNull(route, "HTTP route");
+        Args.notNull(request, "HTTP request");
+        Args.notNull(context, "HTTP context");
+        final long permit = this.registry.acquirePermission(route);
+        if (permit < 0) {
+            throw new CircuitBreakerOpenException("Circuit breaker is open for route " + route);
+        }
+        final long start = System.nanoTime();
+        final CloseableHttpResponse response;
+        boolean settled = false;
+        try {
+            response = this.requestExecutor.execute(route, request, context, execAware);
+            settled = true;
+        } catch (final RequestAbortedException ex) {
+            settled = true;
+            this.registry.onIgnored(route, permit);
+            throw ex;
+        } catch (final IOException ex) {
+            settled = true;
+            this.registry.onResult(route, permit, true, System.nanoTime() - start);
+            throw ex;
+        } catch (final HttpException ex) {
+            settled = true;
+            this.registry.onResult(route, permit, true, System.nanoTime() - start);
+            throw ex;
+        } catch (final RuntimeException ex) {
+            settled = true;
+            this.registry.onResult(route, permit, true, System.nanoTime() - start);
+            throw ex;
+        } finally {
+            if (!settled) {
+                // Errors tell nothing about the health of the route
+                this.registry.onIgnored(route, permit);
+            }
+        }
+        this.registry.onResult(route, permit, isFailure(response), System.nanoTime() - start);
+        return response;
+    }
+
+}
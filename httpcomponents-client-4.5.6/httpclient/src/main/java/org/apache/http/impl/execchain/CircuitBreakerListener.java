@@ -0,0 +1,57 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import org.apache.http.conn.routing.HttpRoute;
+
+/**
+ * Receives circuit breaker events. Implementations must be thread safe
+ * and are expected not to block.
+ *
+ * @since 4.5.7
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * Invoked when the circuit breaker of the given route changes state.
+     *
+     * @param route the route.
+     * @param from the previous state.
+     * @param to the new state.
+     * @param metrics the metrics that caused the transition.
+     */
+    void onStateTransition(HttpRoute route, CircuitBreakerState from, CircuitBreakerState to,
+            CircuitBreakerMetrics metrics);
+
+    /**
+     * Invoked when a call to the given route has been rejected.
+     *
+     * @param route the route.
+     */
+    void onCallNotPermitted(HttpRoute route);
+
+}
@@ -0,0 +1,135 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+
+/**
+ * Circuit breaker metrics of a route.
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE)
+public class CircuitBreakerMetrics {
+
+    private final CircuitBreakerState state;
+    private final int bufferedCalls;
+    private final int failedCalls;
+    private final int slowCalls;
+    private final long notPermittedCalls;
+    private final float failureRate;
+    private final float slowCallRate;
+
+    public CircuitBreakerMetrics(
+            final CircuitBreakerState state,
+            final int bufferedCalls,
+            final int failedCalls,
+            final int slowCalls,
+            final long notPermittedCalls,
+            final float failureRate,
+            final float slowCallRate) {
+        super();
+        this.state = state;
+        this.bufferedCalls = bufferedCalls;
+        this.failedCalls = failedCalls;
+        this.slowCalls = slowCalls;
+        this.notPermittedCalls = notPermittedCalls;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+    }
+
+    public CircuitBreakerState getState() {
+        return this.state;
+    }
+
+    /**
+     * Gets the number of calls in the sliding window.
+     */
+    public int getBufferedCalls() {
+        return this.bufferedCalls;
+    }
+
+    /**
+     * Gets the number of failed calls in the sliding window.
+     */
+    public int getFailedCalls() {
+        return this.failedCalls;
+    }
+
+    /**
+     * Gets the number of slow calls in the sliding window.
+     */
+    public int getSlowCalls() {
+        return this.slowCalls;
+    }
+
+    /**
+     * Gets the total number of calls rejected by the circuit breaker.
+     */
+    public long getNotPermittedCalls() {
+        return this.notPermittedCalls;
+    }
+
+    /**
+     * Gets the failure rate in percent, or {@code -1} if not enough calls
+     * have been recorded.
+     */
+    public float getFailureRate() {
+        return this.failureRate;
+    }
+
+    /**
+     * Gets the slow call rate in percent, or {@code -1} if not enough calls
+     * have been recorded.
+     */
+    public float getSlowCallRate() {
+        return this.slowCallRate;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[state: ");
+        buffer.append(this.state);
+        buffer.append("; buffered: ");
+        buffer.append(this.bufferedCalls);
+        buffer.append("; failed: ");
+        buffer.append(this.failedCalls);
+        buffer.append("; slow: ");
+        buffer.append(this.slowCalls);
+        buffer.append("; not permitted: ");
+        buffer.append(this.notPermittedCalls);
+        buffer.append("; failure rate: ");
+        buffer.append(this.failureRate);
+        buffer.append("; slow call rate: ");
+        buffer.append(this.slowCallRate);
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+}
@@ -0,0 +1,350 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.util.Args;
+
+/**
+ * Registry of per-route circuit breakers.
+ * <p>
+ * Each route has a circuit breaker that records the outcome of the most
+ * recent calls in a count based sliding window. Once the minimum number of
+ * calls has been recorded and the percentage of failed or slow calls
+ * reaches the configured threshold, the circuit opens and calls to
+ * the route are rejected without being executed. After the configured wait
+ * duration the circuit becomes half-open and lets a limited number of probe
+ * calls through; depending on their outcome the circuit closes or opens
+ * again.
+ * </p>
+ * <p>
+ * The registry can be shared by several clients and be queried for
+ * the state and metrics of individual routes.
+ * </p>
+ *
+ * @see CircuitBreakerExec
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.SAFE)
+public class CircuitBreakerRegistry {
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final CircuitBreakerConfig config;
+    private final CircuitBreakerListener listener;
+    private final ConcurrentMap<HttpRoute, CircuitBreaker> breakers;
+
+    public CircuitBreakerRegistry(final CircuitBreakerConfig config, final CircuitBreakerListener listener) {
+        super();
+        this.config = config != null ? config : CircuitBreakerConfig.DEFAULT;
+        this.listener = listener;
+        this.breakers = new ConcurrentHashMap<HttpRoute, CircuitBreaker>();
+    }
+
+    public CircuitBreakerRegistry(final CircuitBreakerConfig config) {
+        this(config, null);
+    }
+
+    public CircuitBreakerRegistry() {
+        this(null, null);
+    }
+
+    public CircuitBreakerConfig getConfig() {
+        return this.config;
+    }
+
+    /**
+     * Gets the circuit breaker state of the given route.
+     */
+    public CircuitBreakerState getState(final HttpRoute route) {
+        Args.notNull(route, "HTTP route");
+        final CircuitBreaker breaker = this.breakers.get(route);
+        return breaker != null ? breaker.getState() : CircuitBreakerState.CLOSED;
+    }
+
+    /**
+     * Gets the circuit breaker metrics of the given route.
+     */
+    public CircuitBreakerMetrics getMetrics(final HttpRoute route) {
+        Args.notNull(route, "HTTP route");
+        return getBreaker(route).getMetrics();
+    }
+
+    /**
+     * Resets the circuit breaker of the given route to the closed state
+     * and discards its recorded calls.
+     */
+    public void reset(final HttpRoute route) {
+        Args.notNull(route, "HTTP route");
+        this.breakers.remove(route);
+    }
+
+    private CircuitBreaker getBreaker(final HttpRoute route) {
+        CircuitBreaker breaker = this.breakers.get(route);
+        if (breaker == null) {
+            final CircuitBreaker newBreaker = new CircuitBreaker(route);
+            breaker = this.breakers.putIfAbsent(route, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Requests permission to execute a call to the given route.
+     *
+     * @return a permit to be passed to {@link #onResult(HttpRoute, long, boolean, long)}
+     *   or {@link #onIgnored(HttpRoute, long)}, or {@code -1} if the call is not
+     *   permitted.
+     */
+    long acquirePermission(final HttpRoute route) {
+        final CircuitBreaker breaker = getBreaker(route);
+        final Transition transition;
+        final long permit;
+        synchronized (breaker) {
+            transition = breaker.checkOpen();
+            permit = breaker.acquire();
+        }
+        fire(transition);
+        if (permit < 0 && this.listener != null) {
+            this.listener.onCallNotPermitted(route);
+        }
+        return permit;
+    }
+
+    /**
+     * Records the outcome of a permitted call.
+     *
+     * @param duration the duration of the call in nanoseconds.
+     */
+    void onResult(final HttpRoute route, final long permit, final boolean failure, final long duration) {
+        final CircuitBreaker breaker = getBreaker(route);
+        final boolean slow = duration >= TimeUnit.MILLISECONDS.toNanos(this.config.getSlowCallDuration());
+        final Transition transition;
+        synchronized (breaker) {
+            transition = breaker.record(permit, failure, slow);
+        }
+        fire(transition);
+    }
+
+    /**
+     * Releases a permitted call whose outcome is not to be recorded.
+     */
+    void onIgnored(final HttpRoute route, final long permit) {
+        final CircuitBreaker breaker = getBreaker(route);
+        synchronized (breaker) {
+            breaker.release(permit);
+        }
+    }
+
+    private void fire(final Transition transition) {
+        if (transition == null) {
+            return;
+        }
+        if (this.log.isDebugEnabled()) {
+            this.log.debug("Circuit breaker of " + transition.route + " changed from " +
+                    transition.from + " to " + transition.to + " " + transition.metrics);
+        }
+        if (this.listener != null) {
+            this.listener.onStateTransition(transition.route, transition.from, transition.to, transition.metrics);
+        }
+    }
+
+    static class Transition {
+
+        final HttpRoute route;
+        final CircuitBreakerState from;
+        final CircuitBreakerState to;
+        final CircuitBreakerMetrics metrics;
+
+        Transition(
+                final HttpRoute route,
+                final CircuitBreakerState from,
+                final CircuitBreakerState to,
+                final CircuitBreakerMetrics metrics) {
+            this.route = route;
+            this.from = from;
+            this.to = to;
+            this.metrics = metrics;
+        }
+
+    }
+
+    /**
+     * Circuit breaker state of a single route. Access must be synchronized
+     * on the instance, except for reading the state.
+     */
+    class CircuitBreaker {
+
+        private static final byte FAILED = 0x01;
+        private static final byte SLOW = 0x02;
+
+        private final HttpRoute route;
+        private final byte[] outcomes;
+
+        private volatile CircuitBreakerState state;
+        private long epoch;
+        private long openedAt;
+        private int index;
+        private int count;
+        private int failures;
+        private int slows;
+        private int halfOpenPermits;
+        private long notPermitted;
+
+        CircuitBreaker(final HttpRoute route) {
+            this.route = route;
+            this.outcomes = new byte[config.getSlidingWindowSize()];
+            this.state = CircuitBreakerState.CLOSED;
+        }
+
+        CircuitBreakerState getState() {
+            return this.state;
+        }
+
+        synchronized CircuitBreakerMetrics getMetrics() {
+            final int threshold = this.state == CircuitBreakerState.HALF_OPEN ?
+                    config.getPermittedCallsInHalfOpenState() : config.getMinimumNumberOfCalls();
+            final boolean evaluated = this.count > 0 && this.count >= threshold;
+            return new CircuitBreakerMetrics(
+                    this.state,
+                    this.count,
+                    this.failures,
+                    this.slows,
+                    this.notPermitted,
+                    evaluated ? this.failures * 100f / this.count : -1f,
+                    evaluated ? this.slows * 100f / this.count : -1f);
+        }
+
+        Transition checkOpen() {
+            if (this.state == CircuitBreakerState.OPEN
+                    && System.nanoTime() - this.openedAt
+                        >= TimeUnit.MILLISECONDS.toNanos(config.getWaitDurationInOpenState())) {
+                return transitionTo(CircuitBreakerState.HALF_OPEN);
+            }
+            return null;
+        }
+
+        long acquire() {
+            switch (this.state) {
+            case CLOSED:
+                return this.epoch;
+            case HALF_OPEN:
+                if (this.halfOpenPermits < config.getPermittedCallsInHalfOpenState()) {
+                    this.halfOpenPermits++;
+                    return this.epoch;
+                }
+                break;
+            default:
+                break;
+            }
+            this.notPermitted++;
+            return -1;
+        }
+
+        void release(final long permit) {
+            if (permit == this.epoch && this.state == CircuitBreakerState.HALF_OPEN && this.halfOpenPermits > 0) {
+                this.halfOpenPermits--;
+            }
+        }
+
+        Transition record(final long permit, final boolean failed, final boolean slow) {
+            if (permit != this.epoch || this.state == CircuitBreakerState.OPEN) {
+                // Outcome of a call permitted before the last state transition
+                return null;
+            }
+            if (this.count == this.outcomes.length) {
+                final byte evicted = this.outcomes[this.index];
+                if ((evicted & FAILED) != 0) {
+                    this.failures--;
+                }
+                if ((evicted & SLOW) != 0) {
+                    this.slows--;
+                }
+            } else {
+                this.count++;
+            }
+            byte outcome = 0;
+            if (failed) {
+                outcome |= FAILED;
+                this.failures++;
+            }
+            if (slow) {
+                outcome |= SLOW;
+                this.slows++;
+            }
+            this.outcomes[this.index] = outcome;
+            this.index = (this.index + 1) % this.outcomes.length;
+
+            if (this.state == CircuitBreakerState.CLOSED) {
+                if (this.count >= config.getMinimumNumberOfCalls() && isAboveThreshold()) {
+                    return transitionTo(CircuitBreakerState.OPEN);
+                }
+            } else {
+                if (this.count >= config.getPermittedCallsInHalfOpenState()) {
+                    return transitionTo(isAboveThreshold() ?
+                            CircuitBreakerState.OPEN : CircuitBreakerState.CLOSED);
+                }
+            }
+            return null;
+        }
+
+        private boolean isAboveThreshold() {
+            return this.failures * 100 >= config.getFailureRateThreshold() * this.count
+                    || this.slows * 100 >= config.getSlowCallRateThreshold() * this.count;
+        }
+
+        private Transition transitionTo(final CircuitBreakerState newState) {
+            final CircuitBreakerMetrics metrics = getMetrics();
+            final CircuitBreakerState oldState = this.state;
+            this.state = newState;
+            this.epoch++;
+            if (newState == CircuitBreakerState.OPEN) {
+                this.openedAt = System.nanoTime();
+            } else {
+                this.index = 0;
+                this.count = 0;
+                this.failures = 0;
+                this.slows = 0;
+                this.halfOpenPermits = 0;
+            }
+            return new Transition(this.route, oldState, newState, metrics);
+        }
+
+    }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.util.Args;
+import org.apache.http.util.ByteArrayBuffer;
+
+/**
+ * Request executor in the request execution chain that is responsible
+ * for coalescing identical concurrent {@code GET} and {@code HEAD} requests.
+ * <p>
+ * Requests are considered identical if they have the same method, target
+ * and request URI as well as the same values of the key headers. Only the
+ * first of several identical concurrent requests is executed; the others
+ * wait for its response and receive a copy of it. Requests only join
+ * the execution until its response head has been received. If requests
+ * have joined, the response content is buffered in memory for them,
+ * which is why responses with content larger than the maximum body size
+ * are not shared. Otherwise the response is streamed as usual.
+ * </p>
+ * <p>
+ * Requests receiving a shared response have not used any connection.
+ * Their context carries the response, but no
+ * {@link HttpCoreContext#HTTP_CONNECTION connection}, and
+ * {@link HttpCoreContext#HTTP_REQ_SENT} is {@code false}.
+ * </p>
+ * <p>
+ * This executor is meant to be placed below the protocol executor, so that
+ * cookies and authorization headers are part of the request.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
+public class CoalescingExec implements ClientExecChain {
+
+    /**
+     * Headers whose values are part of the request key by default.
+     */
+    public static final List<String> DEFAULT_KEY_HEADERS = Collections.unmodifiableList(Arrays.asList(
+            HttpHeaders.ACCEPT,
+            HttpHeaders.ACCEPT_ENCODING,
+            HttpHeaders.ACCEPT_LANGUAGE,
+            HttpHeaders.AUTHORIZATION,
+            HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.RANGE,
+            "Cookie"));
+
+    private static final long WAIT_SLICE = 100;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final ClientExecChain requestExecutor;
+    private final int maxBodySize;
+    private final String[] keyHeaders;
+    private final ConcurrentMap<String, Flight> flights;
+
+    /**
+     * @param requestExecutor the next executor in the chain.
+     * @param maxBodySize the maximum size of response content that can be shared.
+     * @param keyHeaders the names of the headers whose values are part of
+     *   the request key, or {@code null} for {@link #DEFAULT_KEY_HEADERS}.
+     */
+    public CoalescingExec(
+            final ClientExecChain requestExecutor,
+            final int maxBodySize,
+            final Collection<String> keyHeaders) {
+        super();
+        Args.notNull(requestExecutor, "HTTP client request executor");
+        Args.notNegative(maxBodySize, "Max body size");
+        this.requestExecutor = requestExecutor;
+        this.maxBodySize = maxBodySize;
+        this.keyHeaders = (keyHeaders != null ? keyHeaders : DEFAULT_KEY_HEADERS).toArray(new String[0]);
+        this.flights = new ConcurrentHashMap<String, Flight>();
+    }
+
+    public CoalescingExec(final ClientExecChain requestExecutor, final int maxBodySize) {
+        this(requestExecutor, maxBodySize, null);
+    }
+
+    int getInFlight() {
+        return this.flights.size();
+    }
+
+    private String createKey(final HttpRoute route, final HttpRequestWrapper request) {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append(request.getRequestLine().getMethod().toUpperCase(Locale.ROOT));
+        buffer.append(' ');
+        buffer.append(route.getTargetHost().toURI());
+        buffer.append(request.getRequestLine().getUri());
+        for (final String name : this.keyHeaders) {
+            for (final Header header : request.getHeaders(name)) {
+                buffer.append('\n');
+                buffer.append(name.toLowerCase(Locale.ROOT));
+                buffer.append(':');
+                buffer.append(header.getValue());
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static boolean isCoalescible(final HttpRequestWrapper request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            return false;
+        }
+        final String method = request.getRequestLine().getMethod();
+        return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+    }
+
+    @Override
+    public CloseableHttpResponse execute(
+            final HttpRoute route,
+            final HttpRequestWrapper request,
+            final HttpClientContext context,
+            final HttpExecutionAware execAware) throws IOException, HttpException {
+        Args.notNull(route, "HTTP route");
+        Args.notNull(request, "HTTP request");
+        Args.notNull(context, "HTTP context");
+        if (!isCoalescible(request)) {
+            return this.requestExecutor.execute(route, request, context, execAware);
+        }
+        final String key = createKey(route, request);
+        final Flight flight = new Flight();
+        final Flight leader = this.flights.putIfAbsent(key, flight);
+        if (leader != null) {
+            if (!leader.join()) {
+                // Response head already received; execute independently
+                return this.requestExecutor.execute(route, request, context, execAware);
+            }
+            final SharedResponse shared = leader.await(execAware);
+            if (shared != null) {
+                if (this.log.isDebugEnabled()) {
+                    this.log.debug("Sharing response to " + request.getRequestLine() + " with concurrent request");
+                }
+                final CloseableHttpResponse response = shared.copy();
+                context.removeAttribute(HttpCoreContext.HTTP_CONNECTION);
+                context.setAttribute(HttpCoreContext.HTTP_REQ_SENT, Boolean.FALSE);
+                context.setAttribute(HttpCoreContext.HTTP_RESPONSE, response);
+                return response;
+            }
+            return this.requestExecutor.execute(route, request, context, execAware);
+        }
+        SharedResponse shared = null;
+        try {
+            final CloseableHttpResponse response = this.requestExecutor.execute(route, request, context, execAware);
+            this.flights.remove(key, flight);
+            if (flight.seal()) {
+                try {
+                    shared = share(response);
+                } catch (final IOException ex) {
+                    response.close();
+                    throw ex;
+                } catch (final RuntimeException ex) {
+                    response.close();
+                    throw ex;
+                }
+            }
+            return response;
+        } finally {
+            this.flights.remove(key, flight);
+            flight.seal();
+            flight.complete(shared);
+        }
+    }
+
+    /**
+     * Buffers the response content if it does not exceed the maximum body size.
+     *
+     * @return the shared response or {@code null} if the response cannot be shared.
+     */
+    private SharedResponse share(final HttpResponse response) throws IOException {
+        final HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return new SharedResponse(response, null);
+        }
+        final long len = entity.getContentLength();
+        if (len > this.maxBodySize) {
+            return null;
+        }
+        final InputStream inStream = entity.getContent();
+        if (inStream == null) {
+            return new SharedResponse(response, null);
+        }
+        final ByteArrayBuffer buffer = new ByteArrayBuffer(len > 0 ? (int) len : 1024);
+        final byte[] tmp = new byte[4096];
+        int l;
+        while (buffer.length() <= this.maxBodySize && (l = inStream.read(tmp)) != -1) {
+            buffer.append(tmp, 0, l);
+        }
+        if (buffer.length() > this.maxBodySize) {
+            // Content too large; hand the leader what has been read followed by the rest
+            final BasicHttpEntity remainder = new BasicHttpEntity();
+            remainder.setContent(new SequenceInputStream(
+                    new ByteArrayInputStream(buffer.buffer(), 0, buffer.length()), inStream));
+            remainder.setContentLength(len);
+            remainder.setContentType(entity.getContentType());
+            remainder.setContentEncoding(entity.getContentEncoding());
+            remainder.setChunked(entity.isChunked());
+            response.setEntity(remainder);
+            return null;
+        }
+        inStream.close();
+        final SharedResponse shared = new SharedResponse(response, buffer.toByteArray());
+        response.setEntity(shared.createEntity());
+        return shared;
+    }
+
+    static class SharedResponse {
+
+        private final StatusLine statusLine;
+        private final Header[] headers;
+        private final Header contentType;
+        private final Header contentEncoding;
+        private final byte[] content;
+
+        SharedResponse(final HttpResponse response, final byte[] content) {
+            this.statusLine = response.getStatusLine();
+            this.headers = response.getAllHeaders();
+            final HttpEntity entity = response.getEntity();
+            this.contentType = entity != null ? entity.getContentType() : null;
+            this.contentEncoding = entity != null ? entity.getContentEncoding() : null;
+            this.content = content;
+        }
+
+        HttpEntity createEntity() {
+            if (this.content == null) {
+                return null;
+            }
+            final ByteArrayEntity entity = new ByteArrayEntity(this.content);
+            entity.setContentType(this.contentType);
+            entity.setContentEncoding(this.contentEncoding);
+            return entity;
+        }
+
+        CloseableHttpResponse copy() {
+            final BasicHttpResponse response = new BasicHttpResponse(this.statusLine);
+            response.setHeaders(this.headers);
+            response.setEntity(createEntity());
+            return new HttpResponseProxy(response, null);
+        }
+
+    }
+
+    static class Flight {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile SharedResponse response;
+        private int followers;
+        private boolean sealed;
+
+        /**
+         * Registers a follower, unless the flight no longer accepts any.
+         */
+        synchronized boolean join() {
+            if (this.sealed) {
+                return false;
+            }
+            this.followers++;
+            return true;
+        }
+
+        /**
+         * Stops accepting followers.
+         *
+         * @return {@code true} if any followers have joined.
+         */
+        synchronized boolean seal() {
+            this.sealed = true;
+            return this.followers > 0;
+        }
+
+        void complete(final SharedResponse response) {
+            this.response = response;
+            this.latch.countDown();
+        }
+
+        SharedResponse await(final HttpExecutionAware execAware) throws IOException {
+            try {
+                while (!this.latch.await(WAIT_SLICE, TimeUnit.MILLISECONDS)) {
+                    if (execAware != null && execAware.isAborted()) {
+                        throw new RequestAbortedException("Request aborted");
+                    }
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RequestAbortedException("Request aborted", ex);
+            }
+            return this.response;
+        }
+
+    }
+
+}
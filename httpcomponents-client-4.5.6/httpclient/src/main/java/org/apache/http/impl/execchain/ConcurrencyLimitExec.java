@@ -0,0 +1,152 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpException;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.ConcurrencyLimiter;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.util.Args;
+
+/**
+ * Request executor in the request execution chain that is responsible
+ * for limiting the number of concurrent requests per route with
+ * a {@link ConcurrencyLimiter}.
+ * <p>
+ * This executor is meant to directly decorate the main executor, so that
+ * the measured round-trip times cover the message exchange only. A permit
+ * is held until the response has been fully consumed, closed or aborted,
+ * so that streamed response bodies count as in flight and their transfer
+ * time is part of the round-trip time. Requests wait for a permit for up
+ * to the connection request timeout. Timeouts are reported to the limiter
+ * as dropped requests.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
+public class ConcurrencyLimitExec implements ClientExecChain {
+
+    private static final long WAIT_SLICE = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ClientExecChain requestExecutor;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    public ConcurrencyLimitExec(
+            final ClientExecChain requestExecutor,
+            final ConcurrencyLimiter concurrencyLimiter) {
+        super();
+        Args.notNull(requestExecutor, "HTTP client request executor");
+        Args.notNull(concurrencyLimiter, "Concurrency limiter");
+        this.requestExecutor = requestExecutor;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(
+            final HttpRoute route,
+            final HttpRequestWrapper request,
+            final HttpClientContext context,
+            final HttpExecutionAware execAware) throws IOException, HttpException {
+        Args.notNull(route, "HTTP route");
+        Args.notNull(request, "HTTP request");
+        Args.notNull(context, "HTTP context");
+        acquirePermit(route, context.getRequestConfig(), execAware);
+        final long start = System.nanoTime();
+        boolean completed = false;
+        boolean dropped = false;
+        try {
+            final CloseableHttpResponse response = this.requestExecutor.execute(route, request, context, execAware);
+            completed = true;
+            final ConnectionHolder connHolder = response instanceof HttpResponseProxy ?
+                    ((HttpResponseProxy) response).getConnectionHolder() : null;
+            if (connHolder != null) {
+                // The response body is still being streamed; release the permit once it is done
+                connHolder.addReleaseCallback(new ConnectionHolder.ReleaseCallback() {
+
+                    @Override
+                    public void released(final boolean aborted) {
+                        concurrencyLimiter.release(route, aborted ? -1 : System.nanoTime() - start, false);
+                    }
+
+                });
+            } else {
+                this.concurrencyLimiter.release(route, System.nanoTime() - start, false);
+            }
+            return response;
+        } catch (final InterruptedIOException ex) {
+            // Socket and connect timeouts, but not aborted requests
+            dropped = !(ex instanceof RequestAbortedException);
+            throw ex;
+        } finally {
+            if (!completed) {
+                this.concurrencyLimiter.release(route, -1, dropped);
+            }
+        }
+    }
+
+    private void acquirePermit(
+            final HttpRoute route,
+            final RequestConfig config,
+            final HttpExecutionAware execAware) throws IOException {
+        final int timeout = config.getConnectionRequestTimeout();
+        final long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        try {
+            for (;;) {
+                if (execAware != null && execAware.isAborted()) {
+                    throw new RequestAbortedException("Request aborted");
+                }
+                long wait = WAIT_SLICE;
+                if (deadline > 0) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new ConnectionPoolTimeoutException("Timeout waiting for concurrency limit permit");
+                    }
+                    wait = Math.min(wait, remaining);
+                }
+                if (this.concurrencyLimiter.acquire(route, wait, TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RequestAbortedException("Request aborted", ex);
+        }
+    }
+
+}
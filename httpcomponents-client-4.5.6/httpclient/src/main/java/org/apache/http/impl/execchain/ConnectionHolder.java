@@ -29,16 +29,24 @@ package org.apache.http.impl.execchain;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.http.HttpClientConnection;
 import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
 import org.apache.http.concurrent.Cancellable;
 import org.apache.http.conn.ConnectionReleaseTrigger;
 import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
 
 /**
  * Internal connection holder.
@@ -53,10 +61,16 @@ class ConnectionHolder implements ConnectionReleaseTrigger, Cancellable, Closeab
     private final HttpClientConnectionManager manager;
     private final HttpClientConnection managedConn;
     private final AtomicBoolean released;
+    private final Lock lock;
     private volatile boolean reusable;
     private volatile Object state;
     private volatile long validDuration;
     private volatile TimeUnit tunit;
+    private volatile ExecutionEventListener listener;
+    private volatile HttpRoute route;
+    private volatile HttpContext context;
+    private volatile boolean aborted;
+    private final List<ReleaseCallback> releaseCallbacks;
 
     public ConnectionHolder(
             final Log log,
@@ -67,6 +81,8 @@ class ConnectionHolder implements ConnectionReleaseTrigger, Cancellable, Closeab
         this.manager = manager;
         this.managedConn = managedConn;
         this.released = new AtomicBoolean(false);
+        this.lock = new ReentrantLock();
+        this.releaseCallbacks = new CopyOnWriteArrayList<ReleaseCallback>();
     }
 
     public boolean isReusable() {
@@ -86,15 +102,61 @@ class ConnectionHolder implements ConnectionReleaseTrigger, Cancellable, Closeab
     }
 
     public void setValidFor(final long duration, final TimeUnit tunit) {
-        synchronized (this.managedConn) {
+        this.lock.lock();
+        try {
             this.validDuration = duration;
             this.tunit = tunit;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the listener to be notified with
+     * {@link ExecutionEvent#RESPONSE_BODY_COMPLETED} once the connection
+     * is released.
+     *
+     * @since 4.5.7
+     */
+    void setExecutionListener(
+            final ExecutionEventListener listener,
+            final HttpRoute route,
+            final HttpContext context) {
+        this.listener = listener;
+        this.route = route;
+        this.context = context;
+    }
+
+    /**
+     * Registers a callback to be invoked once the connection is released,
+     * that is once the response has been consumed, closed or aborted.
+     * The callback is invoked immediately if the connection has already
+     * been released.
+     */
+    void addReleaseCallback(final ReleaseCallback callback) {
+        this.releaseCallbacks.add(callback);
+        if (this.released.get() && this.releaseCallbacks.remove(callback)) {
+            callback.released(this.aborted);
+        }
+    }
+
+    private void fireReleased() {
+        for (final ReleaseCallback callback: this.releaseCallbacks) {
+            // Removal guards against a concurrent addReleaseCallback running the callback too
+            if (this.releaseCallbacks.remove(callback)) {
+                callback.released(this.aborted);
+            }
+        }
+        final ExecutionEventListener listener = this.listener;
+        if (listener != null) {
+            listener.onEvent(ExecutionEvent.RESPONSE_BODY_COMPLETED, this.route, this.context, System.nanoTime());
         }
     }
 
     private void releaseConnection(final boolean reusable) {
         if (this.released.compareAndSet(false, true)) {
-            synchronized (this.managedConn) {
+            this.lock.lock();
+            try {
                 if (reusable) {
                     this.manager.releaseConnection(this.managedConn,
                             this.state, this.validDuration, this.tunit);
@@ -111,7 +173,10 @@ class ConnectionHolder implements ConnectionReleaseTrigger, Cancellable, Closeab
                                 this.managedConn, null, 0, TimeUnit.MILLISECONDS);
                     }
                 }
+            } finally {
+                this.lock.unlock();
             }
+            fireReleased();
         }
     }
 
@@ -123,7 +188,9 @@ class ConnectionHolder implements ConnectionReleaseTrigger, Cancellable, Closeab
     @Override
     public void abortConnection() {
         if (this.released.compareAndSet(false, true)) {
-            synchronized (this.managedConn) {
+            this.aborted = true;
+            this.lock.lock();
+            try {
                 try {
                     this.managedConn.shutdown();
                     log.debug("Connection discarded");
@@ -135,7 +202,10 @@ class ConnectionHolder implements ConnectionReleaseTrigger, Cancellable, Closeab
                     this.manager.releaseConnection(
                             this.managedConn, null, 0, TimeUnit.MILLISECONDS);
                 }
+            } finally {
+                this.lock.unlock();
             }
+            fireReleased();
         }
     }
 
@@ -156,4 +226,13 @@ class ConnectionHolder implements ConnectionReleaseTrigger, Cancellable, Closeab
         releaseConnection(false);
     }
 
+    interface ReleaseCallback {
+
+        /**
+         * @param aborted {@code true} if the connection has been aborted.
+         */
+        void released(boolean aborted);
+
+    }
+
 }
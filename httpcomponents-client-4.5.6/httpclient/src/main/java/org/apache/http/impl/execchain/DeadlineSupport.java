@@ -0,0 +1,91 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.protocol.HttpClientContext;
+
+/**
+ * Helper methods used by the executors to honor the execution deadline.
+ */
+final class DeadlineSupport {
+
+    private DeadlineSupport() {
+    }
+
+    /**
+     * Returns the time remaining until the deadline in milliseconds,
+     * rounded up, or {@code -1} if there is no deadline.
+     *
+     * @throws DeadlineExceededException if the deadline has passed.
+     */
+    static long remaining(final HttpClientContext context) throws DeadlineExceededException {
+        final Long deadline = context.getDeadline();
+        if (deadline == null) {
+            return -1;
+        }
+        final long remaining = deadline.longValue() - System.nanoTime();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+        // Round up, as a timeout of zero would mean no timeout at all
+        return (remaining + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Reduces the given timeout to the time remaining until the deadline.
+     * Zero (infinite) and negative (system default) timeouts are replaced
+     * by the time remaining. The time remaining is only evaluated when
+     * called; a socket timeout reduced this way applies to each read
+     * separately and does not expire together with the deadline.
+     *
+     * @throws DeadlineExceededException if the deadline has passed.
+     */
+    static int adjust(final int timeout, final HttpClientContext context) throws DeadlineExceededException {
+        final long remaining = remaining(context);
+        if (remaining < 0) {
+            return timeout;
+        }
+        final int budget = (int) Math.min(remaining, Integer.MAX_VALUE);
+        return timeout > 0 ? Math.min(timeout, budget) : budget;
+    }
+
+    /**
+     * Waits for the given interval before a retry, failing right away
+     * if the deadline would pass in the meantime.
+     */
+    static void sleep(final long interval, final HttpClientContext context) throws InterruptedIOException {
+        final long remaining = remaining(context);
+        if (remaining >= 0 && interval >= remaining) {
+            throw new DeadlineExceededException("Request deadline would be exceeded before retry");
+        }
+        RetrySupport.sleep(interval);
+    }
+
+}
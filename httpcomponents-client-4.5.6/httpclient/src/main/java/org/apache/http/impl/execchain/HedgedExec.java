@@ -0,0 +1,717 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.auth.AuthState;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.RouteLatencyRecorder;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+
+/**
+ * Request executor in the request execution chain that is responsible for
+ * hedging of idempotent requests. If the response to such a request does
+ * not arrive within the hedge delay, a second attempt is made over
+ * a different connection and the response that arrives first wins.
+ * The losing attempt is aborted and its connection is shut down.
+ * <p>
+ * The primary attempt is executed by the calling thread. Hedged attempts
+ * are executed by a bounded pool of worker threads; if all workers are busy
+ * the hedged attempt is delayed until one becomes available. Each attempt
+ * has its own context and cookie store, so that only the cookies received
+ * by the winning attempt are added to the cookie store of the request.
+ * </p>
+ * <p>
+ * The hedge delay is either fixed or, if a latency percentile is given,
+ * derived from the latencies observed by this executor. The fixed delay
+ * applies until enough latency samples have been collected.
+ * </p>
+ * <p>
+ * The number of hedged requests is limited to a percentage of the total
+ * number of requests executed, so that a slow backend cannot cause
+ * the request rate to double.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
+public class HedgedExec implements ClientExecChain, Closeable {
+
+    private static final List<String> IDEMPOTENT_METHODS = Arrays.asList(
+            "GET", "HEAD", "OPTIONS", "TRACE", "DELETE");
+
+    /**
+     * Burst allowance of the hedge budget, in hedged requests.
+     */
+    private static final int MAX_BURST = 10;
+
+    /**
+     * Maximum number of worker threads of the internal pool.
+     */
+    static final int MAX_WORKERS = 10;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final ClientExecChain requestExecutor;
+    private final long hedgeDelay;
+    private final double latencyPercentile;
+    private final int maxHedgePercent;
+    private final ScheduledExecutorService scheduler;
+    private final boolean schedulerOwned;
+    private final LatencyTracker latencyTracker;
+    private final AtomicLong budget;
+
+    /**
+     * Creates new instance of {@code HedgedExec}.
+     *
+     * @param requestExecutor the next executor in the chain.
+     * @param hedgeDelay the delay after which a hedged request is sent.
+     * @param tunit the time unit of the hedge delay.
+     * @param latencyPercentile the percentile of the observed latencies
+     *   to be used as the hedge delay, or {@code 0} to always use
+     *   the fixed hedge delay.
+     * @param maxHedgePercent the maximum percentage of requests that
+     *   may be hedged.
+     * @param scheduler the executor used to run the hedged attempts, or
+     *   {@code null} to use an internal pool of at most {@value #MAX_WORKERS}
+     *   daemon threads that is shut down by {@link #close()}.
+     */
+    public HedgedExec(
+            final ClientExecChain requestExecutor,
+            final long hedgeDelay,
+            final TimeUnit tunit,
+            final double latencyPercentile,
+            final int maxHedgePercent,
+            final ScheduledExecutorService scheduler) {
+        super();
+        Args.notNull(requestExecutor, "HTTP client request executor");
+        Args.notNegative(hedgeDelay, "Hedge delay");
+        Args.notNull(tunit, "Time unit");
+        Args.check(latencyPercentile >= 0 && latencyPercentile < 100,
+                "Latency percentile must be in the range [0, 100)");
+        Args.check(maxHedgePercent > 0 && maxHedgePercent <= 100,
+                "Max hedge percentage must be in the range (0, 100]");
+        this.requestExecutor = requestExecutor;
+        this.hedgeDelay = tunit.toNanos(hedgeDelay);
+        this.latencyPercentile = latencyPercentile;
+        this.maxHedgePercent = maxHedgePercent;
+        if (scheduler != null) {
+            this.scheduler = scheduler;
+            this.schedulerOwned = false;
+        } else {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    MAX_WORKERS, new DefaultThreadFactory());
+            executor.setKeepAliveTime(60L, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            this.scheduler = executor;
+            this.schedulerOwned = true;
+        }
+        this.latencyTracker = new LatencyTracker(1024, 64);
+        this.budget = new AtomicLong(0);
+    }
+
+    public HedgedExec(
+            final ClientExecChain requestExecutor,
+            final long hedgeDelay,
+            final TimeUnit tunit,
+            final int maxHedgePercent) {
+        this(requestExecutor, hedgeDelay, tunit, 0, maxHedgePercent, null);
+    }
+
+    /**
+     * Determines whether the request may be hedged, that is, whether
+     * it uses an idempotent method and does not enclose an entity.
+     */
+    protected boolean isHedgeable(final HttpRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            return false;
+        }
+        final String method = request.getRequestLine().getMethod().toUpperCase(Locale.ROOT);
+        return IDEMPOTENT_METHODS.contains(method);
+    }
+
+    long getHedgeDelay() {
+        if (this.latencyPercentile > 0) {
+            final long observed = this.latencyTracker.getPercentile();
+            if (observed > 0) {
+                return observed;
+            }
+        }
+        return this.hedgeDelay;
+    }
+
+    boolean acquireHedge() {
+        // Each request adds maxHedgePercent to the budget; a hedge costs 100
+        for (;;) {
+            final long current = this.budget.get();
+            if (current < 100) {
+                return false;
+            }
+            if (this.budget.compareAndSet(current, current - 100)) {
+                return true;
+            }
+        }
+    }
+
+    private void replenish() {
+        for (;;) {
+            final long current = this.budget.get();
+            final long next = Math.min(current + this.maxHedgePercent, MAX_BURST * 100L);
+            if (current == next || this.budget.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Shuts down the internal worker pool, if any. Requests executed
+     * afterwards are no longer hedged.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.schedulerOwned) {
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public CloseableHttpResponse execute(
+            final HttpRoute route,
+            final HttpRequestWrapper request,
+            final HttpClientContext context,
+            final HttpExecutionAware execAware) throws IOException, HttpException {
+        Args.notNull(route, "HTTP route");
+        Args.notNull(request, "HTTP request");
+        Args.notNull(context, "HTTP context");
+        if (!isHedgeable(request)) {
+            return this.requestExecutor.execute(route, request, context, execAware);
+        }
+        replenish();
+        if (execAware != null && execAware.isAborted()) {
+            throw new RequestAbortedException("Request aborted");
+        }
+
+        final long start = System.nanoTime();
+        // The hedged copy has to be taken before the primary attempt starts modifying the request
+        final HttpRequestWrapper copy = copyRequest(request);
+        final Attempt primary = new Attempt(route, request, new AttemptContext(context, false));
+        final Hedge hedge = new Hedge(primary, new Attempt(route, copy, new AttemptContext(context, true)));
+        if (execAware != null) {
+            execAware.setCancellable(new Cancellable() {
+
+                @Override
+                public boolean cancel() {
+                    primary.cancel();
+                    hedge.cancel();
+                    return true;
+                }
+
+            });
+        }
+
+        boolean success = false;
+        try {
+            final Future<?> trigger = schedule(hedge);
+            CloseableHttpResponse response = null;
+            Exception failure = null;
+            try {
+                response = primary.execute();
+            } catch (final IOException ex) {
+                failure = ex;
+            } catch (final HttpException ex) {
+                failure = ex;
+            } catch (final RuntimeException ex) {
+                failure = ex;
+            }
+            if (trigger != null) {
+                trigger.cancel(false);
+            }
+            if (hedge.primaryCompleted(response != null)) {
+                hedge.cancel();
+                primary.context.copyTo(context);
+                this.latencyTracker.record(System.nanoTime() - start);
+                success = true;
+                return response;
+            }
+            if (response != null) {
+                // The hedged attempt completed first
+                primary.cancel();
+            }
+            final CloseableHttpResponse hedgeResponse = hedge.await();
+            if (hedgeResponse != null) {
+                if (this.log.isDebugEnabled()) {
+                    this.log.debug("Hedged request completed first");
+                }
+                hedge.attempt.context.copyTo(context);
+                this.latencyTracker.record(System.nanoTime() - start);
+                success = true;
+                return hedgeResponse;
+            }
+            throw rethrow(failure);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RequestAbortedException("Request aborted", ex);
+        } finally {
+            if (!success) {
+                hedge.cancel();
+            }
+        }
+    }
+
+    private Future<?> schedule(final Hedge hedge) {
+        if (this.budget.get() < 100) {
+            return null;
+        }
+        try {
+            return this.scheduler.schedule(hedge, getHedgeDelay(), TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException ex) {
+            return null;
+        }
+    }
+
+    private static RuntimeException rethrow(final Exception ex) throws IOException, HttpException {
+        if (ex instanceof IOException) {
+            throw (IOException) ex;
+        }
+        if (ex instanceof HttpException) {
+            throw (HttpException) ex;
+        }
+        if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        }
+        throw new UndeclaredThrowableException(ex);
+    }
+
+    private static HttpRequestWrapper copyRequest(final HttpRequestWrapper request) {
+        final HttpRequestWrapper copy = HttpRequestWrapper.wrap(request.getOriginal(), request.getTarget());
+        copy.setURI(request.getURI());
+        copy.setProtocolVersion(request.getProtocolVersion());
+        copy.setHeaders(request.getAllHeaders());
+        return copy;
+    }
+
+    /**
+     * Attempt local context that keeps track of the attributes set
+     * by the attempt, so that the attributes of the winning attempt
+     * can be propagated to the original context.
+     */
+    static class AttemptContext extends BasicHttpContext {
+
+        private final Set<String> names;
+        private final AttemptCookieStore cookieStore;
+
+        AttemptContext(final HttpContext parentContext, final boolean hedge) {
+            super(parentContext);
+            this.names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            final CookieStore parentCookieStore = HttpClientContext.adapt(parentContext).getCookieStore();
+            this.cookieStore = parentCookieStore != null ? new AttemptCookieStore(parentCookieStore) : null;
+            if (this.cookieStore != null) {
+                // Not tracked: the original context keeps its cookie store
+                super.setAttribute(HttpClientContext.COOKIE_STORE, this.cookieStore);
+            }
+            // Event timestamps are updated in place and must not be shared between concurrent attempts
+            final Object timestamps = parentContext.getAttribute(RouteLatencyRecorder.EVENT_TIMESTAMPS);
+            if (timestamps instanceof long[]) {
+                setAttribute(RouteLatencyRecorder.EVENT_TIMESTAMPS, ((long[]) timestamps).clone());
+            }
+            if (hedge) {
+                // Auth state is mutable and must not be shared between concurrent attempts
+                setAttribute(HttpClientContext.TARGET_AUTH_STATE, new AuthState());
+                setAttribute(HttpClientContext.PROXY_AUTH_STATE, new AuthState());
+            }
+        }
+
+        @Override
+        public void setAttribute(final String id, final Object obj) {
+            super.setAttribute(id, obj);
+            if (id != null) {
+                this.names.add(id);
+            }
+        }
+
+        @Override
+        public Object removeAttribute(final String id) {
+            final Object obj = super.removeAttribute(id);
+            if (id != null) {
+                this.names.add(id);
+            }
+            return obj;
+        }
+
+        void copyTo(final HttpContext context) {
+            for (final String name : this.names) {
+                final Object obj = getAttribute(name);
+                if (obj != null) {
+                    context.setAttribute(name, obj);
+                } else {
+                    context.removeAttribute(name);
+                }
+            }
+            if (this.cookieStore != null) {
+                this.cookieStore.commit();
+            }
+        }
+
+    }
+
+    /**
+     * Attempt local cookie store that reads through to the cookie store
+     * of the request and keeps the cookies received by the attempt until
+     * they are committed.
+     */
+    static class AttemptCookieStore implements CookieStore {
+
+        private final CookieStore cookieStore;
+        private final List<Cookie> received;
+        private final ReentrantLock lock;
+
+        AttemptCookieStore(final CookieStore cookieStore) {
+            this.cookieStore = cookieStore;
+            this.received = new ArrayList<Cookie>();
+            this.lock = new ReentrantLock();
+        }
+
+        @Override
+        public void addCookie(final Cookie cookie) {
+            if (cookie != null) {
+                this.lock.lock();
+                try {
+                    this.received.add(cookie);
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public List<Cookie> getCookies() {
+            this.lock.lock();
+            try {
+                if (this.received.isEmpty()) {
+                    return this.cookieStore.getCookies();
+                }
+                final BasicCookieStore merged = new BasicCookieStore();
+                for (final Cookie cookie : this.cookieStore.getCookies()) {
+                    merged.addCookie(cookie);
+                }
+                for (final Cookie cookie : this.received) {
+                    merged.addCookie(cookie);
+                }
+                return merged.getCookies();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean clearExpired(final Date date) {
+            // Expired cookies are purged from the cookie store of the request on commit
+            return false;
+        }
+
+        @Override
+        public void clear() {
+            this.lock.lock();
+            try {
+                this.received.clear();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        void commit() {
+            this.lock.lock();
+            try {
+                for (final Cookie cookie : this.received) {
+                    this.cookieStore.addCookie(cookie);
+                }
+                this.received.clear();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+    }
+
+    private class Attempt implements HttpExecutionAware {
+
+        private final HttpRoute route;
+        private final HttpRequestWrapper request;
+        private final AttemptContext context;
+        private final AtomicBoolean aborted;
+        private final AtomicReference<Cancellable> cancellableRef;
+        private final AtomicReference<CloseableHttpResponse> responseRef;
+
+        Attempt(final HttpRoute route, final HttpRequestWrapper request, final AttemptContext context) {
+            this.route = route;
+            this.request = request;
+            this.context = context;
+            this.aborted = new AtomicBoolean(false);
+            this.cancellableRef = new AtomicReference<Cancellable>(null);
+            this.responseRef = new AtomicReference<CloseableHttpResponse>(null);
+        }
+
+        CloseableHttpResponse execute() throws IOException, HttpException {
+            final CloseableHttpResponse response = requestExecutor.execute(
+                    this.route, this.request, HttpClientContext.adapt(this.context), this);
+            this.responseRef.set(response);
+            if (this.aborted.get()) {
+                closeResponse();
+                throw new RequestAbortedException("Request aborted");
+            }
+            return response;
+        }
+
+        @Override
+        public boolean isAborted() {
+            return this.aborted.get();
+        }
+
+        @Override
+        public void setCancellable(final Cancellable cancellable) {
+            if (!this.aborted.get()) {
+                this.cancellableRef.set(cancellable);
+            }
+        }
+
+        void cancel() {
+            if (this.aborted.compareAndSet(false, true)) {
+                final Cancellable cancellable = this.cancellableRef.getAndSet(null);
+                if (cancellable != null) {
+                    cancellable.cancel();
+                }
+            }
+            closeResponse();
+        }
+
+        private void closeResponse() {
+            final CloseableHttpResponse response = this.responseRef.getAndSet(null);
+            if (response != null) {
+                try {
+                    response.close();
+                } catch (final IOException ex) {
+                    log.debug("I/O exception closing response", ex);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Hedged attempt run by a worker thread once the hedge delay has
+     * elapsed. Decides together with the primary attempt which of them
+     * completed first.
+     */
+    private class Hedge implements Runnable {
+
+        private final Attempt primary;
+        private final Attempt attempt;
+        private final ReentrantLock lock;
+        private final Condition completed;
+        private boolean primaryCompleted;
+        private boolean primaryWon;
+        private boolean running;
+        private CloseableHttpResponse response;
+
+        Hedge(final Attempt primary, final Attempt attempt) {
+            this.primary = primary;
+            this.attempt = attempt;
+            this.lock = new ReentrantLock();
+            this.completed = this.lock.newCondition();
+        }
+
+        @Override
+        public void run() {
+            this.lock.lock();
+            try {
+                if (this.primaryCompleted || this.attempt.isAborted() || !acquireHedge()) {
+                    return;
+                }
+                this.running = true;
+            } finally {
+                this.lock.unlock();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Hedging request " + this.attempt.request.getRequestLine() + " to " + this.attempt.route);
+            }
+            CloseableHttpResponse result = null;
+            boolean won = false;
+            try {
+                result = this.attempt.execute();
+            } catch (final IOException ex) {
+                log.debug("Hedged request failed", ex);
+            } catch (final HttpException ex) {
+                log.debug("Hedged request failed", ex);
+            } catch (final RuntimeException ex) {
+                log.debug("Hedged request failed", ex);
+            } finally {
+                this.lock.lock();
+                try {
+                    this.running = false;
+                    won = result != null && !this.primaryWon;
+                    if (won) {
+                        this.response = result;
+                    }
+                    this.completed.signalAll();
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+            if (won) {
+                this.primary.cancel();
+            } else if (result != null) {
+                this.attempt.cancel();
+            }
+        }
+
+        /**
+         * Records the completion of the primary attempt and returns
+         * {@code true} if its response is to be used.
+         */
+        boolean primaryCompleted(final boolean succeeded) {
+            this.lock.lock();
+            try {
+                this.primaryCompleted = true;
+                this.primaryWon = succeeded && this.response == null;
+                return this.primaryWon;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * Waits for the hedged attempt, if running, and returns its
+         * response if it completed first, {@code null} otherwise.
+         */
+        CloseableHttpResponse await() throws InterruptedException {
+            this.lock.lock();
+            try {
+                while (this.running) {
+                    this.completed.await();
+                }
+                return this.response;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        void cancel() {
+            this.attempt.cancel();
+        }
+
+    }
+
+    /**
+     * Keeps a window of recent latency samples and periodically
+     * recomputes the configured percentile.
+     */
+    class LatencyTracker {
+
+        private final AtomicLongArray samples;
+        private final AtomicLong count;
+        private final int recomputeInterval;
+        private volatile long percentile;
+
+        LatencyTracker(final int size, final int recomputeInterval) {
+            this.samples = new AtomicLongArray(size);
+            this.count = new AtomicLong(0);
+            this.recomputeInterval = recomputeInterval;
+        }
+
+        void record(final long latency) {
+            final long n = this.count.getAndIncrement();
+            this.samples.set((int) (n % this.samples.length()), latency);
+            if (latencyPercentile > 0 && (n + 1) % this.recomputeInterval == 0) {
+                final int size = (int) Math.min(n + 1, this.samples.length());
+                final long[] sorted = new long[size];
+                for (int i = 0; i < size; i++) {
+                    sorted[i] = this.samples.get(i);
+                }
+                Arrays.sort(sorted);
+                final int index = (int) Math.ceil(latencyPercentile / 100 * size) - 1;
+                this.percentile = sorted[Math.max(0, Math.min(index, size - 1))];
+            }
+        }
+
+        long getPercentile() {
+            return this.percentile;
+        }
+
+    }
+
+    static class DefaultThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "Hedged request");
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
@@ -56,6 +56,10 @@ class HttpResponseProxy implements CloseableHttpResponse {
         ResponseEntityProxy.enchance(original, connHolder);
     }
 
+    ConnectionHolder getConnectionHolder() {
+        return this.connHolder;
+    }
+
     @Override
     public void close() throws IOException {
         if (this.connHolder != null) {
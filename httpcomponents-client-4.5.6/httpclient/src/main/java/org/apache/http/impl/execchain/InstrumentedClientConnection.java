@@ -0,0 +1,154 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.IOException;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Connection decorator used for a single request / response exchange that
+ * notifies an {@link ExecutionEventListener} of the request write and
+ * response head receipt.
+ *
+ * @since 4.5.7
+ */
+class InstrumentedClientConnection implements HttpClientConnection {
+
+    private final HttpClientConnection conn;
+    private final ExecutionEventListener listener;
+    private final HttpRoute route;
+    private final HttpContext context;
+
+    private boolean writeStarted;
+    private long lastFlush;
+
+    InstrumentedClientConnection(
+            final HttpClientConnection conn,
+            final ExecutionEventListener listener,
+            final HttpRoute route,
+            final HttpContext context) {
+        super();
+        this.conn = conn;
+        this.listener = listener;
+        this.route = route;
+        this.context = context;
+    }
+
+    @Override
+    public boolean isResponseAvailable(final int timeout) throws IOException {
+        return this.conn.isResponseAvailable(timeout);
+    }
+
+    @Override
+    public void sendRequestHeader(final HttpRequest request) throws HttpException, IOException {
+        if (!this.writeStarted) {
+            this.writeStarted = true;
+            this.listener.onEvent(ExecutionEvent.REQUEST_WRITE_STARTED, this.route, this.context, System.nanoTime());
+        }
+        this.conn.sendRequestHeader(request);
+    }
+
+    @Override
+    public void sendRequestEntity(final HttpEntityEnclosingRequest request) throws HttpException, IOException {
+        this.conn.sendRequestEntity(request);
+    }
+
+    @Override
+    public HttpResponse receiveResponseHeader() throws HttpException, IOException {
+        final HttpResponse response = this.conn.receiveResponseHeader();
+        if (response.getStatusLine().getStatusCode() >= HttpStatus.SC_OK) {
+            final long now = System.nanoTime();
+            this.listener.onEvent(ExecutionEvent.REQUEST_WRITTEN, this.route, this.context,
+                    this.lastFlush != 0 ? this.lastFlush : now);
+            this.listener.onEvent(ExecutionEvent.RESPONSE_HEADERS_RECEIVED, this.route, this.context, now);
+        }
+        return response;
+    }
+
+    @Override
+    public void receiveResponseEntity(final HttpResponse response) throws HttpException, IOException {
+        this.conn.receiveResponseEntity(response);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.conn.flush();
+        this.lastFlush = System.nanoTime();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.conn.close();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.conn.isOpen();
+    }
+
+    @Override
+    public boolean isStale() {
+        return this.conn.isStale();
+    }
+
+    @Override
+    public void setSocketTimeout(final int timeout) {
+        this.conn.setSocketTimeout(timeout);
+    }
+
+    @Override
+    public int getSocketTimeout() {
+        return this.conn.getSocketTimeout();
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+        this.conn.shutdown();
+    }
+
+    @Override
+    public HttpConnectionMetrics getMetrics() {
+        return this.conn.getMetrics();
+    }
+
+    @Override
+    public String toString() {
+        return this.conn.toString();
+    }
+
+}
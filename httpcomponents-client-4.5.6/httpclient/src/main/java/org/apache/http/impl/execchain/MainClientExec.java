@@ -48,6 +48,8 @@ import org.apache.http.auth.AUTH;
 import org.apache.http.auth.AuthProtocolState;
 import org.apache.http.auth.AuthState;
 import org.apache.http.client.AuthenticationStrategy;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
 import org.apache.http.client.NonRepeatableRequestException;
 import org.apache.http.client.UserTokenHandler;
 import org.apache.http.client.config.RequestConfig;
@@ -171,8 +173,14 @@ public class MainClientExec implements ClientExecChain {
             RequestEntityProxy.enhance((HttpEntityEnclosingRequest) request);
         }
 
+        DeadlineSupport.remaining(context);
+
         Object userToken = context.getUserToken();
 
+        final ExecutionEventListener listener = context.getExecutionListener();
+        if (listener != null) {
+            listener.onEvent(ExecutionEvent.CONNECTION_LEASE_STARTED, route, context, System.nanoTime());
+        }
         final ConnectionRequest connRequest = connManager.requestConnection(route, userToken);
         if (execAware != null) {
             if (execAware.isAborted()) {
@@ -187,7 +195,7 @@ public class MainClientExec implements ClientExecChain {
 
         final HttpClientConnection managedConn;
         try {
-            final int timeout = config.getConnectionRequestTimeout();
+            final int timeout = DeadlineSupport.adjust(config.getConnectionRequestTimeout(), context);
             managedConn = connRequest.get(timeout > 0 ? timeout : 0, TimeUnit.MILLISECONDS);
         } catch(final InterruptedException interrupted) {
             Thread.currentThread().interrupt();
@@ -199,6 +207,9 @@ public class MainClientExec implements ClientExecChain {
             }
             throw new RequestAbortedException("Request execution failed", cause);
         }
+        if (listener != null) {
+            listener.onEvent(ExecutionEvent.CONNECTION_LEASED, route, context, System.nanoTime());
+        }
 
         context.setAttribute(HttpCoreContext.HTTP_CONNECTION, managedConn);
 
@@ -243,7 +254,7 @@ public class MainClientExec implements ClientExecChain {
                         break;
                     }
                 }
-                final int timeout = config.getSocketTimeout();
+                final int timeout = DeadlineSupport.adjust(config.getSocketTimeout(), context);
                 if (timeout >= 0) {
                     managedConn.setSocketTimeout(timeout);
                 }
@@ -269,7 +280,19 @@ public class MainClientExec implements ClientExecChain {
                     this.authenticator.generateAuthResponse(request, proxyAuthState, context);
                 }
 
-                response = requestExecutor.execute(request, managedConn, context);
+                if (listener != null) {
+                    try {
+                        response = requestExecutor.execute(request,
+                                new InstrumentedClientConnection(managedConn, listener, route, context), context);
+                    } finally {
+                        // The request executor exposes the connection it was given in the context.
+                        // Restore the managed connection so that the user token handler and
+                        // interceptors can get at its SSL session and attributes.
+                        context.setAttribute(HttpCoreContext.HTTP_CONNECTION, managedConn);
+                    }
+                } else {
+                    response = requestExecutor.execute(request, managedConn, context);
+                }
 
                 // The connection is in or can be brought to a re-usable state.
                 if (reuseStrategy.keepAlive(response, context)) {
@@ -332,6 +355,9 @@ public class MainClientExec implements ClientExecChain {
 
             // check for entity, release connection if possible
             final HttpEntity entity = response.getEntity();
+            if (listener != null) {
+                connHolder.setExecutionListener(listener, route, context);
+            }
             if (entity == null || !entity.isStreaming()) {
                 // connection not needed and (assumed to be) in re-usable state
                 connHolder.releaseConnection();
@@ -381,8 +407,9 @@ public class MainClientExec implements ClientExecChain {
             final HttpRequest request,
             final HttpClientContext context) throws HttpException, IOException {
         final RequestConfig config = context.getRequestConfig();
-        final int timeout = config.getConnectTimeout();
+        final int timeout = DeadlineSupport.adjust(config.getConnectTimeout(), context);
         final RouteTracker tracker = new RouteTracker(route);
+        final ExecutionEventListener listener = context.getExecutionListener();
         int step;
         do {
             final HttpRoute fact = tracker.toRoute();
@@ -391,19 +418,31 @@ public class MainClientExec implements ClientExecChain {
             switch (step) {
 
             case HttpRouteDirector.CONNECT_TARGET:
+                if (listener != null) {
+                    listener.onEvent(ExecutionEvent.CONNECT_STARTED, route, context, System.nanoTime());
+                }
                 this.connManager.connect(
                         managedConn,
                         route,
                         timeout > 0 ? timeout : 0,
                         context);
+                if (listener != null) {
+                    listener.onEvent(ExecutionEvent.CONNECTED, route, context, System.nanoTime());
+                }
                 tracker.connectTarget(route.isSecure());
                 break;
             case HttpRouteDirector.CONNECT_PROXY:
+                if (listener != null) {
+                    listener.onEvent(ExecutionEvent.CONNECT_STARTED, route, context, System.nanoTime());
+                }
                 this.connManager.connect(
                         managedConn,
                         route,
                         timeout > 0 ? timeout : 0,
                         context);
+                if (listener != null) {
+                    listener.onEvent(ExecutionEvent.CONNECTED, route, context, System.nanoTime());
+                }
                 final HttpHost proxy  = route.getProxyHost();
                 tracker.connectProxy(proxy, false);
                 break;
@@ -426,7 +465,13 @@ public class MainClientExec implements ClientExecChain {
             }   break;
 
             case HttpRouteDirector.LAYER_PROTOCOL:
+                if (listener != null) {
+                    listener.onEvent(ExecutionEvent.TLS_UPGRADE_STARTED, route, context, System.nanoTime());
+                }
                 this.connManager.upgrade(managedConn, route, context);
+                if (listener != null) {
+                    listener.onEvent(ExecutionEvent.TLS_UPGRADED, route, context, System.nanoTime());
+                }
                 tracker.layerProtocol(route.isSecure());
                 break;
 
@@ -460,7 +505,7 @@ public class MainClientExec implements ClientExecChain {
             final HttpClientContext context) throws HttpException, IOException {
 
         final RequestConfig config = context.getRequestConfig();
-        final int timeout = config.getConnectTimeout();
+        final int timeout = DeadlineSupport.adjust(config.getConnectTimeout(), context);
 
         final HttpHost target = route.getTargetHost();
         final HttpHost proxy = route.getProxyHost();
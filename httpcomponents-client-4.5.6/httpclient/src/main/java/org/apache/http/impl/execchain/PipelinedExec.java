@@ -0,0 +1,477 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.ProtocolException;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.util.Args;
+
+/**
+ * Request executor that sends a batch of idempotent requests back-to-back
+ * over a single persistent connection (HTTP/1.1 pipelining) and reads
+ * the responses in the order the requests were sent.
+ * <p>
+ * Response content is buffered in memory, as the response to a request
+ * has to be fully read before the response to the next request becomes
+ * available. If the opposite endpoint closes the connection before all
+ * responses have been received, the unanswered requests are re-sent over
+ * a new connection. Attempts that fail with an I/O error before producing
+ * any response are retried as permitted by the {@link HttpRequestRetryHandler};
+ * aborted requests, connection pool timeouts and exceeded execution deadlines
+ * are never retried.
+ * </p>
+ * <p>
+ * Each request is processed with its own {@link RequestConfig}. The connection
+ * request and connect timeouts of a batch are the shortest ones of its requests
+ * and the execution timeout of the batch is the shortest one of its requests.
+ * Aborting any of the requests aborts the whole batch, as they share
+ * the same connection.
+ * </p>
+ * <p>
+ * This executor operates beside the classic request execution chain.
+ * It does not handle redirects, authentication challenges or tunnelled
+ * routes; such responses are returned to the caller as is. Neither does it
+ * apply any of the optional executors of the chain, such as circuit breakers,
+ * concurrency limits or hedging; {@link org.apache.http.impl.client.HttpClientBuilder}
+ * does not use it when any of these are configured.
+ * </p>
+ *
+ * @since 4.5.7
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE_CONDITIONAL)
+public class PipelinedExec {
+
+    private static final List<String> IDEMPOTENT_METHODS = Arrays.asList(
+            "GET", "HEAD", "OPTIONS", "TRACE", "DELETE");
+
+    /**
+     * Context attributes set up by request interceptors for the processing
+     * of the response to that same request.
+     */
+    private static final String[] REQUEST_STATE_ATTRIBUTES = {
+        HttpClientContext.COOKIE_SPEC, HttpClientContext.COOKIE_ORIGIN
+    };
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final HttpClientConnectionManager connManager;
+    private final ConnectionReuseStrategy reuseStrategy;
+    private final ConnectionKeepAliveStrategy keepAliveStrategy;
+    private final HttpProcessor httpProcessor;
+    private final HttpRequestRetryHandler retryHandler;
+
+    /**
+     * @param retryHandler the handler deciding whether a failed attempt
+     *   is retried. May be {@code null}, in which case failed attempts are
+     *   never retried.
+     */
+    public PipelinedExec(
+            final HttpClientConnectionManager connManager,
+            final ConnectionReuseStrategy reuseStrategy,
+            final ConnectionKeepAliveStrategy keepAliveStrategy,
+            final HttpProcessor httpProcessor,
+            final HttpRequestRetryHandler retryHandler) {
+        Args.notNull(connManager, "Client connection manager");
+        Args.notNull(reuseStrategy, "Connection reuse strategy");
+        Args.notNull(keepAliveStrategy, "Connection keep alive strategy");
+        Args.notNull(httpProcessor, "HTTP protocol processor");
+        this.connManager = connManager;
+        this.reuseStrategy = reuseStrategy;
+        this.keepAliveStrategy = keepAliveStrategy;
+        this.httpProcessor = httpProcessor;
+        this.retryHandler = retryHandler;
+    }
+
+    public PipelinedExec(
+            final HttpClientConnectionManager connManager,
+            final ConnectionReuseStrategy reuseStrategy,
+            final ConnectionKeepAliveStrategy keepAliveStrategy,
+            final HttpProcessor httpProcessor) {
+        this(connManager, reuseStrategy, keepAliveStrategy, httpProcessor,
+                DefaultHttpRequestRetryHandler.INSTANCE);
+    }
+
+    /**
+     * Determines whether the request can be pipelined, that is, whether
+     * it uses an idempotent method and does not enclose an entity.
+     */
+    public static boolean isPipelinable(final HttpRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            return false;
+        }
+        final String method = request.getRequestLine().getMethod().toUpperCase(Locale.ROOT);
+        return IDEMPOTENT_METHODS.contains(method);
+    }
+
+    /**
+     * Executes the requests over the given route.
+     *
+     * @param route the route, must not be tunnelled.
+     * @param requests the requests, all of which must be
+     *   {@link #isPipelinable(HttpRequest) pipelinable}.
+     * @param context the execution context.
+     * @return the responses in the order of the requests.
+     */
+    public List<CloseableHttpResponse> execute(
+            final HttpRoute route,
+            final List<HttpRequestWrapper> requests,
+            final HttpClientContext context) throws IOException, HttpException {
+        Args.notNull(route, "HTTP route");
+        Args.notEmpty(requests, "HTTP requests");
+        Args.notNull(context, "HTTP context");
+        Args.check(!route.isTunnelled(), "Tunnelled routes are not supported");
+        for (final HttpRequestWrapper request : requests) {
+            Args.check(isPipelinable(request), "Request cannot be pipelined: " + request.getRequestLine());
+        }
+
+        final RequestConfig defaultConfig = context.getRequestConfig();
+        final List<RequestConfig> configs = new ArrayList<RequestConfig>(requests.size());
+        final List<HttpExecutionAware> execAwares = new ArrayList<HttpExecutionAware>(requests.size());
+        int executionTimeout = 0;
+        for (final HttpRequestWrapper request : requests) {
+            final HttpRequest original = request.getOriginal();
+            RequestConfig config = null;
+            if (original instanceof Configurable) {
+                config = ((Configurable) original).getConfig();
+            }
+            if (config == null) {
+                config = defaultConfig;
+            }
+            configs.add(config);
+            if (original instanceof HttpExecutionAware) {
+                execAwares.add((HttpExecutionAware) original);
+            }
+            executionTimeout = shortest(executionTimeout, config.getExecutionTimeout());
+        }
+        final boolean deadlineSet = executionTimeout > 0 && context.getDeadline() == null;
+        if (deadlineSet) {
+            context.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(executionTimeout));
+        }
+        try {
+            // All requests are processed before any response is, so keep
+            // the state each request leaves in the context for its response
+            final List<Object[]> states = new ArrayList<Object[]>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                context.setRequestConfig(configs.get(i));
+                prepareRequest(requests.get(i), route, context);
+                states.add(saveRequestState(context));
+            }
+
+            final int count = requests.size();
+            final List<CloseableHttpResponse> responses = new ArrayList<CloseableHttpResponse>(count);
+            int failures = 0;
+            while (responses.size() < count) {
+                final int received = responses.size();
+                try {
+                    DeadlineSupport.remaining(context);
+                    executeBatch(route, requests.subList(received, count), configs.subList(received, count),
+                            states.subList(received, count), execAwares, responses, context);
+                } catch (final IOException ex) {
+                    if (isAborted(execAwares)) {
+                        throw new RequestAbortedException("Request aborted", ex);
+                    }
+                    if (responses.size() > received) {
+                        failures = 0;
+                    } else if (!retryRequest(ex, ++failures, context)) {
+                        throw ex;
+                    }
+                    if (this.log.isDebugEnabled()) {
+                        this.log.debug("I/O exception (" + ex.getClass().getName() +
+                                ") caught when executing pipelined requests to " + route + ": " + ex.getMessage());
+                    }
+                }
+                if (responses.size() < count && this.log.isDebugEnabled()) {
+                    this.log.debug("Re-sending " + (count - responses.size()) + " unanswered requests");
+                }
+            }
+            return responses;
+        } finally {
+            context.setRequestConfig(defaultConfig);
+            if (deadlineSet) {
+                context.setDeadline(null);
+            }
+        }
+    }
+
+    private boolean retryRequest(
+            final IOException ex, final int executionCount, final HttpClientContext context) {
+        if (this.retryHandler == null
+                || ex instanceof RequestAbortedException
+                || ex instanceof DeadlineExceededException
+                || ex instanceof ConnectionPoolTimeoutException) {
+            return false;
+        }
+        return this.retryHandler.retryRequest(ex, executionCount, context);
+    }
+
+    private static Object[] saveRequestState(final HttpClientContext context) {
+        final Object[] state = new Object[REQUEST_STATE_ATTRIBUTES.length];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = context.getAttribute(REQUEST_STATE_ATTRIBUTES[i]);
+        }
+        return state;
+    }
+
+    private static void restoreRequestState(final Object[] state, final HttpClientContext context) {
+        for (int i = 0; i < state.length; i++) {
+            context.setAttribute(REQUEST_STATE_ATTRIBUTES[i], state[i]);
+        }
+    }
+
+    private static boolean isAborted(final List<HttpExecutionAware> execAwares) {
+        for (final HttpExecutionAware execAware : execAwares) {
+            if (execAware.isAborted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setCancellable(
+            final List<HttpExecutionAware> execAwares, final Cancellable cancellable) {
+        for (final HttpExecutionAware execAware : execAwares) {
+            execAware.setCancellable(cancellable);
+        }
+    }
+
+    /**
+     * Returns the shorter of two timeouts, treating non-positive values as infinite.
+     */
+    private static int shortest(final int timeout1, final int timeout2) {
+        if (timeout1 <= 0) {
+            return timeout2 > 0 ? timeout2 : 0;
+        }
+        return timeout2 > 0 ? Math.min(timeout1, timeout2) : timeout1;
+    }
+
+    private void prepareRequest(
+            final HttpRequestWrapper request,
+            final HttpRoute route,
+            final HttpClientContext context) throws IOException, HttpException {
+        final HttpRequest original = request.getOriginal();
+        URI uri = null;
+        if (original instanceof HttpUriRequest) {
+            uri = ((HttpUriRequest) original).getURI();
+        } else {
+            final String uriString = original.getRequestLine().getUri();
+            try {
+                uri = URI.create(uriString);
+            } catch (final IllegalArgumentException ex) {
+                if (this.log.isDebugEnabled()) {
+                    this.log.debug("Unable to parse '" + uriString + "' as a valid URI; " +
+                        "request URI and Host header may be inconsistent", ex);
+                }
+            }
+        }
+        if (uri != null) {
+            try {
+                request.setURI(URIUtils.rewriteURIForRoute(uri, route));
+            } catch (final URISyntaxException ex) {
+                throw new ProtocolException("Invalid URI: " + uri, ex);
+            }
+        }
+        HttpHost target = request.getTarget();
+        if (target == null) {
+            target = route.getTargetHost();
+        }
+        context.setAttribute(HttpCoreContext.HTTP_TARGET_HOST, target);
+        context.setAttribute(HttpClientContext.HTTP_ROUTE, route);
+        context.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+        this.httpProcessor.process(request, context);
+    }
+
+    private void executeBatch(
+            final HttpRoute route,
+            final List<HttpRequestWrapper> requests,
+            final List<RequestConfig> configs,
+            final List<Object[]> states,
+            final List<HttpExecutionAware> execAwares,
+            final List<CloseableHttpResponse> responses,
+            final HttpClientContext context) throws IOException, HttpException {
+        int connectionRequestTimeout = 0;
+        int connectTimeout = 0;
+        for (final RequestConfig config : configs) {
+            connectionRequestTimeout = shortest(connectionRequestTimeout, config.getConnectionRequestTimeout());
+            connectTimeout = shortest(connectTimeout, config.getConnectTimeout());
+        }
+
+        if (isAborted(execAwares)) {
+            throw new RequestAbortedException("Request aborted");
+        }
+        final ConnectionRequest connRequest = this.connManager.requestConnection(route, context.getUserToken());
+        setCancellable(execAwares, connRequest);
+        final HttpClientConnection managedConn;
+        try {
+            final int timeout = DeadlineSupport.adjust(connectionRequestTimeout, context);
+            managedConn = connRequest.get(timeout > 0 ? timeout : 0, TimeUnit.MILLISECONDS);
+        } catch(final InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new RequestAbortedException("Request aborted", interrupted);
+        } catch(final ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause == null) {
+                cause = ex;
+            }
+            throw new RequestAbortedException("Request execution failed", cause);
+        }
+        context.setAttribute(HttpCoreContext.HTTP_CONNECTION, managedConn);
+
+        final ConnectionHolder connHolder = new ConnectionHolder(this.log, this.connManager, managedConn);
+        try {
+            setCancellable(execAwares, connHolder);
+            if (isAborted(execAwares)) {
+                throw new RequestAbortedException("Request aborted");
+            }
+            if (!managedConn.isOpen()) {
+                this.log.debug("Opening connection " + route);
+                final int timeout = DeadlineSupport.adjust(connectTimeout, context);
+                this.connManager.connect(managedConn, route, timeout > 0 ? timeout : 0, context);
+                this.connManager.routeComplete(managedConn, route, context);
+            }
+            int timeout = DeadlineSupport.adjust(configs.get(0).getSocketTimeout(), context);
+            if (timeout >= 0) {
+                managedConn.setSocketTimeout(timeout);
+            }
+
+            if (this.log.isDebugEnabled()) {
+                this.log.debug("Pipelining " + requests.size() + " requests to " + route);
+            }
+            for (final HttpRequestWrapper request : requests) {
+                managedConn.sendRequestHeader(request);
+            }
+            managedConn.flush();
+
+            for (int i = 0; i < requests.size(); i++) {
+                final HttpRequestWrapper request = requests.get(i);
+                final RequestConfig config = configs.get(i);
+                timeout = DeadlineSupport.adjust(config.getSocketTimeout(), context);
+                if (timeout >= 0) {
+                    managedConn.setSocketTimeout(timeout);
+                }
+                final HttpResponse response = receiveResponse(request, managedConn);
+                final boolean keepAlive = this.reuseStrategy.keepAlive(response, context);
+                if (keepAlive) {
+                    connHolder.setValidFor(
+                            this.keepAliveStrategy.getKeepAliveDuration(response, context), TimeUnit.MILLISECONDS);
+                }
+                context.setRequestConfig(config);
+                restoreRequestState(states.get(i), context);
+                context.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+                context.setAttribute(HttpCoreContext.HTTP_RESPONSE, response);
+                this.httpProcessor.process(response, context);
+                responses.add(new HttpResponseProxy(response, null));
+                if (!keepAlive) {
+                    this.log.debug("Connection will be closed by the opposite endpoint");
+                    connHolder.markNonReusable();
+                    connHolder.releaseConnection();
+                    return;
+                }
+            }
+            connHolder.markReusable();
+            connHolder.releaseConnection();
+        } catch (final IOException ex) {
+            connHolder.abortConnection();
+            throw ex;
+        } catch (final HttpException ex) {
+            connHolder.abortConnection();
+            throw ex;
+        } catch (final RuntimeException ex) {
+            connHolder.abortConnection();
+            throw ex;
+        }
+    }
+
+    private HttpResponse receiveResponse(
+            final HttpRequest request,
+            final HttpClientConnection conn) throws IOException, HttpException {
+        HttpResponse response;
+        do {
+            response = conn.receiveResponseHeader();
+        } while (response.getStatusLine().getStatusCode() < HttpStatus.SC_OK);
+        if (canResponseHaveBody(request, response)) {
+            conn.receiveResponseEntity(response);
+            final HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                response.setEntity(new BufferedHttpEntity(entity));
+            }
+        }
+        return response;
+    }
+
+    private static boolean canResponseHaveBody(final HttpRequest request, final HttpResponse response) {
+        if ("HEAD".equalsIgnoreCase(request.getRequestLine().getMethod())) {
+            return false;
+        }
+        final int status = response.getStatusLine().getStatusCode();
+        return status >= HttpStatus.SC_OK
+            && status != HttpStatus.SC_NO_CONTENT
+            && status != HttpStatus.SC_NOT_MODIFIED
+            && status != HttpStatus.SC_RESET_CONTENT;
+    }
+
+}
@@ -41,6 +41,8 @@ import org.apache.http.ProtocolException;
 import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
 import org.apache.http.auth.AuthState;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
 import org.apache.http.client.RedirectException;
 import org.apache.http.client.RedirectStrategy;
 import org.apache.http.client.config.RequestConfig;
@@ -157,6 +159,11 @@ public class RedirectExec implements ClientExecChain {
                     }
                     EntityUtils.consume(response.getEntity());
                     response.close();
+                    DeadlineSupport.remaining(context);
+                    final ExecutionEventListener listener = context.getExecutionListener();
+                    if (listener != null) {
+                        listener.onEvent(ExecutionEvent.REQUEST_REDIRECTED, currentRoute, context, System.nanoTime());
+                    }
                 } else {
                     return response;
                 }
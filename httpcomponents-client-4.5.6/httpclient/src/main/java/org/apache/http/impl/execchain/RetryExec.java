@@ -36,8 +36,12 @@ import org.apache.http.HttpException;
 import org.apache.http.NoHttpResponseException;
 import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
 import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.NonRepeatableRequestException;
+import org.apache.http.client.RetryBackoffStrategy;
+import org.apache.http.client.RetryBudget;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpExecutionAware;
 import org.apache.http.client.methods.HttpRequestWrapper;
@@ -50,6 +54,10 @@ import org.apache.http.util.Args;
  * for making a decision whether a request failed due to an I/O error
  * should be re-executed.
  * <p>
+ * Optionally, re-executions are delayed by a {@link RetryBackoffStrategy}
+ * and limited by a {@link RetryBudget}.
+ * </p>
+ * <p>
  * Further responsibilities such as communication with the opposite
  * endpoint is delegated to the next executor in the request execution
  * chain.
@@ -64,14 +72,29 @@ public class RetryExec implements ClientExecChain {
 
     private final ClientExecChain requestExecutor;
     private final HttpRequestRetryHandler retryHandler;
+    private final RetryBackoffStrategy backoffStrategy;
+    private final RetryBudget retryBudget;
 
+    /**
+     * @since 4.5.7
+     */
     public RetryExec(
             final ClientExecChain requestExecutor,
-            final HttpRequestRetryHandler retryHandler) {
+            final HttpRequestRetryHandler retryHandler,
+            final RetryBackoffStrategy backoffStrategy,
+            final RetryBudget retryBudget) {
         Args.notNull(requestExecutor, "HTTP request executor");
         Args.notNull(retryHandler, "HTTP request retry handler");
         this.requestExecutor = requestExecutor;
         this.retryHandler = retryHandler;
+        this.backoffStrategy = backoffStrategy;
+        this.retryBudget = retryBudget;
+    }
+
+    public RetryExec(
+            final ClientExecChain requestExecutor,
+            final HttpRequestRetryHandler retryHandler) {
+        this(requestExecutor, retryHandler, null, null);
     }
 
     @Override
@@ -85,14 +108,29 @@ public class RetryExec implements ClientExecChain {
         Args.notNull(context, "HTTP context");
         final Header[] origheaders = request.getAllHeaders();
         for (int execCount = 1;; execCount++) {
+            RetrySupport.resetDeposit(context);
             try {
-                return this.requestExecutor.execute(route, request, context, execAware);
+                final CloseableHttpResponse response = this.requestExecutor.execute(
+                        route, request, context, execAware);
+                RetrySupport.deposit(this.retryBudget, response, context);
+                return response;
             } catch (final IOException ex) {
                 if (execAware != null && execAware.isAborted()) {
                     this.log.debug("Request has been aborted");
                     throw ex;
                 }
-                if (retryHandler.retryRequest(ex, execCount, context)) {
+                if (ex instanceof DeadlineExceededException) {
+                    throw ex;
+                }
+                final boolean retry = retryHandler.retryRequest(ex, execCount, context);
+                if (retry && !RequestEntityProxy.isRepeatable(request)) {
+                    // Checked before a retry is withdrawn from the budget
+                    this.log.debug("Cannot retry non-repeatable request");
+                    throw new NonRepeatableRequestException("Cannot retry request " +
+                            "with a non-repeatable request entity", ex);
+                }
+                final long interval = retry ? getRetryInterval(execCount, context) : -1;
+                if (interval >= 0) {
                     if (this.log.isInfoEnabled()) {
                         this.log.info("I/O exception ("+ ex.getClass().getName() +
                                 ") caught when processing request to "
@@ -103,15 +141,18 @@ public class RetryExec implements ClientExecChain {
                     if (this.log.isDebugEnabled()) {
                         this.log.debug(ex.getMessage(), ex);
                     }
-                    if (!RequestEntityProxy.isRepeatable(request)) {
-                        this.log.debug("Cannot retry non-repeatable request");
-                        throw new NonRepeatableRequestException("Cannot retry request " +
-                                "with a non-repeatable request entity", ex);
-                    }
                     request.setHeaders(origheaders);
+                    if (interval > 0 && this.log.isDebugEnabled()) {
+                        this.log.debug("Wait for " + interval);
+                    }
+                    DeadlineSupport.sleep(interval, context);
                     if (this.log.isInfoEnabled()) {
                         this.log.info("Retrying request to " + route);
                     }
+                    final ExecutionEventListener listener = context.getExecutionListener();
+                    if (listener != null) {
+                        listener.onEvent(ExecutionEvent.REQUEST_RETRIED, route, context, System.nanoTime());
+                    }
                 } else {
                     if (ex instanceof NoHttpResponseException) {
                         final NoHttpResponseException updatedex = new NoHttpResponseException(
@@ -126,4 +167,14 @@ public class RetryExec implements ClientExecChain {
         }
     }
 
+    private long getRetryInterval(final int execCount, final HttpClientContext context) {
+        final long interval = this.backoffStrategy != null ?
+                this.backoffStrategy.getRetryInterval(null, execCount, context) : 0;
+        if (interval >= 0 && this.retryBudget != null && !this.retryBudget.tryWithdraw()) {
+            this.log.debug("Retry budget exhausted");
+            return -1;
+        }
+        return interval;
+    }
+
 }
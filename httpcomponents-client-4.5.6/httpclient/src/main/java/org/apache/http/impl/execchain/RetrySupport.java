@@ -0,0 +1,81 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.InterruptedIOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.RetryBudget;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Helper methods shared by the retrying executors.
+ */
+final class RetrySupport {
+
+    /**
+     * Context attribute flagging that the response of the current execution
+     * has been deposited to the retry budget, so that a response passing
+     * through several retrying executors is only accounted for once.
+     */
+    static final String BUDGET_DEPOSIT = "http.retry-budget.deposit";
+
+    private RetrySupport() {
+    }
+
+    /**
+     * Clears the deposit flag. Called by the retrying executors before
+     * executing a request, so the flag only ever refers to the response
+     * returned by the executors further down the chain.
+     */
+    static void resetDeposit(final HttpContext context) {
+        context.removeAttribute(BUDGET_DEPOSIT);
+    }
+
+    static void deposit(final RetryBudget retryBudget, final HttpResponse response, final HttpContext context) {
+        if (retryBudget == null
+                || response.getStatusLine().getStatusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR
+                || Boolean.TRUE.equals(context.getAttribute(BUDGET_DEPOSIT))) {
+            return;
+        }
+        context.setAttribute(BUDGET_DEPOSIT, Boolean.TRUE);
+        retryBudget.deposit();
+    }
+
+    static void sleep(final long interval) throws InterruptedIOException {
+        if (interval > 0) {
+            try {
+                Thread.sleep(interval);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+}
@@ -28,14 +28,18 @@
 package org.apache.http.impl.execchain;
 
 import java.io.IOException;
-import java.io.InterruptedIOException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
 import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
+import org.apache.http.client.RetryBackoffStrategy;
+import org.apache.http.client.RetryBudget;
 import org.apache.http.client.ServiceUnavailableRetryStrategy;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpExecutionAware;
@@ -49,6 +53,11 @@ import org.apache.http.util.Args;
  * for making a decision whether a request that received a non-2xx response
  * from the target server should be re-executed.
  * <p>
+ * Optionally, the interval between re-executions is determined by
+ * a {@link RetryBackoffStrategy} rather than by the retry strategy,
+ * and re-executions are limited by a {@link RetryBudget}.
+ * </p>
+ * <p>
  * Further responsibilities such as communication with the opposite
  * endpoint is delegated to the next executor in the request execution
  * chain.
@@ -63,15 +72,30 @@ public class ServiceUnavailableRetryExec implements ClientExecChain {
 
     private final ClientExecChain requestExecutor;
     private final ServiceUnavailableRetryStrategy retryStrategy;
+    private final RetryBackoffStrategy backoffStrategy;
+    private final RetryBudget retryBudget;
 
+    /**
+     * @since 4.5.7
+     */
     public ServiceUnavailableRetryExec(
             final ClientExecChain requestExecutor,
-            final ServiceUnavailableRetryStrategy retryStrategy) {
+            final ServiceUnavailableRetryStrategy retryStrategy,
+            final RetryBackoffStrategy backoffStrategy,
+            final RetryBudget retryBudget) {
         super();
         Args.notNull(requestExecutor, "HTTP request executor");
         Args.notNull(retryStrategy, "Retry strategy");
         this.requestExecutor = requestExecutor;
         this.retryStrategy = retryStrategy;
+        this.backoffStrategy = backoffStrategy;
+        this.retryBudget = retryBudget;
+    }
+
+    public ServiceUnavailableRetryExec(
+            final ClientExecChain requestExecutor,
+            final ServiceUnavailableRetryStrategy retryStrategy) {
+        this(requestExecutor, retryStrategy, null, null);
     }
 
     @Override
@@ -82,24 +106,26 @@ public class ServiceUnavailableRetryExec implements ClientExecChain {
             final HttpExecutionAware execAware) throws IOException, HttpException {
         final Header[] origheaders = request.getAllHeaders();
         for (int c = 1;; c++) {
+            RetrySupport.resetDeposit(context);
             final CloseableHttpResponse response = this.requestExecutor.execute(
                     route, request, context, execAware);
             try {
-                if (this.retryStrategy.retryRequest(response, c, context)
-                        && RequestEntityProxy.isRepeatable(request)) {
+                final long nextInterval = this.retryStrategy.retryRequest(response, c, context)
+                        && RequestEntityProxy.isRepeatable(request) ?
+                        getRetryInterval(response, c, context) : -1;
+                if (nextInterval >= 0) {
                     response.close();
-                    final long nextInterval = this.retryStrategy.getRetryInterval();
                     if (nextInterval > 0) {
-                        try {
-                            this.log.trace("Wait for " + nextInterval);
-                            Thread.sleep(nextInterval);
-                        } catch (final InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            throw new InterruptedIOException();
-                        }
+                        this.log.trace("Wait for " + nextInterval);
                     }
+                    DeadlineSupport.sleep(nextInterval, context);
                     request.setHeaders(origheaders);
+                    final ExecutionEventListener listener = context.getExecutionListener();
+                    if (listener != null) {
+                        listener.onEvent(ExecutionEvent.REQUEST_RETRIED, route, context, System.nanoTime());
+                    }
                 } else {
+                    RetrySupport.deposit(this.retryBudget, response, context);
                     return response;
                 }
             } catch (final RuntimeException ex) {
@@ -109,4 +135,16 @@ public class ServiceUnavailableRetryExec implements ClientExecChain {
         }
     }
 
+    private long getRetryInterval(
+            final HttpResponse response, final int executionCount, final HttpClientContext context) {
+        final long interval = this.backoffStrategy != null ?
+                this.backoffStrategy.getRetryInterval(response, executionCount, context) :
+                Math.max(0, this.retryStrategy.getRetryInterval());
+        if (interval >= 0 && this.retryBudget != null && !this.retryBudget.tryWithdraw()) {
+            this.log.debug("Retry budget exhausted");
+            return -1;
+        }
+        return interval;
+    }
+
 }
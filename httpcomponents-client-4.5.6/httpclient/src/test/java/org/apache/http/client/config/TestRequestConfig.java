@@ -48,6 +48,7 @@ public class TestRequestConfig {
         Assert.assertEquals(-1, config.getSocketTimeout());
         Assert.assertEquals(-1, config.getConnectTimeout());
         Assert.assertEquals(-1, config.getConnectionRequestTimeout());
+        Assert.assertEquals(-1, config.getExecutionTimeout());
         Assert.assertEquals(false, config.isExpectContinueEnabled());
         Assert.assertEquals(true, config.isAuthenticationEnabled());
         Assert.assertEquals(true, config.isRedirectsEnabled());
@@ -68,6 +69,7 @@ public class TestRequestConfig {
                 .setSocketTimeout(22)
                 .setConnectTimeout(33)
                 .setConnectionRequestTimeout(44)
+                .setExecutionTimeout(55)
                 .setExpectContinueEnabled(true)
                 .setAuthenticationEnabled(false)
                 .setRedirectsEnabled(false)
@@ -85,6 +87,7 @@ public class TestRequestConfig {
         Assert.assertEquals(22, config.getSocketTimeout());
         Assert.assertEquals(33, config.getConnectTimeout());
         Assert.assertEquals(44, config.getConnectionRequestTimeout());
+        Assert.assertEquals(55, config.getExecutionTimeout());
         Assert.assertEquals(true, config.isExpectContinueEnabled());
         Assert.assertEquals(false, config.isAuthenticationEnabled());
         Assert.assertEquals(false, config.isRedirectsEnabled());
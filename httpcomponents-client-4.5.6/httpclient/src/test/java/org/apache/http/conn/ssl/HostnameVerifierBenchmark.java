@@ -0,0 +1,97 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.conn.ssl;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Measures the cost of host name verification per handshake with and
+ * without the certificate name cache. Not run as part of the test suite;
+ * invoke {@link #main(String[])} directly.
+ * <pre>
+ * HostnameVerifierBenchmark [iterations]
+ * </pre>
+ */
+public class HostnameVerifierBenchmark {
+
+    private static final String[] HOSTS = {
+        "foo.com", "www.foo.com", "a.foo.com", "bar.com"
+    };
+
+    public static void main(final String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        final CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        final X509Certificate[] certs = new X509Certificate[] {
+                (X509Certificate) cf.generateCertificate(
+                        new ByteArrayInputStream(CertificatesToPlayWith.X509_FOO)),
+                (X509Certificate) cf.generateCertificate(
+                        new ByteArrayInputStream(CertificatesToPlayWith.X509_WILD_FOO)),
+                (X509Certificate) cf.generateCertificate(
+                        new ByteArrayInputStream(CertificatesToPlayWith.X509_FOO_BAR_HANAKO)),
+                (X509Certificate) cf.generateCertificate(
+                        new ByteArrayInputStream(CertificatesToPlayWith.X509_NO_CNS_FOO))
+        };
+
+        final DefaultHostnameVerifier uncached = new DefaultHostnameVerifier();
+        final DefaultHostnameVerifier cached = new DefaultHostnameVerifier(null, 64);
+
+        // Warm up
+        run(uncached, certs, iterations);
+        run(cached, certs, iterations);
+
+        final long uncachedNanos = run(uncached, certs, iterations);
+        final long cachedNanos = run(cached, certs, iterations);
+
+        System.out.println("Verifications:       " + iterations);
+        System.out.println("Uncached (ns/verify): " + uncachedNanos / iterations);
+        System.out.println("Cached (ns/verify):   " + cachedNanos / iterations);
+    }
+
+    private static long run(
+            final DefaultHostnameVerifier verifier,
+            final X509Certificate[] certs,
+            final int iterations) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            final X509Certificate cert = certs[i % certs.length];
+            final String host = HOSTS[(i / certs.length) % HOSTS.length];
+            try {
+                verifier.verify(host, cert);
+            } catch (final SSLException ignore) {
+                // mismatches are part of the workload
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+}
@@ -202,6 +202,51 @@ public class TestDefaultHostnameVerifier {
         }
     }
 
+    @Test
+    public void testCachedVerify() throws Exception {
+        final DefaultHostnameVerifier cached = new DefaultHostnameVerifier(publicSuffixMatcher, 10);
+        final CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        final X509Certificate foo = (X509Certificate) cf.generateCertificate(
+                new ByteArrayInputStream(CertificatesToPlayWith.X509_FOO));
+        final X509Certificate noCnsFoo = (X509Certificate) cf.generateCertificate(
+                new ByteArrayInputStream(CertificatesToPlayWith.X509_NO_CNS_FOO));
+        final X509Certificate wildFoo = (X509Certificate) cf.generateCertificate(
+                new ByteArrayInputStream(CertificatesToPlayWith.X509_WILD_FOO));
+
+        for (int i = 0; i < 2; i++) {
+            cached.verify("foo.com", foo);
+            cached.verify("FOO.com", foo);
+            exceptionPlease(cached, "a.foo.com", foo);
+            exceptionPlease(cached, "bar.com", foo);
+
+            cached.verify("foo.com", noCnsFoo);
+            exceptionPlease(cached, "a.foo.com", noCnsFoo);
+
+            cached.verify("www.foo.com", wildFoo);
+            cached.verify("\u82b1\u5b50.foo.com", wildFoo);
+            exceptionPlease(cached, "a.b.foo.com", wildFoo);
+        }
+        Assert.assertEquals(3, cached.getCacheSize());
+        Assert.assertEquals(0, impl.getCacheSize());
+    }
+
+    @Test
+    public void testCachedVerifyEviction() throws Exception {
+        final DefaultHostnameVerifier cached = new DefaultHostnameVerifier(null, 1);
+        final CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        final X509Certificate foo = (X509Certificate) cf.generateCertificate(
+                new ByteArrayInputStream(CertificatesToPlayWith.X509_FOO));
+        final X509Certificate fooBar = (X509Certificate) cf.generateCertificate(
+                new ByteArrayInputStream(CertificatesToPlayWith.X509_FOO_BAR));
+
+        cached.verify("foo.com", foo);
+        cached.verify("bar.com", fooBar);
+        Assert.assertEquals(1, cached.getCacheSize());
+        cached.verify("foo.com", foo);
+        exceptionPlease(cached, "foo.com", fooBar);
+        Assert.assertEquals(1, cached.getCacheSize());
+    }
+
     public void exceptionPlease(final DefaultHostnameVerifier hv, final String host,
                                 final X509Certificate x509) {
         try {
@@ -341,4 +341,54 @@ public class TestSSLSocketFactory {
         final HttpHost target = new HttpHost("localhost", this.server.getLocalPort(), "https");
         socketFactory.connectSocket(0, socket, target, remoteAddress, null, context);
     }
+
+    @Test
+    public void testSessionResumption() throws Exception {
+        // @formatter:off
+        this.server = ServerBootstrap.bootstrap()
+                .setServerInfo(LocalServerTestBase.ORIGIN)
+                .setSslContext(SSLTestContexts.createServerSSLContext())
+                .create();
+        // @formatter:on
+        this.server.start();
+
+        final SSLSessionCache sessionCache = new SSLSessionCache(10, 0);
+        final SSLConnectionSocketFactory socketFactory = new SSLConnectionSocketFactory(
+                SSLTestContexts.createClientSSLContext(), new String[] { "TLSv1.2" }, null,
+                new TestX509HostnameVerifier(), sessionCache);
+        final InetSocketAddress remoteAddress = new InetSocketAddress("localhost", this.server.getLocalPort());
+        final HttpHost target = new HttpHost("localhost", this.server.getLocalPort(), "https");
+        for (int i = 0; i < 2; i++) {
+            final HttpContext context = new BasicHttpContext();
+            final Socket socket = socketFactory.createSocket(context);
+            final SSLSocket sslSocket = (SSLSocket) socketFactory.connectSocket(
+                    0, socket, target, remoteAddress, null, context);
+            sslSocket.close();
+        }
+        Assert.assertEquals(1, sessionCache.getFullHandshakeCount());
+        Assert.assertEquals(1, sessionCache.getAbbreviatedHandshakeCount());
+        Assert.assertEquals(1, sessionCache.size());
+
+        sessionCache.invalidateAll();
+        final HttpContext context = new BasicHttpContext();
+        final SSLSocket sslSocket = (SSLSocket) socketFactory.connectSocket(
+                0, socketFactory.createSocket(context), target, remoteAddress, null, context);
+        sslSocket.close();
+        Assert.assertEquals(2, sessionCache.getFullHandshakeCount());
+    }
+
+    @Test
+    public void testSessionContextNotModifiedImplicitly() throws Exception {
+        final SSLContext sslContext = SSLTestContexts.createClientSSLContext();
+        final int cacheSize = sslContext.getClientSessionContext().getSessionCacheSize();
+        final int sessionTimeout = sslContext.getClientSessionContext().getSessionTimeout();
+        final SSLSessionCache sessionCache = new SSLSessionCache(cacheSize + 10, sessionTimeout + 10);
+        new SSLConnectionSocketFactory(sslContext, null, null, new TestX509HostnameVerifier(), sessionCache);
+        Assert.assertEquals(cacheSize, sslContext.getClientSessionContext().getSessionCacheSize());
+        Assert.assertEquals(sessionTimeout, sslContext.getClientSessionContext().getSessionTimeout());
+
+        sessionCache.configure(sslContext.getClientSessionContext());
+        Assert.assertEquals(cacheSize + 10, sslContext.getClientSessionContext().getSessionCacheSize());
+        Assert.assertEquals(sessionTimeout + 10, sslContext.getClientSessionContext().getSessionTimeout());
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.Date;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDecorrelatedJitterBackoffStrategy {
+
+    @Test
+    public void testIntervalWithinBounds() {
+        final DecorrelatedJitterBackoffStrategy strategy = new DecorrelatedJitterBackoffStrategy(100, 1000);
+        final HttpClientContext context = HttpClientContext.create();
+        long previous = 100;
+        for (int i = 1; i <= 20; i++) {
+            final long interval = strategy.getRetryInterval(null, i, context);
+            Assert.assertTrue(interval >= 100);
+            Assert.assertTrue(interval <= Math.min(1000, previous * 3));
+            Assert.assertEquals(Long.valueOf(interval), context.getAttribute(
+                    DecorrelatedJitterBackoffStrategy.LAST_INTERVAL));
+            previous = interval;
+        }
+    }
+
+    @Test
+    public void testFirstRetryIgnoresPreviousInterval() {
+        final DecorrelatedJitterBackoffStrategy strategy = new DecorrelatedJitterBackoffStrategy(100, 100000);
+        final HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(DecorrelatedJitterBackoffStrategy.LAST_INTERVAL, Long.valueOf(50000));
+        final long interval = strategy.getRetryInterval(null, 1, context);
+        Assert.assertTrue(interval >= 100);
+        Assert.assertTrue(interval <= 300);
+    }
+
+    @Test
+    public void testRetryAfterSeconds() {
+        final DecorrelatedJitterBackoffStrategy strategy = new DecorrelatedJitterBackoffStrategy(100, 10000);
+        final HttpResponse response = new BasicHttpResponse(
+                HttpVersion.HTTP_1_1, HttpStatus.SC_SERVICE_UNAVAILABLE, "Unavailable");
+        response.setHeader("Retry-After", "5");
+        Assert.assertEquals(5000, strategy.getRetryInterval(response, 1, HttpClientContext.create()));
+        response.setHeader("Retry-After", "60");
+        Assert.assertEquals(-1, strategy.getRetryInterval(response, 1, HttpClientContext.create()));
+        response.setHeader("Retry-After", "garbage");
+        final long interval = strategy.getRetryInterval(response, 1, HttpClientContext.create());
+        Assert.assertTrue(interval >= 100 && interval <= 300);
+    }
+
+    @Test
+    public void testRetryAfterDate() {
+        final Date date = new Date(System.currentTimeMillis() + 4000);
+        final long interval = DecorrelatedJitterBackoffStrategy.parseRetryAfter(DateUtils.formatDate(date));
+        Assert.assertTrue(interval > 2000 && interval <= 4000);
+        final Date past = new Date(System.currentTimeMillis() - 10000);
+        Assert.assertEquals(0, DecorrelatedJitterBackoffStrategy.parseRetryAfter(DateUtils.formatDate(past)));
+        Assert.assertEquals(-1, DecorrelatedJitterBackoffStrategy.parseRetryAfter("-1"));
+        Assert.assertEquals(-1, DecorrelatedJitterBackoffStrategy.parseRetryAfter(null));
+    }
+
+}
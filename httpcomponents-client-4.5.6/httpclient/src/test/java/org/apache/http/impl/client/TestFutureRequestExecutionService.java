@@ -40,6 +40,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
@@ -160,6 +161,33 @@ public class TestFutureRequestExecutionService {
         }
     }
 
+    @Test
+    public void shouldRecordExecutionHistograms() throws Exception {
+        final int reqNo = 10;
+        final Queue<Future<Boolean>> tasks = new LinkedList<Future<Boolean>>();
+        for(int i = 0; i < reqNo; i++) {
+            tasks.add(httpAsyncClientWithFuture.execute(
+                    new HttpGet(uri), HttpClientContext.create(), new OkidokiHandler()));
+        }
+        for (final Future<Boolean> task : tasks) {
+            Assert.assertTrue(task.get().booleanValue());
+        }
+        final FutureRequestExecutionMetrics metrics = httpAsyncClientWithFuture.metrics();
+        final FutureRequestExecutionMetrics snapshot = metrics.snapshot();
+        final HttpHost target = new HttpHost("localhost", this.localServer.getLocalPort());
+
+        Assert.assertEquals(reqNo, snapshot.getQueueWaitHistogram().getCount());
+        Assert.assertEquals(reqNo, snapshot.getExecutionHistogram().getCount());
+        Assert.assertTrue(snapshot.getTargets().contains(target));
+        Assert.assertEquals(reqNo, snapshot.getExecutionHistogram(target, 2).getCount());
+        Assert.assertNull(snapshot.getExecutionHistogram(target, 5));
+
+        httpAsyncClientWithFuture.execute(
+                new HttpGet(uri), HttpClientContext.create(), new OkidokiHandler()).get();
+        Assert.assertEquals(reqNo + 1, metrics.getExecutionHistogram(target, 2).getCount());
+        Assert.assertEquals(reqNo, snapshot.getExecutionHistogram(target, 2).getCount());
+    }
+
     private final class CountingCallback implements FutureCallback<Boolean> {
 
         private final CountDownLatch latch;
@@ -0,0 +1,100 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testEmpty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMean());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testBuckets() {
+        Assert.assertEquals(0, LatencyHistogram.bucketOf(-1));
+        Assert.assertEquals(255, LatencyHistogram.bucketOf(255));
+        Assert.assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        int last = -1;
+        for (long v = 0; v < 1000000; v++) {
+            final int bucket = LatencyHistogram.bucketOf(v);
+            Assert.assertTrue(bucket == last || bucket == last + 1);
+            Assert.assertTrue(LatencyHistogram.highestEquivalentValue(bucket) >= v);
+            last = bucket;
+        }
+    }
+
+    @Test
+    public void testRelativeError() {
+        for (long v = 256; v < TimeUnit.HOURS.toNanos(1); v = v * 3 / 2) {
+            final long upper = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketOf(v));
+            Assert.assertTrue(upper >= v);
+            Assert.assertTrue("relative error too large for " + v, upper - v <= v / 100);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), histogram.getMax());
+        Assert.assertEquals(1990000, histogram.getMean());
+        final long p50 = histogram.getPercentile(50);
+        Assert.assertTrue(p50 >= TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertTrue(p50 <= TimeUnit.MILLISECONDS.toNanos(1) * 101 / 100);
+        Assert.assertEquals(p50, histogram.getPercentile(99));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testReset() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000);
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new LatencyHistogram().getPercentile(0);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTokenBucketRetryBudget {
+
+    @Test
+    public void testBudgetStartsFull() {
+        final TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0.1, 3);
+        Assert.assertEquals(3, budget.getAvailableRetries());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void testDepositsReplenishBudget() {
+        final TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0.1, 2);
+        budget.tryWithdraw();
+        budget.tryWithdraw();
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        Assert.assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void testBudgetCapped() {
+        final TokenBucketRetryBudget budget = new TokenBucketRetryBudget(0.5, 2);
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        Assert.assertEquals(2, budget.getAvailableRetries());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidRatio() {
+        new TokenBucketRetryBudget(0, 2);
+    }
+
+}
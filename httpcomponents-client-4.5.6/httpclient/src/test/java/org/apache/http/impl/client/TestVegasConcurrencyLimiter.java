@@ -0,0 +1,141 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestVegasConcurrencyLimiter {
+
+    private HttpRoute route;
+
+    @Before
+    public void setUp() {
+        this.route = new HttpRoute(new HttpHost("localhost", 80));
+    }
+
+    private static long millis(final long ms) {
+        return TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    @Test
+    public void testPermitsLimited() throws Exception {
+        final VegasConcurrencyLimiter limiter = new VegasConcurrencyLimiter(2, 1, 10, 10, 50, 100);
+        Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(limiter.acquire(route, 10, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, limiter.getInFlight(route));
+        limiter.release(route, -1, false);
+        Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testWaiterSignalledOnRelease() throws Exception {
+        final VegasConcurrencyLimiter limiter = new VegasConcurrencyLimiter(1, 1, 10, 10, 50, 100);
+        Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+        final Thread t = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (final InterruptedException ignore) {
+                }
+                limiter.release(route, -1, false);
+            }
+
+        };
+        t.start();
+        Assert.assertTrue(limiter.acquire(route, 5, TimeUnit.SECONDS));
+        t.join();
+    }
+
+    @Test
+    public void testLimitIncreasesWithStableLatency() throws Exception {
+        final VegasConcurrencyLimiter limiter = new VegasConcurrencyLimiter(4, 1, 100, 10, 50, 100);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 4; j++) {
+                Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+            }
+            for (int j = 0; j < 4; j++) {
+                limiter.release(route, millis(10), false);
+            }
+        }
+        Assert.assertTrue(limiter.getLimit(route) > 4);
+    }
+
+    @Test
+    public void testLimitNotIncreasedIfUnused() throws Exception {
+        final VegasConcurrencyLimiter limiter = new VegasConcurrencyLimiter(10, 1, 100, 10, 50, 100);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+            limiter.release(route, millis(10), false);
+        }
+        Assert.assertEquals(10, limiter.getLimit(route));
+    }
+
+    @Test
+    public void testLimitDecreasesWithGrowingLatency() throws Exception {
+        final VegasConcurrencyLimiter limiter = new VegasConcurrencyLimiter(20, 1, 100, 10, 50, 100);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+            limiter.release(route, millis(10), false);
+        }
+        Assert.assertEquals(20, limiter.getLimit(route));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+            limiter.release(route, millis(100), false);
+        }
+        Assert.assertEquals(19, limiter.getLimit(route));
+    }
+
+    @Test
+    public void testDropCutsLimit() throws Exception {
+        final VegasConcurrencyLimiter limiter = new VegasConcurrencyLimiter(20, 1, 100, 10, 50, 100);
+        for (int i = 0; i < 9; i++) {
+            Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+            limiter.release(route, millis(10), false);
+        }
+        Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+        limiter.release(route, -1, true);
+        Assert.assertEquals(18, limiter.getLimit(route));
+    }
+
+    @Test
+    public void testLimitBounded() throws Exception {
+        final VegasConcurrencyLimiter limiter = new VegasConcurrencyLimiter(2, 2, 2, 1, 50, 100);
+        Assert.assertTrue(limiter.acquire(route, 0, TimeUnit.MILLISECONDS));
+        limiter.release(route, -1, true);
+        Assert.assertEquals(2, limiter.getLimit(route));
+    }
+
+}
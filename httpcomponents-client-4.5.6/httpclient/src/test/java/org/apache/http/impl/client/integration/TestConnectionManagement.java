@@ -375,6 +375,47 @@ public class TestConnectionManagement extends LocalServerTestBase {
         this.connManager.shutdown();
     }
 
+    @Test
+    public void testValidateIdleConnections() throws Exception {
+
+        this.connManager.setMaxTotal(1);
+        this.connManager.setValidateAfterInactivity(100);
+
+        final HttpHost target = start();
+        final HttpRoute route = new HttpRoute(target, null, false);
+        final HttpContext context = new BasicHttpContext();
+
+        HttpClientConnection conn = getConnection(this.connManager, route);
+        this.connManager.connect(conn, route, 0, context);
+        this.connManager.routeComplete(conn, route, context);
+        this.connManager.releaseConnection(conn, null, -1, TimeUnit.MILLISECONDS);
+
+        // Recently used, not checked.
+        Assert.assertEquals(0, this.connManager.validateIdleConnections());
+        Assert.assertEquals(1, this.connManager.getTotalStats().getAvailable());
+
+        Thread.sleep(150);
+
+        // Idle but still alive.
+        Assert.assertEquals(0, this.connManager.validateIdleConnections());
+        Assert.assertEquals(1, this.connManager.getTotalStats().getAvailable());
+
+        conn = getConnection(this.connManager, route);
+        Assert.assertTrue(conn.isOpen());
+        this.connManager.releaseConnection(conn, null, -1, TimeUnit.MILLISECONDS);
+
+        this.server.shutdown(10, TimeUnit.SECONDS);
+        this.server = null;
+        Thread.sleep(150);
+
+        // Closed by the opposite endpoint, destroyed.
+        Assert.assertEquals(1, this.connManager.validateIdleConnections());
+        Assert.assertEquals(Collections.emptySet(), this.connManager.getRoutes());
+        Assert.assertEquals(0, this.connManager.getTotalStats().getAvailable());
+
+        this.connManager.shutdown();
+    }
+
     /**
      * Tests releasing connection from #abort method called from the
      * main execution thread while there is no blocking I/O operation.
@@ -0,0 +1,191 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client.integration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.LatencyHistogram;
+import org.apache.http.impl.client.RouteLatencyRecorder;
+import org.apache.http.localserver.LocalServerTestBase;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Execution event notification tests.
+ */
+public class TestExecutionEvents extends LocalServerTestBase {
+
+    static class EventCollector implements ExecutionEventListener {
+
+        final List<ExecutionEvent> events = Collections.synchronizedList(new ArrayList<ExecutionEvent>());
+
+        @Override
+        public void onEvent(
+                final ExecutionEvent event,
+                final HttpRoute route,
+                final HttpContext context,
+                final long timestamp) {
+            this.events.add(event);
+        }
+
+    }
+
+    @Test
+    public void testEventSequence() throws Exception {
+        final EventCollector collector = new EventCollector();
+        this.clientBuilder.setExecutionListener(collector);
+        final HttpHost target = start();
+        final CloseableHttpResponse response = this.httpclient.execute(target, new HttpGet("/random/2000"));
+        try {
+            Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+            Assert.assertFalse(collector.events.contains(ExecutionEvent.RESPONSE_BODY_COMPLETED));
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            response.close();
+        }
+        Assert.assertEquals(Arrays.asList(
+                ExecutionEvent.REQUEST_STARTED,
+                ExecutionEvent.CONNECTION_LEASE_STARTED,
+                ExecutionEvent.CONNECTION_LEASED,
+                ExecutionEvent.CONNECT_STARTED,
+                ExecutionEvent.CONNECTED,
+                ExecutionEvent.REQUEST_WRITE_STARTED,
+                ExecutionEvent.REQUEST_WRITTEN,
+                ExecutionEvent.RESPONSE_HEADERS_RECEIVED,
+                ExecutionEvent.REQUEST_COMPLETED,
+                ExecutionEvent.RESPONSE_BODY_COMPLETED), collector.events);
+    }
+
+    @Test
+    public void testContextListenerOverridesDefault() throws Exception {
+        final EventCollector defaultCollector = new EventCollector();
+        this.clientBuilder.setExecutionListener(defaultCollector);
+        final HttpHost target = start();
+        final EventCollector collector = new EventCollector();
+        final HttpClientContext context = HttpClientContext.create();
+        context.setExecutionListener(collector);
+        final CloseableHttpResponse response = this.httpclient.execute(target, new HttpGet("/random/10"), context);
+        try {
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            response.close();
+        }
+        Assert.assertTrue(defaultCollector.events.isEmpty());
+        Assert.assertEquals(ExecutionEvent.REQUEST_STARTED, collector.events.get(0));
+    }
+
+    @Test
+    public void testFailureEvent() throws Exception {
+        final EventCollector collector = new EventCollector();
+        this.clientBuilder.setExecutionListener(collector);
+        this.clientBuilder.disableAutomaticRetries();
+        final HttpHost target = start();
+        this.server.shutdown(0, TimeUnit.SECONDS);
+        try {
+            this.httpclient.execute(target, new HttpGet("/random/10"));
+            Assert.fail("IOException expected");
+        } catch (final IOException expected) {
+        }
+        Assert.assertEquals(ExecutionEvent.REQUEST_FAILED, collector.events.get(collector.events.size() - 1));
+        Assert.assertFalse(collector.events.contains(ExecutionEvent.CONNECTED));
+    }
+
+    @Test
+    public void testRouteLatencyRecorder() throws Exception {
+        final RouteLatencyRecorder recorder = new RouteLatencyRecorder();
+        this.clientBuilder.setExecutionListener(recorder);
+        final HttpHost target = start();
+        for (int i = 0; i < 5; i++) {
+            final CloseableHttpResponse response = this.httpclient.execute(target, new HttpGet("/random/1000"));
+            try {
+                EntityUtils.consume(response.getEntity());
+            } finally {
+                response.close();
+            }
+        }
+        Assert.assertEquals(1, recorder.getRoutes().size());
+        final HttpRoute route = recorder.getRoutes().iterator().next();
+        Assert.assertEquals(target, route.getTargetHost());
+        Assert.assertEquals(5, recorder.getHistogram(route, RouteLatencyRecorder.Phase.LEASE).getCount());
+        Assert.assertEquals(1, recorder.getHistogram(route, RouteLatencyRecorder.Phase.CONNECT).getCount());
+        Assert.assertEquals(0, recorder.getHistogram(route, RouteLatencyRecorder.Phase.TLS_UPGRADE).getCount());
+        Assert.assertEquals(5, recorder.getHistogram(route, RouteLatencyRecorder.Phase.REQUEST_WRITE).getCount());
+        Assert.assertEquals(5, recorder.getHistogram(route, RouteLatencyRecorder.Phase.TIME_TO_FIRST_BYTE).getCount());
+        Assert.assertEquals(5, recorder.getHistogram(route, RouteLatencyRecorder.Phase.RESPONSE_BODY).getCount());
+        final LatencyHistogram total = recorder.getHistogram(route, RouteLatencyRecorder.Phase.TOTAL);
+        Assert.assertEquals(5, total.getCount());
+        Assert.assertTrue(total.getMax() > 0);
+        recorder.reset();
+        Assert.assertTrue(recorder.getRoutes().isEmpty());
+    }
+
+    @Test
+    public void testManagedConnectionExposedWithListener() throws Exception {
+        final AtomicReference<HttpConnection> connRef = new AtomicReference<HttpConnection>();
+        this.clientBuilder.setExecutionListener(new EventCollector());
+        this.clientBuilder.addInterceptorLast(new HttpResponseInterceptor() {
+
+            @Override
+            public void process(
+                    final HttpResponse response,
+                    final HttpContext context) throws HttpException, IOException {
+                connRef.set(HttpClientContext.adapt(context).getConnection(ManagedHttpClientConnection.class));
+            }
+
+        });
+        final HttpHost target = start();
+        final CloseableHttpResponse response = this.httpclient.execute(target, new HttpGet("/random/10"));
+        try {
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            response.close();
+        }
+        Assert.assertTrue(connRef.get() instanceof ManagedHttpClientConnection);
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client.integration;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.DefaultServiceUnavailableRetryStrategy;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.localserver.LocalServerTestBase;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Pipelined request execution tests.
+ */
+public class TestPipelinedRequestExecution extends LocalServerTestBase {
+
+    /**
+     * Returns the number of requests received over the current connection
+     * and closes the connection after the given number of requests.
+     */
+    private static class CountingService implements HttpRequestHandler {
+
+        private final int maxRequests;
+
+        public CountingService(final int maxRequests) {
+            super();
+            this.maxRequests = maxRequests;
+        }
+
+        @Override
+        public void handle(
+                final HttpRequest request,
+                final HttpResponse response,
+                final HttpContext context) throws HttpException, IOException {
+            final HttpConnection conn = (HttpConnection) context.getAttribute(
+                    HttpCoreContext.HTTP_CONNECTION);
+            final long count = conn.getMetrics().getRequestCount();
+            response.setStatusCode(HttpStatus.SC_OK);
+            response.setEntity(new StringEntity(request.getRequestLine().getUri() + ";" + count));
+            if (count >= this.maxRequests) {
+                response.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+            }
+        }
+
+    }
+
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        final HttpHost target = start();
+        final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+        for (int i = 1; i <= 10; i++) {
+            requests.add(new HttpGet("/random/" + (i * 100)));
+        }
+        final List<CloseableHttpResponse> responses = this.httpclient.executePipelined(target, requests);
+        Assert.assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < 10; i++) {
+            final CloseableHttpResponse response = responses.get(i);
+            Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+            final byte[] content = EntityUtils.toByteArray(response.getEntity());
+            Assert.assertEquals((i + 1) * 100, content.length);
+            response.close();
+        }
+        Assert.assertEquals(1, this.connManager.getTotalStats().getAvailable());
+        Assert.assertEquals(0, this.connManager.getTotalStats().getLeased());
+    }
+
+    @Test
+    public void testPipelinedRequestsResentOnConnectionClose() throws Exception {
+        this.serverBootstrap.registerHandler("/count/*", new CountingService(3));
+        final HttpHost target = start();
+        final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+        for (int i = 0; i < 8; i++) {
+            requests.add(new HttpGet("/count/" + i));
+        }
+        final List<CloseableHttpResponse> responses = this.httpclient.executePipelined(target, requests);
+        Assert.assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final CloseableHttpResponse response = responses.get(i);
+            Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+            final String content = EntityUtils.toString(response.getEntity());
+            Assert.assertEquals("/count/" + i + ";" + (i % 3 + 1), content);
+            response.close();
+        }
+    }
+
+    @Test
+    public void testAbortedRequestNotExecuted() throws Exception {
+        final HttpHost target = start();
+        final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+        requests.add(new HttpGet("/random/100"));
+        final HttpGet aborted = new HttpGet("/random/100");
+        aborted.abort();
+        requests.add(aborted);
+        try {
+            this.httpclient.executePipelined(target, requests);
+            Assert.fail("RequestAbortedException expected");
+        } catch (final RequestAbortedException expected) {
+        }
+        Assert.assertEquals(0, this.connManager.getTotalStats().getLeased());
+    }
+
+    @Test
+    public void testFailedAttemptsRetriedByRetryHandler() throws Exception {
+        final ServerSocket serverSocket = new ServerSocket(0);
+        final AtomicInteger accepted = new AtomicInteger();
+        final Thread acceptor = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    while (!serverSocket.isClosed()) {
+                        final Socket socket = serverSocket.accept();
+                        accepted.incrementAndGet();
+                        // Read the requests, then close without responding
+                        socket.getInputStream().read(new byte[1024]);
+                        socket.close();
+                    }
+                } catch (final IOException ignore) {
+                }
+            }
+
+        };
+        acceptor.start();
+        this.httpclient = this.clientBuilder.build();
+        try {
+            final HttpHost target = new HttpHost("localhost", serverSocket.getLocalPort());
+            final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+            requests.add(new HttpGet("/"));
+            requests.add(new HttpGet("/"));
+            this.httpclient.executePipelined(target, requests);
+            Assert.fail("NoHttpResponseException expected");
+        } catch (final NoHttpResponseException expected) {
+            // Initial attempt and three retries of the default retry handler
+            Assert.assertEquals(4, accepted.get());
+        } finally {
+            serverSocket.close();
+            acceptor.join(5000);
+        }
+    }
+
+    @Test
+    public void testPolicyExecutorsApplied() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        this.serverBootstrap.registerHandler("/unavailable-once", new HttpRequestHandler() {
+
+            @Override
+            public void handle(
+                    final HttpRequest request,
+                    final HttpResponse response,
+                    final HttpContext context) throws HttpException, IOException {
+                if (count.incrementAndGet() == 1) {
+                    response.setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE);
+                } else {
+                    response.setStatusCode(HttpStatus.SC_OK);
+                }
+            }
+
+        });
+        this.clientBuilder.setServiceUnavailableRetryStrategy(new DefaultServiceUnavailableRetryStrategy(1, 1));
+        final HttpHost target = start();
+        final List<CloseableHttpResponse> responses = this.httpclient.executePipelined(
+                target, Collections.singletonList(new HttpGet("/unavailable-once")));
+        Assert.assertEquals(HttpStatus.SC_OK, responses.get(0).getStatusLine().getStatusCode());
+        Assert.assertEquals(2, count.get());
+    }
+
+    @Test
+    public void testCookiesProcessedWithOriginOfTheirRequest() throws Exception {
+        final HttpRequestHandler cookieService = new HttpRequestHandler() {
+
+            @Override
+            public void handle(
+                    final HttpRequest request,
+                    final HttpResponse response,
+                    final HttpContext context) throws HttpException, IOException {
+                final String uri = request.getRequestLine().getUri();
+                response.setStatusCode(HttpStatus.SC_OK);
+                response.addHeader("Set-Cookie", uri.substring(1, 2) + "=stuff");
+            }
+
+        };
+        this.serverBootstrap.registerHandler("/a/*", cookieService);
+        this.serverBootstrap.registerHandler("/b/*", cookieService);
+        final HttpHost target = start();
+        final CookieStore cookieStore = new BasicCookieStore();
+        final HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(cookieStore);
+        final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+        requests.add(new HttpGet("/a/x"));
+        requests.add(new HttpGet("/b/y"));
+        final List<CloseableHttpResponse> responses = this.httpclient.executePipelined(target, requests, context);
+        for (final CloseableHttpResponse response : responses) {
+            response.close();
+        }
+        final List<Cookie> cookies = cookieStore.getCookies();
+        Assert.assertEquals(2, cookies.size());
+        for (final Cookie cookie : cookies) {
+            // Cookies without a Path attribute default to the path of their request
+            Assert.assertEquals("/" + cookie.getName(), cookie.getPath());
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNonIdempotentRequestRejected() throws Exception {
+        final HttpHost target = start();
+        final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+        requests.add(new HttpGet("/random/100"));
+        final HttpPost post = new HttpPost("/echo/");
+        post.setEntity(new StringEntity("stuff"));
+        requests.add(post);
+        this.httpclient.executePipelined(target, requests);
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.client.integration;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.DefaultServiceUnavailableRetryStrategy;
+import org.apache.http.impl.execchain.DeadlineExceededException;
+import org.apache.http.localserver.LocalServerTestBase;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Request execution deadline tests.
+ */
+public class TestRequestDeadline extends LocalServerTestBase {
+
+    @Test
+    public void testServiceUnavailableRetriesStopAtDeadline() throws Exception {
+        this.serverBootstrap.registerHandler("*", new HttpRequestHandler() {
+
+            @Override
+            public void handle(
+                    final HttpRequest request,
+                    final HttpResponse response,
+                    final HttpContext context) throws HttpException, IOException {
+                response.setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE);
+            }
+
+        });
+        this.clientBuilder.setServiceUnavailableRetryStrategy(new DefaultServiceUnavailableRetryStrategy(10, 300));
+        final HttpHost target = start();
+        final HttpGet httpget = new HttpGet("/");
+        httpget.setConfig(RequestConfig.custom().setExecutionTimeout(700).build());
+        final long start = System.nanoTime();
+        try {
+            this.httpclient.execute(target, httpget);
+            Assert.fail("DeadlineExceededException expected");
+        } catch (final DeadlineExceededException expected) {
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(3000));
+    }
+
+    @Test
+    public void testRedirectsStopAtDeadline() throws Exception {
+        this.serverBootstrap.registerHandler("*", new HttpRequestHandler() {
+
+            @Override
+            public void handle(
+                    final HttpRequest request,
+                    final HttpResponse response,
+                    final HttpContext context) throws HttpException, IOException {
+                try {
+                    Thread.sleep(150);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                response.setStatusCode(HttpStatus.SC_MOVED_TEMPORARILY);
+                response.setHeader("Location", "/");
+            }
+
+        });
+        final HttpHost target = start();
+        final HttpGet httpget = new HttpGet("/");
+        httpget.setConfig(RequestConfig.custom()
+                .setCircularRedirectsAllowed(true)
+                .setExecutionTimeout(500)
+                .build());
+        final long start = System.nanoTime();
+        try {
+            this.httpclient.execute(target, httpget);
+            Assert.fail("InterruptedIOException expected");
+        } catch (final InterruptedIOException expected) {
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+    }
+
+    @Test(expected=DeadlineExceededException.class)
+    public void testExpiredContextDeadline() throws Exception {
+        final HttpHost target = start();
+        final HttpClientContext context = HttpClientContext.create();
+        context.setDeadline(System.nanoTime() - 1);
+        this.httpclient.execute(target, new HttpGet("/random/10"), context);
+    }
+
+    @Test
+    public void testDeadlineNotRetainedInContext() throws Exception {
+        final HttpHost target = start();
+        final HttpClientContext context = HttpClientContext.create();
+        final HttpGet httpget = new HttpGet("/random/10");
+        httpget.setConfig(RequestConfig.custom().setExecutionTimeout(5000).build());
+        final CloseableHttpResponse response = this.httpclient.execute(target, httpget, context);
+        try {
+            Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            response.close();
+        }
+        Assert.assertNull(context.getDeadline());
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.conn;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAddressHealthTracker {
+
+    private InetAddress ip1;
+    private InetAddress ip2;
+    private InetAddress ip3;
+
+    @Before
+    public void setup() throws Exception {
+        ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+        ip3 = InetAddress.getByAddress(new byte[] {10, 0, 0, 3});
+    }
+
+    @Test
+    public void testOrderWithoutHistory() throws Exception {
+        final AddressHealthTracker tracker = new AddressHealthTracker();
+        final InetAddress[] addresses = new InetAddress[] { ip1, ip2, ip3 };
+        Assert.assertArrayEquals(addresses, tracker.order(addresses));
+    }
+
+    @Test
+    public void testFailedAddressesTriedLast() throws Exception {
+        final AddressHealthTracker tracker = new AddressHealthTracker(3, 1, 1, TimeUnit.MINUTES);
+        tracker.connectFailed(ip1);
+        tracker.connectFailed(ip1);
+        tracker.connectFailed(ip2);
+        Assert.assertArrayEquals(new InetAddress[] { ip3, ip2, ip1 },
+                tracker.order(new InetAddress[] { ip1, ip2, ip3 }));
+        Assert.assertEquals(2, tracker.getFailureCount(ip1));
+
+        tracker.connectSucceeded(ip1, 10, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(0, tracker.getFailureCount(ip1));
+        Assert.assertArrayEquals(new InetAddress[] { ip1, ip3, ip2 },
+                tracker.order(new InetAddress[] { ip1, ip2, ip3 }));
+    }
+
+    @Test
+    public void testEjection() throws Exception {
+        final List<InetAddress> ejected = new CopyOnWriteArrayList<InetAddress>();
+        final AddressHealthTracker tracker = new AddressHealthTracker(2, 50, 1000, TimeUnit.MILLISECONDS);
+        tracker.addListener(new AddressHealthTracker.Listener() {
+
+            @Override
+            public void ejected(final InetAddress address) {
+                ejected.add(address);
+            }
+
+        });
+        tracker.connectFailed(ip1);
+        Assert.assertFalse(tracker.isEjected(ip1));
+        tracker.connectFailed(ip1);
+        Assert.assertTrue(tracker.isEjected(ip1));
+        Assert.assertEquals(1, ejected.size());
+        Assert.assertArrayEquals(new InetAddress[] { ip2 }, tracker.order(new InetAddress[] { ip1, ip2 }));
+
+        Thread.sleep(100);
+        Assert.assertFalse(tracker.isEjected(ip1));
+        // A single failure after the ejection time ejects the address again
+        tracker.connectFailed(ip1);
+        Assert.assertTrue(tracker.isEjected(ip1));
+        Assert.assertEquals(2, ejected.size());
+    }
+
+    @Test
+    public void testAllEjectedFailsOpen() throws Exception {
+        final AddressHealthTracker tracker = new AddressHealthTracker(1, 1, 1, TimeUnit.MINUTES);
+        tracker.connectFailed(ip2);
+        tracker.connectFailed(ip1);
+        final InetAddress[] ordered = tracker.order(new InetAddress[] { ip1, ip2 });
+        Assert.assertArrayEquals(new InetAddress[] { ip2, ip1 }, ordered);
+    }
+
+    @Test
+    public void testConnectTimeAverage() throws Exception {
+        final AddressHealthTracker tracker = new AddressHealthTracker();
+        Assert.assertEquals(-1, tracker.getConnectTimeAverage(ip1), 0.0);
+        tracker.connectSucceeded(ip1, 10, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(10, tracker.getConnectTimeAverage(ip1), 0.001);
+        tracker.connectSucceeded(ip1, 20, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(12, tracker.getConnectTimeAverage(ip1), 0.001);
+    }
+
+    @Test
+    public void testConnectionOperatorSkipsEjectedAddress() throws Exception {
+        final InMemoryDnsResolver dnsResolver = new InMemoryDnsResolver();
+        dnsResolver.add("somehost", ip1, ip2);
+        final TestHappyEyeballsConnectionOperator.StubSocketFactory socketFactory =
+                new TestHappyEyeballsConnectionOperator.StubSocketFactory();
+        socketFactory.refused.add(ip1);
+        final AddressHealthTracker tracker = new AddressHealthTracker(1, 1, 1, TimeUnit.MINUTES);
+        final DefaultHttpClientConnectionOperator operator = new DefaultHttpClientConnectionOperator(
+                RegistryBuilder.<ConnectionSocketFactory>create().register("http", socketFactory).build(),
+                null, dnsResolver, tracker);
+        final HttpHost host = new HttpHost("somehost");
+
+        operator.connect(new DefaultManagedHttpClientConnection("test", 1024),
+                host, null, 1000, SocketConfig.DEFAULT, new BasicHttpContext());
+        Assert.assertEquals(2, socketFactory.attempted.size());
+        Assert.assertTrue(tracker.isEjected(ip1));
+        Assert.assertTrue(tracker.getConnectTimeAverage(ip2) >= 0);
+
+        operator.connect(new DefaultManagedHttpClientConnection("test", 1024),
+                host, null, 1000, SocketConfig.DEFAULT, new BasicHttpContext());
+        Assert.assertEquals(3, socketFactory.attempted.size());
+        Assert.assertEquals(ip2, socketFactory.attempted.get(2));
+    }
+
+}
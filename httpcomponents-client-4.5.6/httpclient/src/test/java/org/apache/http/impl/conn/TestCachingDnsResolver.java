@@ -0,0 +1,239 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.conn;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.conn.DnsResolver;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCachingDnsResolver {
+
+    static class CountingDnsResolver implements DnsResolver {
+
+        final InMemoryDnsResolver dnsResolver = new InMemoryDnsResolver();
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public InetAddress[] resolve(final String host) throws UnknownHostException {
+            count.incrementAndGet();
+            return dnsResolver.resolve(host);
+        }
+
+    }
+
+    static final Executor DIRECT = new Executor() {
+
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+
+    };
+
+    private CountingDnsResolver backend;
+    private InetAddress address1;
+    private InetAddress address2;
+
+    @Before
+    public void setup() throws Exception {
+        backend = new CountingDnsResolver();
+        address1 = InetAddress.getByAddress("somehost", new byte[] {10, 0, 0, 1});
+        address2 = InetAddress.getByAddress("somehost", new byte[] {10, 0, 0, 2});
+    }
+
+    @Test
+    public void testCachedLookup() throws Exception {
+        backend.dnsResolver.add("somehost", address1);
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                backend, 1, 1, 1, TimeUnit.MINUTES, 10, DIRECT);
+        Assert.assertArrayEquals(new InetAddress[] {address1}, resolver.resolve("somehost"));
+        Assert.assertArrayEquals(new InetAddress[] {address1}, resolver.resolve("SomeHost"));
+        Assert.assertEquals(1, backend.count.get());
+        Assert.assertEquals(1, resolver.getHitCount());
+        Assert.assertEquals(1, resolver.getMissCount());
+        Assert.assertEquals(1, resolver.size());
+    }
+
+    @Test
+    public void testResultCannotBeModified() throws Exception {
+        backend.dnsResolver.add("somehost", address1);
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                backend, 1, 1, 1, TimeUnit.MINUTES, 10, DIRECT);
+        resolver.resolve("somehost")[0] = address2;
+        Assert.assertArrayEquals(new InetAddress[] {address1}, resolver.resolve("somehost"));
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                backend, 1, 1, 1, TimeUnit.MINUTES, 10, DIRECT);
+        for (int i = 0; i < 2; i++) {
+            try {
+                resolver.resolve("unknown");
+                Assert.fail("UnknownHostException expected");
+            } catch (final UnknownHostException expected) {
+            }
+        }
+        Assert.assertEquals(1, backend.count.get());
+        Assert.assertEquals(1, resolver.getNegativeHitCount());
+        Assert.assertEquals(1, resolver.getFailureCount());
+    }
+
+    @Test
+    public void testNegativeCachingDisabled() throws Exception {
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                backend, 1, 1, 0, TimeUnit.MINUTES, 10, DIRECT);
+        for (int i = 0; i < 2; i++) {
+            try {
+                resolver.resolve("unknown");
+                Assert.fail("UnknownHostException expected");
+            } catch (final UnknownHostException expected) {
+            }
+        }
+        Assert.assertEquals(2, backend.count.get());
+        Assert.assertEquals(0, resolver.size());
+    }
+
+    @Test
+    public void testStaleWhileRefresh() throws Exception {
+        backend.dnsResolver.add("somehost", address1);
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                backend, 20, 60000, 0, TimeUnit.MILLISECONDS, 10, DIRECT);
+        Assert.assertArrayEquals(new InetAddress[] {address1}, resolver.resolve("somehost"));
+        backend.dnsResolver.add("somehost", address2);
+        Thread.sleep(50);
+        // Expired entry is returned while being refreshed
+        Assert.assertArrayEquals(new InetAddress[] {address1}, resolver.resolve("somehost"));
+        Assert.assertArrayEquals(new InetAddress[] {address2}, resolver.resolve("somehost"));
+        Assert.assertEquals(2, backend.count.get());
+        Assert.assertEquals(1, resolver.getStaleHitCount());
+        Assert.assertEquals(1, resolver.getRefreshCount());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsStaleEntry() throws Exception {
+        final DnsResolver failing = new DnsResolver() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public InetAddress[] resolve(final String host) throws UnknownHostException {
+                if (count.getAndIncrement() > 0) {
+                    throw new UnknownHostException(host);
+                }
+                return new InetAddress[] {address1};
+            }
+
+        };
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                failing, 20, 60000, 60000, TimeUnit.MILLISECONDS, 10, DIRECT);
+        resolver.resolve("somehost");
+        Thread.sleep(50);
+        Assert.assertArrayEquals(new InetAddress[] {address1}, resolver.resolve("somehost"));
+        Assert.assertArrayEquals(new InetAddress[] {address1}, resolver.resolve("somehost"));
+        Assert.assertEquals(2, resolver.getFailureCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        backend.dnsResolver.add("host1", address1);
+        backend.dnsResolver.add("host2", address1);
+        backend.dnsResolver.add("host3", address1);
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                backend, 1, 1, 1, TimeUnit.MINUTES, 2, DIRECT);
+        resolver.resolve("host1");
+        resolver.resolve("host2");
+        resolver.resolve("host1");
+        resolver.resolve("host3");
+        Assert.assertEquals(2, resolver.size());
+        Assert.assertEquals(3, backend.count.get());
+        resolver.resolve("host1");
+        Assert.assertEquals(3, backend.count.get());
+        resolver.resolve("host2");
+        Assert.assertEquals(4, backend.count.get());
+    }
+
+    @Test
+    public void testConcurrentMissesShareLookup() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final DnsResolver blocking = new DnsResolver() {
+
+            @Override
+            public InetAddress[] resolve(final String host) throws UnknownHostException {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (final InterruptedException ex) {
+                    throw new UnknownHostException(host);
+                }
+                return backend.resolve(host);
+            }
+
+        };
+        backend.dnsResolver.add("somehost", address1);
+        final CachingDnsResolver resolver = new CachingDnsResolver(
+                blocking, 1, 1, 1, TimeUnit.MINUTES, 10, DIRECT);
+        final ExecutorService executorService = Executors.newFixedThreadPool(5);
+        try {
+            final List<Future<InetAddress[]>> futures = new ArrayList<Future<InetAddress[]>>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(executorService.submit(new Callable<InetAddress[]>() {
+
+                    @Override
+                    public InetAddress[] call() throws Exception {
+                        return resolver.resolve("somehost");
+                    }
+
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (final Future<InetAddress[]> future : futures) {
+                Assert.assertArrayEquals(new InetAddress[] {address1}, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(1, backend.count.get());
+        Assert.assertEquals(1, resolver.getMissCount());
+    }
+
+}
@@ -103,6 +103,46 @@ public class TestDefaultRoutePlanner {
         Mockito.verify(schemePortResolver, Mockito.never()).resolve(Mockito.<HttpHost>any());
     }
 
+    @Test
+    public void testRouteInterning() throws Exception {
+        final HttpHost target = new HttpHost("somehost", -1, "https");
+        Mockito.when(schemePortResolver.resolve(target)).thenReturn(443);
+        final HttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+
+        final HttpClientContext context = HttpClientContext.create();
+        final HttpRoute route1 = routePlanner.determineRoute(target, request, context);
+        final HttpRoute route2 = routePlanner.determineRoute(
+                new HttpHost("somehost", -1, "https"), request, context);
+
+        Assert.assertSame(route1, route2);
+        Mockito.verify(schemePortResolver, Mockito.times(1)).resolve(Mockito.<HttpHost>any());
+
+        final HttpHost proxy = new HttpHost("proxy", 8080);
+        context.setRequestConfig(RequestConfig.custom().setProxy(proxy).build());
+        final HttpRoute route3 = routePlanner.determineRoute(target, request, context);
+
+        Assert.assertNotSame(route1, route3);
+        Assert.assertEquals(proxy, route3.getProxyHost());
+        Assert.assertSame(route3, routePlanner.determineRoute(target, request, context));
+    }
+
+    @Test
+    public void testInternedRoutesEvicted() throws Exception {
+        final HttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        final HttpClientContext context = HttpClientContext.create();
+        final HttpRoute route0 = routePlanner.determineRoute(new HttpHost("host0", 80), request, context);
+        final HttpRoute route1 = routePlanner.determineRoute(new HttpHost("host1", 80), request, context);
+        for (int i = 2; i < DefaultRoutePlanner.MAX_INTERNED_ROUTES + 10; i++) {
+            Assert.assertSame(route0, routePlanner.determineRoute(new HttpHost("host0", 80), request, context));
+            routePlanner.determineRoute(new HttpHost("host" + i, 80), request, context);
+        }
+        // Recently used routes are retained, least recently used ones evicted
+        Assert.assertSame(route0, routePlanner.determineRoute(new HttpHost("host0", 80), request, context));
+        final HttpRoute route1again = routePlanner.determineRoute(new HttpHost("host1", 80), request, context);
+        Assert.assertNotSame(route1, route1again);
+        Assert.assertEquals(route1, route1again);
+    }
+
     @Test(expected= ProtocolException.class)
     public void testNullTarget() throws Exception {
         final HttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
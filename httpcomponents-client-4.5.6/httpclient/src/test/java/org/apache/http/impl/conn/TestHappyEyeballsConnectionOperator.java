@@ -0,0 +1,279 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.impl.conn;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.http.HttpHost;
+import org.apache.http.config.Lookup;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.HttpHostConnectException;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHappyEyeballsConnectionOperator {
+
+    static class StubSocketFactory implements ConnectionSocketFactory {
+
+        final Set<InetAddress> dead = Collections.synchronizedSet(new HashSet<InetAddress>());
+        final Set<InetAddress> refused = Collections.synchronizedSet(new HashSet<InetAddress>());
+        final List<Socket> sockets = new CopyOnWriteArrayList<Socket>();
+        final List<InetAddress> attempted = new CopyOnWriteArrayList<InetAddress>();
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+
+        @Override
+        public Socket createSocket(final HttpContext context) throws IOException {
+            final Socket socket = new Socket();
+            sockets.add(socket);
+            return socket;
+        }
+
+        @Override
+        public Socket connectSocket(
+                final int connectTimeout,
+                final Socket sock,
+                final HttpHost host,
+                final InetSocketAddress remoteAddress,
+                final InetSocketAddress localAddress,
+                final HttpContext context) throws IOException {
+            attempted.add(remoteAddress.getAddress());
+            threads.add(Thread.currentThread());
+            if (refused.contains(remoteAddress.getAddress())) {
+                throw new ConnectException("Connection refused");
+            }
+            if (dead.contains(remoteAddress.getAddress())) {
+                final long deadline = System.currentTimeMillis() + connectTimeout;
+                while (!sock.isClosed() && System.currentTimeMillis() < deadline) {
+                    try {
+                        Thread.sleep(5);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                throw new SocketTimeoutException("connect timed out");
+            }
+            return sock;
+        }
+
+    }
+
+    private InMemoryDnsResolver dnsResolver;
+    private StubSocketFactory socketFactory;
+    private Lookup<ConnectionSocketFactory> registry;
+    private InetAddress ip1;
+    private InetAddress ip2;
+    private InetAddress ip3;
+
+    @Before
+    public void setup() throws Exception {
+        dnsResolver = new InMemoryDnsResolver();
+        socketFactory = new StubSocketFactory();
+        registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", socketFactory)
+                .build();
+        ip1 = InetAddress.getByAddress(new byte[] {10, 0, 0, 1});
+        ip2 = InetAddress.getByAddress(new byte[] {10, 0, 0, 2});
+        ip3 = InetAddress.getByAddress(new byte[] {10, 0, 0, 3});
+    }
+
+    @Test
+    public void testInterleave() throws Exception {
+        final InetAddress v6a = InetAddress.getByName("::1");
+        final InetAddress v6b = InetAddress.getByName("::2");
+        final InetAddress[] ordered = HappyEyeballsConnectionOperator.interleave(
+                new InetAddress[] { v6a, v6b, ip1, ip2, ip3 });
+        Assert.assertArrayEquals(new InetAddress[] { v6a, ip1, v6b, ip2, ip3 }, ordered);
+
+        final InetAddress[] ordered2 = HappyEyeballsConnectionOperator.interleave(
+                new InetAddress[] { ip1, ip2, v6a });
+        Assert.assertArrayEquals(new InetAddress[] { ip1, v6a, ip2 }, ordered2);
+    }
+
+    @Test
+    public void testStaggeredConnectSkipsDeadAddress() throws Exception {
+        dnsResolver.add("somehost", ip1, ip2);
+        socketFactory.dead.add(ip1);
+        final HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(
+                registry, null, dnsResolver, 50, null);
+        final DefaultManagedHttpClientConnection conn = new DefaultManagedHttpClientConnection("test", 1024);
+        final long start = System.currentTimeMillis();
+        operator.connect(conn, new HttpHost("somehost"), null, 10000, SocketConfig.DEFAULT, new BasicHttpContext());
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertSame(socketFactory.sockets.get(1), conn.getSocket());
+        // Only the fallback gets handed off to the executor
+        Assert.assertSame(Thread.currentThread(), socketFactory.threads.get(0));
+        Assert.assertNotSame(Thread.currentThread(), socketFactory.threads.get(1));
+        // The losing attempt gets aborted
+        final Socket loser = socketFactory.sockets.get(0);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!loser.isClosed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertTrue(loser.isClosed());
+    }
+
+    @Test
+    public void testFailedAttemptStartsNextImmediately() throws Exception {
+        dnsResolver.add("somehost", ip1, ip2);
+        socketFactory.refused.add(ip1);
+        final HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(
+                registry, null, dnsResolver, 10000, null);
+        final DefaultManagedHttpClientConnection conn = new DefaultManagedHttpClientConnection("test", 1024);
+        final long start = System.currentTimeMillis();
+        operator.connect(conn, new HttpHost("somehost"), null, 10000, SocketConfig.DEFAULT, new BasicHttpContext());
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertEquals(2, socketFactory.attempted.size());
+        Assert.assertSame(socketFactory.sockets.get(1), conn.getSocket());
+    }
+
+    @Test
+    public void testSingleAddress() throws Exception {
+        dnsResolver.add("somehost", ip1);
+        final HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(
+                registry, null, dnsResolver);
+        final DefaultManagedHttpClientConnection conn = new DefaultManagedHttpClientConnection("test", 1024);
+        operator.connect(conn, new HttpHost("somehost"), null, 1000, SocketConfig.DEFAULT, new BasicHttpContext());
+        Assert.assertSame(socketFactory.sockets.get(0), conn.getSocket());
+    }
+
+    @Test
+    public void testSaturatedExecutorConnectsSequentially() throws Exception {
+        dnsResolver.add("somehost", ip1, ip2, ip3);
+        socketFactory.refused.add(ip1);
+        socketFactory.refused.add(ip2);
+        final Executor saturated = new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException();
+            }
+
+        };
+        final HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(
+                registry, null, dnsResolver, 10000, saturated);
+        final DefaultManagedHttpClientConnection conn = new DefaultManagedHttpClientConnection("test", 1024);
+        operator.connect(conn, new HttpHost("somehost"), null, 1000, SocketConfig.DEFAULT, new BasicHttpContext());
+        Assert.assertEquals(3, socketFactory.attempted.size());
+        for (final Thread thread : socketFactory.threads) {
+            Assert.assertSame(Thread.currentThread(), thread);
+        }
+        Assert.assertSame(socketFactory.sockets.get(2), conn.getSocket());
+    }
+
+    @Test(expected=HttpHostConnectException.class)
+    public void testAllAddressesRefused() throws Exception {
+        dnsResolver.add("somehost", ip1, ip2, ip3);
+        socketFactory.refused.add(ip1);
+        socketFactory.refused.add(ip2);
+        socketFactory.refused.add(ip3);
+        final HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(
+                registry, null, dnsResolver, 50, null);
+        final DefaultManagedHttpClientConnection conn = new DefaultManagedHttpClientConnection("test", 1024);
+        try {
+            operator.connect(conn, new HttpHost("somehost"), null, 1000, SocketConfig.DEFAULT, new BasicHttpContext());
+        } finally {
+            Assert.assertEquals(3, socketFactory.attempted.size());
+            for (final Socket socket : socketFactory.sockets) {
+                Assert.assertTrue(socket.isClosed());
+            }
+        }
+    }
+
+    @Test
+    public void testShutdownCancelsPendingAttempts() throws Exception {
+        dnsResolver.add("somehost", ip1, ip2);
+        socketFactory.dead.add(ip1);
+        socketFactory.dead.add(ip2);
+        final HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(
+                registry, null, dnsResolver, 50, null);
+        try {
+            final DefaultManagedHttpClientConnection conn = new DefaultManagedHttpClientConnection("test", 1024);
+            final Thread t = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(200);
+                        conn.shutdown();
+                    } catch (final Exception ignore) {
+                    }
+                }
+
+            };
+            t.start();
+            final long start = System.currentTimeMillis();
+            try {
+                operator.connect(conn, new HttpHost("somehost"), null, 60000, SocketConfig.DEFAULT,
+                        new BasicHttpContext());
+                Assert.fail("InterruptedIOException expected");
+            } catch (final InterruptedIOException expected) {
+            }
+            Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+            Assert.assertNull(conn.getSocket());
+            for (final Socket socket : socketFactory.sockets) {
+                Assert.assertTrue(socket.isClosed());
+            }
+        } finally {
+            operator.close();
+        }
+    }
+
+    @Test(expected=InterruptedIOException.class)
+    public void testConnectAfterShutdown() throws Exception {
+        dnsResolver.add("somehost", ip1, ip2);
+        final HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(
+                registry, null, dnsResolver, 50, null);
+        try {
+            final DefaultManagedHttpClientConnection conn = new DefaultManagedHttpClientConnection("test", 1024);
+            conn.shutdown();
+            operator.connect(conn, new HttpHost("somehost"), null, 1000, SocketConfig.DEFAULT, new BasicHttpContext());
+        } finally {
+            operator.close();
+        }
+    }
+
+}
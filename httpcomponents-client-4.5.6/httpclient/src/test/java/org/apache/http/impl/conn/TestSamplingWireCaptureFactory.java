@@ -0,0 +1,170 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.conn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSamplingWireCaptureFactory {
+
+    private final HttpRoute route = new HttpRoute(new HttpHost("somehost", 80));
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("wire", "");
+        if (dir.exists()) {
+            dir.delete();
+        }
+        dir.mkdir();
+    }
+
+    @After
+    public void cleanUp() {
+        if (dir != null) {
+            final File[] files = dir.listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    private static String read(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            final byte[] tmp = new byte[1024];
+            int l;
+            while ((l = in.read(tmp)) != -1) {
+                buf.write(tmp, 0, l);
+            }
+            return new String(buf.toByteArray(), Consts.ISO_8859_1);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        final SamplingWireCaptureFactory factory = new SamplingWireCaptureFactory(dir, 3, 1024, 10);
+        Assert.assertNotNull(factory.create("c0", route));
+        Assert.assertNull(factory.create("c1", route));
+        Assert.assertNull(factory.create("c2", route));
+        Assert.assertNotNull(factory.create("c3", route));
+        Assert.assertNull(factory.create("c4", route));
+    }
+
+    @Test
+    public void testCapture() throws Exception {
+        final SamplingWireCaptureFactory factory = new SamplingWireCaptureFactory(dir, 1, 1024, 10);
+        final WireCapture capture = factory.create("c0", route);
+        capture.output("GET / HTTP/1.1\r\n\r\n".getBytes(Consts.ASCII), 0, 18);
+        capture.input(new byte[] {'x', 0, (byte) 0xff, '\n', 'y'}, 1, 3);
+        capture.close();
+        capture.output(new byte[] {'z'}, 0, 1);
+        capture.close();
+        factory.close();
+
+        final File file = factory.getFile("c0");
+        Assert.assertTrue(file.exists());
+        Assert.assertEquals("# c0 " + route + "\r\n" +
+                ">> 18\r\nGET / HTTP/1.1\r\n\r\n\r\n" +
+                "<< 3\r\n\u0000\u00ff\n\r\n", read(file));
+    }
+
+    @Test
+    public void testCaptureSizeLimit() throws Exception {
+        final SamplingWireCaptureFactory factory = new SamplingWireCaptureFactory(dir, 1, 8, 10);
+        final WireCapture capture = factory.create("c0", route);
+        capture.output("aaaa".getBytes(Consts.ASCII), 0, 4);
+        capture.input("bbbb".getBytes(Consts.ASCII), 0, 4);
+        capture.output("cccc".getBytes(Consts.ASCII), 0, 4);
+        capture.input("0123456789".getBytes(Consts.ASCII), 0, 10);
+        capture.close();
+        factory.close();
+
+        Assert.assertEquals("# c0 " + route + "\r\n" +
+                "# discarded 14 bytes\r\n" +
+                "<< 8\r\n23456789\r\n", read(factory.getFile("c0")));
+    }
+
+    @Test
+    public void testMaxFiles() throws Exception {
+        final SamplingWireCaptureFactory factory = new SamplingWireCaptureFactory(dir, 1, 1024, 2);
+        for (int i = 0; i < 4; i++) {
+            final WireCapture capture = factory.create("c" + i, route);
+            capture.output(new byte[] {'a'}, 0, 1);
+            capture.close();
+        }
+        factory.close();
+        Assert.assertFalse(factory.getFile("c0").exists());
+        Assert.assertFalse(factory.getFile("c1").exists());
+        Assert.assertTrue(factory.getFile("c2").exists());
+        Assert.assertTrue(factory.getFile("c3").exists());
+    }
+
+    @Test
+    public void testMaxFilesAcrossRuns() throws Exception {
+        final SamplingWireCaptureFactory factory1 = new SamplingWireCaptureFactory(dir, 1, 1024, 2);
+        final WireCapture capture1 = factory1.create("c0", route);
+        capture1.output(new byte[] {'a'}, 0, 1);
+        capture1.close();
+        factory1.close();
+        final File earlier = factory1.getFile("c0");
+        Assert.assertTrue(earlier.exists());
+        Assert.assertTrue(earlier.setLastModified(System.currentTimeMillis() - 60000));
+
+        final SamplingWireCaptureFactory factory2 = new SamplingWireCaptureFactory(dir, 1, 1024, 2);
+        Assert.assertFalse(factory1.getFile("c0").equals(factory2.getFile("c0")));
+        for (int i = 0; i < 2; i++) {
+            final WireCapture capture = factory2.create("c" + i, route);
+            capture.output(new byte[] {'a'}, 0, 1);
+            capture.close();
+        }
+        factory2.close();
+        Assert.assertFalse(earlier.exists());
+        Assert.assertTrue(factory2.getFile("c0").exists());
+        Assert.assertTrue(factory2.getFile("c1").exists());
+        Assert.assertEquals(2, dir.listFiles().length);
+    }
+
+}
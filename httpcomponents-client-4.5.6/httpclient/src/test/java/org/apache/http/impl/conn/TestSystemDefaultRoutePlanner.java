@@ -33,7 +33,9 @@ import java.net.Proxy;
 import java.net.ProxySelector;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
@@ -121,4 +123,34 @@ public class TestSystemDefaultRoutePlanner {
         Assert.assertEquals(isa1.getPort(), route.getProxyHost().getPort());
     }
 
+    @Test
+    public void testProxyDecisionCaching() throws Exception {
+        final InetSocketAddress isa = new InetSocketAddress(InetAddress.getByAddress(new byte[] {
+            (byte)127, (byte)0, (byte)0, (byte)1
+        }), 11111);
+        final URI uri = new URI("http://somehost:80");
+        Mockito.when(proxySelector.select(uri)).thenReturn(
+                Collections.singletonList(new Proxy(Proxy.Type.HTTP, isa)));
+
+        final HttpHost target = new HttpHost("somehost", 80, "http");
+        final HttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        final HttpContext context = new BasicHttpContext();
+
+        final HttpRoute route1 = routePlanner.determineRoute(target, request, context);
+        final HttpRoute route2 = routePlanner.determineRoute(target, request, context);
+        Assert.assertEquals(route1, route2);
+        Assert.assertEquals(isa.getPort(), route2.getProxyHost().getPort());
+        Mockito.verify(proxySelector, Mockito.times(1)).select(uri);
+
+        routePlanner.clearCache();
+        routePlanner.determineRoute(target, request, context);
+        Mockito.verify(proxySelector, Mockito.times(2)).select(uri);
+
+        final SystemDefaultRoutePlanner uncachedRoutePlanner = new SystemDefaultRoutePlanner(
+                schemePortResolver, proxySelector, 0, TimeUnit.MILLISECONDS);
+        uncachedRoutePlanner.determineRoute(target, request, context);
+        uncachedRoutePlanner.determineRoute(target, request, context);
+        Mockito.verify(proxySelector, Mockito.times(4)).select(uri);
+    }
+
 }
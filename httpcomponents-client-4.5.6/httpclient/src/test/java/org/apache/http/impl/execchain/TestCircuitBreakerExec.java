@@ -0,0 +1,280 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCircuitBreakerExec {
+
+    static class StubExec implements ClientExecChain {
+
+        volatile int status = HttpStatus.SC_OK;
+        volatile IOException failure;
+        volatile Error error;
+        volatile long delay;
+        int count;
+
+        @Override
+        public CloseableHttpResponse execute(
+                final HttpRoute route,
+                final HttpRequestWrapper request,
+                final HttpClientContext context,
+                final HttpExecutionAware execAware) throws IOException, HttpException {
+            this.count++;
+            if (this.delay > 0) {
+                try {
+                    Thread.sleep(this.delay);
+                } catch (final InterruptedException ex) {
+                    throw new RequestAbortedException("Aborted", ex);
+                }
+            }
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            if (this.error != null) {
+                throw this.error;
+            }
+            return new HttpResponseProxy(new BasicHttpResponse(HttpVersion.HTTP_1_1, this.status, "Whatever"), null);
+        }
+
+    }
+
+    static class RecordingListener implements CircuitBreakerListener {
+
+        final List<String> transitions = new ArrayList<String>();
+        int notPermitted;
+
+        @Override
+        public void onStateTransition(
+                final HttpRoute route,
+                final CircuitBreakerState from,
+                final CircuitBreakerState to,
+                final CircuitBreakerMetrics metrics) {
+            this.transitions.add(from + "->" + to);
+        }
+
+        @Override
+        public void onCallNotPermitted(final HttpRoute route) {
+            this.notPermitted++;
+        }
+
+    }
+
+    private HttpRoute route;
+    private HttpClientContext context;
+    private StubExec stub;
+    private RecordingListener listener;
+
+    @Before
+    public void setup() throws Exception {
+        this.route = new HttpRoute(new HttpHost("somehost", 80));
+        this.context = HttpClientContext.create();
+        this.stub = new StubExec();
+        this.listener = new RecordingListener();
+    }
+
+    private void execute(final CircuitBreakerExec exec) throws Exception {
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        exec.execute(this.route, request, this.context, null).close();
+    }
+
+    private void executeIgnoringFailure(final CircuitBreakerExec exec) throws Exception {
+        try {
+            execute(exec);
+        } catch (final ConnectException ignore) {
+        }
+    }
+
+    @Test
+    public void testOpensOnFailureRate() throws Exception {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .setSlidingWindowSize(10)
+                .setMinimumNumberOfCalls(4)
+                .setFailureRateThreshold(50)
+                .setWaitDurationInOpenState(60000)
+                .build(), this.listener);
+        final CircuitBreakerExec exec = new CircuitBreakerExec(this.stub, registry);
+
+        execute(exec);
+        execute(exec);
+        this.stub.failure = new ConnectException("Connection refused");
+        executeIgnoringFailure(exec);
+        Assert.assertEquals(CircuitBreakerState.CLOSED, registry.getState(this.route));
+        executeIgnoringFailure(exec);
+        Assert.assertEquals(CircuitBreakerState.OPEN, registry.getState(this.route));
+        Assert.assertEquals(4, this.stub.count);
+
+        try {
+            execute(exec);
+            Assert.fail("CircuitBreakerOpenException expected");
+        } catch (final CircuitBreakerOpenException expected) {
+        }
+        Assert.assertEquals(4, this.stub.count);
+        Assert.assertEquals(1, this.listener.notPermitted);
+        Assert.assertEquals("[CLOSED->OPEN]", this.listener.transitions.toString());
+        final CircuitBreakerMetrics metrics = registry.getMetrics(this.route);
+        Assert.assertEquals(4, metrics.getBufferedCalls());
+        Assert.assertEquals(2, metrics.getFailedCalls());
+        Assert.assertEquals(50f, metrics.getFailureRate(), 0.01f);
+        Assert.assertEquals(1, metrics.getNotPermittedCalls());
+    }
+
+    @Test
+    public void testServerErrorsAndSlowCallsCounted() throws Exception {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .setSlidingWindowSize(4)
+                .setMinimumNumberOfCalls(4)
+                .setFailureRateThreshold(100)
+                .setSlowCallRateThreshold(50)
+                .setSlowCallDuration(20)
+                .build(), this.listener);
+        final CircuitBreakerExec exec = new CircuitBreakerExec(this.stub, registry);
+
+        this.stub.status = HttpStatus.SC_SERVICE_UNAVAILABLE;
+        execute(exec);
+        this.stub.status = HttpStatus.SC_OK;
+        execute(exec);
+        execute(exec);
+        this.stub.delay = 50;
+        execute(exec);
+        Assert.assertEquals(CircuitBreakerState.CLOSED, registry.getState(this.route));
+        final CircuitBreakerMetrics metrics = registry.getMetrics(this.route);
+        Assert.assertEquals(1, metrics.getFailedCalls());
+        Assert.assertEquals(1, metrics.getSlowCalls());
+        execute(exec);
+        Assert.assertEquals(CircuitBreakerState.OPEN, registry.getState(this.route));
+    }
+
+    @Test
+    public void testHalfOpenRecovery() throws Exception {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .setSlidingWindowSize(2)
+                .setMinimumNumberOfCalls(2)
+                .setWaitDurationInOpenState(0)
+                .setPermittedCallsInHalfOpenState(2)
+                .build(), this.listener);
+        final CircuitBreakerExec exec = new CircuitBreakerExec(this.stub, registry);
+
+        this.stub.failure = new ConnectException("Connection refused");
+        executeIgnoringFailure(exec);
+        executeIgnoringFailure(exec);
+        Assert.assertEquals(CircuitBreakerState.OPEN, registry.getState(this.route));
+
+        // Probe calls fail; circuit opens again
+        executeIgnoringFailure(exec);
+        Assert.assertEquals(CircuitBreakerState.HALF_OPEN, registry.getState(this.route));
+        executeIgnoringFailure(exec);
+        Assert.assertEquals(CircuitBreakerState.OPEN, registry.getState(this.route));
+
+        // Probe calls succeed; circuit closes
+        this.stub.failure = null;
+        execute(exec);
+        execute(exec);
+        Assert.assertEquals(CircuitBreakerState.CLOSED, registry.getState(this.route));
+        Assert.assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]",
+                this.listener.transitions.toString());
+    }
+
+    @Test
+    public void testHalfOpenPermitsLimited() throws Exception {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .setSlidingWindowSize(1)
+                .setMinimumNumberOfCalls(1)
+                .setWaitDurationInOpenState(0)
+                .setPermittedCallsInHalfOpenState(1)
+                .build(), this.listener);
+        this.stub.failure = new ConnectException("Connection refused");
+        executeIgnoringFailure(new CircuitBreakerExec(this.stub, registry));
+        Assert.assertEquals(CircuitBreakerState.OPEN, registry.getState(this.route));
+
+        final long permit = registry.acquirePermission(this.route);
+        Assert.assertTrue(permit >= 0);
+        Assert.assertEquals(CircuitBreakerState.HALF_OPEN, registry.getState(this.route));
+        Assert.assertEquals(-1, registry.acquirePermission(this.route));
+        registry.onIgnored(this.route, permit);
+        Assert.assertTrue(registry.acquirePermission(this.route) >= 0);
+    }
+
+    @Test
+    public void testPermitReleasedOnError() throws Exception {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .setSlidingWindowSize(1)
+                .setMinimumNumberOfCalls(1)
+                .setWaitDurationInOpenState(0)
+                .setPermittedCallsInHalfOpenState(1)
+                .build(), this.listener);
+        final CircuitBreakerExec exec = new CircuitBreakerExec(this.stub, registry);
+        this.stub.failure = new ConnectException("Connection refused");
+        executeIgnoringFailure(exec);
+        Assert.assertEquals(CircuitBreakerState.OPEN, registry.getState(this.route));
+
+        this.stub.failure = null;
+        final Error error = new Error("Oppsie");
+        this.stub.error = error;
+        try {
+            execute(exec);
+            Assert.fail("Error expected");
+        } catch (final Error expected) {
+            Assert.assertSame(error, expected);
+        }
+        Assert.assertEquals(CircuitBreakerState.HALF_OPEN, registry.getState(this.route));
+        Assert.assertTrue(registry.acquirePermission(this.route) >= 0);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(CircuitBreakerConfig.custom()
+                .setSlidingWindowSize(1)
+                .setMinimumNumberOfCalls(1)
+                .build());
+        final CircuitBreakerExec exec = new CircuitBreakerExec(this.stub, registry);
+        this.stub.failure = new ConnectException("Connection refused");
+        executeIgnoringFailure(exec);
+        Assert.assertEquals(CircuitBreakerState.OPEN, registry.getState(this.route));
+        registry.reset(this.route);
+        Assert.assertEquals(CircuitBreakerState.CLOSED, registry.getState(this.route));
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCoalescingExec {
+
+    /**
+     * Blocks until released and responds with the given content.
+     */
+    static class BlockingExec implements ClientExecChain {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger(0);
+        volatile String content = "stuff";
+        volatile IOException failure;
+
+        @Override
+        public CloseableHttpResponse execute(
+                final HttpRoute route,
+                final HttpRequestWrapper request,
+                final HttpClientContext context,
+                final HttpExecutionAware execAware) throws IOException, HttpException {
+            final int n = this.count.incrementAndGet();
+            try {
+                this.release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException ex) {
+                throw new RequestAbortedException("Aborted", ex);
+            }
+            if (n == 1 && this.failure != null) {
+                throw this.failure;
+            }
+            final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            response.setHeader("Response", Integer.toString(n));
+            final byte[] b = this.content.getBytes("US-ASCII");
+            response.setEntity(new InputStreamEntity(new ByteArrayInputStream(b), -1));
+            return new HttpResponseProxy(response, null);
+        }
+
+    }
+
+    private HttpRoute route;
+    private ExecutorService executorService;
+
+    @Before
+    public void setup() throws Exception {
+        this.route = new HttpRoute(new HttpHost("somehost", 80));
+        this.executorService = Executors.newFixedThreadPool(5);
+    }
+
+    @After
+    public void shutDown() throws Exception {
+        this.executorService.shutdownNow();
+    }
+
+    private List<Future<String>> submit(final CoalescingExec exec, final HttpRequestWrapper... requests) {
+        final List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (final HttpRequestWrapper request : requests) {
+            futures.add(this.executorService.submit(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    final CloseableHttpResponse response = exec.execute(
+                            route, request, HttpClientContext.create(), null);
+                    try {
+                        return response.getFirstHeader("Response").getValue() + ":" +
+                                EntityUtils.toString(response.getEntity());
+                    } finally {
+                        response.close();
+                    }
+                }
+
+            }));
+        }
+        return futures;
+    }
+
+    private static void awaitCount(final AtomicInteger count, final int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && count.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testIdenticalRequestsCoalesced() throws Exception {
+        final BlockingExec chain = new BlockingExec();
+        final CoalescingExec exec = new CoalescingExec(chain, 1024);
+        final List<Future<String>> futures = submit(exec,
+                HttpRequestWrapper.wrap(new HttpGet("/test")),
+                HttpRequestWrapper.wrap(new HttpGet("/test")),
+                HttpRequestWrapper.wrap(new HttpGet("/test")));
+        awaitCount(chain.count, 1);
+        Thread.sleep(100);
+        chain.release.countDown();
+        for (final Future<String> future : futures) {
+            Assert.assertEquals("1:stuff", future.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, chain.count.get());
+        Assert.assertEquals(0, exec.getInFlight());
+    }
+
+    @Test
+    public void testResponseStreamedWithoutFollowers() throws Exception {
+        final BlockingExec chain = new BlockingExec();
+        chain.release.countDown();
+        final CoalescingExec exec = new CoalescingExec(chain, 1024);
+        final CloseableHttpResponse response = exec.execute(
+                route, HttpRequestWrapper.wrap(new HttpGet("/test")), HttpClientContext.create(), null);
+        Assert.assertTrue(response.getEntity() instanceof InputStreamEntity);
+        Assert.assertEquals("stuff", EntityUtils.toString(response.getEntity()));
+        Assert.assertEquals(0, exec.getInFlight());
+    }
+
+    @Test
+    public void testFollowerContext() throws Exception {
+        final BlockingExec chain = new BlockingExec();
+        final CoalescingExec exec = new CoalescingExec(chain, 1024);
+        final HttpClientContext followerContext = HttpClientContext.create();
+        followerContext.setAttribute(HttpCoreContext.HTTP_CONNECTION, new Object());
+        final Future<CloseableHttpResponse> leader = this.executorService.submit(new Callable<CloseableHttpResponse>() {
+
+            @Override
+            public CloseableHttpResponse call() throws Exception {
+                return exec.execute(route, HttpRequestWrapper.wrap(new HttpGet("/test")),
+                        HttpClientContext.create(), null);
+            }
+
+        });
+        awaitCount(chain.count, 1);
+        final Future<CloseableHttpResponse> follower = this.executorService.submit(new Callable<CloseableHttpResponse>() {
+
+            @Override
+            public CloseableHttpResponse call() throws Exception {
+                return exec.execute(route, HttpRequestWrapper.wrap(new HttpGet("/test")),
+                        followerContext, null);
+            }
+
+        });
+        Thread.sleep(100);
+        chain.release.countDown();
+        Assert.assertEquals("stuff", EntityUtils.toString(leader.get(5, TimeUnit.SECONDS).getEntity()));
+        final CloseableHttpResponse response = follower.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("stuff", EntityUtils.toString(response.getEntity()));
+        Assert.assertEquals(1, chain.count.get());
+        Assert.assertSame(response, followerContext.getResponse());
+        Assert.assertNull(followerContext.getAttribute(HttpCoreContext.HTTP_CONNECTION));
+        Assert.assertFalse(followerContext.isRequestSent());
+    }
+
+    @Test
+    public void testDifferentRequestsNotCoalesced() throws Exception {
+        final BlockingExec chain = new BlockingExec();
+        final CoalescingExec exec = new CoalescingExec(chain, 1024);
+        final HttpGet get1 = new HttpGet("/test");
+        get1.setHeader("Accept", "text/plain");
+        final HttpGet get2 = new HttpGet("/test");
+        get2.setHeader("Accept", "application/json");
+        final HttpGet get3 = new HttpGet("/test");
+        get3.setHeader("X-Whatever", "ignored");
+        final List<Future<String>> futures = submit(exec,
+                HttpRequestWrapper.wrap(get1),
+                HttpRequestWrapper.wrap(get2),
+                HttpRequestWrapper.wrap(new HttpGet("/other")));
+        awaitCount(chain.count, 3);
+        chain.release.countDown();
+        for (final Future<String> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(3, chain.count.get());
+    }
+
+    @Test
+    public void testNonIdempotentRequestNotCoalesced() throws Exception {
+        final BlockingExec chain = new BlockingExec();
+        chain.release.countDown();
+        final CoalescingExec exec = new CoalescingExec(chain, 1024);
+        final CloseableHttpResponse response = exec.execute(
+                route, HttpRequestWrapper.wrap(new HttpPost("/test")), HttpClientContext.create(), null);
+        Assert.assertEquals("stuff", EntityUtils.toString(response.getEntity()));
+        Assert.assertEquals(0, exec.getInFlight());
+    }
+
+    @Test
+    public void testLargeResponseNotShared() throws Exception {
+        final BlockingExec chain = new BlockingExec();
+        chain.content = "0123456789";
+        final CoalescingExec exec = new CoalescingExec(chain, 4);
+        final List<Future<String>> futures = submit(exec,
+                HttpRequestWrapper.wrap(new HttpGet("/test")),
+                HttpRequestWrapper.wrap(new HttpGet("/test")));
+        awaitCount(chain.count, 1);
+        Thread.sleep(100);
+        chain.release.countDown();
+        final List<String> results = new ArrayList<String>();
+        for (final Future<String> future : futures) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(2, chain.count.get());
+        Assert.assertTrue(results.contains("1:0123456789"));
+        Assert.assertTrue(results.contains("2:0123456789"));
+    }
+
+    @Test
+    public void testLeaderFailure() throws Exception {
+        final BlockingExec chain = new BlockingExec();
+        chain.failure = new IOException("Oopsie");
+        final CoalescingExec exec = new CoalescingExec(chain, 1024);
+        final List<Future<String>> futures = submit(exec,
+                HttpRequestWrapper.wrap(new HttpGet("/test")),
+                HttpRequestWrapper.wrap(new HttpGet("/test")));
+        awaitCount(chain.count, 1);
+        Thread.sleep(100);
+        chain.release.countDown();
+        int failed = 0;
+        for (final Future<String> future : futures) {
+            try {
+                Assert.assertEquals("2:stuff", future.get(5, TimeUnit.SECONDS));
+            } catch (final ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof IOException);
+                failed++;
+            }
+        }
+        Assert.assertEquals(1, failed);
+        Assert.assertEquals(2, chain.count.get());
+    }
+
+}
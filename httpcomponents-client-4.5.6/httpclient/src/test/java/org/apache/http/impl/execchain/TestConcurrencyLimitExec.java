@@ -0,0 +1,185 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ConcurrencyLimiter;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestConcurrencyLimitExec {
+
+    static class RecordingLimiter implements ConcurrencyLimiter {
+
+        boolean permit = true;
+        int acquired;
+        long rtt;
+        boolean dropped;
+
+        @Override
+        public boolean acquire(final HttpRoute route, final long timeout, final TimeUnit tunit) {
+            if (this.permit) {
+                this.acquired++;
+            }
+            return this.permit;
+        }
+
+        @Override
+        public void release(final HttpRoute route, final long rtt, final boolean dropped) {
+            this.acquired--;
+            this.rtt = rtt;
+            this.dropped = dropped;
+        }
+
+    }
+
+    private HttpRoute route;
+    private HttpClientContext context;
+    private RecordingLimiter limiter;
+
+    @Before
+    public void setup() throws Exception {
+        this.route = new HttpRoute(new HttpHost("somehost", 80));
+        this.context = HttpClientContext.create();
+        this.context.setRequestConfig(RequestConfig.custom().setConnectionRequestTimeout(100).build());
+        this.limiter = new RecordingLimiter();
+    }
+
+    @Test
+    public void testRoundTripTimeRecorded() throws Exception {
+        final ConcurrencyLimitExec exec = new ConcurrencyLimitExec(new ClientExecChain() {
+
+            @Override
+            public CloseableHttpResponse execute(
+                    final HttpRoute route,
+                    final HttpRequestWrapper request,
+                    final HttpClientContext context,
+                    final HttpExecutionAware execAware) throws IOException, HttpException {
+                Assert.assertEquals(1, limiter.acquired);
+                return new HttpResponseProxy(new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK"), null);
+            }
+
+        }, this.limiter);
+        exec.execute(this.route, HttpRequestWrapper.wrap(new HttpGet("/")), this.context, null);
+        Assert.assertEquals(0, this.limiter.acquired);
+        Assert.assertTrue(this.limiter.rtt >= 0);
+        Assert.assertFalse(this.limiter.dropped);
+    }
+
+    @Test
+    public void testPermitHeldUntilResponseReleased() throws Exception {
+        final ConnectionHolder connHolder = new ConnectionHolder(
+                Mockito.mock(Log.class),
+                Mockito.mock(HttpClientConnectionManager.class),
+                Mockito.mock(HttpClientConnection.class));
+        final ConcurrencyLimitExec exec = new ConcurrencyLimitExec(new ClientExecChain() {
+
+            @Override
+            public CloseableHttpResponse execute(
+                    final HttpRoute route,
+                    final HttpRequestWrapper request,
+                    final HttpClientContext context,
+                    final HttpExecutionAware execAware) throws IOException, HttpException {
+                return new HttpResponseProxy(
+                        new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK"), connHolder);
+            }
+
+        }, this.limiter);
+        final CloseableHttpResponse response = exec.execute(
+                this.route, HttpRequestWrapper.wrap(new HttpGet("/")), this.context, null);
+        Assert.assertEquals(1, this.limiter.acquired);
+        response.close();
+        Assert.assertEquals(0, this.limiter.acquired);
+        Assert.assertTrue(this.limiter.rtt >= 0);
+        response.close();
+        Assert.assertEquals(0, this.limiter.acquired);
+    }
+
+    @Test
+    public void testTimeoutRecordedAsDrop() throws Exception {
+        final ConcurrencyLimitExec exec = new ConcurrencyLimitExec(new ClientExecChain() {
+
+            @Override
+            public CloseableHttpResponse execute(
+                    final HttpRoute route,
+                    final HttpRequestWrapper request,
+                    final HttpClientContext context,
+                    final HttpExecutionAware execAware) throws IOException, HttpException {
+                throw new SocketTimeoutException("Read timed out");
+            }
+
+        }, this.limiter);
+        try {
+            exec.execute(this.route, HttpRequestWrapper.wrap(new HttpGet("/")), this.context, null);
+            Assert.fail("SocketTimeoutException expected");
+        } catch (final SocketTimeoutException expected) {
+        }
+        Assert.assertEquals(0, this.limiter.acquired);
+        Assert.assertEquals(-1, this.limiter.rtt);
+        Assert.assertTrue(this.limiter.dropped);
+    }
+
+    @Test(expected=ConnectionPoolTimeoutException.class)
+    public void testPermitTimeout() throws Exception {
+        this.limiter.permit = false;
+        final ConcurrencyLimitExec exec = new ConcurrencyLimitExec(new ClientExecChain() {
+
+            @Override
+            public CloseableHttpResponse execute(
+                    final HttpRoute route,
+                    final HttpRequestWrapper request,
+                    final HttpClientContext context,
+                    final HttpExecutionAware execAware) throws IOException, HttpException {
+                throw new IllegalStateException();
+            }
+
+        }, this.limiter);
+        exec.execute(this.route, HttpRequestWrapper.wrap(new HttpGet("/")), this.context, null);
+    }
+
+}
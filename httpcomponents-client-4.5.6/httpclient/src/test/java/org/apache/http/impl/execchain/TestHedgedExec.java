@@ -0,0 +1,307 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.execchain;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ExecutionEvent;
+import org.apache.http.client.ExecutionEventListener;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.Cancellable;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.LatencyHistogram;
+import org.apache.http.impl.client.RouteLatencyRecorder;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings({"boxing","static-access"}) // test code
+public class TestHedgedExec {
+
+    /**
+     * Delays the first request by the given amount of time and
+     * responds immediately to subsequent requests.
+     */
+    static class SlowFirstExec implements ClientExecChain {
+
+        private final long delay;
+        private final AtomicInteger count = new AtomicInteger(0);
+        private final List<HttpExecutionAware> execAwares = new CopyOnWriteArrayList<HttpExecutionAware>();
+        private final CountDownLatch cancelled = new CountDownLatch(1);
+
+        SlowFirstExec(final long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        public CloseableHttpResponse execute(
+                final HttpRoute route,
+                final HttpRequestWrapper request,
+                final HttpClientContext context,
+                final HttpExecutionAware execAware) throws IOException, HttpException {
+            final int n = this.count.incrementAndGet();
+            this.execAwares.add(execAware);
+            final CountDownLatch latch = new CountDownLatch(1);
+            execAware.setCancellable(new Cancellable() {
+
+                @Override
+                public boolean cancel() {
+                    latch.countDown();
+                    cancelled.countDown();
+                    return true;
+                }
+
+            });
+            if (context.getCookieStore() != null) {
+                context.getCookieStore().addCookie(new BasicClientCookie("seen" + n, "true"));
+            }
+            if (n == 1) {
+                try {
+                    if (latch.await(this.delay, TimeUnit.MILLISECONDS)) {
+                        throw new RequestAbortedException("Request aborted");
+                    }
+                } catch (final InterruptedException ex) {
+                    throw new RequestAbortedException("Request aborted", ex);
+                }
+            }
+            context.setAttribute("attempt", n);
+            if (context.getCookieStore() != null) {
+                context.getCookieStore().addCookie(new BasicClientCookie("attempt", Integer.toString(n)));
+            }
+            final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            response.setHeader("Attempt", Integer.toString(n));
+            return new HttpResponseProxy(response, null);
+        }
+
+    }
+
+    private HttpRoute route;
+    private HttpClientContext context;
+
+    @Before
+    public void setup() throws Exception {
+        this.route = new HttpRoute(new HttpHost("somehost", 80));
+        this.context = HttpClientContext.create();
+    }
+
+    @Test
+    public void testFastResponseNotHedged() throws Exception {
+        final SlowFirstExec chain = new SlowFirstExec(0);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 1, TimeUnit.SECONDS, 100);
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        final CloseableHttpResponse response = hedgedExec.execute(route, request, context, null);
+        Assert.assertEquals("1", response.getFirstHeader("Attempt").getValue());
+        Assert.assertEquals(1, chain.count.get());
+        Assert.assertEquals(1, context.getAttribute("attempt"));
+    }
+
+    @Test
+    public void testSlowResponseHedged() throws Exception {
+        final SlowFirstExec chain = new SlowFirstExec(5000);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 50, TimeUnit.MILLISECONDS, 100);
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        final CloseableHttpResponse response = hedgedExec.execute(route, request, context, null);
+        Assert.assertEquals("2", response.getFirstHeader("Attempt").getValue());
+        Assert.assertEquals(2, chain.count.get());
+        Assert.assertEquals(2, context.getAttribute("attempt"));
+        Assert.assertTrue(chain.cancelled.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(chain.execAwares.get(0).isAborted());
+        Assert.assertFalse(chain.execAwares.get(1).isAborted());
+    }
+
+    @Test
+    public void testNonIdempotentRequestNotHedged() throws Exception {
+        final SlowFirstExec chain = new SlowFirstExec(200);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 10, TimeUnit.MILLISECONDS, 100);
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpPost("/test"));
+        final HttpExecutionAware execAware = new HttpGet("/test");
+        final CloseableHttpResponse response = hedgedExec.execute(route, request, context, execAware);
+        Assert.assertEquals("1", response.getFirstHeader("Attempt").getValue());
+        Assert.assertEquals(1, chain.count.get());
+    }
+
+    @Test
+    public void testHedgeBudget() throws Exception {
+        final SlowFirstExec chain = new SlowFirstExec(200);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 10, TimeUnit.MILLISECONDS, 10);
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        final CloseableHttpResponse response = hedgedExec.execute(route, request, context, null);
+        Assert.assertEquals("1", response.getFirstHeader("Attempt").getValue());
+        Assert.assertEquals(1, chain.count.get());
+        for (int i = 0; i < 9; i++) {
+            Assert.assertFalse(hedgedExec.acquireHedge());
+            hedgedExec.execute(route, request, context, null);
+        }
+        Assert.assertTrue(hedgedExec.acquireHedge());
+    }
+
+    @Test
+    public void testAbortCancelsAttempts() throws Exception {
+        final SlowFirstExec chain = new SlowFirstExec(5000);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 1, TimeUnit.SECONDS, 100);
+        final HttpGet original = new HttpGet("/test");
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(original);
+        final Thread t = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (final InterruptedException ignore) {
+                }
+                original.abort();
+            }
+
+        };
+        t.start();
+        try {
+            hedgedExec.execute(route, request, context, original);
+            Assert.fail("RequestAbortedException expected");
+        } catch (final RequestAbortedException expected) {
+        }
+        Assert.assertEquals(1, chain.count.get());
+        Assert.assertTrue(chain.execAwares.get(0).isAborted());
+    }
+
+    @Test
+    public void testObservedLatencyPercentile() throws Exception {
+        final SlowFirstExec chain = new SlowFirstExec(0);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 5, TimeUnit.SECONDS, 50, 10, null);
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(5), hedgedExec.getHedgeDelay());
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        for (int i = 0; i < 64; i++) {
+            hedgedExec.execute(route, request, context, null);
+        }
+        final long delay = hedgedExec.getHedgeDelay();
+        Assert.assertTrue(delay > 0);
+        Assert.assertTrue(delay < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testCookiesOfLosingAttemptDiscarded() throws Exception {
+        final BasicCookieStore cookieStore = new BasicCookieStore();
+        cookieStore.addCookie(new BasicClientCookie("existing", "true"));
+        context.setCookieStore(cookieStore);
+        final SlowFirstExec chain = new SlowFirstExec(5000);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 50, TimeUnit.MILLISECONDS, 100);
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        final CloseableHttpResponse response = hedgedExec.execute(route, request, context, null);
+        Assert.assertEquals("2", response.getFirstHeader("Attempt").getValue());
+        Assert.assertSame(cookieStore, context.getCookieStore());
+        final List<Cookie> cookies = cookieStore.getCookies();
+        Assert.assertEquals(3, cookies.size());
+        Assert.assertEquals("attempt", cookies.get(0).getName());
+        Assert.assertEquals("2", cookies.get(0).getValue());
+        Assert.assertEquals("existing", cookies.get(1).getName());
+        Assert.assertEquals("seen2", cookies.get(2).getName());
+    }
+
+    @Test
+    public void testNotHedgedAfterClose() throws Exception {
+        final SlowFirstExec chain = new SlowFirstExec(200);
+        final HedgedExec hedgedExec = new HedgedExec(chain, 10, TimeUnit.MILLISECONDS, 100);
+        hedgedExec.close();
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        final CloseableHttpResponse response = hedgedExec.execute(route, request, context, null);
+        Assert.assertEquals("1", response.getFirstHeader("Attempt").getValue());
+        Assert.assertEquals(1, chain.count.get());
+    }
+
+    @Test
+    public void testEventTimestampsNotSharedBetweenAttempts() throws Exception {
+        final RouteLatencyRecorder recorder = new RouteLatencyRecorder();
+        context.setExecutionListener(recorder);
+        recorder.onEvent(ExecutionEvent.REQUEST_STARTED, route, context, 0);
+        final AtomicInteger count = new AtomicInteger(0);
+        final ClientExecChain chain = new ClientExecChain() {
+
+            @Override
+            public CloseableHttpResponse execute(
+                    final HttpRoute route,
+                    final HttpRequestWrapper request,
+                    final HttpClientContext context,
+                    final HttpExecutionAware execAware) throws IOException, HttpException {
+                final ExecutionEventListener listener = context.getExecutionListener();
+                if (count.incrementAndGet() == 1) {
+                    // The primary attempt waits for a connection until aborted
+                    final CountDownLatch latch = new CountDownLatch(1);
+                    execAware.setCancellable(new Cancellable() {
+
+                        @Override
+                        public boolean cancel() {
+                            latch.countDown();
+                            return true;
+                        }
+
+                    });
+                    listener.onEvent(ExecutionEvent.CONNECTION_LEASE_STARTED, route, context, 1000);
+                    try {
+                        latch.await(5, TimeUnit.SECONDS);
+                    } catch (final InterruptedException ex) {
+                        throw new RequestAbortedException("Request aborted", ex);
+                    }
+                    throw new RequestAbortedException("Request aborted");
+                }
+                listener.onEvent(ExecutionEvent.CONNECT_STARTED, route, context, 2000);
+                listener.onEvent(ExecutionEvent.CONNECTED, route, context, 2050);
+                return new HttpResponseProxy(
+                        new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK"), null);
+            }
+
+        };
+        final HedgedExec hedgedExec = new HedgedExec(chain, 50, TimeUnit.MILLISECONDS, 100);
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        hedgedExec.execute(route, request, context, null);
+        Assert.assertEquals(2, count.get());
+
+        final LatencyHistogram connect = recorder.getHistogram(route, RouteLatencyRecorder.Phase.CONNECT);
+        Assert.assertEquals(1, connect.getCount());
+        Assert.assertEquals(50, connect.getMax());
+        // The lease started by the losing attempt must not be paired with later events
+        recorder.onEvent(ExecutionEvent.CONNECTION_LEASED, route, context, 3000);
+        Assert.assertEquals(0, recorder.getHistogram(route, RouteLatencyRecorder.Phase.LEASE).getCount());
+    }
+
+}
@@ -29,15 +29,24 @@ package org.apache.http.impl.execchain;
 import org.apache.http.Header;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.NonRepeatableRequestException;
+import org.apache.http.client.RetryBudget;
 import org.apache.http.client.entity.EntityBuilder;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpExecutionAware;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestWrapper;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.DefaultServiceUnavailableRetryStrategy;
+import org.apache.http.impl.client.TokenBucketRetryBudget;
+import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.protocol.HttpContext;
 import org.junit.Assert;
 import org.junit.Before;
@@ -51,6 +60,7 @@ import org.mockito.stubbing.Answer;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings({"boxing","static-access"}) // test code
 public class TestRetryExec {
@@ -189,4 +199,80 @@ public class TestRetryExec {
         }
     }
 
+    @Test
+    public void testNonRepeatableRequestKeepsRetryBudget() throws Exception {
+        final TokenBucketRetryBudget retryBudget = new TokenBucketRetryBudget(0.1, 1);
+        final ClientExecChain failing = new ClientExecChain() {
+
+            @Override
+            public CloseableHttpResponse execute(
+                    final HttpRoute route,
+                    final HttpRequestWrapper request,
+                    final HttpClientContext context,
+                    final HttpExecutionAware execAware) throws IOException {
+                ((HttpEntityEnclosingRequest) request).getEntity().writeTo(new ByteArrayOutputStream());
+                throw new IOException("Ka-boom");
+            }
+
+        };
+        final HttpRequestRetryHandler alwaysRetry = new HttpRequestRetryHandler() {
+
+            @Override
+            public boolean retryRequest(final IOException exception, final int executionCount, final HttpContext context) {
+                return true;
+            }
+
+        };
+        final RetryExec exec = new RetryExec(failing, alwaysRetry, null, retryBudget);
+        final HttpPost post = new HttpPost("/test");
+        post.setEntity(EntityBuilder.create()
+                .setStream(new ByteArrayInputStream(new byte[]{}))
+                .build());
+        try {
+            exec.execute(new HttpRoute(target), HttpRequestWrapper.wrap(post), HttpClientContext.create(), null);
+            Assert.fail("NonRepeatableRequestException expected");
+        } catch (final NonRepeatableRequestException expected) {
+        }
+        Assert.assertEquals(1, retryBudget.getAvailableRetries());
+    }
+
+    @Test
+    public void testRetryBudgetDepositedOncePerExecution() throws Exception {
+        final AtomicInteger deposits = new AtomicInteger();
+        final RetryBudget retryBudget = new RetryBudget() {
+
+            @Override
+            public void deposit() {
+                deposits.incrementAndGet();
+            }
+
+            @Override
+            public boolean tryWithdraw() {
+                return true;
+            }
+
+        };
+        final ClientExecChain ok = new ClientExecChain() {
+
+            @Override
+            public CloseableHttpResponse execute(
+                    final HttpRoute route,
+                    final HttpRequestWrapper request,
+                    final HttpClientContext context,
+                    final HttpExecutionAware execAware) {
+                final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+                return new HttpResponseProxy(response, null);
+            }
+
+        };
+        final ClientExecChain exec = new ServiceUnavailableRetryExec(
+                new RetryExec(ok, new DefaultHttpRequestRetryHandler(), null, retryBudget),
+                new DefaultServiceUnavailableRetryStrategy(), null, retryBudget);
+        final HttpClientContext context = HttpClientContext.create();
+        for (int i = 0; i < 3; i++) {
+            exec.execute(new HttpRoute(target), HttpRequestWrapper.wrap(new HttpGet("/test")), context, null);
+        }
+        Assert.assertEquals(3, deposits.get());
+    }
+
 }
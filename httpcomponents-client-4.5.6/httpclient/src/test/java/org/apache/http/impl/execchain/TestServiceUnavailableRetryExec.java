@@ -29,6 +29,10 @@ package org.apache.http.impl.execchain;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.RetryBackoffStrategy;
+import org.apache.http.client.RetryBudget;
 import org.apache.http.client.ServiceUnavailableRetryStrategy;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpExecutionAware;
@@ -37,6 +41,7 @@ import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestWrapper;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.message.BasicStatusLine;
 import org.apache.http.protocol.HttpContext;
 import org.junit.Before;
 import org.junit.Test;
@@ -147,4 +152,46 @@ public class TestServiceUnavailableRetryExec {
 
         Mockito.verify(response, Mockito.times(0)).close();
     }
+
+    @Test
+    public void testBackoffStrategyAndRetryBudget() throws Exception {
+        final RetryBackoffStrategy backoffStrategy = Mockito.mock(RetryBackoffStrategy.class);
+        final RetryBudget retryBudget = Mockito.mock(RetryBudget.class);
+        retryExec = new ServiceUnavailableRetryExec(requestExecutor, retryStrategy, backoffStrategy, retryBudget);
+
+        final HttpRoute route = new HttpRoute(target);
+        final HttpRequestWrapper request = HttpRequestWrapper.wrap(new HttpGet("/test"));
+        final HttpClientContext context = HttpClientContext.create();
+        final CloseableHttpResponse response = Mockito.mock(CloseableHttpResponse.class);
+        Mockito.when(response.getStatusLine()).thenReturn(
+                new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_SERVICE_UNAVAILABLE, "Unavailable"));
+
+        Mockito.when(requestExecutor.execute(
+                Mockito.eq(route),
+                Mockito.<HttpRequestWrapper>any(),
+                Mockito.<HttpClientContext>any(),
+                Mockito.<HttpExecutionAware>any())).thenReturn(response);
+        Mockito.when(retryStrategy.retryRequest(
+                Mockito.<HttpResponse>any(),
+                Mockito.anyInt(),
+                Mockito.<HttpContext>any())).thenReturn(Boolean.TRUE);
+        Mockito.when(backoffStrategy.getRetryInterval(
+                Mockito.<HttpResponse>any(),
+                Mockito.anyInt(),
+                Mockito.<HttpContext>any())).thenReturn(0L);
+        Mockito.when(retryBudget.tryWithdraw()).thenReturn(Boolean.TRUE, Boolean.FALSE);
+
+        retryExec.execute(route, request, context, execAware);
+
+        Mockito.verify(requestExecutor, Mockito.times(2)).execute(
+                Mockito.eq(route),
+                Mockito.same(request),
+                Mockito.same(context),
+                Mockito.same(execAware));
+        Mockito.verify(retryStrategy, Mockito.never()).getRetryInterval();
+        Mockito.verify(retryBudget, Mockito.times(2)).tryWithdraw();
+        Mockito.verify(retryBudget, Mockito.never()).deposit();
+        Mockito.verify(response, Mockito.times(1)).close();
+    }
+
 }
@@ -0,0 +1,407 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmark;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.pool.BasicNIOConnFactory;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestExpectContinue;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+
+/**
+ * Benchmark engine based on the non-blocking HttpCore NIO transport.
+ * <p>
+ * The configured concurrency level determines the maximum number of
+ * connections to the target host. In closed-loop mode each of those
+ * virtual clients executes its requests back to back. In open-loop mode
+ * requests are issued at the configured rate regardless of completion
+ * of previous requests; requests waiting for a connection are queued
+ * and the time spent waiting is included in the measured latency.
+ * At most {@value #MAX_PENDING_PER_CONNECTION} requests per connection
+ * can be outstanding; once that limit is reached new requests are held
+ * back until others complete, still counting from their intended start.
+ * </p>
+ * <p>
+ * The benchmark is aborted if the I/O reactor terminates or, given
+ * a finite socket timeout, no request completes for twice that timeout.
+ * </p>
+ * <p>
+ * Connect times are not measured by this engine.
+ * </p>
+ *
+ * @since 4.4.11
+ */
+class AsyncBenchmarkEngine {
+
+    static final int MAX_PENDING_PER_CONNECTION = 100;
+
+    private final HttpBenchmark benchmark;
+    private final HttpHost targetHost;
+    private final SSLContext sslContext;
+    private final Config config;
+    private final RequestSchedule schedule;
+    private final HttpProcessor httpProcessor;
+    private final ConnectionReuseStrategy connstrategy;
+    private final Stats[] stats;
+
+    private final AtomicLong outstanding;
+    private final CountDownLatch done;
+
+    private volatile Semaphore pending;
+    private volatile boolean terminated;
+    private volatile Exception failure;
+
+    AsyncBenchmarkEngine(
+            final HttpBenchmark benchmark,
+            final HttpHost targetHost,
+            final SSLContext sslContext,
+            final Config config,
+            final RequestSchedule schedule) {
+        super();
+        this.benchmark = benchmark;
+        this.targetHost = targetHost;
+        this.sslContext = sslContext;
+        this.config = config;
+        this.schedule = schedule;
+        this.httpProcessor = new ImmutableHttpProcessor(
+                new RequestContent(),
+                new RequestTargetHost(),
+                new RequestConnControl(),
+                new RequestUserAgent("HttpCore-AB/1.1"),
+                new RequestExpectContinue(config.isUseExpectContinue()));
+        this.connstrategy = DefaultConnectionReuseStrategy.INSTANCE;
+        this.stats = new Stats[config.getThreads()];
+        for (int i = 0; i < this.stats.length; i++) {
+            this.stats[i] = new Stats();
+        }
+        this.outstanding = new AtomicLong();
+        this.done = new CountDownLatch(1);
+    }
+
+    Stats[] getStats() {
+        return this.stats;
+    }
+
+    void execute() throws Exception {
+        final int concurrency = this.stats.length;
+        final int timeout = this.config.getSocketTimeout();
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setSoTimeout(timeout)
+                .setConnectTimeout(timeout)
+                .setIoThreadCount(Math.min(concurrency, Runtime.getRuntime().availableProcessors()))
+                .build();
+        final DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
+        final BasicNIOConnPool connPool = new BasicNIOConnPool(
+                ioReactor,
+                new BasicNIOConnFactory(this.sslContext, null, ConnectionConfig.DEFAULT),
+                timeout);
+        connPool.setDefaultMaxPerRoute(concurrency);
+        connPool.setMaxTotal(concurrency);
+
+        final HttpAsyncRequestExecutor protocolHandler = new HttpAsyncRequestExecutor();
+        final IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch<HttpAsyncRequestExecutor>(
+                protocolHandler, ConnectionConfig.DEFAULT);
+        final Thread ioThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    ioReactor.execute(ioEventDispatch);
+                } catch (final InterruptedIOException ex) {
+                    failure = ex;
+                    if (config.getVerbosity() >= 2) {
+                        System.err.println("I/O reactor interrupted");
+                    }
+                } catch (final IOException ex) {
+                    failure = ex;
+                    if (config.getVerbosity() >= 2) {
+                        System.err.println("I/O error: " + ex.getMessage());
+                    }
+                } catch (final RuntimeException ex) {
+                    failure = ex;
+                    throw ex;
+                } finally {
+                    terminated = true;
+                    done.countDown();
+                }
+            }
+
+        }, "ClientIOReactor");
+        ioThread.start();
+
+        final HttpAsyncRequester requester = new HttpAsyncRequester(this.httpProcessor);
+        final int count = this.config.getRequests();
+        final long total = (long) count * concurrency;
+        this.outstanding.set(total);
+        this.pending = new Semaphore(concurrency * MAX_PENDING_PER_CONNECTION);
+        try {
+            for (final Stats s : this.stats) {
+                s.start();
+            }
+            if (this.schedule != null) {
+                for (long n = 0; n < total; n++) {
+                    final long intendedStart = this.schedule.awaitIntendedStart(n);
+                    while (!this.pending.tryAcquire(1, TimeUnit.SECONDS)) {
+                        checkReactor();
+                    }
+                    checkReactor();
+                    execute(requester, connPool, n, intendedStart);
+                }
+            } else {
+                for (int i = 0; i < concurrency && count > 0; i++) {
+                    execute(requester, connPool, i, System.nanoTime());
+                }
+            }
+            if (total > 0) {
+                awaitCompletion(timeout);
+            }
+            for (final Stats s : this.stats) {
+                s.finish();
+            }
+        } finally {
+            connPool.shutdown(1000);
+            ioReactor.shutdown(1000);
+            ioThread.join(1000);
+        }
+    }
+
+    private void awaitCompletion(final int timeout) throws Exception {
+        final long stallTimeout = timeout > 0 ? TimeUnit.MILLISECONDS.toNanos(2L * timeout) : 0;
+        long last = this.outstanding.get();
+        long lastProgress = System.nanoTime();
+        while (!this.done.await(1, TimeUnit.SECONDS)) {
+            final long current = this.outstanding.get();
+            final long now = System.nanoTime();
+            if (current != last) {
+                last = current;
+                lastProgress = now;
+            } else if (stallTimeout > 0 && now - lastProgress > stallTimeout) {
+                throw new IOException("No request completed in " + 2L * timeout + " ms; "
+                        + current + " requests outstanding");
+            }
+        }
+        checkReactor();
+    }
+
+    private void checkReactor() throws IOException {
+        if (this.terminated && this.outstanding.get() > 0) {
+            final Exception ex = this.failure;
+            final String message = "I/O reactor terminated"
+                    + (ex != null && ex.getMessage() != null ? ": " + ex.getMessage() : "");
+            final IOException ioex = new IOException(message);
+            if (ex != null) {
+                ioex.initCause(ex);
+            }
+            throw ioex;
+        }
+    }
+
+    private void execute(
+            final HttpAsyncRequester requester,
+            final BasicNIOConnPool connPool,
+            final long n,
+            final long start) {
+        final Stats s = this.stats[(int) (n % this.stats.length)];
+        final HttpRequest request = this.benchmark.createRequest();
+        final HttpCoreContext context = HttpCoreContext.create();
+        requester.execute(
+                new BasicAsyncRequestProducer(this.targetHost, request),
+                new BenchmarkResponseConsumer(s, start),
+                connPool,
+                context,
+                new FutureCallback<HttpResponse>() {
+
+                    @Override
+                    public void completed(final HttpResponse response) {
+                        synchronized (s) {
+                            if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                                s.incSuccessCount();
+                            } else {
+                                s.incFailureCount();
+                            }
+                            if (config.isKeepAlive() && connstrategy.keepAlive(response, context)) {
+                                s.incKeepAliveCount();
+                            }
+                            final Header header = response.getFirstHeader("Server");
+                            if (header != null) {
+                                s.setServerName(header.getValue());
+                            }
+                            if (request instanceof HttpEntityEnclosingRequest) {
+                                final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+                                if (entity != null && entity.getContentLength() > 0) {
+                                    s.incTotalBytesSent(entity.getContentLength());
+                                }
+                            }
+                        }
+                        if (config.getVerbosity() >= 2) {
+                            System.out.println(response.getStatusLine().getStatusCode());
+                        }
+                        next(requester, connPool, n);
+                    }
+
+                    @Override
+                    public void failed(final Exception ex) {
+                        synchronized (s) {
+                            if (ex instanceof HttpException) {
+                                s.incWriteErrors();
+                            } else {
+                                s.incFailureCount();
+                            }
+                        }
+                        if (config.getVerbosity() >= 2) {
+                            System.err.println("Failed HTTP request : " + ex.getMessage());
+                        }
+                        next(requester, connPool, n);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        synchronized (s) {
+                            s.incFailureCount();
+                        }
+                        next(requester, connPool, n);
+                    }
+
+                });
+    }
+
+    private void next(
+            final HttpAsyncRequester requester,
+            final BasicNIOConnPool connPool,
+            final long n) {
+        if (this.outstanding.decrementAndGet() == 0) {
+            this.done.countDown();
+        }
+        if (this.schedule != null) {
+            this.pending.release();
+        } else {
+            final long next = n + this.stats.length;
+            if (next < (long) this.config.getRequests() * this.stats.length) {
+                execute(requester, connPool, next, System.nanoTime());
+            }
+        }
+    }
+
+    static class BenchmarkResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+        private final Stats stats;
+        private final long start;
+        private final ByteBuffer buffer;
+
+        private volatile HttpResponse response;
+        private volatile long firstByte;
+        private volatile long contentLength;
+
+        BenchmarkResponseConsumer(final Stats stats, final long start) {
+            super();
+            this.stats = stats;
+            this.start = start;
+            this.buffer = ByteBuffer.allocate(4096);
+        }
+
+        @Override
+        protected void onResponseReceived(final HttpResponse response) {
+            this.firstByte = System.nanoTime();
+            this.response = response;
+        }
+
+        @Override
+        protected void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) {
+            this.contentLength = 0;
+        }
+
+        @Override
+        protected void onContentReceived(
+                final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
+            int l;
+            while ((l = decoder.read(this.buffer)) > 0) {
+                this.contentLength += l;
+                this.buffer.clear();
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        protected HttpResponse buildResult(final HttpContext context) {
+            final long finish = System.nanoTime();
+            synchronized (this.stats) {
+                if (this.response.getEntity() != null) {
+                    this.stats.incTotalBytesRecv(this.contentLength);
+                    this.stats.setContentLength(this.contentLength);
+                }
+                this.stats.recordLatency(this.firstByte - this.start, finish - this.start);
+            }
+            return this.response;
+        }
+
+        @Override
+        protected void releaseResources() {
+        }
+
+    }
+
+}
@@ -73,6 +73,7 @@ class BenchmarkWorker implements Runnable {
     private final HttpHost targetHost;
     private final Config config;
     private final SocketFactory socketFactory;
+    private final RequestSchedule schedule;
     private final Stats stats = new Stats();
 
     public BenchmarkWorker(
@@ -80,6 +81,21 @@ class BenchmarkWorker implements Runnable {
             final HttpHost targetHost,
             final SocketFactory socketFactory,
             final Config config) {
+        this(request, targetHost, socketFactory, config, null);
+    }
+
+    /**
+     * @param schedule intended start times of the requests executed by this
+     *   worker or {@code null} to execute requests back to back.
+     *
+     * @since 4.4.11
+     */
+    BenchmarkWorker(
+            final HttpRequest request,
+            final HttpHost targetHost,
+            final SocketFactory socketFactory,
+            final Config config,
+            final RequestSchedule schedule) {
         super();
         this.context = new HttpCoreContext();
         this.request = request;
@@ -95,6 +111,7 @@ class BenchmarkWorker implements Runnable {
 
         this.connstrategy = DefaultConnectionReuseStrategy.INSTANCE;
         this.socketFactory = socketFactory;
+        this.schedule = schedule;
     }
 
     @Override
@@ -121,7 +138,12 @@ class BenchmarkWorker implements Runnable {
         for (int i = 0; i < count; i++) {
 
             try {
+                // In open-loop mode latency is measured from the intended start
+                // time so that delays caused by a slow server are not omitted
+                final long intendedStart = schedule != null ? schedule.awaitIntendedStart(i) : -1;
                 resetHeader(request);
+                final long requestStart = System.nanoTime();
+                final long latencyStart = schedule != null ? intendedStart : requestStart;
                 if (!conn.isOpen()) {
 
                     final Socket socket;
@@ -136,13 +158,16 @@ class BenchmarkWorker implements Runnable {
                     socket.connect(new InetSocketAddress(hostname, port), timeout);
 
                     conn.bind(socket);
+                    stats.recordConnectTime(System.nanoTime() - requestStart);
                 }
 
+                final long firstByte;
                 try {
                     // Prepare request
                     this.httpexecutor.preProcess(this.request, this.httpProcessor, this.context);
                     // Execute request and get a response
                     response = this.httpexecutor.execute(this.request, conn, this.context);
+                    firstByte = System.nanoTime();
                     // Finalize response
                     this.httpexecutor.postProcess(response, this.httpProcessor, this.context);
 
@@ -183,6 +208,7 @@ class BenchmarkWorker implements Runnable {
                     instream.close();
                     stats.setContentLength(contentlen);
                 }
+                stats.recordLatency(firstByte - latencyStart, System.nanoTime() - latencyStart);
 
                 if (config.getVerbosity() >= 4) {
                     System.out.println();
@@ -100,6 +100,26 @@ public class CommandLineUtils {
         vopt.setRequired(false);
         vopt.setArgName("verbosity");
 
+        final Option jopt = new Option("j", true, "Write results including latency percentiles " +
+            "to the given file in JSON format");
+        jopt.setRequired(false);
+        jopt.setArgName("json-file");
+
+        final Option eopt = new Option("e", true, "Write latency percentiles of connect, " +
+            "first byte and total request times to the given file in CSV format");
+        eopt.setRequired(false);
+        eopt.setArgName("csv-file");
+
+        final Option Ropt = new Option("R", true, "Open-loop mode: issue requests at the given " +
+            "constant rate (requests per second) across all clients, measuring latency from " +
+            "the intended start time of each request. Default is closed-loop mode");
+        Ropt.setRequired(false);
+        Ropt.setArgName("rate");
+
+        final Option Nopt = new Option("N", false, "Use the non-blocking I/O engine. " +
+            "Default is blocking I/O");
+        Nopt.setRequired(false);
+
         final Option hopt = new Option("h", false, "Display usage information");
         nopt.setRequired(false);
 
@@ -119,6 +139,10 @@ public class CommandLineUtils {
         options.addOption(hopt);
         options.addOption(topt);
         options.addOption(oopt);
+        options.addOption(jopt);
+        options.addOption(eopt);
+        options.addOption(Ropt);
+        options.addOption(Nopt);
         return options;
     }
 
@@ -206,6 +230,31 @@ public class CommandLineUtils {
             config.setUseAcceptGZip(true);
         }
 
+        if (cmd.hasOption('j')) {
+            config.setJsonOutputFile(new File(cmd.getOptionValue('j')));
+        }
+
+        if (cmd.hasOption('e')) {
+            config.setCsvOutputFile(new File(cmd.getOptionValue('e')));
+        }
+
+        if (cmd.hasOption('R')) {
+            final String s = cmd.getOptionValue('R');
+            try {
+                final double rate = Double.parseDouble(s);
+                if (!(rate > 0) || Double.isInfinite(rate)) {
+                    printError("Invalid request rate: " + s);
+                }
+                config.setRate(rate);
+            } catch (final NumberFormatException ex) {
+                printError("Invalid request rate: " + s);
+            }
+        }
+
+        if (cmd.hasOption('N')) {
+            config.setUseNIO(true);
+        }
+
         final String[] cmdargs = cmd.getArgs();
         if (cmdargs.length > 0) {
             try {
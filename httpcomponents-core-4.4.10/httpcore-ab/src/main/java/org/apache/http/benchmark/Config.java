@@ -55,6 +55,12 @@ public class Config {
     private String trustStorePassword = null;
     private String identityStorePassword = null;
 
+    private File jsonOutputFile = null;
+    private File csvOutputFile = null;
+
+    private double rate = 0;
+    private boolean useNIO = false;
+
     public Config() {
         super();
         this.url = null;
@@ -248,6 +254,42 @@ public class Config {
         this.identityStorePassword = identityStorePassword;
     }
 
+    public File getJsonOutputFile() {
+        return jsonOutputFile;
+    }
+
+    public void setJsonOutputFile(final File jsonOutputFile) {
+        this.jsonOutputFile = jsonOutputFile;
+    }
+
+    public File getCsvOutputFile() {
+        return csvOutputFile;
+    }
+
+    public void setCsvOutputFile(final File csvOutputFile) {
+        this.csvOutputFile = csvOutputFile;
+    }
+
+    /**
+     * Returns the target request rate in requests per second of an
+     * open-loop run, or {@code 0} for a closed-loop run.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(final double rate) {
+        this.rate = rate;
+    }
+
+    public boolean isUseNIO() {
+        return useNIO;
+    }
+
+    public void setUseNIO(final boolean useNIO) {
+        this.useNIO = useNIO;
+    }
+
     public Config copy() {
         final Config copy = new Config();
         copy.url = this.url;
@@ -273,6 +315,12 @@ public class Config {
         copy.identityStorePath = this.identityStorePath;
         copy.trustStorePassword = this.trustStorePassword;
         copy.identityStorePassword = this.identityStorePassword;
+
+        copy.jsonOutputFile = this.jsonOutputFile;
+        copy.csvOutputFile = this.csvOutputFile;
+
+        copy.rate = this.rate;
+        copy.useNIO = this.useNIO;
         return copy;
     }
 
@@ -27,6 +27,9 @@
 package org.apache.http.benchmark;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
@@ -42,6 +45,7 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
+import org.apache.http.Consts;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
@@ -94,7 +98,7 @@ public class HttpBenchmark {
         this.config = config != null ? config : new Config();
     }
 
-    private HttpRequest createRequest() {
+    HttpRequest createRequest() {
         final URL url = config.getUrl();
         HttpEntity entity = null;
 
@@ -160,6 +164,24 @@ public class HttpBenchmark {
     public String execute() throws Exception {
         final Results results = doExecute();
         ResultProcessor.printResults(results);
+        if (config.getJsonOutputFile() != null) {
+            final Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(config.getJsonOutputFile()), Consts.UTF_8);
+            try {
+                ResultProcessor.writeJson(results, writer);
+            } finally {
+                writer.close();
+            }
+        }
+        if (config.getCsvOutputFile() != null) {
+            final Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(config.getCsvOutputFile()), Consts.UTF_8);
+            try {
+                ResultProcessor.writeCsv(results, writer);
+            } finally {
+                writer.close();
+            }
+        }
         return "";
     }
 
@@ -167,7 +189,27 @@ public class HttpBenchmark {
 
         final URL url = config.getUrl();
         final HttpHost host = new HttpHost(url.getHost(), url.getPort(), url.getProtocol());
+        final SSLContext sslContext = "https".equals(host.getSchemeName()) ? createSSLContext() : null;
 
+        // In open-loop mode requests are issued at a constant rate across all clients
+        final RequestSchedule schedule = config.getRate() > 0 ?
+                RequestSchedule.forRate(System.nanoTime(), config.getRate()) : null;
+
+        final Results results;
+        if (config.isUseNIO()) {
+            final AsyncBenchmarkEngine engine = new AsyncBenchmarkEngine(
+                    this, host, sslContext, config, schedule);
+            engine.execute();
+            results = ResultProcessor.collectResults(engine.getStats(), host, config.getUrl().toString());
+        } else {
+            results = executeBlocking(host, sslContext, schedule);
+        }
+        results.targetRate = config.getRate() > 0 ? config.getRate() : 0;
+        return results;
+    }
+
+    private Results executeBlocking(
+            final HttpHost host, final SSLContext sslContext, final RequestSchedule schedule) {
         final ThreadPoolExecutor workerPool = new ThreadPoolExecutor(
                 config.getThreads(), config.getThreads(), 5, TimeUnit.SECONDS,
             new LinkedBlockingQueue<Runnable>(),
@@ -181,34 +223,7 @@ public class HttpBenchmark {
             });
         workerPool.prestartAllCoreThreads();
 
-        SocketFactory socketFactory = null;
-        if ("https".equals(host.getSchemeName())) {
-            final SSLContextBuilder sslContextBuilder = new SSLContextBuilder();
-            sslContextBuilder.setProtocol("SSL");
-            if (config.isDisableSSLVerification()) {
-                sslContextBuilder.loadTrustMaterial(null, new TrustStrategy() {
-
-                    @Override
-                    public boolean isTrusted(
-                            final X509Certificate[] chain, final String authType) throws CertificateException {
-                        return true;
-                    }
-
-                });
-            } else if (config.getTrustStorePath() != null) {
-                sslContextBuilder.loadTrustMaterial(
-                        new File(config.getTrustStorePath()),
-                        config.getTrustStorePassword() != null ? config.getTrustStorePassword().toCharArray() : null);
-            }
-            if (config.getIdentityStorePath() != null) {
-                sslContextBuilder.loadKeyMaterial(
-                        new File(config.getIdentityStorePath()),
-                        config.getIdentityStorePassword() != null ? config.getIdentityStorePassword().toCharArray() : null,
-                        config.getIdentityStorePassword() != null ? config.getIdentityStorePassword().toCharArray() : null);
-            }
-            final SSLContext sslContext = sslContextBuilder.build();
-            socketFactory = sslContext.getSocketFactory();
-        }
+        final SocketFactory socketFactory = sslContext != null ? sslContext.getSocketFactory() : null;
 
         final BenchmarkWorker[] workers = new BenchmarkWorker[config.getThreads()];
         for (int i = 0; i < workers.length; i++) {
@@ -216,7 +231,8 @@ public class HttpBenchmark {
                     createRequest(),
                     host,
                     socketFactory,
-                    config);
+                    config,
+                    schedule != null ? schedule.slice(i, workers.length) : null);
             workerPool.execute(workers[i]);
         }
 
@@ -232,4 +248,31 @@ public class HttpBenchmark {
         return ResultProcessor.collectResults(workers, host, config.getUrl().toString());
     }
 
+    private SSLContext createSSLContext() throws Exception {
+        final SSLContextBuilder sslContextBuilder = new SSLContextBuilder();
+        sslContextBuilder.setProtocol("SSL");
+        if (config.isDisableSSLVerification()) {
+            sslContextBuilder.loadTrustMaterial(null, new TrustStrategy() {
+
+                @Override
+                public boolean isTrusted(
+                        final X509Certificate[] chain, final String authType) throws CertificateException {
+                    return true;
+                }
+
+            });
+        } else if (config.getTrustStorePath() != null) {
+            sslContextBuilder.loadTrustMaterial(
+                    new File(config.getTrustStorePath()),
+                    config.getTrustStorePassword() != null ? config.getTrustStorePassword().toCharArray() : null);
+        }
+        if (config.getIdentityStorePath() != null) {
+            sslContextBuilder.loadKeyMaterial(
+                    new File(config.getIdentityStorePath()),
+                    config.getIdentityStorePassword() != null ? config.getIdentityStorePassword().toCharArray() : null,
+                    config.getIdentityStorePassword() != null ? config.getIdentityStorePassword().toCharArray() : null);
+        }
+        return sslContextBuilder.build();
+    }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmark;
+
+/**
+ * Mergeable latency histogram with logarithmic buckets of bounded relative
+ * error in the spirit of HdrHistogram. Values are recorded in nanoseconds;
+ * values below 256 ns are tracked exactly, larger values with a relative
+ * error of less than 1%. Minimum, maximum and mean are tracked exactly.
+ * <p>
+ * Instances are not thread-safe and are expected to be confined to
+ * a single {@link BenchmarkWorker} and merged once the worker has finished.
+ * </p>
+ *
+ * @since 4.4.11
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF << 1;
+    // values up to 2^45 ns (~9.7 hours) are tracked, larger ones are clamped
+    private static final int MAX_SHIFT = 45 - SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + MAX_SHIFT * SUB_BUCKET_HALF;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long totalValue;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue = 0;
+
+    public LatencyHistogram() {
+        super();
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKET_COUNT - 1;
+        }
+        final int mantissa = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (mantissa - SUB_BUCKET_HALF);
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        final long mantissa = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a single value.
+     *
+     * @param nanos latency in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(final long nanos) {
+        final long value = nanos > 0 ? nanos : 0;
+        this.counts[indexOf(value)]++;
+        this.totalCount++;
+        this.totalValue += value;
+        if (value < this.minValue) {
+            this.minValue = value;
+        }
+        if (value > this.maxValue) {
+            this.maxValue = value;
+        }
+    }
+
+    /**
+     * Adds all values recorded by the given histogram to this histogram.
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.totalCount += other.totalCount;
+        this.totalValue += other.totalValue;
+        if (other.minValue < this.minValue) {
+            this.minValue = other.minValue;
+        }
+        if (other.maxValue > this.maxValue) {
+            this.maxValue = other.maxValue;
+        }
+    }
+
+    public long getCount() {
+        return this.totalCount;
+    }
+
+    public long getMin() {
+        return this.totalCount > 0 ? this.minValue : 0;
+    }
+
+    public long getMax() {
+        return this.maxValue;
+    }
+
+    public double getMean() {
+        return this.totalCount > 0 ? (double) this.totalValue / this.totalCount : 0;
+    }
+
+    /**
+     * Returns the value at the given percentile, that is the smallest recorded
+     * value (within the precision of the histogram) such that the given percentage
+     * of all recorded values are less than or equal to it.
+     *
+     * @param percentile percentile in the range of {@code 0} to {@code 100}.
+     * @return value in nanoseconds or {@code 0} if no values have been recorded.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (this.totalCount == 0) {
+            return 0;
+        }
+        final double p = Math.min(Math.max(percentile, 0.0), 100.0);
+        final long target = Math.max(1, (long) Math.ceil(p / 100.0 * this.totalCount));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += this.counts[i];
+            if (cumulative >= target) {
+                if (cumulative == this.totalCount) {
+                    // the highest bucket is represented by the exact maximum
+                    return this.maxValue;
+                }
+                return Math.max(Math.min(highestEquivalentValue(i), this.maxValue), this.minValue);
+            }
+        }
+        return this.maxValue;
+    }
+
+}
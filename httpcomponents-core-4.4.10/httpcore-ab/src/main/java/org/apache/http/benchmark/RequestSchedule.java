@@ -0,0 +1,87 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.benchmark;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedule of intended request start times of an open-loop benchmark
+ * run issuing requests at a constant rate.
+ *
+ * @since 4.4.11
+ */
+class RequestSchedule {
+
+    private final long startNanos;
+    private final long intervalNanos;
+
+    RequestSchedule(final long startNanos, final long intervalNanos) {
+        super();
+        this.startNanos = startNanos;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Creates a schedule issuing requests at the given rate.
+     *
+     * @param startNanos intended start time of the first request as
+     *   returned by {@link System#nanoTime()}.
+     * @param rate number of requests per second.
+     */
+    static RequestSchedule forRate(final long startNanos, final double rate) {
+        return new RequestSchedule(startNanos, Math.max(1, Math.round(1000000000.0 / rate)));
+    }
+
+    /**
+     * Splits this schedule into the given number of interleaved schedules,
+     * each issuing every {@code count}-th request of this schedule.
+     */
+    RequestSchedule slice(final int index, final int count) {
+        return new RequestSchedule(this.startNanos + index * this.intervalNanos, this.intervalNanos * count);
+    }
+
+    long getIntendedStart(final long n) {
+        return this.startNanos + n * this.intervalNanos;
+    }
+
+    /**
+     * Waits until the intended start time of the n-th request. Returns
+     * immediately if that time has already passed.
+     *
+     * @return the intended start time of the n-th request.
+     */
+    long awaitIntendedStart(final long n) {
+        final long intendedStart = getIntendedStart(n);
+        long delay;
+        while ((delay = intendedStart - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(delay);
+        }
+        return intendedStart;
+    }
+
+}
@@ -26,7 +26,10 @@
  */
 package org.apache.http.benchmark;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.text.NumberFormat;
+import java.util.Locale;
 
 import org.apache.http.HttpHost;
 
@@ -45,7 +48,17 @@ public class ResultProcessor {
         nf6.setMinimumFractionDigits(6);
     }
 
+    static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
     static Results collectResults(final BenchmarkWorker[] workers, final HttpHost host, final String uri) {
+        final Stats[] stats = new Stats[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            stats[i] = workers[i].getStats();
+        }
+        return collectResults(stats, host, uri);
+    }
+
+    static Results collectResults(final Stats[] workerStats, final HttpHost host, final String uri) {
         long totalTimeNano = 0;
         long successCount    = 0;
         long failureCount    = 0;
@@ -54,10 +67,17 @@ public class ResultProcessor {
         long totalBytesRcvd  = 0;
         long totalBytesSent  = 0;
 
-        final Stats stats = workers[0].getStats();
+        String serverName = null;
+        long contentLength = -1;
+        final Results results = new Results();
 
-        for (final BenchmarkWorker worker : workers) {
-            final Stats s = worker.getStats();
+        for (final Stats s : workerStats) {
+            if (serverName == null) {
+                serverName = s.getServerName();
+            }
+            if (contentLength == -1) {
+                contentLength = s.getContentLength();
+            }
             totalTimeNano  += s.getDuration();
             successCount   += s.getSuccessCount();
             failureCount   += s.getFailureCount();
@@ -65,16 +85,18 @@ public class ResultProcessor {
             keepAliveCount += s.getKeepAliveCount();
             totalBytesRcvd += s.getTotalBytesRecv();
             totalBytesSent += s.getTotalBytesSent();
+            results.connectLatency.add(s.getConnectLatency());
+            results.firstByteLatency.add(s.getFirstByteLatency());
+            results.totalLatency.add(s.getTotalLatency());
         }
 
-        final Results results = new Results();
-        results.serverName = stats.getServerName();
+        results.serverName = serverName;
         results.hostName = host.getHostName();
         results.hostPort = host.getPort() > 0 ? host.getPort() :
             host.getSchemeName().equalsIgnoreCase("https") ? 443 : 80;
         results.documentPath = uri;
-        results.contentLength = stats.getContentLength();
-        results.concurrencyLevel = workers.length;
+        results.contentLength = contentLength;
+        results.concurrencyLevel = workerStats.length;
         results.totalTimeNano = totalTimeNano;
         results.successCount = successCount;
         results.failureCount = failureCount;
@@ -99,6 +121,9 @@ public class ResultProcessor {
         System.out.println( "Document Path:\t\t\t" + results.getDocumentPath());
         System.out.println( "Document Length:\t\t" + results.getContentLength() + " bytes\n");
         System.out.println( "Concurrency Level:\t\t" + results.getConcurrencyLevel());
+        if (results.getTargetRate() > 0) {
+            System.out.println( "Target rate:\t\t\t" + nf2.format(results.getTargetRate()) + " [#/sec]");
+        }
         System.out.println( "Time taken for tests:\t\t" + nf6.format(totalTimeSec) + " seconds");
         System.out.println( "Complete requests:\t\t" + results.getSuccessCount());
         System.out.println( "Failed requests:\t\t" + results.getFailureCount());
@@ -117,6 +142,147 @@ public class ResultProcessor {
                     / 1000 / totalTimeSec) : Integer.valueOf(-1)) + " kb/s sent");
         System.out.println( "\t\t\t\t" +
             nf2.format(results.getTotalBytes() / 1000 / totalTimeSec) + " kb/s total");
+        printLatency(results);
+    }
+
+    static void printLatency(final Results results) {
+        System.out.println("\nLatency (ms)\t\t\tcount\tmin\tmean\tp50\tp90\tp99\tp99.9\tmax");
+        printLatency("Connect:\t\t\t", results.getConnectLatency());
+        printLatency("First byte:\t\t\t", results.getFirstByteLatency());
+        printLatency("Total:\t\t\t\t", results.getTotalLatency());
+    }
+
+    private static void printLatency(final String label, final LatencyHistogram histogram) {
+        final StringBuilder buffer = new StringBuilder(label);
+        buffer.append(histogram.getCount());
+        buffer.append('\t').append(nf3.format(toMillis(histogram.getMin())));
+        buffer.append('\t').append(nf3.format(histogram.getMean() / 1000000));
+        for (final double p : PERCENTILES) {
+            buffer.append('\t').append(nf3.format(toMillis(histogram.getValueAtPercentile(p))));
+        }
+        buffer.append('\t').append(nf3.format(toMillis(histogram.getMax())));
+        System.out.println(buffer);
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static String formatMillis(final double nanos) {
+        return String.format(Locale.ROOT, "%.3f", Double.valueOf(nanos / 1000000.0));
+    }
+
+    private static String formatPercentile(final double p) {
+        final String s = Double.toString(p);
+        return s.endsWith(".0") ? s.substring(0, s.length() - 2) : s;
+    }
+
+    /**
+     * Writes the latency summary of connect, first byte and total request times
+     * in CSV format, one row per metric, with all times in milliseconds.
+     */
+    static void writeCsv(final Results results, final Writer writer) throws IOException {
+        final StringBuilder buffer = new StringBuilder("metric,count,min_ms,mean_ms");
+        for (final double p : PERCENTILES) {
+            buffer.append(",p").append(formatPercentile(p)).append("_ms");
+        }
+        buffer.append(",max_ms\n");
+        appendCsv(buffer, "connect", results.getConnectLatency());
+        appendCsv(buffer, "first_byte", results.getFirstByteLatency());
+        appendCsv(buffer, "total", results.getTotalLatency());
+        writer.write(buffer.toString());
+        writer.flush();
+    }
+
+    private static void appendCsv(final StringBuilder buffer, final String metric, final LatencyHistogram histogram) {
+        buffer.append(metric);
+        buffer.append(',').append(histogram.getCount());
+        buffer.append(',').append(formatMillis(histogram.getMin()));
+        buffer.append(',').append(formatMillis(histogram.getMean()));
+        for (final double p : PERCENTILES) {
+            buffer.append(',').append(formatMillis(histogram.getValueAtPercentile(p)));
+        }
+        buffer.append(',').append(formatMillis(histogram.getMax()));
+        buffer.append('\n');
+    }
+
+    /**
+     * Writes the results including the latency summary in JSON format,
+     * with all latencies in milliseconds.
+     */
+    static void writeJson(final Results results, final Writer writer) throws IOException {
+        final double totalTimeSec = (double) results.getTotalTimeNano() / results.getConcurrencyLevel() / 1000000000;
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("{\n");
+        appendJson(buffer, "serverName", results.getServerName());
+        appendJson(buffer, "hostName", results.getHostName());
+        appendJson(buffer, "hostPort", Integer.toString(results.getHostPort()), false);
+        appendJson(buffer, "documentPath", results.getDocumentPath());
+        appendJson(buffer, "contentLength", Long.toString(results.getContentLength()), false);
+        appendJson(buffer, "concurrencyLevel", Integer.toString(results.getConcurrencyLevel()), false);
+        appendJson(buffer, "targetRate", results.getTargetRate() > 0 ? String.format(Locale.ROOT, "%.2f",
+                Double.valueOf(results.getTargetRate())) : null, false);
+        appendJson(buffer, "timeTakenSeconds",
+                String.format(Locale.ROOT, "%.6f", Double.valueOf(totalTimeSec)), false);
+        appendJson(buffer, "successCount", Long.toString(results.getSuccessCount()), false);
+        appendJson(buffer, "failureCount", Long.toString(results.getFailureCount()), false);
+        appendJson(buffer, "writeErrors", Long.toString(results.getWriteErrors()), false);
+        appendJson(buffer, "keepAliveCount", Long.toString(results.getKeepAliveCount()), false);
+        appendJson(buffer, "totalBytesRcvd", Long.toString(results.getTotalBytesRcvd()), false);
+        appendJson(buffer, "totalBytesSent", Long.toString(results.getTotalBytesSent()), false);
+        appendJson(buffer, "totalBytes", Long.toString(results.getTotalBytes()), false);
+        appendJson(buffer, "requestsPerSecond", String.format(Locale.ROOT, "%.2f",
+                Double.valueOf(totalTimeSec > 0 ? results.getSuccessCount() / totalTimeSec : 0)), false);
+        buffer.append("  \"latencyMs\": {\n");
+        appendJson(buffer, "connect", results.getConnectLatency());
+        buffer.append(",\n");
+        appendJson(buffer, "firstByte", results.getFirstByteLatency());
+        buffer.append(",\n");
+        appendJson(buffer, "total", results.getTotalLatency());
+        buffer.append("\n  }\n}\n");
+        writer.write(buffer.toString());
+        writer.flush();
+    }
+
+    private static void appendJson(final StringBuilder buffer, final String name, final String value) {
+        appendJson(buffer, name, value, true);
+    }
+
+    private static void appendJson(
+            final StringBuilder buffer, final String name, final String value, final boolean quote) {
+        buffer.append("  \"").append(name).append("\": ");
+        if (value == null) {
+            buffer.append("null");
+        } else if (quote) {
+            buffer.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                final char ch = value.charAt(i);
+                if (ch == '"' || ch == '\\') {
+                    buffer.append('\\').append(ch);
+                } else if (ch < 0x20) {
+                    buffer.append(String.format(Locale.ROOT, "\\u%04x", Integer.valueOf(ch)));
+                } else {
+                    buffer.append(ch);
+                }
+            }
+            buffer.append('"');
+        } else {
+            buffer.append(value);
+        }
+        buffer.append(",\n");
+    }
+
+    private static void appendJson(final StringBuilder buffer, final String name, final LatencyHistogram histogram) {
+        buffer.append("    \"").append(name).append("\": {");
+        buffer.append("\"count\": ").append(histogram.getCount());
+        buffer.append(", \"min\": ").append(formatMillis(histogram.getMin()));
+        buffer.append(", \"mean\": ").append(formatMillis(histogram.getMean()));
+        for (final double p : PERCENTILES) {
+            buffer.append(", \"p").append(formatPercentile(p)).append("\": ")
+                    .append(formatMillis(histogram.getValueAtPercentile(p)));
+        }
+        buffer.append(", \"max\": ").append(formatMillis(histogram.getMax()));
+        buffer.append('}');
     }
 
 }
@@ -47,10 +47,17 @@ public final class Results {
     long totalBytesRcvd;
     long totalBytesSent;
     long totalBytes;
+    double targetRate;
+    final LatencyHistogram connectLatency;
+    final LatencyHistogram firstByteLatency;
+    final LatencyHistogram totalLatency;
 
     Results() {
         super();
         this.contentLength = -1;
+        this.connectLatency = new LatencyHistogram();
+        this.firstByteLatency = new LatencyHistogram();
+        this.totalLatency = new LatencyHistogram();
     }
 
     public String getServerName() {
@@ -109,6 +116,43 @@ public final class Results {
         return totalBytes;
     }
 
+    /**
+     * Target request rate of an open-loop run in requests per second,
+     * or {@code 0} for a closed-loop run.
+     *
+     * @since 4.4.11
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * Time taken to establish new connections.
+     *
+     * @since 4.4.11
+     */
+    public LatencyHistogram getConnectLatency() {
+        return connectLatency;
+    }
+
+    /**
+     * Time from the start of a request until its response head has been received.
+     *
+     * @since 4.4.11
+     */
+    public LatencyHistogram getFirstByteLatency() {
+        return firstByteLatency;
+    }
+
+    /**
+     * Time from the start of a request until its response content has been consumed.
+     *
+     * @since 4.4.11
+     */
+    public LatencyHistogram getTotalLatency() {
+        return totalLatency;
+    }
+
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
@@ -126,6 +170,7 @@ public final class Results {
                 .append(", totalBytesRcvd=").append(totalBytesRcvd)
                 .append(", totalBytesSent=").append(totalBytesSent)
                 .append(", totalBytes=").append(totalBytes)
+                .append(", targetRate=").append(targetRate)
                 .append("]");
         return builder.toString();
     }
@@ -44,6 +44,9 @@ public class Stats {
     private long totalBytesRecv = 0;
     private long totalBytesSent = 0;
     private long contentLength = -1;
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram firstByteLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
 
     public Stats() {
         super();
@@ -132,6 +135,53 @@ public class Stats {
         this.contentLength = contentLength;
     }
 
+    /**
+     * Records the time taken to establish a new connection.
+     *
+     * @param nanos connect time in nanoseconds
+     *
+     * @since 4.4.11
+     */
+    public void recordConnectTime(final long nanos) {
+        this.connectLatency.record(nanos);
+    }
+
+    /**
+     * Records the latency of a completed request.
+     *
+     * @param firstByteNanos time from the start of the request until the
+     *   response head has been received, in nanoseconds
+     * @param totalNanos time from the start of the request until the response
+     *   content has been fully consumed, in nanoseconds
+     *
+     * @since 4.4.11
+     */
+    public void recordLatency(final long firstByteNanos, final long totalNanos) {
+        this.firstByteLatency.record(firstByteNanos);
+        this.totalLatency.record(totalNanos);
+    }
+
+    /**
+     * @since 4.4.11
+     */
+    public LatencyHistogram getConnectLatency() {
+        return this.connectLatency;
+    }
+
+    /**
+     * @since 4.4.11
+     */
+    public LatencyHistogram getFirstByteLatency() {
+        return this.firstByteLatency;
+    }
+
+    /**
+     * @since 4.4.11
+     */
+    public LatencyHistogram getTotalLatency() {
+        return this.totalLatency;
+    }
+
     public String getServerName() {
         return this.serverName;
     }
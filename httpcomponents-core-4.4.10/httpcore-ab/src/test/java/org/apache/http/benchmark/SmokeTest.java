@@ -27,6 +27,7 @@
 package org.apache.http.benchmark;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URL;
 
 import org.apache.http.HttpException;
@@ -86,6 +87,86 @@ public class SmokeTest {
         Assert.assertEquals(0, results.getWriteErrors());
         Assert.assertEquals(300 * 16, results.getTotalBytes());
         Assert.assertEquals(300 * 16, results.getTotalBytesRcvd());
+        Assert.assertEquals(3, results.getConnectLatency().getCount());
+        Assert.assertEquals(300, results.getFirstByteLatency().getCount());
+        Assert.assertEquals(300, results.getTotalLatency().getCount());
+        Assert.assertTrue(results.getTotalLatency().getValueAtPercentile(99)
+                >= results.getFirstByteLatency().getValueAtPercentile(50));
+
+        final StringWriter csv = new StringWriter();
+        ResultProcessor.writeCsv(results, csv);
+        final String[] lines = csv.toString().split("\n");
+        Assert.assertEquals(4, lines.length);
+        Assert.assertEquals("metric,count,min_ms,mean_ms,p50_ms,p90_ms,p99_ms,p99.9_ms,max_ms", lines[0]);
+        Assert.assertTrue(lines[3].startsWith("total,300,"));
+
+        final StringWriter json = new StringWriter();
+        ResultProcessor.writeJson(results, json);
+        Assert.assertTrue(json.toString().contains("\"successCount\": 300,"));
+        Assert.assertTrue(json.toString().contains("\"total\": {\"count\": 300,"));
+    }
+
+    @Test
+    public void testOpenLoop() throws Exception {
+        final Config config = new Config();
+        config.setKeepAlive(true);
+        config.setMethod("GET");
+        config.setUrl(new URL("http://localhost:" + server.getPort() + "/"));
+        config.setThreads(2);
+        config.setRequests(50);
+        config.setRate(1000);
+        final HttpBenchmark httpBenchmark = new HttpBenchmark(config);
+        final long start = System.nanoTime();
+        final Results results = httpBenchmark.doExecute();
+        final long elapsed = System.nanoTime() - start;
+        Assert.assertNotNull(results);
+        Assert.assertEquals(100, results.getSuccessCount());
+        Assert.assertEquals(0, results.getFailureCount());
+        Assert.assertEquals(100, results.getTotalLatency().getCount());
+        Assert.assertEquals(1000.0, results.getTargetRate(), 0.0);
+        // The last request is not issued before its intended start time
+        Assert.assertTrue(elapsed >= 99 * 1000000L);
+    }
+
+    @Test
+    public void testNIO() throws Exception {
+        final Config config = new Config();
+        config.setKeepAlive(true);
+        config.setMethod("GET");
+        config.setUrl(new URL("http://localhost:" + server.getPort() + "/"));
+        config.setThreads(3);
+        config.setRequests(100);
+        config.setUseNIO(true);
+        final HttpBenchmark httpBenchmark = new HttpBenchmark(config);
+        final Results results = httpBenchmark.doExecute();
+        Assert.assertNotNull(results);
+        Assert.assertEquals(16, results.getContentLength());
+        Assert.assertEquals(3, results.getConcurrencyLevel());
+        Assert.assertEquals(300, results.getKeepAliveCount());
+        Assert.assertEquals(300, results.getSuccessCount());
+        Assert.assertEquals(0, results.getFailureCount());
+        Assert.assertEquals(300 * 16, results.getTotalBytesRcvd());
+        Assert.assertEquals(0, results.getConnectLatency().getCount());
+        Assert.assertEquals(300, results.getFirstByteLatency().getCount());
+        Assert.assertEquals(300, results.getTotalLatency().getCount());
+    }
+
+    @Test
+    public void testNIOOpenLoop() throws Exception {
+        final Config config = new Config();
+        config.setKeepAlive(true);
+        config.setMethod("GET");
+        config.setUrl(new URL("http://localhost:" + server.getPort() + "/"));
+        config.setThreads(2);
+        config.setRequests(50);
+        config.setRate(1000);
+        config.setUseNIO(true);
+        final HttpBenchmark httpBenchmark = new HttpBenchmark(config);
+        final Results results = httpBenchmark.doExecute();
+        Assert.assertNotNull(results);
+        Assert.assertEquals(100, results.getSuccessCount());
+        Assert.assertEquals(0, results.getFailureCount());
+        Assert.assertEquals(100, results.getTotalLatency().getCount());
     }
 
 }
@@ -0,0 +1,269 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.nio.bootstrap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.ExceptionLogger;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.DefaultNHttpClientConnection;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.NHttpClientEventHandler;
+import org.apache.http.nio.NHttpConnectionFactory;
+import org.apache.http.nio.pool.NIOConnFactory;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.nio.reactor.IOReactorExceptionHandler;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.util.Args;
+import org.apache.http.util.Asserts;
+
+/**
+ * Asynchronous HTTP requester that executes requests over a pool of
+ * persistent non-blocking connections managed by a single I/O reactor.
+ * Request execution does not block the calling thread: results are
+ * delivered through {@link Future}s and optional {@link FutureCallback}s.
+ * <p>
+ * Instances of this class are created by {@link RequesterBootstrap}.
+ * </p>
+ *
+ * @since 4.4.11
+ */
+public class HttpRequester implements Closeable {
+
+    enum Status { READY, ACTIVE, STOPPING }
+
+    private final HttpAsyncRequester requester;
+    private final NHttpClientEventHandler clientEventHandler;
+    private final NHttpConnectionFactory<? extends DefaultNHttpClientConnection> connectionFactory;
+    private final ExceptionLogger exceptionLogger;
+    private final ExecutorService reactorExecutorService;
+    private final ThreadGroup dispatchThreads;
+    private final AtomicReference<Status> status;
+    private final DefaultConnectingIOReactor ioReactor;
+    private final BasicNIOConnPool connPool;
+
+    HttpRequester(
+            final IOReactorConfig ioReactorConfig,
+            final HttpAsyncRequester requester,
+            final NHttpClientEventHandler clientEventHandler,
+            final NHttpConnectionFactory<? extends DefaultNHttpClientConnection> connectionFactory,
+            final NIOConnFactory<HttpHost, NHttpClientConnection> connFactory,
+            final int connectTimeout,
+            final int maxTotal,
+            final int defaultMaxPerRoute,
+            final ExceptionLogger exceptionLogger) {
+        this.requester = requester;
+        this.clientEventHandler = clientEventHandler;
+        this.connectionFactory = connectionFactory;
+        this.exceptionLogger = exceptionLogger;
+        this.reactorExecutorService = Executors.newSingleThreadExecutor(
+                new ThreadFactoryImpl("HTTP-requester"));
+        this.dispatchThreads = new ThreadGroup("I/O-dispatchers");
+        try {
+            this.ioReactor = new DefaultConnectingIOReactor(
+                    ioReactorConfig,
+                    new ThreadFactoryImpl("I/O-dispatch", this.dispatchThreads));
+        } catch (final IOReactorException ex) {
+            throw new IllegalStateException(ex);
+        }
+        this.ioReactor.setExceptionHandler(new IOReactorExceptionHandler() {
+            @Override
+            public boolean handle(final IOException ex) {
+                exceptionLogger.log(ex);
+                return false;
+            }
+
+            @Override
+            public boolean handle(final RuntimeException ex) {
+                exceptionLogger.log(ex);
+                return false;
+            }
+        });
+        this.connPool = new BasicNIOConnPool(this.ioReactor, connFactory, connectTimeout);
+        if (maxTotal > 0) {
+            this.connPool.setMaxTotal(maxTotal);
+        }
+        if (defaultMaxPerRoute > 0) {
+            this.connPool.setDefaultMaxPerRoute(defaultMaxPerRoute);
+        }
+        this.status = new AtomicReference<Status>(Status.READY);
+    }
+
+    /**
+     * Starts the I/O reactor. Requests can only be executed once the requester is started.
+     */
+    public void start() {
+        if (this.status.compareAndSet(Status.READY, Status.ACTIVE)) {
+            final IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch<NHttpClientEventHandler>(
+                    this.clientEventHandler, this.connectionFactory);
+            this.reactorExecutorService.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        ioReactor.execute(ioEventDispatch);
+                    } catch (final Exception ex) {
+                        exceptionLogger.log(ex);
+                    }
+                }
+
+            });
+        }
+    }
+
+    /**
+     * Initiates asynchronous execution of the request generated by the given
+     * producer. A connection to the target host is leased from the pool,
+     * reused for the exchange and returned to the pool once the response has
+     * been consumed.
+     *
+     * @param <T> the result type of request execution.
+     * @param requestProducer request producer.
+     * @param responseConsumer response consumer.
+     * @param context HTTP context. If {@code null} a new context will be created.
+     * @param callback future callback. May be {@code null}.
+     * @return future representing pending completion of the operation.
+     */
+    public <T> Future<T> execute(
+            final HttpAsyncRequestProducer requestProducer,
+            final HttpAsyncResponseConsumer<T> responseConsumer,
+            final HttpContext context,
+            final FutureCallback<T> callback) {
+        Asserts.check(this.status.get() == Status.ACTIVE, "Requester is not active");
+        return this.requester.execute(requestProducer, responseConsumer, this.connPool,
+                context != null ? context : HttpCoreContext.create(), callback);
+    }
+
+    /**
+     * Initiates asynchronous execution of the given request. The response
+     * content is buffered in memory.
+     *
+     * @param target the target host.
+     * @param request the request.
+     * @param context HTTP context. If {@code null} a new context will be created.
+     * @param callback future callback. May be {@code null}.
+     * @return future representing pending completion of the operation.
+     */
+    public Future<HttpResponse> execute(
+            final HttpHost target,
+            final HttpRequest request,
+            final HttpContext context,
+            final FutureCallback<HttpResponse> callback) {
+        Args.notNull(target, "Target host");
+        Args.notNull(request, "HTTP request");
+        return execute(
+                new BasicAsyncRequestProducer(target, request),
+                new BasicAsyncResponseConsumer(),
+                context,
+                callback);
+    }
+
+    /**
+     * Initiates asynchronous execution of the given request. The response
+     * content is buffered in memory.
+     *
+     * @param target the target host.
+     * @param request the request.
+     * @param callback future callback. May be {@code null}.
+     * @return future representing pending completion of the operation.
+     */
+    public Future<HttpResponse> execute(
+            final HttpHost target,
+            final HttpRequest request,
+            final FutureCallback<HttpResponse> callback) {
+        return execute(target, request, null, callback);
+    }
+
+    /**
+     * Returns the totals of the connection pool.
+     */
+    public PoolStats getTotalStats() {
+        return this.connPool.getTotalStats();
+    }
+
+    /**
+     * Returns the statistics of the connection pool for the given target host.
+     */
+    public PoolStats getStats(final HttpHost target) {
+        return this.connPool.getStats(target);
+    }
+
+    /**
+     * Closes connections that have been idle longer than the given period of time.
+     */
+    public void closeIdleConnections(final long idleTime, final TimeUnit timeUnit) {
+        this.connPool.closeIdle(idleTime, timeUnit);
+    }
+
+    public void awaitTermination(final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+        this.reactorExecutorService.awaitTermination(timeout, timeUnit);
+    }
+
+    /**
+     * Shuts down the connection pool and the I/O reactor, allowing pending
+     * I/O operations up to the given grace period to complete.
+     */
+    public void shutdown(final long gracePeriod, final TimeUnit timeUnit) {
+        final Status previous = this.status.getAndSet(Status.STOPPING);
+        if (previous == Status.STOPPING) {
+            return;
+        }
+        try {
+            this.connPool.shutdown(timeUnit.toMillis(gracePeriod));
+        } catch (final IOException ex) {
+            this.exceptionLogger.log(ex);
+        }
+        this.reactorExecutorService.shutdown();
+    }
+
+    @Override
+    public void close() {
+        shutdown(5, TimeUnit.SECONDS);
+    }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.impl.nio.bootstrap;
+
+import java.util.LinkedList;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.ExceptionLogger;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.nio.DefaultNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.pool.BasicNIOConnFactory;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpProcessorBuilder;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+
+/**
+ * Builder for {@link HttpRequester} instances.
+ *
+ * @since 4.4.11
+ */
+public class RequesterBootstrap {
+
+    private IOReactorConfig ioReactorConfig;
+    private ConnectionConfig connectionConfig;
+    private LinkedList<HttpRequestInterceptor> requestFirst;
+    private LinkedList<HttpRequestInterceptor> requestLast;
+    private LinkedList<HttpResponseInterceptor> responseFirst;
+    private LinkedList<HttpResponseInterceptor> responseLast;
+    private String userAgent;
+    private HttpProcessor httpProcessor;
+    private ConnectionReuseStrategy connStrategy;
+    private SSLContext sslContext;
+    private SSLSetupHandler sslSetupHandler;
+    private int connectTimeout;
+    private int maxTotal;
+    private int defaultMaxPerRoute;
+    private ExceptionLogger exceptionLogger;
+
+    private RequesterBootstrap() {
+    }
+
+    public static RequesterBootstrap bootstrap() {
+        return new RequesterBootstrap();
+    }
+
+    /**
+     * Sets I/O reactor configuration.
+     */
+    public final RequesterBootstrap setIOReactorConfig(final IOReactorConfig ioReactorConfig) {
+        this.ioReactorConfig = ioReactorConfig;
+        return this;
+    }
+
+    /**
+     * Sets connection configuration.
+     */
+    public final RequesterBootstrap setConnectionConfig(final ConnectionConfig connectionConfig) {
+        this.connectionConfig = connectionConfig;
+        return this;
+    }
+
+    /**
+     * Assigns {@link org.apache.http.protocol.HttpProcessor} instance.
+     */
+    public final RequesterBootstrap setHttpProcessor(final HttpProcessor httpProcessor) {
+        this.httpProcessor = httpProcessor;
+        return this;
+    }
+
+    /**
+     * Adds this protocol interceptor to the head of the protocol processing list.
+     * <p>
+     * Please note this value can be overridden by the {@link #setHttpProcessor(
+     * org.apache.http.protocol.HttpProcessor)} method.
+     */
+    public final RequesterBootstrap addInterceptorFirst(final HttpResponseInterceptor itcp) {
+        if (itcp == null) {
+            return this;
+        }
+        if (responseFirst == null) {
+            responseFirst = new LinkedList<HttpResponseInterceptor>();
+        }
+        responseFirst.addFirst(itcp);
+        return this;
+    }
+
+    /**
+     * Adds this protocol interceptor to the tail of the protocol processing list.
+     * <p>
+     * Please note this value can be overridden by the {@link #setHttpProcessor(
+     * org.apache.http.protocol.HttpProcessor)} method.
+     */
+    public final RequesterBootstrap addInterceptorLast(final HttpResponseInterceptor itcp) {
+        if (itcp == null) {
+            return this;
+        }
+        if (responseLast == null) {
+            responseLast = new LinkedList<HttpResponseInterceptor>();
+        }
+        responseLast.addLast(itcp);
+        return this;
+    }
+
+    /**
+     * Adds this protocol interceptor to the head of the protocol processing list.
+     * <p>
+     * Please note this value can be overridden by the {@link #setHttpProcessor(
+     * org.apache.http.protocol.HttpProcessor)} method.
+     */
+    public final RequesterBootstrap addInterceptorFirst(final HttpRequestInterceptor itcp) {
+        if (itcp == null) {
+            return this;
+        }
+        if (requestFirst == null) {
+            requestFirst = new LinkedList<HttpRequestInterceptor>();
+        }
+        requestFirst.addFirst(itcp);
+        return this;
+    }
+
+    /**
+     * Adds this protocol interceptor to the tail of the protocol processing list.
+     * <p>
+     * Please note this value can be overridden by the {@link #setHttpProcessor(
+     * org.apache.http.protocol.HttpProcessor)} method.
+     */
+    public final RequesterBootstrap addInterceptorLast(final HttpRequestInterceptor itcp) {
+        if (itcp == null) {
+            return this;
+        }
+        if (requestLast == null) {
+            requestLast = new LinkedList<HttpRequestInterceptor>();
+        }
+        requestLast.addLast(itcp);
+        return this;
+    }
+
+    /**
+     * Assigns {@code User-Agent} request header value.
+     * <p>
+     * Please note this value can be overridden by the {@link #setHttpProcessor(
+     * org.apache.http.protocol.HttpProcessor)} method.
+     */
+    public final RequesterBootstrap setUserAgent(final String userAgent) {
+        this.userAgent = userAgent;
+        return this;
+    }
+
+    /**
+     * Assigns {@link org.apache.http.ConnectionReuseStrategy} instance.
+     */
+    public final RequesterBootstrap setConnectionReuseStrategy(final ConnectionReuseStrategy connStrategy) {
+        this.connStrategy = connStrategy;
+        return this;
+    }
+
+    /**
+     * Assigns {@link javax.net.ssl.SSLContext} instance used for {@code https} targets.
+     * If not set, the system default SSL context is used.
+     */
+    public final RequesterBootstrap setSslContext(final SSLContext sslContext) {
+        this.sslContext = sslContext;
+        return this;
+    }
+
+    /**
+     * Assigns {@link org.apache.http.nio.reactor.ssl.SSLSetupHandler} instance.
+     */
+    public final RequesterBootstrap setSslSetupHandler(final SSLSetupHandler sslSetupHandler) {
+        this.sslSetupHandler = sslSetupHandler;
+        return this;
+    }
+
+    /**
+     * Sets the connect timeout in milliseconds. A value of zero means no timeout.
+     */
+    public final RequesterBootstrap setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum total number of pooled connections.
+     */
+    public final RequesterBootstrap setMaxTotal(final int maxTotal) {
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    /**
+     * Sets the default maximum number of pooled connections per target host.
+     */
+    public final RequesterBootstrap setDefaultMaxPerRoute(final int defaultMaxPerRoute) {
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+        return this;
+    }
+
+    /**
+     * Assigns {@link org.apache.http.ExceptionLogger} instance.
+     */
+    public final RequesterBootstrap setExceptionLogger(final ExceptionLogger exceptionLogger) {
+        this.exceptionLogger = exceptionLogger;
+        return this;
+    }
+
+    public HttpRequester create() {
+
+        HttpProcessor httpProcessorCopy = this.httpProcessor;
+        if (httpProcessorCopy == null) {
+
+            final HttpProcessorBuilder b = HttpProcessorBuilder.create();
+            if (requestFirst != null) {
+                for (final HttpRequestInterceptor i: requestFirst) {
+                    b.addFirst(i);
+                }
+            }
+            if (responseFirst != null) {
+                for (final HttpResponseInterceptor i: responseFirst) {
+                    b.addFirst(i);
+                }
+            }
+
+            String userAgentCopy = this.userAgent;
+            if (userAgentCopy == null) {
+                userAgentCopy = "Apache-HttpCore-NIO/1.1";
+            }
+
+            b.addAll(
+                    new RequestContent(),
+                    new RequestTargetHost(),
+                    new RequestConnControl(),
+                    new RequestUserAgent(userAgentCopy));
+            if (requestLast != null) {
+                for (final HttpRequestInterceptor i: requestLast) {
+                    b.addLast(i);
+                }
+            }
+            if (responseLast != null) {
+                for (final HttpResponseInterceptor i: responseLast) {
+                    b.addLast(i);
+                }
+            }
+            httpProcessorCopy = b.build();
+        }
+
+        ConnectionReuseStrategy connStrategyCopy = this.connStrategy;
+        if (connStrategyCopy == null) {
+            connStrategyCopy = DefaultConnectionReuseStrategy.INSTANCE;
+        }
+
+        final ConnectionConfig connectionConfigCopy = this.connectionConfig != null ?
+                this.connectionConfig : ConnectionConfig.DEFAULT;
+
+        ExceptionLogger exceptionLoggerCopy = this.exceptionLogger;
+        if (exceptionLoggerCopy == null) {
+            exceptionLoggerCopy = ExceptionLogger.NO_OP;
+        }
+
+        final HttpAsyncRequester requester = new HttpAsyncRequester(
+                httpProcessorCopy, connStrategyCopy, exceptionLoggerCopy);
+
+        return new HttpRequester(
+                this.ioReactorConfig,
+                requester,
+                new HttpAsyncRequestExecutor(),
+                new DefaultNHttpClientConnectionFactory(connectionConfigCopy),
+                new BasicNIOConnFactory(this.sslContext, this.sslSetupHandler, connectionConfigCopy),
+                this.connectTimeout,
+                this.maxTotal,
+                this.defaultMaxPerRoute,
+                exceptionLoggerCopy);
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.entity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.apache.http.entity.ByteRange;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileRangeEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.ContentEncoderChannel;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+
+/**
+ * A self contained, repeatable non-blocking entity that retrieves its content
+ * from one or more byte ranges of a file. If {@code useFileChannels} is set to
+ * {@code true}, the entity will try to use {@link FileContentEncoder} interface
+ * to stream the ranges directly from the file channel.
+ *
+ * @see FileRangeEntity
+ *
+ * @since 4.4.11
+ */
+public class NFileRangeEntity extends FileRangeEntity implements HttpAsyncContentProducer {
+
+    private final boolean useFileChannels;
+
+    private RandomAccessFile accessfile;
+    private FileChannel fileChannel;
+    private int part;
+    private long idx = -1;
+    private ByteBuffer pending;
+
+    /**
+     * Creates new instance of NFileRangeEntity enclosing the given ranges of the file.
+     *
+     * @param file the source file.
+     * @param ranges the ranges of the file to be sent.
+     * @param contentType the content type of the file. May be {@code null}.
+     * @param useFileChannels flag whether the direct transfer from the file
+     *   channel should be attempted.
+     */
+    public NFileRangeEntity(
+            final File file,
+            final List<ByteRange> ranges,
+            final ContentType contentType,
+            final boolean useFileChannels) {
+        super(file, ranges, contentType);
+        this.useFileChannels = useFileChannels;
+    }
+
+    public NFileRangeEntity(final File file, final List<ByteRange> ranges, final ContentType contentType) {
+        this(file, ranges, contentType, true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.accessfile != null) {
+            this.accessfile.close();
+        }
+        this.accessfile = null;
+        this.fileChannel = null;
+        this.pending = null;
+    }
+
+    @Override
+    public void produceContent(final ContentEncoder encoder, final IOControl ioctrl)
+            throws IOException {
+        if (this.fileChannel == null) {
+            this.accessfile = new RandomAccessFile(this.file, "r");
+            this.fileChannel = this.accessfile.getChannel();
+            this.part = 0;
+            this.idx = -1;
+        }
+        final List<ByteRange> ranges = getRanges();
+        while (this.part < ranges.size()) {
+            final ByteRange range = ranges.get(this.part);
+            if (this.idx < 0) {
+                if (!writePending(encoder, getPartHeader(this.part))) {
+                    return;
+                }
+                this.idx = range.getFirst();
+            }
+            final long remaining = range.getLast() + 1 - this.idx;
+            final long transferred;
+            if (this.useFileChannels && encoder instanceof FileContentEncoder) {
+                transferred = ((FileContentEncoder) encoder)
+                    .transfer(this.fileChannel, this.idx, remaining);
+            } else {
+                transferred = this.fileChannel
+                    .transferTo(this.idx, remaining, new ContentEncoderChannel(encoder));
+            }
+            if (transferred <= 0) {
+                return;
+            }
+            this.idx += transferred;
+            if (this.idx > range.getLast()) {
+                this.part++;
+                this.idx = -1;
+            } else {
+                return;
+            }
+        }
+        if (!writePending(encoder, getTrailer())) {
+            return;
+        }
+        encoder.complete();
+        close();
+    }
+
+    /**
+     * Writes out the given multipart framing bytes, keeping any portion the
+     * encoder could not accept for the next invocation.
+     *
+     * @return {@code true} if all framing bytes have been written out.
+     */
+    private boolean writePending(final ContentEncoder encoder, final byte[] bytes) throws IOException {
+        if (bytes == null) {
+            return true;
+        }
+        if (this.pending == null) {
+            this.pending = ByteBuffer.wrap(bytes);
+        }
+        encoder.write(this.pending);
+        if (this.pending.hasRemaining()) {
+            return false;
+        }
+        this.pending = null;
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.protocol;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteRange;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NFileEntity;
+import org.apache.http.nio.entity.NFileRangeEntity;
+import org.apache.http.protocol.ByteRangeSupport;
+import org.apache.http.util.Args;
+
+/**
+ * {@link HttpAsyncResponseProducer} that streams the content of a file
+ * honoring {@code Range} and {@code If-Range} request headers. Satisfiable
+ * single range requests are answered with {@code 206 Partial Content},
+ * multiple ranges with a {@code multipart/byteranges} body and unsatisfiable
+ * ones with {@code 416 Range Not Satisfiable}. File content is transferred
+ * with {@link org.apache.http.nio.FileContentEncoder#transfer} whenever
+ * the connection supports it.
+ *
+ * @see NFileRangeEntity
+ *
+ * @since 4.4.11
+ */
+public class FileRangeResponseProducer extends BasicAsyncResponseProducer {
+
+    /**
+     * Creates a producer that populates the given response with the content
+     * of the file or the ranges of it requested by the given request.
+     *
+     * @param request the request.
+     * @param response the response to be populated and sent.
+     * @param file the source file.
+     * @param contentType the content type of the file. May be {@code null}.
+     */
+    public FileRangeResponseProducer(
+            final HttpRequest request,
+            final HttpResponse response,
+            final File file,
+            final ContentType contentType) {
+        super(prepareResponse(request, response, file, contentType));
+    }
+
+    private static HttpResponse prepareResponse(
+            final HttpRequest request,
+            final HttpResponse response,
+            final File file,
+            final ContentType contentType) {
+        Args.notNull(request, "HTTP request");
+        Args.notNull(response, "HTTP response");
+        Args.notNull(file, "File");
+        final List<ByteRange> ranges = ByteRangeSupport.prepareResponse(
+                request, response, file.length(), file.lastModified());
+        if (ranges == null) {
+            response.setEntity(new NFileEntity(file, contentType));
+        } else if (ranges.isEmpty()) {
+            response.setEntity(null);
+        } else {
+            response.setEntity(new NFileRangeEntity(file, ranges, contentType));
+        }
+        return response;
+    }
+
+}
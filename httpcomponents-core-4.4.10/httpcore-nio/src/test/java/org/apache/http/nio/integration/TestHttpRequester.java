@@ -0,0 +1,200 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+package org.apache.http.nio.integration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.bootstrap.HttpRequester;
+import org.apache.http.impl.nio.bootstrap.HttpServer;
+import org.apache.http.impl.nio.bootstrap.RequesterBootstrap;
+import org.apache.http.impl.nio.bootstrap.ServerBootstrap;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.protocol.BasicAsyncRequestHandler;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHttpRequester {
+
+    private HttpServer server;
+    private HttpRequester requester;
+    private HttpHost target;
+
+    @Before
+    public void setUp() throws Exception {
+        this.server = ServerBootstrap.bootstrap()
+                .registerHandler("*", new BasicAsyncRequestHandler(new HttpRequestHandler() {
+
+                    @Override
+                    public void handle(
+                            final HttpRequest request,
+                            final HttpResponse response,
+                            final HttpContext context) throws HttpException, IOException {
+                        final String header = request.containsHeader("X-Test") ?
+                                request.getFirstHeader("X-Test").getValue() : "none";
+                        response.setStatusCode(HttpStatus.SC_OK);
+                        response.setEntity(new StringEntity(request.getRequestLine().getUri() + ";" + header));
+                    }
+
+                }))
+                .create();
+        this.server.start();
+        this.server.getEndpoint().waitFor();
+        final InetSocketAddress address = (InetSocketAddress) this.server.getEndpoint().getAddress();
+        this.target = new HttpHost("localhost", address.getPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.requester != null) {
+            this.requester.shutdown(1, TimeUnit.SECONDS);
+        }
+        if (this.server != null) {
+            this.server.shutdown(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        this.requester = RequesterBootstrap.bootstrap().create();
+        this.requester.start();
+        final Future<HttpResponse> future = this.requester.execute(
+                this.target, new BasicHttpRequest("GET", "/stuff"), null);
+        final HttpResponse response = future.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("/stuff;none", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void testConcurrentExecutionWithCallbacks() throws Exception {
+        this.requester = RequesterBootstrap.bootstrap()
+                .setDefaultMaxPerRoute(5)
+                .setMaxTotal(5)
+                .create();
+        this.requester.start();
+        final int n = 50;
+        final CountDownLatch latch = new CountDownLatch(n);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final List<Future<HttpResponse>> futures = new ArrayList<Future<HttpResponse>>();
+        for (int i = 0; i < n; i++) {
+            futures.add(this.requester.execute(this.target, new BasicHttpRequest("GET", "/" + i),
+                    new FutureCallback<HttpResponse>() {
+
+                        @Override
+                        public void completed(final HttpResponse result) {
+                            if (result.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                                succeeded.incrementAndGet();
+                            }
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void failed(final Exception ex) {
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            latch.countDown();
+                        }
+
+                    }));
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(n, succeeded.get());
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals("/" + i + ";none", EntityUtils.toString(futures.get(i).get().getEntity()));
+        }
+        final PoolStats stats = this.requester.getTotalStats();
+        Assert.assertEquals(0, stats.getLeased());
+        Assert.assertTrue(stats.getAvailable() <= 5);
+    }
+
+    @Test
+    public void testRequestInterceptor() throws Exception {
+        this.requester = RequesterBootstrap.bootstrap()
+                .addInterceptorLast(new HttpRequestInterceptor() {
+
+                    @Override
+                    public void process(
+                            final HttpRequest request,
+                            final HttpContext context) throws HttpException, IOException {
+                        request.addHeader("X-Test", "intercepted");
+                    }
+
+                })
+                .create();
+        this.requester.start();
+        final HttpResponse response = this.requester.execute(
+                this.target, new BasicHttpRequest("GET", "/"), null).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("/;intercepted", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void testConnectFailure() throws Exception {
+        this.requester = RequesterBootstrap.bootstrap().setConnectTimeout(1000).create();
+        this.requester.start();
+        final int port = this.target.getPort();
+        this.server.shutdown(1, TimeUnit.SECONDS);
+        this.server = null;
+        final Future<HttpResponse> future = this.requester.execute(
+                new HttpHost("localhost", port), new BasicHttpRequest("GET", "/"), null);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("ExecutionException expected");
+        } catch (final ExecutionException expected) {
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExecuteNotStarted() throws Exception {
+        this.requester = RequesterBootstrap.bootstrap().create();
+        this.requester.execute(this.target, new BasicHttpRequest("GET", "/"), null);
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.nio.protocol;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.WritableByteChannelMock;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.apache.http.impl.nio.codecs.LengthDelimitedEncoder;
+import org.apache.http.impl.nio.reactor.SessionOutputBufferImpl;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.entity.NFileRangeEntity;
+import org.apache.http.nio.util.ContentEncoderMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFileRangeResponseProducer {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        this.file = File.createTempFile("testfile", ".txt");
+        this.file.deleteOnExit();
+        final FileOutputStream outstream = new FileOutputStream(this.file);
+        try {
+            outstream.write("0123456789abcdefghij".getBytes(Consts.ASCII));
+        } finally {
+            outstream.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (this.file != null && this.file.exists()) {
+            this.file.delete();
+        }
+    }
+
+    private static HttpResponse newResponse() {
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+    }
+
+    private static String produce(
+            final FileRangeResponseProducer producer,
+            final ContentEncoder encoder,
+            final WritableByteChannelMock channel) throws Exception {
+        for (int i = 0; i < 100 && !encoder.isCompleted(); i++) {
+            producer.produceContent(encoder, null);
+            channel.flush();
+        }
+        Assert.assertTrue(encoder.isCompleted());
+        return channel.dump(Consts.ASCII);
+    }
+
+    @Test
+    public void testFullContent() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        final FileRangeResponseProducer producer = new FileRangeResponseProducer(
+                request, newResponse(), this.file, ContentType.TEXT_PLAIN);
+        final HttpResponse response = producer.generateResponse();
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("bytes", response.getFirstHeader(HttpHeaders.ACCEPT_RANGES).getValue());
+        Assert.assertEquals(20, response.getEntity().getContentLength());
+    }
+
+    @Test
+    public void testSingleRangeFileTransfer() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-14");
+        final FileRangeResponseProducer producer = new FileRangeResponseProducer(
+                request, newResponse(), this.file, ContentType.TEXT_PLAIN);
+        final HttpResponse response = producer.generateResponse();
+        Assert.assertEquals(HttpStatus.SC_PARTIAL_CONTENT, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("bytes 10-14/20", response.getFirstHeader(HttpHeaders.CONTENT_RANGE).getValue());
+        final HttpEntity entity = response.getEntity();
+        Assert.assertTrue(entity instanceof NFileRangeEntity);
+        Assert.assertEquals(5, entity.getContentLength());
+
+        final WritableByteChannelMock channel = new WritableByteChannelMock(64);
+        final LengthDelimitedEncoder encoder = new LengthDelimitedEncoder(
+                channel, new SessionOutputBufferImpl(1024, 128), new HttpTransportMetricsImpl(),
+                entity.getContentLength());
+        Assert.assertEquals("abcde", produce(producer, encoder, channel));
+    }
+
+    @Test
+    public void testMultipleRangesSlowChannel() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-2,-3");
+        final FileRangeResponseProducer producer = new FileRangeResponseProducer(
+                request, newResponse(), this.file, ContentType.TEXT_PLAIN);
+        final HttpResponse response = producer.generateResponse();
+        Assert.assertEquals(HttpStatus.SC_PARTIAL_CONTENT, response.getStatusLine().getStatusCode());
+        Assert.assertNull(response.getFirstHeader(HttpHeaders.CONTENT_RANGE));
+        final HttpEntity entity = response.getEntity();
+        final String contentType = entity.getContentType().getValue();
+        Assert.assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        final String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        final WritableByteChannelMock channel = new WritableByteChannelMock(64, 16);
+        final ContentEncoderMock encoder = new ContentEncoderMock(
+                channel, new SessionOutputBufferImpl(1024, 128), new HttpTransportMetricsImpl());
+        final String expected =
+                "--" + boundary + "\r\n" +
+                "Content-Type: " + ContentType.TEXT_PLAIN + "\r\n" +
+                "Content-Range: bytes 0-2/20\r\n" +
+                "\r\n" +
+                "012\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Type: " + ContentType.TEXT_PLAIN + "\r\n" +
+                "Content-Range: bytes 17-19/20\r\n" +
+                "\r\n" +
+                "hij\r\n" +
+                "--" + boundary + "--\r\n";
+        Assert.assertEquals(expected, produce(producer, encoder, channel));
+        Assert.assertEquals(expected.length(), entity.getContentLength());
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-");
+        final FileRangeResponseProducer producer = new FileRangeResponseProducer(
+                request, newResponse(), this.file, ContentType.TEXT_PLAIN);
+        final HttpResponse response = producer.generateResponse();
+        Assert.assertEquals(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+                response.getStatusLine().getStatusCode());
+        Assert.assertEquals("bytes */20", response.getFirstHeader(HttpHeaders.CONTENT_RANGE).getValue());
+        Assert.assertNull(response.getEntity());
+    }
+
+}
@@ -33,6 +33,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Basic implementation of the {@link Future} interface. {@code BasicFuture}
@@ -45,6 +48,8 @@ import java.util.concurrent.TimeoutException;
 public class BasicFuture<T> implements Future<T>, Cancellable {
 
     private final FutureCallback<T> callback;
+    private final Lock lock;
+    private final Condition condition;
 
     private volatile boolean completed;
     private volatile boolean cancelled;
@@ -54,6 +59,8 @@ public class BasicFuture<T> implements Future<T>, Cancellable {
     public BasicFuture(final FutureCallback<T> callback) {
         super();
         this.callback = callback;
+        this.lock = new ReentrantLock();
+        this.condition = this.lock.newCondition();
     }
 
     @Override
@@ -77,47 +84,51 @@ public class BasicFuture<T> implements Future<T>, Cancellable {
     }
 
     @Override
-    public synchronized T get() throws InterruptedException, ExecutionException {
-        while (!this.completed) {
-            wait();
+    public T get() throws InterruptedException, ExecutionException {
+        this.lock.lock();
+        try {
+            while (!this.completed) {
+                this.condition.await();
+            }
+        } finally {
+            this.lock.unlock();
         }
         return getResult();
     }
 
     @Override
-    public synchronized T get(final long timeout, final TimeUnit unit)
+    public T get(final long timeout, final TimeUnit unit)
             throws InterruptedException, ExecutionException, TimeoutException {
         Args.notNull(unit, "Time unit");
-        final long msecs = unit.toMillis(timeout);
-        final long startTime = (msecs <= 0) ? 0 : System.currentTimeMillis();
-        long waitTime = msecs;
         if (this.completed) {
             return getResult();
-        } else if (waitTime <= 0) {
-            throw new TimeoutException();
-        } else {
-            for (;;) {
-                wait(waitTime);
-                if (this.completed) {
-                    return getResult();
-                } else {
-                    waitTime = msecs - (System.currentTimeMillis() - startTime);
-                    if (waitTime <= 0) {
-                        throw new TimeoutException();
-                    }
+        }
+        long nanos = unit.toNanos(timeout);
+        this.lock.lock();
+        try {
+            while (!this.completed) {
+                if (nanos <= 0) {
+                    throw new TimeoutException();
                 }
+                nanos = this.condition.awaitNanos(nanos);
             }
+        } finally {
+            this.lock.unlock();
         }
+        return getResult();
     }
 
     public boolean completed(final T result) {
-        synchronized(this) {
+        this.lock.lock();
+        try {
             if (this.completed) {
                 return false;
             }
-            this.completed = true;
             this.result = result;
-            notifyAll();
+            this.completed = true;
+            this.condition.signalAll();
+        } finally {
+            this.lock.unlock();
         }
         if (this.callback != null) {
             this.callback.completed(result);
@@ -126,13 +137,16 @@ public class BasicFuture<T> implements Future<T>, Cancellable {
     }
 
     public boolean failed(final Exception exception) {
-        synchronized(this) {
+        this.lock.lock();
+        try {
             if (this.completed) {
                 return false;
             }
-            this.completed = true;
             this.ex = exception;
-            notifyAll();
+            this.completed = true;
+            this.condition.signalAll();
+        } finally {
+            this.lock.unlock();
         }
         if (this.callback != null) {
             this.callback.failed(exception);
@@ -142,13 +156,16 @@ public class BasicFuture<T> implements Future<T>, Cancellable {
 
     @Override
     public boolean cancel(final boolean mayInterruptIfRunning) {
-        synchronized(this) {
+        this.lock.lock();
+        try {
             if (this.completed) {
                 return false;
             }
-            this.completed = true;
             this.cancelled = true;
-            notifyAll();
+            this.completed = true;
+            this.condition.signalAll();
+        } finally {
+            this.lock.unlock();
         }
         if (this.callback != null) {
             this.callback.cancelled();
@@ -0,0 +1,279 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.util.Args;
+
+/**
+ * Immutable byte range of an entity as defined by the {@code Range} and
+ * {@code Content-Range} headers of RFC 7233. Both the first and the last
+ * byte positions are inclusive.
+ *
+ * @since 4.4.11
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE)
+public final class ByteRange {
+
+    /**
+     * Maximum number of ranges accepted in a single {@code Range} header.
+     * Requests asking for more ranges are served in full to guard against
+     * excessive multipart framing overhead.
+     */
+    public static final int MAX_RANGES = 64;
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private final long first;
+    private final long last;
+
+    public ByteRange(final long first, final long last) {
+        super();
+        Args.notNegative(first, "First byte position");
+        Args.check(last >= first, "Last byte position may not be less than first byte position");
+        this.first = first;
+        this.last = last;
+    }
+
+    public long getFirst() {
+        return this.first;
+    }
+
+    public long getLast() {
+        return this.last;
+    }
+
+    public long getLength() {
+        return this.last - this.first + 1;
+    }
+
+    /**
+     * Formats the value of the {@code Content-Range} header describing
+     * this range of an entity of the given complete length.
+     *
+     * @param completeLength complete length of the entity.
+     * @return {@code Content-Range} header value.
+     */
+    public String formatContentRange(final long completeLength) {
+        return BYTES_UNIT + " " + this.first + "-" + this.last + "/" + completeLength;
+    }
+
+    /**
+     * Formats the value of the {@code Content-Range} header of a
+     * {@code 416 Range Not Satisfiable} response.
+     *
+     * @param completeLength complete length of the entity.
+     * @return {@code Content-Range} header value.
+     */
+    public static String formatUnsatisfiedRange(final long completeLength) {
+        return BYTES_UNIT + " */" + completeLength;
+    }
+
+    /**
+     * Parses the value of a {@code Range} header against an entity of the given
+     * complete length. Satisfiable ranges are returned in the order they appear
+     * in the header, with the last byte position truncated to the end of the entity.
+     * If any of the ranges overlap or are adjacent, they are coalesced and returned
+     * in ascending order, so that no part of the entity is sent more than once.
+     *
+     * @param value {@code Range} header value.
+     * @param completeLength complete length of the entity.
+     * @return list of satisfiable ranges, an empty list if none of the ranges
+     *   can be satisfied, or {@code null} if the value is malformed, uses a unit
+     *   other than {@code bytes} or has more than {@link #MAX_RANGES} ranges.
+     */
+    public static List<ByteRange> parse(final String value, final long completeLength) {
+        Args.notNull(value, "Range value");
+        Args.notNegative(completeLength, "Complete length");
+        final int eq = value.indexOf('=');
+        if (eq < 0 || !value.substring(0, eq).trim().equalsIgnoreCase(BYTES_UNIT)) {
+            return null;
+        }
+        final String[] specs = value.substring(eq + 1).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        final List<ByteRange> ranges = new ArrayList<ByteRange>(specs.length);
+        boolean empty = true;
+        for (final String s: specs) {
+            final String spec = s.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            empty = false;
+            final int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            final long first;
+            final long last;
+            try {
+                if (dash == 0) {
+                    // suffix-byte-range-spec
+                    final long suffix = parsePosition(spec.substring(1));
+                    if (suffix == 0 || completeLength == 0) {
+                        continue;
+                    }
+                    first = suffix < completeLength ? completeLength - suffix : 0;
+                    last = completeLength - 1;
+                } else {
+                    first = parsePosition(spec.substring(0, dash));
+                    if (dash == spec.length() - 1) {
+                        last = completeLength - 1;
+                    } else {
+                        final long pos = parsePosition(spec.substring(dash + 1));
+                        if (pos < first) {
+                            return null;
+                        }
+                        last = pos < completeLength ? pos : completeLength - 1;
+                    }
+                    if (first >= completeLength) {
+                        continue;
+                    }
+                }
+            } catch (final NumberFormatException ex) {
+                return null;
+            }
+            ranges.add(new ByteRange(first, last));
+        }
+        return empty ? null : coalesce(ranges);
+    }
+
+    private static final Comparator<ByteRange> FIRST_POSITION = new Comparator<ByteRange>() {
+
+        @Override
+        public int compare(final ByteRange r1, final ByteRange r2) {
+            return r1.first < r2.first ? -1 : (r1.first == r2.first ? 0 : 1);
+        }
+
+    };
+
+    private static List<ByteRange> coalesce(final List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        final List<ByteRange> sorted = new ArrayList<ByteRange>(ranges);
+        Collections.sort(sorted, FIRST_POSITION);
+        final List<ByteRange> merged = new ArrayList<ByteRange>(sorted.size());
+        ByteRange current = sorted.get(0);
+        for (int i = 1; i < sorted.size(); i++) {
+            final ByteRange next = sorted.get(i);
+            if (next.first <= current.last + 1) {
+                if (next.last > current.last) {
+                    current = new ByteRange(current.first, next.last);
+                }
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged.size() < ranges.size() ? merged : ranges;
+    }
+
+    /**
+     * Selects the ranges of a representation requested by the given request.
+     * Only {@code GET} requests are eligible for range processing. If the request
+     * carries an {@code If-Range} header its value must be identical to the given
+     * validator (strong comparison), otherwise the {@code Range} header is ignored.
+     *
+     * @param request the request.
+     * @param completeLength complete length of the representation.
+     * @param validator current {@code ETag} or {@code Last-Modified} value of
+     *   the representation. May be {@code null}.
+     * @return list of requested ranges, an empty list if the request cannot be
+     *   satisfied, or {@code null} if the complete representation should be sent.
+     */
+    public static List<ByteRange> select(
+            final HttpRequest request, final long completeLength, final String validator) {
+        Args.notNull(request, "HTTP request");
+        if (!"GET".equals(request.getRequestLine().getMethod().toUpperCase(Locale.ROOT))) {
+            return null;
+        }
+        final Header range = request.getFirstHeader(HttpHeaders.RANGE);
+        if (range == null) {
+            return null;
+        }
+        final Header ifRange = request.getFirstHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            final String condition = ifRange.getValue().trim();
+            if (validator == null || condition.startsWith("W/") || !condition.equals(validator)) {
+                return null;
+            }
+        }
+        final List<ByteRange> ranges = parse(range.getValue(), completeLength);
+        return ranges != null ? Collections.unmodifiableList(ranges) : null;
+    }
+
+    private static long parsePosition(final String s) {
+        final String pos = s.trim();
+        if (pos.isEmpty()) {
+            throw new NumberFormatException("Empty byte position");
+        }
+        for (int i = 0; i < pos.length(); i++) {
+            final char ch = pos.charAt(i);
+            if (ch < '0' || ch > '9') {
+                throw new NumberFormatException("Invalid byte position: " + pos);
+            }
+        }
+        return Long.parseLong(pos);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof ByteRange) {
+            final ByteRange that = (ByteRange) obj;
+            return this.first == that.first && this.last == that.last;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (this.first ^ (this.first >>> 32)) * 31 + (int) (this.last ^ (this.last >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return this.first + "-" + this.last;
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.entity;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpHeaders;
+import org.apache.http.util.Args;
+
+/**
+ * A self contained, repeatable entity that obtains its content from one or more
+ * byte ranges of a file. A single range is sent as is, whereas multiple ranges
+ * are enclosed in a {@code multipart/byteranges} body as defined by RFC 7233.
+ * <p>
+ * Please note that the {@code Content-Range} header of a single range response
+ * is not part of the entity and must be set on the response message.
+ * </p>
+ *
+ * @see ByteRange
+ *
+ * @since 4.4.11
+ */
+public class FileRangeEntity extends AbstractHttpEntity implements Cloneable {
+
+    private final static char[] BOUNDARY_CHARS =
+            "-_1234567890abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private final static String CRLF = "\r\n";
+
+    protected final File file;
+    private final List<ByteRange> ranges;
+    private final long completeLength;
+    private final byte[][] partHeaders;
+    private final byte[] trailer;
+    private final long contentLength;
+
+    /**
+     * Creates new instance of FileRangeEntity enclosing the given ranges of the file.
+     *
+     * @param file the source file.
+     * @param ranges the ranges of the file to be sent. The ranges are expected
+     *  to be satisfiable given the current length of the file.
+     * @param contentType the content type of the file. May be {@code null}.
+     */
+    public FileRangeEntity(final File file, final List<ByteRange> ranges, final ContentType contentType) {
+        super();
+        this.file = Args.notNull(file, "File");
+        Args.notEmpty(ranges, "Byte ranges");
+        this.ranges = Collections.unmodifiableList(new ArrayList<ByteRange>(ranges));
+        this.completeLength = file.length();
+        long len = 0;
+        for (final ByteRange range: this.ranges) {
+            Args.check(range.getLast() < this.completeLength, "Byte range %s is not satisfiable", range);
+            len += range.getLength();
+        }
+        if (this.ranges.size() > 1) {
+            final String boundary = generateBoundary();
+            this.partHeaders = new byte[this.ranges.size()][];
+            for (int i = 0; i < this.partHeaders.length; i++) {
+                final StringBuilder buffer = new StringBuilder();
+                if (i > 0) {
+                    buffer.append(CRLF);
+                }
+                buffer.append("--").append(boundary).append(CRLF);
+                if (contentType != null) {
+                    buffer.append(HttpHeaders.CONTENT_TYPE).append(": ").append(contentType).append(CRLF);
+                }
+                buffer.append(HttpHeaders.CONTENT_RANGE).append(": ")
+                        .append(this.ranges.get(i).formatContentRange(this.completeLength))
+                        .append(CRLF).append(CRLF);
+                this.partHeaders[i] = buffer.toString().getBytes(Consts.ASCII);
+                len += this.partHeaders[i].length;
+            }
+            this.trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(Consts.ASCII);
+            len += this.trailer.length;
+            setContentType("multipart/byteranges; boundary=" + boundary);
+        } else {
+            this.partHeaders = null;
+            this.trailer = null;
+            if (contentType != null) {
+                setContentType(contentType.toString());
+            }
+        }
+        this.contentLength = len;
+    }
+
+    private static String generateBoundary() {
+        final StringBuilder buffer = new StringBuilder();
+        final Random rand = new Random();
+        final int count = rand.nextInt(11) + 30; // a random size from 30 to 40
+        for (int i = 0; i < count; i++) {
+            buffer.append(BOUNDARY_CHARS[rand.nextInt(BOUNDARY_CHARS.length)]);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the ranges of the file enclosed by this entity.
+     */
+    public List<ByteRange> getRanges() {
+        return this.ranges;
+    }
+
+    /**
+     * Returns the length of the file the ranges have been resolved against.
+     */
+    public long getCompleteLength() {
+        return this.completeLength;
+    }
+
+    /**
+     * Returns the multipart delimiter and headers preceding the range
+     * with the given index or {@code null} if the entity encloses a single
+     * range only.
+     */
+    protected byte[] getPartHeader(final int index) {
+        return this.partHeaders != null ? this.partHeaders[index] : null;
+    }
+
+    /**
+     * Returns the closing multipart delimiter or {@code null} if the entity
+     * encloses a single range only.
+     */
+    protected byte[] getTrailer() {
+        return this.trailer;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return this.contentLength;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final List<InputStream> streams = new ArrayList<InputStream>(this.ranges.size() * 2 + 1);
+        for (int i = 0; i < this.ranges.size(); i++) {
+            final byte[] partHeader = getPartHeader(i);
+            if (partHeader != null) {
+                streams.add(new ByteArrayInputStream(partHeader));
+            }
+            streams.add(new FileSegmentInputStream(this.file, this.ranges.get(i)));
+        }
+        if (this.trailer != null) {
+            streams.add(new ByteArrayInputStream(this.trailer));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    @Override
+    public void writeTo(final OutputStream outstream) throws IOException {
+        Args.notNull(outstream, "Output stream");
+        final RandomAccessFile accessfile = new RandomAccessFile(this.file, "r");
+        try {
+            final byte[] tmp = new byte[OUTPUT_BUFFER_SIZE];
+            for (int i = 0; i < this.ranges.size(); i++) {
+                final byte[] partHeader = getPartHeader(i);
+                if (partHeader != null) {
+                    outstream.write(partHeader);
+                }
+                final ByteRange range = this.ranges.get(i);
+                accessfile.seek(range.getFirst());
+                long remaining = range.getLength();
+                while (remaining > 0) {
+                    final int l = accessfile.read(tmp, 0, (int) Math.min(tmp.length, remaining));
+                    if (l == -1) {
+                        throw new IOException("Unexpected end of file " + this.file);
+                    }
+                    outstream.write(tmp, 0, l);
+                    remaining -= l;
+                }
+            }
+            if (this.trailer != null) {
+                outstream.write(this.trailer);
+            }
+            outstream.flush();
+        } finally {
+            accessfile.close();
+        }
+    }
+
+    /**
+     * Tells that this entity is not streaming.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        // File and range instances are considered immutable
+        // No need to make a copy of them
+        return super.clone();
+    }
+
+    static class FileSegmentInputStream extends InputStream {
+
+        private final File file;
+        private final ByteRange range;
+        private RandomAccessFile accessfile;
+        private long remaining;
+
+        FileSegmentInputStream(final File file, final ByteRange range) {
+            super();
+            this.file = file;
+            this.range = range;
+            this.remaining = range.getLength();
+        }
+
+        private RandomAccessFile ensureOpen() throws IOException {
+            if (this.accessfile == null) {
+                this.accessfile = new RandomAccessFile(this.file, "r");
+                this.accessfile.seek(this.range.getFirst());
+            }
+            return this.accessfile;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            final int b = ensureOpen().read();
+            if (b != -1) {
+                this.remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            final int l = ensureOpen().read(b, off, (int) Math.min(len, this.remaining));
+            if (l > 0) {
+                this.remaining -= l;
+            }
+            return l;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(Integer.MAX_VALUE, this.remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.remaining = 0;
+            if (this.accessfile != null) {
+                this.accessfile.close();
+                this.accessfile = null;
+            }
+        }
+
+    }
+
+}
@@ -361,6 +361,7 @@ public class BHttpConnectionBase implements HttpConnection, HttpInetConnection {
             return true;
         }
         try {
+            ensureOpen();
             final int bytesRead = fillInputBuffer(1);
             return bytesRead < 0;
         } catch (final SocketTimeoutException ex) {
@@ -195,6 +195,7 @@ public abstract class AbstractConnPool<T, C, E extends PoolEntry<T, C>>
             private final AtomicBoolean cancelled = new AtomicBoolean(false);
             private final AtomicBoolean done = new AtomicBoolean(false);
             private final AtomicReference<E> entryRef = new AtomicReference<E>(null);
+            private final Lock leaseLock = new ReentrantLock();
 
             @Override
             public boolean cancel(final boolean mayInterruptIfRunning) {
@@ -240,34 +241,39 @@ public abstract class AbstractConnPool<T, C, E extends PoolEntry<T, C>>
                 if (entry != null) {
                     return entry;
                 }
-                synchronized (this) {
-                    try {
-                        for (;;) {
-                            final E leasedEntry = getPoolEntryBlocking(route, state, timeout, tunit, this);
-                            if (validateAfterInactivity > 0)  {
-                                if (leasedEntry.getUpdated() + validateAfterInactivity <= System.currentTimeMillis()) {
-                                    if (!validate(leasedEntry)) {
-                                        leasedEntry.close();
-                                        release(leasedEntry, false);
-                                        continue;
-                                    }
+                leaseLock.lock();
+                try {
+                    final E leased = entryRef.get();
+                    if (leased != null) {
+                        return leased;
+                    }
+                    for (;;) {
+                        final E leasedEntry = getPoolEntryBlocking(route, state, timeout, tunit, this);
+                        if (validateAfterInactivity > 0)  {
+                            if (leasedEntry.getUpdated() + validateAfterInactivity <= System.currentTimeMillis()) {
+                                if (!validate(leasedEntry)) {
+                                    leasedEntry.close();
+                                    release(leasedEntry, false);
+                                    continue;
                                 }
                             }
-                            entryRef.set(leasedEntry);
-                            done.set(true);
-                            onLease(leasedEntry);
-                            if (callback != null) {
-                                callback.completed(leasedEntry);
-                            }
-                            return leasedEntry;
                         }
-                    } catch (final IOException ex) {
+                        entryRef.set(leasedEntry);
                         done.set(true);
+                        onLease(leasedEntry);
                         if (callback != null) {
-                            callback.failed(ex);
+                            callback.completed(leasedEntry);
                         }
-                        throw new ExecutionException(ex);
+                        return leasedEntry;
                     }
+                } catch (final IOException ex) {
+                    done.set(true);
+                    if (callback != null) {
+                        callback.failed(ex);
+                    }
+                    throw new ExecutionException(ex);
+                } finally {
+                    leaseLock.unlock();
                 }
             }
 
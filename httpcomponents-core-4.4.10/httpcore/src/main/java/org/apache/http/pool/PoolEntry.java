@@ -57,9 +57,9 @@ public abstract class PoolEntry<T, C> {
     private final long created;
     private final long validityDeadline;
 
-    private long updated;
+    private volatile long updated;
 
-    private long expiry;
+    private volatile long expiry;
 
     private volatile Object state;
 
@@ -144,27 +144,28 @@ public abstract class PoolEntry<T, C> {
         this.state = state;
     }
 
-    public synchronized long getUpdated() {
+    public long getUpdated() {
         return this.updated;
     }
 
-    public synchronized long getExpiry() {
+    public long getExpiry() {
         return this.expiry;
     }
 
-    public synchronized void updateExpiry(final long time, final TimeUnit tunit) {
+    public void updateExpiry(final long time, final TimeUnit tunit) {
         Args.notNull(tunit, "Time unit");
-        this.updated = System.currentTimeMillis();
+        final long now = System.currentTimeMillis();
         final long newExpiry;
         if (time > 0) {
-            newExpiry = this.updated + tunit.toMillis(time);
+            newExpiry = now + tunit.toMillis(time);
         } else {
             newExpiry = Long.MAX_VALUE;
         }
         this.expiry = Math.min(newExpiry, this.validityDeadline);
+        this.updated = now;
     }
 
-    public synchronized boolean isExpired(final long now) {
+    public boolean isExpired(final long now) {
         return now >= this.expiry;
     }
 
@@ -0,0 +1,104 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.protocol;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.ByteRange;
+import org.apache.http.util.Args;
+
+/**
+ * Helper methods shared by the blocking and non-blocking range request handlers.
+ *
+ * @see FileRangeRequestHandler
+ *
+ * @since 4.4.11
+ */
+public final class ByteRangeSupport {
+
+    private ByteRangeSupport() {
+    }
+
+    /**
+     * Formats the given time as an RFC 1123 date suitable for the
+     * {@code Last-Modified} header.
+     */
+    public static String formatDate(final long time) {
+        final DateFormat dateformat = new SimpleDateFormat(HttpDateGenerator.PATTERN_RFC1123, Locale.US);
+        dateformat.setTimeZone(HttpDateGenerator.GMT);
+        return dateformat.format(new Date(time));
+    }
+
+    /**
+     * Sets the status code and the {@code Accept-Ranges}, {@code Last-Modified}
+     * and {@code Content-Range} headers of the response to a request for a
+     * representation of the given length and modification time. The response
+     * entity is left to the caller.
+     *
+     * @param request the request.
+     * @param response the response.
+     * @param completeLength complete length of the representation.
+     * @param lastModified last modification time of the representation.
+     * @return list of ranges to be sent, an empty list if the request cannot be
+     *   satisfied, or {@code null} if the complete representation should be sent.
+     */
+    public static List<ByteRange> prepareResponse(
+            final HttpRequest request,
+            final HttpResponse response,
+            final long completeLength,
+            final long lastModified) {
+        Args.notNull(request, "HTTP request");
+        Args.notNull(response, "HTTP response");
+        final String validator = formatDate(lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.LAST_MODIFIED, validator);
+
+        final List<ByteRange> ranges = ByteRange.select(request, completeLength, validator);
+        if (ranges == null) {
+            response.setStatusCode(HttpStatus.SC_OK);
+        } else if (ranges.isEmpty()) {
+            response.setStatusCode(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, ByteRange.formatUnsatisfiedRange(completeLength));
+        } else {
+            response.setStatusCode(HttpStatus.SC_PARTIAL_CONTENT);
+            if (ranges.size() == 1) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, ranges.get(0).formatContentRange(completeLength));
+            }
+        }
+        return ranges;
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.protocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.MethodNotSupportedException;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.entity.ByteRange;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.FileRangeEntity;
+import org.apache.http.util.Args;
+
+/**
+ * {@link HttpRequestHandler} that serves files from a document root and
+ * supports {@code Range} and {@code If-Range} requests. Satisfiable single
+ * range requests are answered with {@code 206 Partial Content}, multiple
+ * ranges with a {@code multipart/byteranges} body and unsatisfiable ones with
+ * {@code 416 Range Not Satisfiable}. The {@code Last-Modified} date of the
+ * file is used as the validator for {@code If-Range} conditions.
+ *
+ * @see ByteRange
+ * @see FileRangeEntity
+ *
+ * @since 4.4.11
+ */
+@Contract(threading = ThreadingBehavior.IMMUTABLE)
+public class FileRangeRequestHandler implements HttpRequestHandler {
+
+    private final File docRoot;
+    private final ContentType contentType;
+
+    /**
+     * @param docRoot the document root the request paths are resolved against.
+     * @param contentType the content type of the served files. May be {@code null}.
+     */
+    public FileRangeRequestHandler(final File docRoot, final ContentType contentType) {
+        super();
+        this.docRoot = Args.notNull(docRoot, "Document root");
+        this.contentType = contentType;
+    }
+
+    public FileRangeRequestHandler(final File docRoot) {
+        this(docRoot, ContentType.APPLICATION_OCTET_STREAM);
+    }
+
+    @Override
+    public void handle(
+            final HttpRequest request,
+            final HttpResponse response,
+            final HttpContext context) throws HttpException, IOException {
+        final String method = request.getRequestLine().getMethod().toUpperCase(Locale.ROOT);
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            throw new MethodNotSupportedException(method + " method not supported");
+        }
+        final File file = resolveFile(request, context);
+        if (file == null || !file.exists()) {
+            response.setStatusCode(HttpStatus.SC_NOT_FOUND);
+            return;
+        }
+        if (!file.isFile() || !file.canRead()) {
+            response.setStatusCode(HttpStatus.SC_FORBIDDEN);
+            return;
+        }
+        final List<ByteRange> ranges = ByteRangeSupport.prepareResponse(
+                request, response, file.length(), file.lastModified());
+        if (ranges == null) {
+            response.setEntity(new FileEntity(file, getContentType(file)));
+        } else if (!ranges.isEmpty()) {
+            response.setEntity(new FileRangeEntity(file, ranges, getContentType(file)));
+        }
+    }
+
+    /**
+     * Resolves the file requested by the given request. The default implementation
+     * maps the percent-decoded request path onto the document root and rejects
+     * paths resolving outside of it.
+     *
+     * @param request the HTTP request.
+     * @param context the HTTP execution context.
+     * @return the requested file or {@code null} if the request does not
+     *   denote a file under the document root.
+     */
+    protected File resolveFile(
+            final HttpRequest request, final HttpContext context) throws IOException {
+        final String path;
+        try {
+            path = new URI(request.getRequestLine().getUri()).getPath();
+        } catch (final URISyntaxException ex) {
+            return null;
+        }
+        if (path == null) {
+            return null;
+        }
+        final File root = this.docRoot.getCanonicalFile();
+        final File file = new File(root, path).getCanonicalFile();
+        final String rootPath = root.getPath();
+        final String prefix = rootPath.endsWith(File.separator) ? rootPath : rootPath + File.separator;
+        if (!file.getPath().startsWith(prefix) || file.getPath().length() == prefix.length()) {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Determines the content type of the given file. The default implementation
+     * returns the content type this handler has been created with.
+     */
+    protected ContentType getContentType(final File file) {
+        return this.contentType;
+    }
+
+}
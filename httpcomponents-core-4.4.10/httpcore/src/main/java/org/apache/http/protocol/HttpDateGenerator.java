@@ -27,17 +27,31 @@
 
 package org.apache.http.protocol;
 
-import org.apache.http.annotation.ThreadingBehavior;
-import org.apache.http.annotation.Contract;
-
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.annotation.Contract;
+import org.apache.http.annotation.ThreadingBehavior;
+import org.apache.http.message.BufferedHeader;
+import org.apache.http.util.Args;
+import org.apache.http.util.ByteArrayBuffer;
+import org.apache.http.util.CharArrayBuffer;
 
 /**
  * Generates a date in the format required by the HTTP protocol.
+ * <p>
+ * The formatted date is cached with a one second resolution and published
+ * to concurrent callers through an atomic reference, so that the date
+ * is formatted at most once per second and reading it does not involve
+ * any locking. A thread that formatted an earlier second does not replace
+ * the date of a later second, unless the clock has been set back.
+ * </p>
  *
  * @since 4.0
  */
@@ -51,24 +65,88 @@ public class HttpDateGenerator {
     /** The time zone to use in the date header. */
     public static final TimeZone GMT = TimeZone.getTimeZone("GMT");
 
-    private final DateFormat dateformat;
-    private long dateAsLong = 0L;
-    private String dateAsText = null;
+    /**
+     * Shared instance used by the standard protocol interceptors.
+     *
+     * @since 4.4.11
+     */
+    public static final HttpDateGenerator INSTANCE = new HttpDateGenerator();
+
+    /**
+     * Difference in seconds beyond which an earlier date is assumed to be
+     * the result of the clock being set back rather than of a race.
+     */
+    private static final long MAX_CLOCK_SKEW = 60;
+
+    static final class CachedDate {
+
+        final long second;
+        final String text;
+        final byte[] bytes;
+        final Header header;
+
+        CachedDate(final long second, final String text) {
+            this.second = second;
+            this.text = text;
+            this.bytes = text.getBytes(Consts.ASCII);
+            final CharArrayBuffer buffer = new CharArrayBuffer(HTTP.DATE_HEADER.length() + 2 + text.length());
+            buffer.append(HTTP.DATE_HEADER);
+            buffer.append(": ");
+            buffer.append(text);
+            this.header = new BufferedHeader(buffer);
+        }
+
+    }
+
+    private final AtomicReference<CachedDate> cachedDateRef;
 
     public HttpDateGenerator() {
         super();
-        this.dateformat = new SimpleDateFormat(PATTERN_RFC1123, Locale.US);
-        this.dateformat.setTimeZone(GMT);
+        this.cachedDateRef = new AtomicReference<CachedDate>();
     }
 
-    public synchronized String getCurrentDate() {
-        final long now = System.currentTimeMillis();
-        if (now - this.dateAsLong > 1000) {
-            // Generate new date string
-            this.dateAsText = this.dateformat.format(new Date(now));
-            this.dateAsLong = now;
+    CachedDate getCachedDate(final long now) {
+        final long second = now / 1000;
+        final CachedDate current = this.cachedDateRef.get();
+        if (current != null && current.second == second) {
+            return current;
         }
-        return this.dateAsText;
+        // Concurrent threads may race to format the same second;
+        // any of the resulting instances is equally valid
+        final DateFormat dateformat = new SimpleDateFormat(PATTERN_RFC1123, Locale.US);
+        dateformat.setTimeZone(GMT);
+        final CachedDate cachedDate = new CachedDate(second, dateformat.format(new Date(second * 1000)));
+        CachedDate latest = current;
+        while ((latest == null || latest.second < second || latest.second - second > MAX_CLOCK_SKEW)
+                && !this.cachedDateRef.compareAndSet(latest, cachedDate)) {
+            latest = this.cachedDateRef.get();
+        }
+        return cachedDate;
+    }
+
+    public String getCurrentDate() {
+        return getCachedDate(System.currentTimeMillis()).text;
+    }
+
+    /**
+     * Appends the current date as ASCII encoded bytes to the given buffer.
+     *
+     * @since 4.4.11
+     */
+    public void appendCurrentDate(final ByteArrayBuffer buffer) {
+        Args.notNull(buffer, "Buffer");
+        final byte[] bytes = getCachedDate(System.currentTimeMillis()).bytes;
+        buffer.append(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns a {@code Date} header with the current date. The header is
+     * pre-formatted and shared by all callers within the same second.
+     *
+     * @since 4.4.11
+     */
+    public Header getCurrentDateHeader() {
+        return getCachedDate(System.currentTimeMillis()).header;
     }
 
 }
@@ -47,8 +47,6 @@ import org.apache.http.util.Args;
 @Contract(threading = ThreadingBehavior.SAFE)
 public class RequestDate implements HttpRequestInterceptor {
 
-    private static final HttpDateGenerator DATE_GENERATOR = new HttpDateGenerator();
-
     public RequestDate() {
         super();
     }
@@ -59,7 +57,7 @@ public class RequestDate implements HttpRequestInterceptor {
         Args.notNull(request, "HTTP request");
         if ((request instanceof HttpEntityEnclosingRequest) &&
             !request.containsHeader(HTTP.DATE_HEADER)) {
-            final String httpdate = DATE_GENERATOR.getCurrentDate();
+            final String httpdate = HttpDateGenerator.INSTANCE.getCurrentDate();
             request.setHeader(HTTP.DATE_HEADER, httpdate);
         }
     }
@@ -27,11 +27,18 @@
 
 package org.apache.http.protocol;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.http.annotation.Contract;
 import org.apache.http.annotation.ThreadingBehavior;
@@ -49,6 +56,12 @@ import org.apache.http.util.Args;
  * <br>
  * This class can be used to resolve an object matching a particular request
  * URI.
+ * <p>
+ * Registered patterns are kept in an immutable snapshot that is replaced
+ * on every modification. Prefix and suffix patterns are indexed by a trie,
+ * so that lookups are lock-free and proportional to the length of the request
+ * path rather than to the number of registered patterns.
+ * </p>
  *
  * @param <T> The type of registered objects.
  * @since 4.0
@@ -56,11 +69,29 @@ import org.apache.http.util.Args;
 @Contract(threading = ThreadingBehavior.SAFE)
 public class UriPatternMatcher<T> {
 
-    private final Map<String, T> map;
+    private final boolean customMatch;
+    private final Lock writeLock;
+    private volatile Index<T> index;
 
     public UriPatternMatcher() {
         super();
-        this.map = new HashMap<String, T>();
+        this.customMatch = isMatchOverridden(getClass());
+        this.writeLock = new ReentrantLock();
+        this.index = new Index<T>(new HashMap<String, T>());
+    }
+
+    private static boolean isMatchOverridden(final Class<?> clazz) {
+        for (Class<?> c = clazz; c != null && c != UriPatternMatcher.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("matchUriRequestPattern", String.class, String.class);
+                return true;
+            } catch (final NoSuchMethodException ex) {
+                // not declared by this class
+            } catch (final SecurityException ex) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -71,8 +102,8 @@ public class UriPatternMatcher<T> {
      * @see Map#entrySet()
      * @since 4.4.9
      */
-    public synchronized Set<Entry<String, T>> entrySet() {
-        return new HashSet<Entry<String, T>>(map.entrySet());
+    public Set<Entry<String, T>> entrySet() {
+        return new HashSet<Entry<String, T>>(this.index.map.entrySet());
     }
 
     /**
@@ -81,9 +112,16 @@ public class UriPatternMatcher<T> {
      * @param pattern the pattern to register the handler for.
      * @param obj the object.
      */
-    public synchronized void register(final String pattern, final T obj) {
+    public void register(final String pattern, final T obj) {
         Args.notNull(pattern, "URI request pattern");
-        this.map.put(pattern, obj);
+        this.writeLock.lock();
+        try {
+            final Map<String, T> map = new HashMap<String, T>(this.index.map);
+            map.put(pattern, obj);
+            this.index = new Index<T>(map);
+        } finally {
+            this.writeLock.unlock();
+        }
     }
 
     /**
@@ -91,39 +129,60 @@ public class UriPatternMatcher<T> {
      *
      * @param pattern the pattern to unregister.
      */
-    public synchronized void unregister(final String pattern) {
+    public void unregister(final String pattern) {
         if (pattern == null) {
             return;
         }
-        this.map.remove(pattern);
+        this.writeLock.lock();
+        try {
+            if (!this.index.map.containsKey(pattern)) {
+                return;
+            }
+            final Map<String, T> map = new HashMap<String, T>(this.index.map);
+            map.remove(pattern);
+            this.index = new Index<T>(map);
+        } finally {
+            this.writeLock.unlock();
+        }
     }
 
     /**
      * @deprecated (4.1) do not use
      */
     @Deprecated
-    public synchronized void setHandlers(final Map<String, T> map) {
+    public void setHandlers(final Map<String, T> map) {
         Args.notNull(map, "Map of handlers");
-        this.map.clear();
-        this.map.putAll(map);
+        this.writeLock.lock();
+        try {
+            this.index = new Index<T>(new HashMap<String, T>(map));
+        } finally {
+            this.writeLock.unlock();
+        }
     }
 
     /**
      * @deprecated (4.1) do not use
      */
     @Deprecated
-    public synchronized void setObjects(final Map<String, T> map) {
+    public void setObjects(final Map<String, T> map) {
         Args.notNull(map, "Map of handlers");
-        this.map.clear();
-        this.map.putAll(map);
+        this.writeLock.lock();
+        try {
+            this.index = new Index<T>(new HashMap<String, T>(map));
+        } finally {
+            this.writeLock.unlock();
+        }
     }
 
     /**
+     * Returns a live view of the registered objects. Modifications of the
+     * view are written through to this matcher.
+     *
      * @deprecated (4.1) do not use
      */
     @Deprecated
-    public synchronized Map<String, T> getObjects() {
-        return this.map;
+    public Map<String, T> getObjects() {
+        return new ObjectMapView();
     }
 
     /**
@@ -132,23 +191,29 @@ public class UriPatternMatcher<T> {
      * @param path the request path
      * @return object or {@code null} if no match is found.
      */
-    public synchronized T lookup(final String path) {
+    public T lookup(final String path) {
         Args.notNull(path, "Request path");
+        final Index<T> current = this.index;
         // direct match?
-        T obj = this.map.get(path);
+        T obj = current.map.get(path);
         if (obj == null) {
             // pattern match?
-            String bestMatch = null;
-            for (final String pattern : this.map.keySet()) {
-                if (matchUriRequestPattern(pattern, path)) {
-                    // we have a match. is it any better?
-                    if (bestMatch == null
-                            || (bestMatch.length() < pattern.length())
-                            || (bestMatch.length() == pattern.length() && pattern.endsWith("*"))) {
-                        obj = this.map.get(pattern);
-                        bestMatch = pattern;
+            if (this.customMatch) {
+                String bestMatch = null;
+                for (final Entry<String, T> entry : current.map.entrySet()) {
+                    final String pattern = entry.getKey();
+                    if (matchUriRequestPattern(pattern, path)) {
+                        // we have a match. is it any better?
+                        if (bestMatch == null
+                                || (bestMatch.length() < pattern.length())
+                                || (bestMatch.length() == pattern.length() && pattern.endsWith("*"))) {
+                            obj = entry.getValue();
+                            bestMatch = pattern;
+                        }
                     }
                 }
+            } else {
+                obj = current.match(path);
             }
         }
         return obj;
@@ -156,6 +221,11 @@ public class UriPatternMatcher<T> {
 
     /**
      * Tests if the given request path matches the given pattern.
+     * <p>
+     * Please note that overriding this method disables the trie based
+     * pattern index and makes {@link #lookup(String)} evaluate every
+     * registered pattern.
+     * </p>
      *
      * @param pattern the pattern
      * @param path the request path
@@ -174,7 +244,223 @@ public class UriPatternMatcher<T> {
 
     @Override
     public String toString() {
-        return this.map.toString();
+        return this.index.map.toString();
+    }
+
+    /**
+     * Mutable view of the registered objects backed by the current snapshot,
+     * kept for the deprecated {@link #getObjects()}.
+     */
+    private final class ObjectMapView extends AbstractMap<String, T> {
+
+        @Override
+        public int size() {
+            return index.map.size();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return index.map.containsKey(key);
+        }
+
+        @Override
+        public T get(final Object key) {
+            return index.map.get(key);
+        }
+
+        @Override
+        public T put(final String key, final T value) {
+            writeLock.lock();
+            try {
+                final T previous = index.map.get(key);
+                register(key, value);
+                return previous;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public T remove(final Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            writeLock.lock();
+            try {
+                final T previous = index.map.get(key);
+                unregister((String) key);
+                return previous;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            writeLock.lock();
+            try {
+                index = new Index<T>(new HashMap<String, T>());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public Set<Entry<String, T>> entrySet() {
+            return new AbstractSet<Entry<String, T>>() {
+
+                @Override
+                public Iterator<Entry<String, T>> iterator() {
+                    final Iterator<Entry<String, T>> it = index.map.entrySet().iterator();
+                    return new Iterator<Entry<String, T>>() {
+
+                        private Entry<String, T> current;
+
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, T> next() {
+                            final Entry<String, T> entry = it.next();
+                            this.current = entry;
+                            return new SimpleEntry<String, T>(entry) {
+
+                                private static final long serialVersionUID = 1L;
+
+                                @Override
+                                public T setValue(final T value) {
+                                    super.setValue(value);
+                                    return put(getKey(), value);
+                                }
+
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (this.current == null) {
+                                throw new IllegalStateException();
+                            }
+                            unregister(this.current.getKey());
+                            this.current = null;
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return index.map.size();
+                }
+
+            };
+        }
+
+    }
+
+    /**
+     * Immutable snapshot of registered patterns. Patterns of the form
+     * {@code <uri>*} are indexed by a trie over their prefix, patterns
+     * of the form {@code *<uri>} by a trie over their reversed suffix.
+     */
+    static final class Index<T> {
+
+        final Map<String, T> map;
+        final Node<T> prefixes;
+        final Node<T> suffixes;
+
+        Index(final Map<String, T> map) {
+            this.map = Collections.unmodifiableMap(map);
+            this.prefixes = new Node<T>();
+            this.suffixes = new Node<T>();
+            for (final Entry<String, T> entry : map.entrySet()) {
+                final String pattern = entry.getKey();
+                final int len = pattern.length();
+                if (pattern.endsWith("*")) {
+                    Node<T> node = this.prefixes;
+                    for (int i = 0; i < len - 1; i++) {
+                        node = node.getOrAdd(pattern.charAt(i));
+                    }
+                    node.pattern = pattern;
+                    node.value = entry.getValue();
+                }
+                if (pattern.startsWith("*")) {
+                    Node<T> node = this.suffixes;
+                    for (int i = len - 1; i > 0; i--) {
+                        node = node.getOrAdd(pattern.charAt(i));
+                    }
+                    node.pattern = pattern;
+                    node.value = entry.getValue();
+                }
+            }
+        }
+
+        T match(final String path) {
+            final int len = path.length();
+            Node<T> node = this.prefixes;
+            Node<T> prefixMatch = node.pattern != null ? node : null;
+            for (int i = 0; i < len && node != null; i++) {
+                node = node.get(path.charAt(i));
+                if (node != null && node.pattern != null) {
+                    prefixMatch = node;
+                }
+            }
+            node = this.suffixes;
+            Node<T> suffixMatch = node.pattern != null ? node : null;
+            for (int i = len - 1; i >= 0 && node != null; i--) {
+                node = node.get(path.charAt(i));
+                if (node != null && node.pattern != null) {
+                    suffixMatch = node;
+                }
+            }
+            // longer patterns win, prefix patterns (ending with '*') win ties
+            if (prefixMatch != null
+                    && (suffixMatch == null || prefixMatch.pattern.length() >= suffixMatch.pattern.length())) {
+                return prefixMatch.value;
+            }
+            return suffixMatch != null ? suffixMatch.value : null;
+        }
+
+    }
+
+    static final class Node<T> {
+
+        private static final char[] EMPTY_KEYS = new char[0];
+
+        private char[] keys = EMPTY_KEYS;
+        private Node<?>[] children = new Node<?>[0];
+
+        String pattern;
+        T value;
+
+        @SuppressWarnings("unchecked")
+        Node<T> get(final char ch) {
+            final int i = Arrays.binarySearch(this.keys, ch);
+            return i >= 0 ? (Node<T>) this.children[i] : null;
+        }
+
+        Node<T> getOrAdd(final char ch) {
+            final Node<T> existing = get(ch);
+            if (existing != null) {
+                return existing;
+            }
+            final int i = -(Arrays.binarySearch(this.keys, ch) + 1);
+            final char[] newKeys = new char[this.keys.length + 1];
+            final Node<?>[] newChildren = new Node<?>[this.children.length + 1];
+            System.arraycopy(this.keys, 0, newKeys, 0, i);
+            System.arraycopy(this.children, 0, newChildren, 0, i);
+            System.arraycopy(this.keys, i, newKeys, i + 1, this.keys.length - i);
+            System.arraycopy(this.children, i, newChildren, i + 1, this.children.length - i);
+            final Node<T> node = new Node<T>();
+            newKeys[i] = ch;
+            newChildren[i] = node;
+            this.keys = newKeys;
+            this.children = newChildren;
+            return node;
+        }
+
     }
 
 }
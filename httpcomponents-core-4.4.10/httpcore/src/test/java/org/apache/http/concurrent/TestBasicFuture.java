@@ -27,9 +27,11 @@
 package org.apache.http.concurrent;
 
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -229,4 +231,39 @@ public class TestBasicFuture {
         future.get(-1, TimeUnit.MILLISECONDS);
     }
 
+    @Test
+    public void testConcurrentWaiters() throws Exception {
+        final BasicFuture<Object> future = new BasicFuture<Object>(null);
+        final Object result = new Object();
+        final int n = 20;
+        final CountDownLatch started = new CountDownLatch(n);
+        final CountDownLatch done = new CountDownLatch(n);
+        final AtomicInteger matched = new AtomicInteger();
+
+        for (int i = 0; i < n; i++) {
+            final Thread t = new Thread() {
+
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        if (future.get(60, TimeUnit.SECONDS) == result) {
+                            matched.incrementAndGet();
+                        }
+                    } catch (final Exception ex) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+        started.await();
+        Assert.assertTrue(future.completed(result));
+        Assert.assertTrue(done.await(60, TimeUnit.SECONDS));
+        Assert.assertEquals(n, matched.get());
+    }
+
 }
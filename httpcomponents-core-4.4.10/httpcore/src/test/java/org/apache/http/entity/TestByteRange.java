@@ -0,0 +1,159 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.entity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.message.BasicHttpRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ByteRange}.
+ *
+ */
+public class TestByteRange {
+
+    @Test
+    public void testBasics() throws Exception {
+        final ByteRange range = new ByteRange(10, 19);
+        Assert.assertEquals(10, range.getFirst());
+        Assert.assertEquals(19, range.getLast());
+        Assert.assertEquals(10, range.getLength());
+        Assert.assertEquals("bytes 10-19/100", range.formatContentRange(100));
+        Assert.assertEquals("bytes */100", ByteRange.formatUnsatisfiedRange(100));
+        Assert.assertEquals(new ByteRange(10, 19), range);
+        Assert.assertEquals(new ByteRange(10, 19).hashCode(), range.hashCode());
+        Assert.assertFalse(range.equals(new ByteRange(10, 20)));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidRange() throws Exception {
+        new ByteRange(10, 9);
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 499)), ByteRange.parse("bytes=0-499", 10000));
+        Assert.assertEquals(Arrays.asList(new ByteRange(500, 999)), ByteRange.parse("bytes=500-999", 10000));
+        Assert.assertEquals(Arrays.asList(new ByteRange(9500, 9999)), ByteRange.parse("bytes=-500", 10000));
+        Assert.assertEquals(Arrays.asList(new ByteRange(9500, 9999)), ByteRange.parse("bytes=9500-", 10000));
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 0), new ByteRange(9999, 9999)),
+                ByteRange.parse("bytes=0-0,-1", 10000));
+        Assert.assertEquals(Arrays.asList(new ByteRange(500, 600), new ByteRange(602, 999)),
+                ByteRange.parse("Bytes = 500-600 , 602-999", 10000));
+        Assert.assertEquals(Arrays.asList(new ByteRange(602, 999), new ByteRange(500, 600)),
+                ByteRange.parse("bytes=602-999,500-600", 10000));
+    }
+
+    @Test
+    public void testParseCoalesce() throws Exception {
+        Assert.assertEquals(Arrays.asList(new ByteRange(500, 999)),
+                ByteRange.parse("bytes=500-600,601-999", 10000));
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 199), new ByteRange(500, 999)),
+                ByteRange.parse("bytes=500-999,100-199,0-150", 10000));
+        final StringBuilder buffer = new StringBuilder("bytes=0-");
+        for (int i = 1; i < ByteRange.MAX_RANGES; i++) {
+            buffer.append(",0-");
+        }
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 9999)), ByteRange.parse(buffer.toString(), 10000));
+    }
+
+    @Test
+    public void testParseTruncation() throws Exception {
+        Assert.assertEquals(Arrays.asList(new ByteRange(5, 9)), ByteRange.parse("bytes=5-100", 10));
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 9)), ByteRange.parse("bytes=-100", 10));
+    }
+
+    @Test
+    public void testParseUnsatisfiable() throws Exception {
+        Assert.assertEquals(Collections.<ByteRange>emptyList(), ByteRange.parse("bytes=10-20", 10));
+        Assert.assertEquals(Collections.<ByteRange>emptyList(), ByteRange.parse("bytes=-0", 10));
+        Assert.assertEquals(Collections.<ByteRange>emptyList(), ByteRange.parse("bytes=-10", 0));
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 1)), ByteRange.parse("bytes=20-30,0-1", 10));
+    }
+
+    @Test
+    public void testParseMalformed() throws Exception {
+        Assert.assertNull(ByteRange.parse("bytes", 10));
+        Assert.assertNull(ByteRange.parse("items=0-1", 10));
+        Assert.assertNull(ByteRange.parse("bytes=", 10));
+        Assert.assertNull(ByteRange.parse("bytes=1", 10));
+        Assert.assertNull(ByteRange.parse("bytes=5-1", 10));
+        Assert.assertNull(ByteRange.parse("bytes=a-b", 10));
+        Assert.assertNull(ByteRange.parse("bytes=-", 10));
+        Assert.assertNull(ByteRange.parse("bytes=+1-2", 10));
+        Assert.assertNull(ByteRange.parse("bytes=0-1,x", 10));
+    }
+
+    @Test
+    public void testParseTooManyRanges() throws Exception {
+        final StringBuilder buffer = new StringBuilder("bytes=");
+        for (int i = 0; i <= ByteRange.MAX_RANGES; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            buffer.append(i).append('-').append(i);
+        }
+        Assert.assertNull(ByteRange.parse(buffer.toString(), 1000));
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        Assert.assertNull(ByteRange.select(request, 100, null));
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        final List<ByteRange> ranges = ByteRange.select(request, 100, null);
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 9)), ranges);
+    }
+
+    @Test
+    public void testSelectNonGet() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("HEAD", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        Assert.assertNull(ByteRange.select(request, 100, null));
+    }
+
+    @Test
+    public void testSelectIfRange() throws Exception {
+        final String date = "Tue, 15 Nov 1994 08:12:31 GMT";
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        request.addHeader(HttpHeaders.IF_RANGE, date);
+        Assert.assertEquals(Arrays.asList(new ByteRange(0, 9)), ByteRange.select(request, 100, date));
+        Assert.assertNull(ByteRange.select(request, 100, "Wed, 16 Nov 1994 08:12:31 GMT"));
+        Assert.assertNull(ByteRange.select(request, 100, null));
+
+        request.setHeader(HttpHeaders.IF_RANGE, "W/\"xyzzy\"");
+        Assert.assertNull(ByteRange.select(request, 100, "W/\"xyzzy\""));
+    }
+
+}
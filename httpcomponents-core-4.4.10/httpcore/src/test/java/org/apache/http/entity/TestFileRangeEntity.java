@@ -0,0 +1,150 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.http.Consts;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link FileRangeEntity}.
+ *
+ */
+public class TestFileRangeEntity {
+
+    private File tmpfile;
+
+    @Before
+    public void createTempFile() throws Exception {
+        this.tmpfile = File.createTempFile("testfile", ".txt");
+        this.tmpfile.deleteOnExit();
+        final FileOutputStream outstream = new FileOutputStream(this.tmpfile);
+        try {
+            outstream.write("0123456789abcdefghij".getBytes(Consts.ASCII));
+        } finally {
+            outstream.close();
+        }
+    }
+
+    @After
+    public void deleteTempFile() {
+        if (this.tmpfile != null && this.tmpfile.exists()) {
+            this.tmpfile.delete();
+        }
+    }
+
+    @Test
+    public void testSingleRange() throws Exception {
+        final FileRangeEntity httpentity = new FileRangeEntity(this.tmpfile,
+                Collections.singletonList(new ByteRange(5, 9)), ContentType.TEXT_PLAIN);
+
+        Assert.assertEquals(5, httpentity.getContentLength());
+        Assert.assertEquals(20, httpentity.getCompleteLength());
+        Assert.assertEquals(ContentType.TEXT_PLAIN.toString(), httpentity.getContentType().getValue());
+        Assert.assertTrue(httpentity.isRepeatable());
+        Assert.assertFalse(httpentity.isStreaming());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        httpentity.writeTo(out);
+        Assert.assertEquals("56789", new String(out.toByteArray(), Consts.ASCII));
+        Assert.assertEquals("56789", EntityUtils.toString(httpentity, Consts.ASCII));
+    }
+
+    @Test
+    public void testMultipleRanges() throws Exception {
+        final FileRangeEntity httpentity = new FileRangeEntity(this.tmpfile,
+                Arrays.asList(new ByteRange(0, 1), new ByteRange(18, 19)), ContentType.TEXT_PLAIN);
+
+        final String contentType = httpentity.getContentType().getValue();
+        Assert.assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        final String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        final String expected =
+                "--" + boundary + "\r\n" +
+                "Content-Type: " + ContentType.TEXT_PLAIN + "\r\n" +
+                "Content-Range: bytes 0-1/20\r\n" +
+                "\r\n" +
+                "01\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Type: " + ContentType.TEXT_PLAIN + "\r\n" +
+                "Content-Range: bytes 18-19/20\r\n" +
+                "\r\n" +
+                "ij\r\n" +
+                "--" + boundary + "--\r\n";
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        httpentity.writeTo(out);
+        Assert.assertEquals(expected, new String(out.toByteArray(), Consts.ASCII));
+        Assert.assertEquals(expected.length(), httpentity.getContentLength());
+
+        final InputStream content = httpentity.getContent();
+        try {
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            int b;
+            while ((b = content.read()) != -1) {
+                buf.write(b);
+            }
+            Assert.assertEquals(expected, new String(buf.toByteArray(), Consts.ASCII));
+        } finally {
+            content.close();
+        }
+    }
+
+    @Test
+    public void testIllegalConstructor() throws Exception {
+        try {
+            new FileRangeEntity(null, Collections.singletonList(new ByteRange(0, 1)), ContentType.TEXT_PLAIN);
+            Assert.fail("IllegalArgumentException should have been thrown");
+        } catch (final IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            new FileRangeEntity(this.tmpfile, Collections.<ByteRange>emptyList(), ContentType.TEXT_PLAIN);
+            Assert.fail("IllegalArgumentException should have been thrown");
+        } catch (final IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            new FileRangeEntity(this.tmpfile, Collections.singletonList(new ByteRange(0, 20)), ContentType.TEXT_PLAIN);
+            Assert.fail("IllegalArgumentException should have been thrown");
+        } catch (final IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.protocol;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFileRangeRequestHandler {
+
+    private File docRoot;
+    private File file;
+    private FileRangeRequestHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        this.file = File.createTempFile("testfile", ".txt");
+        this.file.deleteOnExit();
+        this.docRoot = this.file.getParentFile();
+        final FileOutputStream outstream = new FileOutputStream(this.file);
+        try {
+            outstream.write("0123456789".getBytes(Consts.ASCII));
+        } finally {
+            outstream.close();
+        }
+        this.handler = new FileRangeRequestHandler(this.docRoot);
+    }
+
+    @After
+    public void tearDown() {
+        if (this.file != null && this.file.exists()) {
+            this.file.delete();
+        }
+    }
+
+    private HttpResponse execute(final BasicHttpRequest request) throws Exception {
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        this.handler.handle(request, response, new BasicHttpContext());
+        return response;
+    }
+
+    @Test
+    public void testFullContent() throws Exception {
+        final HttpResponse response = execute(new BasicHttpRequest("GET", "/" + this.file.getName()));
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("bytes", response.getFirstHeader(HttpHeaders.ACCEPT_RANGES).getValue());
+        Assert.assertNotNull(response.getFirstHeader(HttpHeaders.LAST_MODIFIED));
+        Assert.assertEquals("0123456789", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void testSingleRange() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/" + this.file.getName());
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        final HttpResponse response = execute(request);
+        Assert.assertEquals(HttpStatus.SC_PARTIAL_CONTENT, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("bytes 2-4/10", response.getFirstHeader(HttpHeaders.CONTENT_RANGE).getValue());
+        Assert.assertEquals("234", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/" + this.file.getName());
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+        final HttpResponse response = execute(request);
+        Assert.assertEquals(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+                response.getStatusLine().getStatusCode());
+        Assert.assertEquals("bytes */10", response.getFirstHeader(HttpHeaders.CONTENT_RANGE).getValue());
+        Assert.assertNull(response.getEntity());
+    }
+
+    @Test
+    public void testIfRangeMismatch() throws Exception {
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/" + this.file.getName());
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        request.addHeader(HttpHeaders.IF_RANGE, "Tue, 15 Nov 1994 08:12:31 GMT");
+        final HttpResponse response = execute(request);
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("0123456789", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void testIfRangeMatch() throws Exception {
+        final HttpResponse head = execute(new BasicHttpRequest("HEAD", "/" + this.file.getName()));
+        final BasicHttpRequest request = new BasicHttpRequest("GET", "/" + this.file.getName());
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        request.addHeader(HttpHeaders.IF_RANGE, head.getFirstHeader(HttpHeaders.LAST_MODIFIED).getValue());
+        final HttpResponse response = execute(request);
+        Assert.assertEquals(HttpStatus.SC_PARTIAL_CONTENT, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("789", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+        final HttpResponse response = execute(new BasicHttpRequest("GET", "/no-such-file"));
+        Assert.assertEquals(HttpStatus.SC_NOT_FOUND, response.getStatusLine().getStatusCode());
+    }
+
+    @Test
+    public void testOutsideDocRoot() throws Exception {
+        final HttpResponse response = execute(new BasicHttpRequest("GET", "/../" + this.file.getName()));
+        Assert.assertEquals(HttpStatus.SC_NOT_FOUND, response.getStatusLine().getStatusCode());
+    }
+
+    @Test
+    public void testPlusInPath() throws Exception {
+        final File plusFile = File.createTempFile("test+file", ".txt");
+        try {
+            final FileOutputStream outstream = new FileOutputStream(plusFile);
+            try {
+                outstream.write("plus".getBytes(Consts.ASCII));
+            } finally {
+                outstream.close();
+            }
+            final HttpResponse response = execute(new BasicHttpRequest("GET", "/" + plusFile.getName()));
+            Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+            Assert.assertEquals("plus", EntityUtils.toString(response.getEntity()));
+        } finally {
+            plusFile.delete();
+        }
+    }
+
+    @Test
+    public void testPercentEncodedPath() throws Exception {
+        final String name = this.file.getName();
+        final String encoded = "/%" + Integer.toHexString(name.charAt(0)) + name.substring(1);
+        final HttpResponse response = execute(new BasicHttpRequest("GET", encoded + "?q=1"));
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("0123456789", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test
+    public void testFileSystemRootAsDocRoot() throws Exception {
+        File root = this.file.getCanonicalFile();
+        while (root.getParentFile() != null) {
+            root = root.getParentFile();
+        }
+        this.handler = new FileRangeRequestHandler(root);
+        final String path = this.file.getCanonicalPath().substring(root.getPath().length())
+                .replace(File.separatorChar, '/');
+        final HttpResponse response = execute(new BasicHttpRequest("GET", "/" + path));
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+        Assert.assertEquals("0123456789", EntityUtils.toString(response.getEntity()));
+    }
+
+    @Test(expected=org.apache.http.MethodNotSupportedException.class)
+    public void testMethodNotSupported() throws Exception {
+        execute(new BasicHttpRequest("DELETE", "/" + this.file.getName()));
+    }
+
+}
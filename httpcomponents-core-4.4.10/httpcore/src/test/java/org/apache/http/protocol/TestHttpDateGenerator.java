@@ -0,0 +1,145 @@
+/*
+ * ====================================================================
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * ====================================================================
+ *
+ * This software consists of voluntary contributions made by many
+ * individuals on behalf of the Apache Software Foundation.  For more
+ * information on the Apache Software Foundation, please see
+ * <http://www.apache.org/>.
+ *
+ */
+
+package org.apache.http.protocol;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.util.ByteArrayBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHttpDateGenerator {
+
+    @Test
+    public void testCurrentDate() throws Exception {
+        final HttpDateGenerator generator = new HttpDateGenerator();
+        final SimpleDateFormat dateformat = new SimpleDateFormat(HttpDateGenerator.PATTERN_RFC1123, Locale.US);
+        dateformat.setTimeZone(HttpDateGenerator.GMT);
+
+        final long before = System.currentTimeMillis() / 1000 * 1000;
+        final String s = generator.getCurrentDate();
+        final long after = System.currentTimeMillis();
+        final Date date = dateformat.parse(s);
+        Assert.assertTrue(date.getTime() >= before);
+        Assert.assertTrue(date.getTime() <= after);
+        Assert.assertTrue(s.endsWith(" GMT"));
+    }
+
+    @Test
+    public void testAppendCurrentDate() throws Exception {
+        final HttpDateGenerator generator = new HttpDateGenerator();
+        for (int i = 0; i < 3; i++) {
+            final String s = generator.getCurrentDate();
+            final ByteArrayBuffer buffer = new ByteArrayBuffer(64);
+            buffer.append('[');
+            generator.appendCurrentDate(buffer);
+            final String s2 = generator.getCurrentDate();
+            if (s.equals(s2)) {
+                Assert.assertEquals("[" + s, new String(buffer.toByteArray(), Consts.ASCII));
+                return;
+            }
+        }
+        Assert.fail("Date keeps changing");
+    }
+
+    @Test
+    public void testCurrentDateHeader() throws Exception {
+        final HttpDateGenerator generator = new HttpDateGenerator();
+        for (int i = 0; i < 3; i++) {
+            final String s = generator.getCurrentDate();
+            final Header header = generator.getCurrentDateHeader();
+            final String s2 = generator.getCurrentDate();
+            if (s.equals(s2)) {
+                Assert.assertEquals(HTTP.DATE_HEADER, header.getName());
+                Assert.assertEquals(s, header.getValue());
+                Assert.assertSame(header, generator.getCurrentDateHeader());
+                return;
+            }
+        }
+        Assert.fail("Date keeps changing");
+    }
+
+    @Test
+    public void testEarlierDateDoesNotReplaceLater() throws Exception {
+        final HttpDateGenerator generator = new HttpDateGenerator();
+        final HttpDateGenerator.CachedDate later = generator.getCachedDate(1000000000000L);
+        final HttpDateGenerator.CachedDate earlier = generator.getCachedDate(999999999000L);
+        Assert.assertEquals(later.second - 1, earlier.second);
+        Assert.assertSame(later, generator.getCachedDate(1000000000500L));
+        // Clock set back by more than the tolerated skew
+        final HttpDateGenerator.CachedDate reset = generator.getCachedDate(999000000000L);
+        Assert.assertSame(reset, generator.getCachedDate(999000000500L));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final int threads = 64;
+        final HttpDateGenerator generator = new HttpDateGenerator();
+        final SimpleDateFormat dateformat = new SimpleDateFormat(HttpDateGenerator.PATTERN_RFC1123, Locale.US);
+        dateformat.setTimeZone(HttpDateGenerator.GMT);
+        final CountDownLatch startGate = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(new Callable<String>() {
+
+                    @Override
+                    public String call() throws Exception {
+                        startGate.await();
+                        String last = null;
+                        for (int n = 0; n < 10000; n++) {
+                            last = generator.getCurrentDate();
+                            Assert.assertNotNull(last);
+                        }
+                        return last;
+                    }
+
+                });
+            }
+            startGate.countDown();
+            for (final Future<?> future: futures) {
+                final String s = (String) future.get(30, TimeUnit.SECONDS);
+                Assert.assertNotNull(dateformat.parse(s));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -27,6 +27,11 @@
 
 package org.apache.http.protocol;
 
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -154,6 +159,55 @@ public class TestUriPatternMatcher {
         Assert.assertTrue(h1 == h);
     }
 
+    @Test
+    public void testLongerSuffixPatternMatch() throws Exception {
+        final Object h1 = new Object();
+        final Object h2 = new Object();
+
+        final UriPatternMatcher<Object> matcher = new UriPatternMatcher<Object>();
+        matcher.register("/*", h1);
+        matcher.register("*/match", h2);
+
+        Assert.assertSame(h2, matcher.lookup("/some/match"));
+        Assert.assertSame(h1, matcher.lookup("/some/other"));
+        Assert.assertNull(matcher.lookup("some/other"));
+    }
+
+    @Test
+    public void testManyPatterns() throws Exception {
+        final UriPatternMatcher<Object> matcher = new UriPatternMatcher<Object>();
+        final Object[] handlers = new Object[200];
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i] = new Object();
+            matcher.register("/app" + i + "/*", handlers[i]);
+        }
+        for (int i = 0; i < handlers.length; i++) {
+            Assert.assertSame(handlers[i], matcher.lookup("/app" + i + "/resource"));
+        }
+        Assert.assertNull(matcher.lookup("/app/resource"));
+        matcher.unregister("/app10/*");
+        Assert.assertNull(matcher.lookup("/app10/resource"));
+        Assert.assertSame(handlers[100], matcher.lookup("/app100/resource"));
+    }
+
+    @Test
+    public void testCustomPatternMatching() throws Exception {
+        final Object h1 = new Object();
+
+        final UriPatternMatcher<Object> matcher = new UriPatternMatcher<Object>() {
+
+            @Override
+            protected boolean matchUriRequestPattern(final String pattern, final String path) {
+                return path.toLowerCase(java.util.Locale.ROOT).startsWith(pattern);
+            }
+
+        };
+        matcher.register("/one", h1);
+
+        Assert.assertSame(h1, matcher.lookup("/ONE/request"));
+        Assert.assertNull(matcher.lookup("/two/request"));
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testRegisterInvalidInput() throws Exception {
         final UriPatternMatcher<Object> matcher = new UriPatternMatcher<Object>();
@@ -166,4 +220,51 @@ public class TestUriPatternMatcher {
         matcher.lookup(null);
     }
 
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testObjectsViewWritesThrough() throws Exception {
+        final Object h1 = new Object();
+        final Object h2 = new Object();
+
+        final UriPatternMatcher<Object> matcher = new UriPatternMatcher<Object>();
+        final Map<String, Object> objects = matcher.getObjects();
+        Assert.assertNull(objects.put("/h1/*", h1));
+        Assert.assertSame(h1, matcher.lookup("/h1/stuff"));
+        objects.put("/h2", h2);
+        Assert.assertEquals(2, objects.size());
+        Assert.assertSame(h1, objects.remove("/h1/*"));
+        Assert.assertNull(matcher.lookup("/h1/stuff"));
+
+        final Iterator<Map.Entry<String, Object>> it = objects.entrySet().iterator();
+        final Map.Entry<String, Object> entry = it.next();
+        entry.setValue(h1);
+        Assert.assertSame(h1, matcher.lookup("/h2"));
+        it.remove();
+        Assert.assertNull(matcher.lookup("/h2"));
+
+        objects.put("/h2", h2);
+        objects.clear();
+        Assert.assertTrue(matcher.entrySet().isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedRegistryGetHandlers() throws Exception {
+        final HttpRequestHandler h1 = new HttpRequestHandler() {
+
+            @Override
+            public void handle(
+                    final HttpRequest request,
+                    final HttpResponse response,
+                    final HttpContext context) {
+            }
+
+        };
+        final HttpRequestHandlerRegistry registry = new HttpRequestHandlerRegistry();
+        registry.getHandlers().put("/h1", h1);
+        Assert.assertSame(h1, registry.lookup("/h1"));
+        registry.getHandlers().remove("/h1");
+        Assert.assertNull(registry.lookup("/h1"));
+    }
+
 }